@@ -11,6 +11,9 @@ import android.os.Handler;
 import android.provider.MediaStore;
 import android.util.Log;
 
+import com.gallery.sweeper.photo.cleaner.data.PhotoRepository;
+import com.gallery.sweeper.photo.cleaner.data.scan.MediaStoreChangeTracker;
+
 /**
  * 项目名称：
  * 作者：wx
@@ -28,6 +31,8 @@ public class App extends Application {
 
     private static volatile App instance;
 
+    private MediaStoreChangeTracker mediaStoreChangeTracker; // 媒体库变化跟踪
+
     public static App getInstance() {
         if (instance == null) {
             synchronized (App.class) {
@@ -65,13 +70,10 @@ public class App extends Application {
 
         //PhotoRepository.getInstance().cleanupNonExistingPhotos();
 
-        // 注册媒体库变化观察者
-        /*ContentResolver resolver = getContentResolver();
-        resolver.registerContentObserver(
-                MediaStore.Images.Media.EXTERNAL_CONTENT_URI,
-                true,
-                new MediaStoreObserver()
-        );*/
+        // 注册媒体库变化跟踪：合并短时间内的通知，只同步变化的照片
+        mediaStoreChangeTracker = new MediaStoreChangeTracker(getContentResolver(),
+                (changedIds, fullDelta) -> PhotoRepository.getInstance().syncMediaChanges(this, changedIds, fullDelta));
+        mediaStoreChangeTracker.start();
 
 
         //scheduleMediaScanJob(this);
@@ -121,19 +123,4 @@ public class App extends Application {
 
         jobScheduler.schedule(jobInfo);*/
     }
-    /**
-     * 媒体库变化观察者
-     */
-    /*private class MediaStoreObserver extends ContentObserver {
-        public MediaStoreObserver() {
-            super(new Handler());
-        }
-
-        @Override
-        public void onChange(boolean selfChange) {
-            super.onChange(selfChange);
-            // 媒体库变化时触发扫描
-            PhotoRepository.getInstance().scanMediaStore(App.this);
-        }
-    }*/
 }
@@ -7,14 +7,20 @@ import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import androidx.room.TypeConverters;
+import androidx.room.migration.Migration;
 import androidx.sqlite.db.SimpleSQLiteQuery;
 import androidx.sqlite.db.SupportSQLiteDatabase;
 
 import com.daz.lib_base.utils.XLog;
+import com.gallery.sweeper.photo.cleaner.data.dao.ExifDateCacheDao;
 import com.gallery.sweeper.photo.cleaner.data.dao.PhotoDao;
 import com.gallery.sweeper.photo.cleaner.data.dao.PhotoGroupDao;
+import com.gallery.sweeper.photo.cleaner.data.dao.ScanStateDao;
+import com.gallery.sweeper.photo.cleaner.data.db.ExifDateCache;
 import com.gallery.sweeper.photo.cleaner.data.db.Photo;
 import com.gallery.sweeper.photo.cleaner.data.db.PhotoGroup;
+import com.gallery.sweeper.photo.cleaner.data.db.ScanCheckpoint;
+import com.gallery.sweeper.photo.cleaner.data.db.ScanState;
 
 import java.util.concurrent.Executors;
 
@@ -24,8 +30,8 @@ import java.util.concurrent.Executors;
  * 时间：2025/7/23 17:31
  * 描述：照片数据库类，使用单例模式确保数据库实例唯一
  */
-@Database(entities = {Photo.class, PhotoGroup.class},
-        version = 1,
+@Database(entities = {Photo.class, PhotoGroup.class, ScanState.class, ScanCheckpoint.class, ExifDateCache.class},
+        version = 11,
         exportSchema = false
 )
 @TypeConverters({GroupTypeConverters.class, PhotoStatusConverter.class})
@@ -36,26 +42,337 @@ public abstract class PhotoDatabase extends RoomDatabase {
 
     public abstract PhotoGroupDao photoGroupDao();
 
+    public abstract ScanStateDao scanStateDao();
+
+    public abstract ExifDateCacheDao exifDateCacheDao();
+
+    /**
+     * 版本1 -> 2：新增扫描水位线表
+     */
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `scan_state` (" +
+                    "`volume_name` TEXT NOT NULL, " +
+                    "`media_store_version` TEXT, " +
+                    "`generation` INTEGER NOT NULL, " +
+                    "`max_date_modified` INTEGER NOT NULL, " +
+                    "`max_media_id` INTEGER NOT NULL, " +
+                    "`last_scan_time` INTEGER NOT NULL, " +
+                    "PRIMARY KEY(`volume_name`))");
+            XLog.i("PhotoDatabase", "数据库迁移完成 | 1 -> 2");
+        }
+    };
+
+    /**
+     * 版本2 -> 3：新增扫描断点表
+     */
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `scan_checkpoint` (" +
+                    "`volume_name` TEXT NOT NULL, " +
+                    "`scan_mode` TEXT, " +
+                    "`media_store_version` TEXT, " +
+                    "`start_generation` INTEGER NOT NULL, " +
+                    "`base_generation` INTEGER NOT NULL, " +
+                    "`base_max_date_modified` INTEGER NOT NULL, " +
+                    "`base_max_media_id` INTEGER NOT NULL, " +
+                    "`last_media_id` INTEGER NOT NULL, " +
+                    "`max_date_modified` INTEGER NOT NULL, " +
+                    "`committed_rows` INTEGER NOT NULL, " +
+                    "`inserted` INTEGER NOT NULL, " +
+                    "`updated` INTEGER NOT NULL, " +
+                    "`deleted` INTEGER NOT NULL, " +
+                    "`started_at` INTEGER NOT NULL, " +
+                    "`updated_at` INTEGER NOT NULL, " +
+                    "PRIMARY KEY(`volume_name`))");
+            XLog.i("PhotoDatabase", "数据库迁移完成 | 2 -> 3");
+        }
+    };
+
+    /**
+     * 版本3 -> 4：断点新增拍摄时间，用于渐进式扫描恢复
+     */
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `scan_checkpoint` ADD COLUMN `last_date_taken` INTEGER NOT NULL DEFAULT 0");
+            XLog.i("PhotoDatabase", "数据库迁移完成 | 3 -> 4");
+        }
+    };
+
+    /**
+     * 版本4 -> 5：新增EXIF拍摄时间缓存表
+     */
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `exif_date_cache` (" +
+                    "`path` TEXT NOT NULL, " +
+                    "`size` INTEGER NOT NULL, " +
+                    "`date_modified` INTEGER NOT NULL, " +
+                    "`date_taken` INTEGER NOT NULL, " +
+                    "PRIMARY KEY(`path`))");
+            XLog.i("PhotoDatabase", "数据库迁移完成 | 4 -> 5");
+        }
+    };
+
+    /**
+     * 版本5 -> 6：照片新增文件元数据列，分组新增空间统计列，新增状态+大小覆盖索引
+     * 旧照片的元数据为默认值，下一次全量扫描时补齐
+     */
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `photos` ADD COLUMN `size` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE `photos` ADD COLUMN `width` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE `photos` ADD COLUMN `height` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE `photos` ADD COLUMN `mime_type` TEXT");
+            db.execSQL("ALTER TABLE `photos` ADD COLUMN `date_modified` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_photos_status_size` ON `photos` (`status`, `size`)");
+            db.execSQL("ALTER TABLE `photo_groups` ADD COLUMN `total_bytes` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE `photo_groups` ADD COLUMN `trash_bytes` INTEGER NOT NULL DEFAULT 0");
+            // 已有照片没有元数据，清除水位线和断点，下次启动执行全量扫描补齐
+            db.execSQL("DELETE FROM `scan_state`");
+            db.execSQL("DELETE FROM `scan_checkpoint`");
+            XLog.i("PhotoDatabase", "数据库迁移完成 | 5 -> 6");
+        }
+    };
+
+    /**
+     * 版本6 -> 7：照片表新增触发器维护分组计数，并按当前照片表重新校准已有分组的计数
+     */
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            createLegacyGroupCounterTriggers(db);
+            db.execSQL("UPDATE photo_groups SET " +
+                    "photo_count = (SELECT COUNT(*) FROM photos p WHERE " + MATCHES_GROUP + "), " +
+                    "trash_count = (SELECT COUNT(*) FROM photos p WHERE " + MATCHES_GROUP + " AND p.status = 2), " +
+                    "keep_count = (SELECT COUNT(*) FROM photos p WHERE " + MATCHES_GROUP + " AND p.status = 1), " +
+                    "total_bytes = (SELECT COALESCE(SUM(p.size), 0) FROM photos p WHERE " + MATCHES_GROUP + "), " +
+                    "trash_bytes = (SELECT COALESCE(SUM(p.size), 0) FROM photos p WHERE " + MATCHES_GROUP +
+                    " AND p.status = 2)");
+            XLog.i("PhotoDatabase", "数据库迁移完成 | 6 -> 7");
+        }
+    };
+
+    // 照片p属于当前分组行：月份分组匹配年+月，年份分组只匹配年
+    private static final String MATCHES_GROUP = "p.year_group = photo_groups.year_group " +
+            "AND (photo_groups.month_group IS NULL OR p.month_group = photo_groups.month_group)";
+
+    /**
+     * 版本7~9的触发器（按字符串分组键匹配），仅用于MIGRATION_6_7；版本10重建照片表时随旧表删除
+     */
+    private static void createLegacyGroupCounterTriggers(@NonNull SupportSQLiteDatabase db) {
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `trg_photos_group_insert` AFTER INSERT ON `photos` BEGIN " +
+                counterUpdate("NEW", "+", LEGACY_GROUP_KEYS) + " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `trg_photos_group_delete` AFTER DELETE ON `photos` BEGIN " +
+                counterUpdate("OLD", "-", LEGACY_GROUP_KEYS) + " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `trg_photos_group_update` " +
+                "AFTER UPDATE OF `status`, `size`, `year_group`, `month_group` ON `photos` " +
+                "WHEN OLD.status IS NOT NEW.status OR OLD.size IS NOT NEW.size " +
+                "OR OLD.year_group IS NOT NEW.year_group OR OLD.month_group IS NOT NEW.month_group BEGIN " +
+                counterUpdate("OLD", "-", LEGACY_GROUP_KEYS) + " " +
+                counterUpdate("NEW", "+", LEGACY_GROUP_KEYS) + " END");
+    }
+
+    private static final String LEGACY_GROUP_KEYS =
+            "group_key IN ({row}.year_group || '-' || {row}.month_group, {row}.year_group)";
+
+    // 月份分组和所在年份分组
+    private static final String GROUP_BUCKETS = "bucket IN ({row}.bucket, {row}.bucket / 100 * 100)";
+
+    /**
+     * 照片表的插入、删除以及状态/大小/分组变化在同一写事务内同步到所在年/月分组的计数，
+     * 分组行不存在时不做任何事（由仓库在写入后聚合补建）。
+     * 触发器只维护计数和字节数，时间边界和封面仍由仓库按增量判断是否需要刷新。
+     */
+    static void createGroupCounterTriggers(@NonNull SupportSQLiteDatabase db) {
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `trg_photos_group_insert` AFTER INSERT ON `photos` BEGIN " +
+                counterUpdate("NEW", "+", GROUP_BUCKETS) + " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `trg_photos_group_delete` AFTER DELETE ON `photos` BEGIN " +
+                counterUpdate("OLD", "-", GROUP_BUCKETS) + " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `trg_photos_group_update` " +
+                "AFTER UPDATE OF `status`, `size`, `bucket` ON `photos` " +
+                "WHEN OLD.status IS NOT NEW.status OR OLD.size IS NOT NEW.size " +
+                "OR OLD.bucket IS NOT NEW.bucket BEGIN " +
+                counterUpdate("OLD", "-", GROUP_BUCKETS) + " " + counterUpdate("NEW", "+", GROUP_BUCKETS) + " END");
+    }
+
+    // 按行（NEW/OLD）加减所在月份和年份分组的计数
+    private static String counterUpdate(String row, String sign, String groups) {
+        return "UPDATE photo_groups SET " +
+                "photo_count = photo_count " + sign + " 1, " +
+                "trash_count = trash_count " + sign + " (" + row + ".status = 2), " +
+                "keep_count = keep_count " + sign + " (" + row + ".status = 1), " +
+                "total_bytes = total_bytes " + sign + " " + row + ".size, " +
+                "trash_bytes = trash_bytes " + sign + " (CASE WHEN " + row + ".status = 2 THEN " + row +
+                ".size ELSE 0 END) " +
+                "WHERE " + groups.replace("{row}", row) + ";";
+    }
+
+    /**
+     * 版本7 -> 8：新增分组聚合覆盖索引
+     */
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_photos_group_cover` ON `photos` " +
+                    "(`year_group`, `month_group`, `date_taken`, `status`, `size`)");
+            XLog.i("PhotoDatabase", "数据库迁移完成 | 7 -> 8");
+        }
+    };
+
+    /**
+     * 版本8 -> 9：单列索引替换为按查询设计的复合索引（见PhotoDaoQueryPlanTest）
+     * 同时删除建库回调中手工创建的索引，数据库中的索引与实体声明保持一致
+     */
+    static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("DROP INDEX IF EXISTS `idx_year_group`");
+            db.execSQL("DROP INDEX IF EXISTS `idx_month_group`");
+            db.execSQL("DROP INDEX IF EXISTS `idx_group_type`");
+            db.execSQL("DROP INDEX IF EXISTS `index_photos_date_taken`");
+            db.execSQL("DROP INDEX IF EXISTS `index_photos_year_group`");
+            db.execSQL("DROP INDEX IF EXISTS `index_photos_month_group`");
+            db.execSQL("DROP INDEX IF EXISTS `index_photos_status_size`");
+            db.execSQL("DROP INDEX IF EXISTS `index_photos_group_cover`");
+            db.execSQL("DROP INDEX IF EXISTS `index_photo_groups_latest_photo_timestamp`");
+            db.execSQL("DROP INDEX IF EXISTS `index_photo_groups_earliest_photo_timestamp`");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_photos_status_date` ON `photos` " +
+                    "(`status`, `date_taken`, `size`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_photos_group_cover` ON `photos` " +
+                    "(`year_group`, `month_group`, `date_taken`, `media_store_id`, `status`, `size`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_photos_year_date` ON `photos` " +
+                    "(`year_group`, `date_taken`, `media_store_id`, `status`, `size`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_photo_groups_type_latest` ON `photo_groups` " +
+                    "(`group_type`, `latest_photo_timestamp`)");
+            XLog.i("PhotoDatabase", "数据库迁移完成 | 8 -> 9");
+        }
+    };
+
+    /**
+     * 版本9 -> 10：年/月字符串分组改为整数分组键（月份yyyymm，年份yyyy00，见GroupBucket）
+     * 照片表重建为bucket列，旧分组字符串按"年份+月份缩写"换算，无法识别时按拍摄时间（本地时区）计算；
+     * 分组表重建后由照片表重新聚合：月份分组按bucket聚合，年份分组由月份分组汇总
+     */
+    static final Migration MIGRATION_9_10 = new Migration(9, 10) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `photos_new` (" +
+                    "`media_store_id` INTEGER NOT NULL, " +
+                    "`path` TEXT, " +
+                    "`date_taken` INTEGER NOT NULL, " +
+                    "`bucket` INTEGER NOT NULL, " +
+                    "`status` INTEGER NOT NULL DEFAULT 0, " +
+                    "`size` INTEGER NOT NULL DEFAULT 0, " +
+                    "`width` INTEGER NOT NULL DEFAULT 0, " +
+                    "`height` INTEGER NOT NULL DEFAULT 0, " +
+                    "`mime_type` TEXT, " +
+                    "`date_modified` INTEGER NOT NULL DEFAULT 0, " +
+                    "PRIMARY KEY(`media_store_id`))");
+            db.execSQL("INSERT INTO `photos_new` (`media_store_id`, `path`, `date_taken`, `bucket`, `status`, " +
+                    "`size`, `width`, `height`, `mime_type`, `date_modified`) " +
+                    "SELECT `media_store_id`, `path`, `date_taken`, " + LEGACY_BUCKET + ", `status`, " +
+                    "`size`, `width`, `height`, `mime_type`, `date_modified` FROM `photos`");
+            // 删除旧表的同时删除其索引和触发器
+            db.execSQL("DROP TABLE `photos`");
+            db.execSQL("ALTER TABLE `photos_new` RENAME TO `photos`");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_photos_status_date` ON `photos` " +
+                    "(`status`, `date_taken`, `size`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_photos_bucket_date` ON `photos` " +
+                    "(`bucket`, `date_taken`, `media_store_id`, `status`, `size`)");
+
+            db.execSQL("DROP TABLE IF EXISTS `photo_groups`");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `photo_groups` (" +
+                    "`bucket` INTEGER NOT NULL, " +
+                    "`group_type` TEXT NOT NULL, " +
+                    "`latest_photo_timestamp` INTEGER NOT NULL, " +
+                    "`earliest_photo_timestamp` INTEGER NOT NULL, " +
+                    "`trash_count` INTEGER NOT NULL DEFAULT 0, " +
+                    "`keep_count` INTEGER NOT NULL DEFAULT 0, " +
+                    "`photo_count` INTEGER NOT NULL, " +
+                    "`total_bytes` INTEGER NOT NULL DEFAULT 0, " +
+                    "`trash_bytes` INTEGER NOT NULL DEFAULT 0, " +
+                    "`group_cover` TEXT, " +
+                    "`cover_media_id` INTEGER NOT NULL, " +
+                    "PRIMARY KEY(`bucket`))");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_photo_groups_type_latest` ON `photo_groups` " +
+                    "(`group_type`, `latest_photo_timestamp`)");
+            db.execSQL("INSERT INTO `photo_groups` (`bucket`, `group_type`, `latest_photo_timestamp`, " +
+                    "`earliest_photo_timestamp`, `trash_count`, `keep_count`, `photo_count`, `total_bytes`, " +
+                    "`trash_bytes`, `cover_media_id`) " +
+                    "SELECT bucket, 'MONTH', MAX(date_taken), MIN(date_taken), " +
+                    "SUM(status = 2), SUM(status = 1), COUNT(*), SUM(size), " +
+                    "SUM(CASE WHEN status = 2 THEN size ELSE 0 END), " +
+                    "COALESCE((SELECT media_store_id FROM photos p2 WHERE p2.bucket = p.bucket AND status != 2 " +
+                    "ORDER BY date_taken DESC, media_store_id DESC LIMIT 1), 0) " +
+                    "FROM photos p GROUP BY bucket");
+            db.execSQL("INSERT INTO `photo_groups` (`bucket`, `group_type`, `latest_photo_timestamp`, " +
+                    "`earliest_photo_timestamp`, `trash_count`, `keep_count`, `photo_count`, `total_bytes`, " +
+                    "`trash_bytes`, `cover_media_id`) " +
+                    "SELECT bucket / 100 * 100, 'YEAR', MAX(latest_photo_timestamp), MIN(earliest_photo_timestamp), " +
+                    "SUM(trash_count), SUM(keep_count), SUM(photo_count), SUM(total_bytes), SUM(trash_bytes), " +
+                    "COALESCE((SELECT cover_media_id FROM photo_groups m WHERE m.bucket / 100 = g.bucket / 100 " +
+                    "AND m.cover_media_id != 0 ORDER BY m.bucket DESC LIMIT 1), 0) " +
+                    "FROM photo_groups g GROUP BY bucket / 100");
+            db.execSQL("UPDATE `photo_groups` SET `group_cover` = " +
+                    "(SELECT path FROM photos WHERE media_store_id = photo_groups.cover_media_id)");
+            createGroupCounterTriggers(db);
+            XLog.i("PhotoDatabase", "数据库迁移完成 | 9 -> 10");
+        }
+    };
+
+    /**
+     * 版本10 -> 11：照片记录所在媒体卷，对账只在本次成功查询的卷内进行
+     * 已有照片的卷未知（null，不参与对账），清除水位线和断点，下次启动执行全量扫描补齐
+     */
+    static final Migration MIGRATION_10_11 = new Migration(10, 11) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `photos` ADD COLUMN `volume_name` TEXT");
+            db.execSQL("DELETE FROM `scan_state`");
+            db.execSQL("DELETE FROM `scan_checkpoint`");
+            XLog.i("PhotoDatabase", "数据库迁移完成 | 10 -> 11");
+        }
+    };
+
+    private static final String MONTH_ABBRS = "'JanFebMarAprMayJunJulAugSepOctNovDec'";
+
+    // 旧分组字符串（年份"2025" + 月份缩写"Jan"）换算为yyyymm，无法识别时按拍摄时间计算
+    private static final String LEGACY_BUCKET = "CASE WHEN length(month_group) = 3 " +
+            "AND instr(" + MONTH_ABBRS + ", month_group) % 3 = 1 " +
+            "AND CAST(year_group AS INTEGER) > 0 " +
+            "THEN CAST(year_group AS INTEGER) * 100 + (instr(" + MONTH_ABBRS + ", month_group) + 2) / 3 " +
+            "ELSE CAST(strftime('%Y%m', date_taken / 1000, 'unixepoch', 'localtime') AS INTEGER) END";
+
+    /**
+     * 新建数据库时创建分组计数触发器（索引由实体声明）
+     */
+    static final Callback CALLBACK = new Callback() {
+        @Override
+        public void onCreate(@NonNull SupportSQLiteDatabase db) {
+            super.onCreate(db);
+            createGroupCounterTriggers(db);
+            XLog.i("PhotoDatabase", "数据库创建完成");
+        }
+
+        @Override
+        public void onOpen(@NonNull SupportSQLiteDatabase db) {
+            super.onOpen(db);
+            XLog.i("PhotoDatabase", "数据库已打开");
+        }
+    };
+
     public static synchronized PhotoDatabase getInstance(Context context) {
         if (instance == null) {
             instance = Room.databaseBuilder(context.getApplicationContext(), PhotoDatabase.class, "photo_database")
-                    .addCallback(new Callback() {
-                        @Override
-                        public void onCreate(@NonNull SupportSQLiteDatabase db) {
-                            super.onCreate(db);
-                            // 创建索引
-                            db.execSQL("CREATE INDEX idx_year_group ON photos(year_group)");
-                            db.execSQL("CREATE INDEX idx_month_group ON photos(month_group)");
-                            db.execSQL("CREATE INDEX idx_group_type ON photo_groups(group_type)");
-                            XLog.i("PhotoDatabase", "数据库创建完成");
-                        }
-
-                        @Override
-                        public void onOpen(@NonNull SupportSQLiteDatabase db) {
-                            super.onOpen(db);
-                            XLog.i("PhotoDatabase", "数据库已打开");
-                        }
-                    })
+                    .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6,
+                            MIGRATION_6_7, MIGRATION_7_8, MIGRATION_8_9, MIGRATION_9_10, MIGRATION_10_11)
+                    .addCallback(CALLBACK)
                     .setQueryCallback((sqlQuery, bindArgs) -> {
                         // 拦截并打印查询
                         SqlLogInterceptor.interceptQuery(new SimpleSQLiteQuery(sqlQuery), bindArgs);
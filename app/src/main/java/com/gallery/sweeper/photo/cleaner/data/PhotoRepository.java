@@ -5,11 +5,14 @@ import android.content.ContentUris;
 import android.content.Context;
 import android.database.Cursor;
 import android.net.Uri;
+import android.os.Build;
+import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
 import android.provider.MediaStore;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.Transformations;
@@ -17,13 +20,36 @@ import androidx.lifecycle.Transformations;
 import com.daz.lib_base.utils.XLog;
 import com.gallery.sweeper.photo.cleaner.app.App;
 import com.gallery.sweeper.photo.cleaner.app.SPConstants;
+import com.gallery.sweeper.photo.cleaner.data.dao.ExifDateCacheDao;
 import com.gallery.sweeper.photo.cleaner.data.dao.PhotoDao;
 import com.gallery.sweeper.photo.cleaner.data.dao.PhotoGroupDao;
+import com.gallery.sweeper.photo.cleaner.data.dao.ScanStateDao;
+import com.gallery.sweeper.photo.cleaner.data.dao.ScannedPhotoWriter;
+import com.gallery.sweeper.photo.cleaner.data.db.ExifDateCache;
 import com.gallery.sweeper.photo.cleaner.data.db.Photo;
 import com.gallery.sweeper.photo.cleaner.data.db.PhotoGroup;
+import com.gallery.sweeper.photo.cleaner.data.db.ScanCheckpoint;
+import com.gallery.sweeper.photo.cleaner.data.db.ScanState;
 import com.gallery.sweeper.photo.cleaner.data.events.GroupEvent;
 import com.gallery.sweeper.photo.cleaner.data.events.PhotoStatusChangedEvent;
 import com.gallery.sweeper.photo.cleaner.data.events.ReloadGroupEvent;
+import com.gallery.sweeper.photo.cleaner.data.group.GroupBucket;
+import com.gallery.sweeper.photo.cleaner.data.group.GroupCache;
+import com.gallery.sweeper.photo.cleaner.data.group.GroupDelta;
+import com.gallery.sweeper.photo.cleaner.data.group.GroupSnapshot;
+import com.gallery.sweeper.photo.cleaner.data.group.YearRollup;
+import com.gallery.sweeper.photo.cleaner.data.scan.BucketCompletionTracker;
+import com.gallery.sweeper.photo.cleaner.data.scan.CursorSource;
+import com.gallery.sweeper.photo.cleaner.data.scan.DateBucketer;
+import com.gallery.sweeper.photo.cleaner.data.scan.ExifDateResolver;
+import com.gallery.sweeper.photo.cleaner.data.scan.MediaScanPipeline;
+import com.gallery.sweeper.photo.cleaner.data.scan.OrphanReconciler;
+import com.gallery.sweeper.photo.cleaner.data.scan.PagedCursorSource;
+import com.gallery.sweeper.photo.cleaner.data.scan.PathLivenessCache;
+import com.gallery.sweeper.photo.cleaner.data.scan.ScanProgress;
+import com.gallery.sweeper.photo.cleaner.data.scan.ScanProgressTracker;
+import com.gallery.sweeper.photo.cleaner.data.scan.ScanRow;
+import com.gallery.sweeper.photo.cleaner.data.scan.ScanStats;
 import com.gallery.sweeper.photo.cleaner.permission.PermissionManager;
 import com.gallery.sweeper.photo.cleaner.permission.PermissionRequiredEvent;
 import com.gallery.sweeper.photo.cleaner.utis.SPUtils;
@@ -31,19 +57,26 @@ import com.gallery.sweeper.photo.cleaner.utis.SPUtils;
 import org.greenrobot.eventbus.EventBus;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Calendar;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.TimeZone;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -58,21 +91,31 @@ public class PhotoRepository {
     // 单例实例 - volatile确保多线程可见性
     private static volatile PhotoRepository instance;
 
-    private static final long CACHE_EXPIRATION = 5 * 60 * 1000; // 5分钟缓存过期时间
-    private static final int MAX_CACHE_SIZE = 10; // 最大缓存条目数
-
     // DAO接口
+    private final PhotoDatabase database;
     private final PhotoDao photoDao;
     private final PhotoGroupDao photoGroupDao;
+    private final ScanStateDao scanStateDao;
+    private final ExifDateCacheDao exifDateCacheDao;
+    private final ScannedPhotoWriter scannedPhotoWriter; // 扫描结果多行批量写入
+    private final ExifDateResolver exifDateResolver; // DATE_TAKEN无效时从EXIF补全
 
     // 线程资源
-    private final ExecutorService executor;
+    private final ThreadPoolExecutor executor;
+    private final ThreadPoolExecutor snapshotExecutor; // 分组快照读取，不排在扫描等长任务之后
+    private final ThreadPoolExecutor statusExecutor; // 滑动状态写入，与扫描批次之间只按dbLock串行
     private final ReentrantLock dbLock = new ReentrantLock(); // 数据库操作锁
     private final AtomicBoolean isShuttingDown = new AtomicBoolean(false); // 关闭状态标志
 
     // 缓存系统
-    private final Map<String, CacheEntry> groupCache = new ConcurrentHashMap<>();
-    private final Map<String, PhotoGroup> singleGroupCache = new ConcurrentHashMap<>(); // 单个分组缓存
+    private final GroupCache groupCache = new GroupCache(); // 按分组键索引，随写入精确失效
+    private final PathLivenessCache pathLivenessCache = new PathLivenessCache(); // 目录列举缓存，替代逐张stat
+    private final MutableLiveData<ScanProgress> scanProgress = new MutableLiveData<>(ScanProgress.IDLE); // 扫描进度
+    private volatile boolean pagedScanEnabled = true; // 分页读取媒体库（false时使用单个游标）
+    private volatile List<String> scanVolumesOverride; // 测试中指定的媒体卷，为null时读取系统挂载的外部卷
+    private final Set<String> syncScanVolumes = new HashSet<>(); // 变化同步已排队常规扫描的媒体卷（只在工作线程访问）
+    private final File groupSnapshotFile; // 分组列表快照，冷启动时先于数据库显示
+    private final AtomicBoolean groupSnapshotScheduled = new AtomicBoolean(false); // 已排队的快照写入，合并连续写事务
     private final Context context;
 
     // 单例初始化控制
@@ -82,6 +125,9 @@ public class PhotoRepository {
     private static final long CLEANUP_INTERVAL = 24 * 60 * 60 * 1000; // 24小时
     private static final int BATCH_DELETE_SIZE = 100; // 每次删除的最大记录数
     private static final int BATCH_PROCESS_SIZE = 200; // 批处理大小
+    private static final int ORPHAN_DELETE_CHUNK = 500; // 对账删除分块大小（SQLite绑定参数上限999）
+    private static final int SCAN_PAGE_SIZE = 2000; // 分页扫描每页行数
+    private static final String GROUP_SNAPSHOT_FILE = "group_snapshot.bin";
 
     private final Handler cleanupHandler = new Handler(Looper.getMainLooper());
     private final Runnable cleanupRunnable = new Runnable() {
@@ -95,22 +141,44 @@ public class PhotoRepository {
 
 
     private PhotoRepository(Context context) {
+        this(context, PhotoDatabase.getInstance(context.getApplicationContext()));
+    }
+
+    /**
+     * 使用指定数据库创建实例（测试中传入内存数据库）
+     */
+    @VisibleForTesting
+    PhotoRepository(Context context, PhotoDatabase database) {
         this.context = context.getApplicationContext();
-        PhotoDatabase database = PhotoDatabase.getInstance(this.context);
+        this.database = database;
 
         // 初始化DAO
         this.photoDao = database.photoDao();
         this.photoGroupDao = database.photoGroupDao();
+        this.scanStateDao = database.scanStateDao();
+        this.exifDateCacheDao = database.exifDateCacheDao();
+        this.scannedPhotoWriter = new ScannedPhotoWriter(database, photoDao);
+        this.exifDateResolver = new ExifDateResolver(exifDateCacheDao);
+        this.groupSnapshotFile = new File(this.context.getFilesDir(), GROUP_SNAPSHOT_FILE);
 
         // 初始化事件总线
         //initEventBus();
 
         // 创建单线程执行器（确保操作顺序性）
-        this.executor = Executors.newSingleThreadExecutor(runnable -> {
-            Thread thread = new Thread(runnable, "PhotoRepository-Worker");
-            thread.setPriority(Thread.NORM_PRIORITY - 1); // 降低优先级避免阻塞UI
-            return thread;
-        });
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "PhotoRepository-Worker");
+                    thread.setPriority(Thread.NORM_PRIORITY - 1); // 降低优先级避免阻塞UI
+                    return thread;
+                });
+        // 快照读取只在冷启动和切换分组类型时发生，空闲后回收线程
+        this.snapshotExecutor = new ThreadPoolExecutor(1, 1, 30L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> new Thread(runnable, "PhotoRepository-Snapshot"));
+        this.snapshotExecutor.allowCoreThreadTimeOut(true);
+        // 扫描整体是工作线程上的一个长任务，状态写入放在独立线程，只在批次之间等待dbLock
+        this.statusExecutor = new ThreadPoolExecutor(1, 1, 30L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> new Thread(runnable, "PhotoRepository-Status"));
+        this.statusExecutor.allowCoreThreadTimeOut(true);
         XLog.i(TAG, "【系统】PhotoRepository初始化完成");
 
         // 启动定期清理
@@ -132,13 +200,30 @@ public class PhotoRepository {
 
     /**
      * 扫描设备媒体库中的图片
-     * 优化：添加前置权限检查
+     * 优化：添加前置权限检查；存在有效水位线时自动执行增量扫描
      *
      * @param context 上下文对象
      */
-
     public void scanMediaStore(Context context) {
-        XLog.d(TAG, "【相册扫描】开始媒体库扫描流程");
+        scanMediaStore(context, null);
+    }
+
+    /**
+     * 按指定模式扫描设备媒体库中的图片
+     *
+     * @param context 上下文对象
+     * @param mode    扫描模式，为null时自动选择（有有效水位线则增量，否则全量）
+     */
+    public void scanMediaStore(Context context, ScanMode mode) {
+        scanMediaStore(context, mode, null);
+    }
+
+    /**
+     * @param onlyVolumes 只扫描这些媒体卷，为null时扫描全部媒体卷
+     */
+    private void scanMediaStore(Context context, ScanMode mode, Collection<String> onlyVolumes) {
+        XLog.d(TAG, "【相册扫描】开始媒体库扫描流程 | 请求模式: " + (mode == null ? "AUTO" : mode)
+                + (onlyVolumes == null ? "" : " | 媒体卷: " + onlyVolumes));
 
         // 权限检查
         if (!PermissionManager.hasPermission(PermissionManager.PermissionType.SCAN)) {
@@ -157,153 +242,1143 @@ public class PhotoRepository {
         executor.execute(() -> {
             XLog.w(TAG, "【相册扫描】===== 开始扫描媒体库 =====");
             long startTime = System.currentTimeMillis();
-            AtomicInteger totalScanned = new AtomicInteger(0);
-            AtomicInteger insertedCount = new AtomicInteger(0);
-            AtomicInteger updatedCount = new AtomicInteger(0);
-            AtomicInteger batchCounter = new AtomicInteger(0);
-            AtomicInteger skippedFiles = new AtomicInteger(0);
-            AtomicInteger deletedRecords = new AtomicInteger(0);
-
-            // 月份缩写常量
-            final String[] MONTH_ABBR = {"Jan", "Feb", "Mar", "Apr", "May", "Jun",
-                    "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"};
+            ScanProgressTracker progressTracker = null;
+
+            // 每个媒体卷独立确定扫描模式、断点和查询条件
+            String mediaStoreVersion = getMediaStoreVersion(context);
+            List<String> volumeNames = new ArrayList<>(getScanVolumes(context));
+            if (onlyVolumes != null) {
+                volumeNames.retainAll(onlyVolumes);
+                syncScanVolumes.removeAll(onlyVolumes);
+            }
+            discardLegacyCheckpoint(volumeNames);
+            List<VolumeScan> scans = new ArrayList<>(volumeNames.size());
+            for (String volumeName : volumeNames) {
+                scans.add(planVolumeScan(context, volumeName, mode, mediaStoreVersion));
+            }
 
             ContentResolver contentResolver = context.getContentResolver();
-            String[] projection = {MediaStore.Images.Media._ID,
-                    MediaStore.Images.Media.DATA,
-                    MediaStore.Images.Media.DATE_TAKEN};
+            String[] projection = ScanRow.PROJECTION;
+            boolean paged = pagedScanEnabled;
 
-            try (Cursor cursor = contentResolver.query(
-                    MediaStore.Images.Media.EXTERNAL_CONTENT_URI,
-                    projection, null, null, null)) {
+            try {
+                // 打开各卷的游标来源，无记录的卷直接收尾，不进入流水线
+                List<MediaScanPipeline.Volume> volumes = new ArrayList<>(scans.size());
+                List<VolumeScan> emptyScans = new ArrayList<>();
+                List<String> queriedVolumes = new ArrayList<>(); // 本次查询成功的卷，只在这些卷内对账
+                int totalCount = 0;
+                boolean resumedEmpty = false;
+                for (VolumeScan scan : scans) {
+                    scan.source = openVolumeSource(contentResolver, scan, projection, paged);
+                    int count = scan.source.count();
+                    if (count < 0) {
+                        // 该卷可能刚被移除，本次跳过，保留其水位线和断点
+                        XLog.e(TAG, "【相册扫描】媒体库查询失败: 返回的Cursor为null | 卷: " + scan.volumeName);
+                        continue;
+                    }
+                    queriedVolumes.add(scan.volumeName);
+                    XLog.i(TAG, "【相册扫描】媒体库查询成功 | 卷: " + scan.volumeName + " | 模式: " + scan.scanMode
+                            + " | 图片总数: " + count);
+                    if (count > 0) {
+                        volumes.add(new MediaScanPipeline.Volume(scan.volumeName, scan.source));
+                        totalCount += count;
+                    } else if (scan.resumed || scan.scanMode == ScanMode.INCREMENTAL) {
+                        // 上次扫描已全部提交只差收尾，或增量扫描无变化：仅刷新水位线
+                        completeScan(scan.checkpoint, 0, 0);
+                        resumedEmpty |= scan.resumed;
+                    } else {
+                        emptyScans.add(scan);
+                    }
+                }
 
-                // 检查游标有效性
-                if (cursor == null) {
-                    XLog.e(TAG, "【相册扫描】媒体库查询失败: 返回的Cursor为null");
+                if (volumes.isEmpty()) {
+                    if (resumedEmpty) {
+                        XLog.i(TAG, "【扫描】断点之后无剩余记录 | 完成上次扫描");
+                        notifyGroupsChanged();
+                    } else if (emptyScans.isEmpty()) {
+                        XLog.i(TAG, "【扫描】增量扫描无变化 | 跳过分组初始化");
+                    } else if (onlyVolumes != null) {
+                        // 只扫描部分卷时其余卷已有水位线，权限正常，空卷是真实的空卷
+                        for (VolumeScan scan : emptyScans) {
+                            completeScan(scan.checkpoint, 0, 0);
+                        }
+                    } else {
+                        // 所有卷都没有图片通常是权限或挂载问题，不记录水位线
+                        XLog.w(TAG, "【扫描】未找到任何图片 | 请检查权限和媒体库内容");
+                    }
                     return;
                 }
+                // 其他卷有图片时，空卷是真实的空卷，记录水位线避免每次都全量扫描
+                for (VolumeScan scan : emptyScans) {
+                    completeScan(scan.checkpoint, 0, 0);
+                }
 
-                int cursorCount = cursor.getCount();
-                XLog.i(TAG, "【相册扫描】媒体库查询成功 | 图片总数: " + cursorCount);
+                XLog.i(TAG, "【相册扫描】并行扫描媒体卷: " + volumes.size() + " | 图片总数: " + totalCount
+                        + " | 读取方式: " + (paged ? "分页(" + SCAN_PAGE_SIZE + ")" : "单游标"));
+
+                // 初始批次大小，扫描过程中由流水线按写入耗时和内存余量自适应调整
+                int batchSize = calculateOptimalBatchSize(totalCount);
+                XLog.d(TAG, "【扫描】批处理优化 | 初始批次大小: " + batchSize);
+
+                // 各卷读取线程 -> 检查 -> 单一写入线程 三阶段流水线，进度按固定频率发布
+                progressTracker = new ScanProgressTracker(totalCount,
+                        ScanProgressTracker.DEFAULT_INTERVAL_MS, scanProgress::postValue);
+                // 预计算本地月份边界，各检查线程共享，分组字符串复用不再逐张创建
+                DateBucketer bucketer = new DateBucketer(TimeZone.getDefault());
+                Map<String, VolumeScan> scansByVolume = new HashMap<>();
+                List<String> progressiveVolumes = new ArrayList<>();
+                for (MediaScanPipeline.Volume volume : volumes) {
+                    VolumeScan scan = findScan(scans, volume.name);
+                    scansByVolume.put(volume.name, scan);
+                    if (scan.scanMode == ScanMode.PROGRESSIVE) {
+                        progressiveVolumes.add(volume.name);
+                    }
+                }
+                BucketCompletionTracker completionTracker = progressiveVolumes.isEmpty()
+                        ? null : new BucketCompletionTracker(bucketer, progressiveVolumes);
+                MediaScanPipeline pipeline = new MediaScanPipeline(batchSize, createRowChecker(bucketer),
+                        createBatchWriter(scansByVolume, completionTracker), isShuttingDown::get,
+                        progressTracker);
+                ScanStats stats = pipeline.run(volumes);
+                progressTracker.finish(stats);
+
+                // 已完整提交的卷推进水位线并删除断点，其余卷保留断点，下次从断点继续
+                // 分组已随每批写入增量更新，这里只决定是否通知界面重新加载
+                boolean groupsChanged = stats.changedCount() > 0;
+                for (MediaScanPipeline.Volume volume : volumes) {
+                    VolumeScan scan = scansByVolume.get(volume.name);
+                    ScanStats.VolumeStats volumeStats = stats.getVolume(volume.name);
+                    if (volumeStats.complete) {
+                        completeScan(scan.checkpoint, volumeStats.maxDateModified, volumeStats.maxMediaId);
+                    } else {
+                        XLog.e(TAG, "【扫描】媒体卷扫描未完成，下次从断点恢复 | 断点: " + scan.checkpoint);
+                    }
+                    groupsChanged |= scan.resumed; // 恢复前提交的批次也改变了分组
+                }
+                groupsChanged |= resumedEmpty;
 
-                if (cursorCount == 0) {
-                    XLog.w(TAG, "【扫描】未找到任何图片 | 请检查权限和媒体库内容");
-                    return;
+                // 性能统计
+                long duration = System.currentTimeMillis() - startTime;
+                int totalScanned = stats.totalScanned.get();
+                XLog.w(TAG, "【扫描】媒体库扫描完成" +
+                        "\n| 媒体卷: " + volumes.size() + " | 读取方式: " + (paged ? "分页" : "单游标") + stats +
+                        "\n| 缓存目录: " + pathLivenessCache.size() +
+                        "\n| EXIF日期: " + exifDateResolver +
+                        "\n| 耗时: " + duration + "ms | 速度: " +
+                        (totalScanned > 0 ? (duration / totalScanned) + "ms/张" : "N/A"));
+
+                // 对账：清除媒体库中已不存在的记录（增量扫描无法感知删除）
+                if (!stats.aborted) {
+                    reconcileOrphans(context, queriedVolumes, mediaStoreVersion, !groupsChanged);
                 }
 
-                // 初始化批处理
-                int batchSize = calculateOptimalBatchSize(cursorCount);
-                List<Photo> batch = new ArrayList<>(batchSize);
-                XLog.d(TAG, "【扫描】批处理优化 | 批次大小: " + batchSize);
+                if (groupsChanged) {
+                    notifyGroupsChanged();
+                }
+                //XLog.i(TAG, "【分组】照片分组初始化完成");
+            } catch (SecurityException e) {
+                XLog.e(TAG, "【权限处理】媒体库访问被拒绝: " + e.getMessage());
+                //postPermissionRequired(PermissionRequiredEvent.OPERATION_SCAN); // 通知UI层
+            } catch (Exception e) {
+                XLog.e(TAG, "【错误】扫描未预期错误: " + e.getMessage());
+            } finally {
+                for (VolumeScan scan : scans) {
+                    if (scan.source != null) {
+                        scan.source.close();
+                    }
+                }
+                // 未进入流水线或流水线异常时也要结束进度状态
+                if (progressTracker == null || !progressTracker.isFinished()) {
+                    scanProgress.postValue(ScanProgress.IDLE);
+                }
+                long duration = System.currentTimeMillis() - startTime;
+                XLog.w(TAG, "【相册扫描】===== 媒体库扫描结束 ===== | 耗时: " + duration + "ms");
+            }
+        });
+    }
 
-                // 获取列索引
-                int idColumn = cursor.getColumnIndexOrThrow(MediaStore.Images.Media._ID);
-                int pathColumn = cursor.getColumnIndexOrThrow(MediaStore.Images.Media.DATA);
-                int dateTakenColumn = cursor.getColumnIndexOrThrow(MediaStore.Images.Media.DATE_TAKEN);
+    /**
+     * 单个媒体卷的扫描计划（只在扫描线程访问）
+     */
+    private static class VolumeScan {
+        final String volumeName;
+        final Uri uri;
+        final ScanCheckpoint checkpoint;
+        final ScanMode scanMode;
+        final boolean resumed;
+        final int baseRows; // 恢复扫描时断点已提交的行数
+        String selection;
+        String[] selectionArgs;
+        CursorSource source;
+
+        VolumeScan(String volumeName, ScanCheckpoint checkpoint, ScanMode scanMode, boolean resumed) {
+            this.volumeName = volumeName;
+            this.uri = MediaStore.Images.Media.getContentUri(volumeName);
+            this.checkpoint = checkpoint;
+            this.scanMode = scanMode;
+            this.resumed = resumed;
+            this.baseRows = checkpoint.committedRows;
+        }
+    }
 
-                // 遍历游标
-                Calendar calendar = Calendar.getInstance();
-                while (cursor.moveToNext()) {
-                    int currentCount = totalScanned.incrementAndGet();
+    private static VolumeScan findScan(List<VolumeScan> scans, String volumeName) {
+        for (VolumeScan scan : scans) {
+            if (scan.volumeName.equals(volumeName)) {
+                return scan;
+            }
+        }
+        throw new IllegalArgumentException("未知媒体卷: " + volumeName);
+    }
 
-                    // 每100张记录一次进度
-                    if (currentCount % 100 == 0) {
-                        XLog.d(TAG, "【扫描】扫描进度: " + currentCount + "/" + cursorCount);
-                    }
+    /**
+     * 确定单个媒体卷的扫描模式、断点和查询条件：存在有效断点时从断点恢复
+     */
+    private VolumeScan planVolumeScan(Context context, String volumeName, ScanMode mode, String mediaStoreVersion) {
+        ScanCheckpoint checkpoint = loadResumableCheckpoint(volumeName, mode, mediaStoreVersion);
+        VolumeScan scan;
+        if (checkpoint != null) {
+            scan = new VolumeScan(volumeName, checkpoint, ScanMode.valueOf(checkpoint.scanMode), true);
+            XLog.w(TAG, "【相册扫描】从断点恢复扫描 | " + checkpoint);
+        } else {
+            ScanState lastState = loadScanState(volumeName);
+            ScanMode scanMode = resolveScanMode(mode, lastState, mediaStoreVersion);
+            // 记录扫描开始时的generation，扫描期间发生的变化留给下一次增量扫描处理
+            checkpoint = newCheckpoint(volumeName, scanMode, mediaStoreVersion,
+                    getMediaStoreGeneration(context, volumeName), lastState);
+            scan = new VolumeScan(volumeName, checkpoint, scanMode, false);
+            XLog.i(TAG, "【相册扫描】卷: " + volumeName + " | 扫描模式: " + scanMode + " | 水位线: " + lastState);
+        }
 
-                    try {
-                        // 提取数据
-                        int mediaStoreId = cursor.getInt(idColumn);
-                        String path = cursor.getString(pathColumn);
-                        long dateTaken = cursor.getLong(dateTakenColumn);
+        // 增量条件：只查询水位线之后新增或修改的记录
+        if (scan.scanMode == ScanMode.INCREMENTAL) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R && checkpoint.baseGeneration > 0) {
+                scan.selection = MediaStore.MediaColumns.GENERATION_MODIFIED + " > ?";
+                scan.selectionArgs = new String[]{String.valueOf(checkpoint.baseGeneration)};
+            } else {
+                // DATE_MODIFIED精度为秒，使用>=避免漏掉同一秒内的修改
+                scan.selection = MediaStore.Images.Media.DATE_MODIFIED + " >= ? OR "
+                        + MediaStore.Images.Media._ID + " > ?";
+                scan.selectionArgs = new String[]{String.valueOf(checkpoint.baseMaxDateModified),
+                        String.valueOf(checkpoint.baseMaxMediaId)};
+            }
+        }
+        // 断点条件：跳过已连续提交的记录
+        if (scan.scanMode == ScanMode.PROGRESSIVE) {
+            if (checkpoint.committedRows > 0) {
+                scan.selection = progressiveResumeSelection(checkpoint);
+                scan.selectionArgs = checkpoint.lastDateTaken > 0
+                        ? new String[]{String.valueOf(checkpoint.lastDateTaken),
+                        String.valueOf(checkpoint.lastDateTaken), String.valueOf(checkpoint.lastMediaId)}
+                        : null;
+            }
+        } else if (checkpoint.lastMediaId > 0) {
+            scan.selection = (scan.selection == null ? "" : "(" + scan.selection + ") AND ")
+                    + MediaStore.Images.Media._ID + " > ?";
+            scan.selectionArgs = appendArg(scan.selectionArgs, String.valueOf(checkpoint.lastMediaId));
+        }
+        return scan;
+    }
 
-                        // 路径验证
-                        if (path == null || path.isEmpty()) {
-                            XLog.w(TAG, "【扫描】跳过无效路径照片 | ID: " + mediaStoreId);
-                            continue;
-                        }
+    /**
+     * 打开媒体卷的游标来源：分页模式按固定窗口读取，每页游标在获取下一页前释放
+     * 渐进式扫描从最新的照片开始，最近的月份最先完成
+     */
+    private static CursorSource openVolumeSource(ContentResolver resolver, VolumeScan scan, String[] projection,
+                                                 boolean paged) {
+        boolean newestFirst = scan.scanMode == ScanMode.PROGRESSIVE;
+        if (paged) {
+            return new PagedCursorSource((columns, where, args, order, limit) ->
+                    queryImages(resolver, scan.uri, columns, where, args, order, limit),
+                    projection, scan.selection, scan.selectionArgs, newestFirst, SCAN_PAGE_SIZE);
+        }
+        return CursorSource.single(resolver.query(scan.uri, projection, scan.selection, scan.selectionArgs,
+                PagedCursorSource.sortOrder(newestFirst)));
+    }
+
+    /**
+     * 扫描进度（已节流，约每250ms更新一次；未在扫描时为{@link ScanProgress#IDLE}）
+     */
+    public LiveData<ScanProgress> getScanProgress() {
+        return scanProgress;
+    }
+
+    /**
+     * 流水线检查阶段：文件存在性检查、拍摄时间补全与分组计算（多线程并发调用）
+     */
+    private MediaScanPipeline.RowChecker createRowChecker(DateBucketer bucketer) {
+        return new MediaScanPipeline.RowChecker() {
+            @Override
+            public boolean exists(String path) {
+                // 每个目录只列举一次，之后从内存中判断
+                return pathLivenessCache.exists(path);
+            }
+
+            @Override
+            public Map<Long, Long> resolveDates(List<ScanRow> rows) {
+                // 只读取文件头部的EXIF，结果按路径+大小+修改时间缓存
+                return exifDateResolver.resolve(rows, TimeZone.getDefault());
+            }
+
+            @Override
+            public Photo toPhoto(ScanRow row) {
+                // 时间戳处理：EXIF也没有日期时使用文件修改时间，都无效时才使用当前时间
+                long dateTaken = row.dateTaken;
+                if (dateTaken <= 0 && row.dateModified > 0) {
+                    dateTaken = row.dateModified * 1000;
+                    XLog.w(TAG, "【扫描】拍摄时间无效 | 使用修改时间: " + row.path);
+                }
+                if (dateTaken <= 0) {
+                    dateTaken = System.currentTimeMillis();
+                    XLog.w(TAG, "【扫描】时间戳无效 | 使用当前时间: " + row.path);
+                }
+
+                // 计算分组
+                int bucket = bucketer.bucketOf(dateTaken);
+                Photo photo = new Photo(row.mediaStoreId, row.path, dateTaken, DateBucketer.yearMonth(bucket));
+                // 文件元数据随扫描入库，统计可释放空间时无需再访问文件
+                photo.size = row.size;
+                photo.width = row.width;
+                photo.height = row.height;
+                photo.mimeType = row.mimeType;
+                photo.dateModified = row.dateModified;
+                return photo;
+            }
+        };
+    }
 
-                        // 添加文件存在性检查
-                        File file = new File(path);
-                        if (!file.exists()) {
-                            XLog.w(TAG, "【扫描】跳过不存在的文件 | ID: " + mediaStoreId + " | 路径: " + path);
-                            skippedFiles.incrementAndGet();
-
-                            // 检查数据库中是否有此记录（所有状态）
-                            Photo existingPhoto = photoDao.getPhotoByIdSync(mediaStoreId);
-                            if (existingPhoto != null) {
-                                XLog.d(TAG, "【数据库】删除不存在文件的照片记录 | ID: " + mediaStoreId);
-                                photoDao.deletePhoto(existingPhoto);
-                                deletedRecords.incrementAndGet();
+    /**
+     * 流水线写入阶段：批量入库与删除失效记录（单线程调用）
+     *
+     * @param scans             参与本次扫描的各卷计划（按卷名索引）
+     * @param completionTracker 有卷进行渐进式扫描时不为null，每批提交后发布已完整的分组
+     */
+    private MediaScanPipeline.BatchWriter createBatchWriter(Map<String, VolumeScan> scans,
+                                                            BucketCompletionTracker completionTracker) {
+        return new MediaScanPipeline.BatchWriter() {
+            @Override
+            public ProcessResult writeBatch(List<Photo> batch, List<Long> missingIds,
+                                            List<MediaScanPipeline.Watermark> watermarks) {
+                ProcessResult result = new ProcessResult();
+                dbLock.lock();
+                try {
+                    // 照片、失效记录删除、分组增量、各卷断点在同一事务中提交，进程被杀后保持一致
+                    runWriteTransaction(() -> {
+                        List<Long> touchedIds = new ArrayList<>(batch.size() + missingIds.size());
+                        for (Photo photo : batch) {
+                            touchedIds.add(photo.mediaStoreId);
+                        }
+                        touchedIds.addAll(missingIds);
+                        Map<Long, Photo> before = loadPhotosByIds(touchedIds);
+
+                        if (!batch.isEmpty()) {
+                            ProcessResult written = processBatch(batch);
+                            if (written.inserted + written.updated < batch.size()) {
+                                // 抛出异常回滚整个事务，断点停留在上一批
+                                throw new IllegalStateException("批次写入不完整 | 期望: " + batch.size()
+                                        + " | 实际: " + (written.inserted + written.updated));
                             }
-                            continue;
+                            result.total = batch.size();
+                            result.inserted = written.inserted;
+                            result.updated = written.updated;
+                            result.memoryPressure = written.memoryPressure;
                         }
-
-                        // 时间戳处理
-                        if (dateTaken <= 0) {
-                            dateTaken = System.currentTimeMillis();
-                            XLog.w(TAG, "【扫描】时间戳无效 | 使用当前时间: " + path);
+                        if (!missingIds.isEmpty()) {
+                            result.deleted = photoDao.deletePhotosByIds(missingIds);
+                            if (result.deleted > 0) {
+                                XLog.d(TAG, "【数据库】删除不存在文件的照片记录 | 数量: " + result.deleted);
+                            }
                         }
 
-                        // 计算分组
-                        calendar.setTimeInMillis(dateTaken);
-                        int year = calendar.get(Calendar.YEAR);
-                        int month = calendar.get(Calendar.MONTH) + 1; // Calendar.MONTH是0基的
-
-                        // 创建图片对象
-                        Photo photo = new Photo(mediaStoreId, path, dateTaken, String.valueOf(year), MONTH_ABBR[month - 1]);
-                        batch.add(photo);
-
-                        // 批量提交
-                        if (batch.size() >= batchSize) {
-                            ProcessResult result = processBatch(batch);
-                            insertedCount.addAndGet(result.inserted);
-                            updatedCount.addAndGet(result.updated);
-                            batch.clear();
-                            batchCounter.incrementAndGet();
+                        GroupDelta groupDelta = new GroupDelta();
+                        groupDelta.replaceAll(before, batch, missingIds);
+                        applyGroupDelta(groupDelta);
+                        saveExifDateCache();
+
+                        long now = System.currentTimeMillis();
+                        for (int i = 0; i < watermarks.size(); i++) {
+                            MediaScanPipeline.Watermark watermark = watermarks.get(i);
+                            VolumeScan scan = scans.get(watermark.volumeName);
+                            ScanCheckpoint checkpoint = scan.checkpoint;
+                            if (watermark.committedRows > 0) {
+                                checkpoint.lastMediaId = watermark.lastMediaId;
+                                checkpoint.lastDateTaken = watermark.lastDateTaken;
+                            }
+                            checkpoint.maxDateModified = Math.max(checkpoint.maxDateModified, watermark.maxDateModified);
+                            // 恢复扫描时在断点计数基础上累加
+                            checkpoint.committedRows = scan.baseRows + watermark.committedRows;
+                            if (i == 0) {
+                                // 一批可能包含多个卷的记录，写入计数只用于日志，记在第一个卷上
+                                checkpoint.inserted += result.inserted;
+                                checkpoint.updated += result.updated;
+                                checkpoint.deleted += result.deleted;
+                            }
+                            checkpoint.updatedAt = now;
+                            scanStateDao.saveCheckpoint(checkpoint);
                         }
-                    } catch (Exception e) {
-                        XLog.e(TAG, "【错误】处理记录失败 | 位置: " + currentCount + " | 错误: " + e.getMessage());
+                    });
+                } finally {
+                    dbLock.unlock();
+                }
+
+                if (completionTracker != null) {
+                    completionTracker.onCommitted(batch);
+                    publishCompletedGroups(completionTracker.advance(watermarks));
+                }
+                return result;
+            }
+        };
+    }
+
+    /**
+     * 保存新解析的EXIF拍摄时间（在写入事务内调用，事务回滚时下次扫描重新解析）
+     */
+    private void saveExifDateCache() {
+        List<ExifDateCache> entries = exifDateResolver.drainPending();
+        if (!entries.isEmpty()) {
+            exifDateCacheDao.insertAll(entries);
+        }
+    }
+
+    /**
+     * 渐进式扫描的断点恢复条件：游标按 (DATE_TAKEN DESC, _ID DESC) 排序，
+     * 继续读取排在断点记录之后的行（DATE_TAKEN为NULL的记录排在最后）
+     */
+    private static String progressiveResumeSelection(ScanCheckpoint checkpoint) {
+        String dateTaken = MediaStore.Images.Media.DATE_TAKEN;
+        if (checkpoint.lastDateTaken <= 0) {
+            // 断点已进入无拍摄时间的尾部，NULL与0之间的顺序无法用键集表达，重新读取整个尾部（写入幂等）
+            return dateTaken + " IS NULL OR " + dateTaken + " <= 0";
+        }
+        return dateTaken + " IS NULL OR " + dateTaken + " < ? OR ("
+                + dateTaken + " = ? AND " + MediaStore.Images.Media._ID + " < ?)";
+    }
+
+    /**
+     * 发布已完整入库的分组，列表顶部无需等待整个扫描结束即可显示
+     * 分组行已随每批写入增量更新，这里只读取最终结果；在写入线程调用
+     */
+    private void publishCompletedGroups(BucketCompletionTracker.Completed completed) {
+        if (completed.isEmpty()) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        List<Integer> buckets = new ArrayList<>(completed.months.size() + completed.years.size());
+        for (int bucket : completed.months) {
+            buckets.add(DateBucketer.yearMonth(bucket));
+        }
+        for (int year : completed.years) {
+            buckets.add(GroupBucket.ofYear(year));
+        }
+        List<PhotoGroup> published;
+        dbLock.lock();
+        try {
+            published = photoGroupDao.getGroupsByKeysSync(buckets);
+        } catch (Exception e) {
+            // 发布失败不影响扫描，扫描结束后会通知分组变化
+            XLog.e(TAG, "【错误】发布分组失败: " + e.getMessage());
+            return;
+        } finally {
+            dbLock.unlock();
+        }
+        if (published.isEmpty()) {
+            return;
+        }
+
+        EventBus.getDefault().post(new GroupEvent.PublishedEvent(published));
+        XLog.d(TAG, "【分组】渐进发布分组 | 月份: " + completed.months.size() + " | 年份: " + completed.years.size()
+                + " | 耗时: " + (System.currentTimeMillis() - startTime) + "ms");
+    }
+
+    /**
+     * 读取媒体卷可恢复的扫描断点，媒体库版本变化或请求的模式不同时丢弃断点
+     */
+    private ScanCheckpoint loadResumableCheckpoint(String volumeName, ScanMode requested, String mediaStoreVersion) {
+        ScanCheckpoint checkpoint = scanStateDao.getCheckpointSync(volumeName);
+        if (checkpoint == null) {
+            return null;
+        }
+        boolean valid;
+        try {
+            ScanMode checkpointMode = ScanMode.valueOf(checkpoint.scanMode);
+            valid = (requested == null || requested == checkpointMode)
+                    && (mediaStoreVersion == null || mediaStoreVersion.equals(checkpoint.mediaStoreVersion));
+        } catch (Exception e) {
+            valid = false;
+        }
+        if (!valid) {
+            scanStateDao.deleteCheckpoint(volumeName);
+            XLog.w(TAG, "【相册扫描】断点已失效，重新开始扫描 | " + checkpoint);
+            return null;
+        }
+        return checkpoint;
+    }
+
+    /**
+     * 新建扫描断点（首批提交时才写入数据库）
+     */
+    private ScanCheckpoint newCheckpoint(String volumeName, ScanMode scanMode, String mediaStoreVersion,
+                                         long startGeneration, ScanState lastState) {
+        ScanCheckpoint checkpoint = new ScanCheckpoint(volumeName);
+        checkpoint.scanMode = scanMode.name();
+        checkpoint.mediaStoreVersion = mediaStoreVersion;
+        checkpoint.startGeneration = startGeneration;
+        // 全量扫描不沿用旧水位线（媒体库版本变化后旧_ID可能已失效）
+        if (scanMode == ScanMode.INCREMENTAL && lastState != null) {
+            checkpoint.baseGeneration = lastState.generation;
+            checkpoint.baseMaxDateModified = lastState.maxDateModified;
+            checkpoint.baseMaxMediaId = lastState.maxMediaId;
+        }
+        checkpoint.startedAt = System.currentTimeMillis();
+        checkpoint.updatedAt = checkpoint.startedAt;
+        return checkpoint;
+    }
+
+    /**
+     * 读取媒体卷的扫描水位线
+     * 旧版本按整个外部存储（VOLUME_EXTERNAL）记录一条水位线，它覆盖所有外部卷，没有卷级记录时沿用
+     */
+    private ScanState loadScanState(String volumeName) {
+        ScanState state = scanStateDao.getStateSync(volumeName);
+        if (state != null || MediaStore.VOLUME_EXTERNAL.equals(volumeName)) {
+            return state;
+        }
+        ScanState legacy = scanStateDao.getStateSync(MediaStore.VOLUME_EXTERNAL);
+        if (legacy == null) {
+            return null;
+        }
+        state = new ScanState(volumeName);
+        state.mediaStoreVersion = legacy.mediaStoreVersion;
+        state.generation = legacy.generation;
+        state.maxDateModified = legacy.maxDateModified;
+        state.maxMediaId = legacy.maxMediaId;
+        state.lastScanTime = legacy.lastScanTime;
+        return state;
+    }
+
+    /**
+     * 按卷扫描后，旧版本按整个外部存储记录的断点无法对应到单个卷，丢弃后由各卷重新扫描
+     */
+    private void discardLegacyCheckpoint(List<String> volumeNames) {
+        if (volumeNames.contains(MediaStore.VOLUME_EXTERNAL)) {
+            return;
+        }
+        if (scanStateDao.deleteCheckpoint(MediaStore.VOLUME_EXTERNAL) > 0) {
+            XLog.w(TAG, "【相册扫描】丢弃旧版本外部存储断点 | 改为按卷扫描");
+        }
+    }
+
+    /**
+     * 需要扫描的外部媒体卷（Android 10+ 为各个实际卷，如内部存储和SD卡）
+     * 低版本或查询失败时返回VOLUME_EXTERNAL，它包含所有外部存储
+     */
+    private List<String> getScanVolumes(Context context) {
+        List<String> override = scanVolumesOverride;
+        if (override != null) {
+            return override;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            try {
+                Set<String> names = MediaStore.getExternalVolumeNames(context);
+                if (!names.isEmpty()) {
+                    List<String> volumes = new ArrayList<>(names);
+                    Collections.sort(volumes); // 固定顺序，日志和进度中各卷位置稳定
+                    return volumes;
+                }
+            } catch (Exception e) {
+                XLog.e(TAG, "【相册扫描】获取外部媒体卷失败: " + e.getMessage());
+            }
+        }
+        return Collections.singletonList(MediaStore.VOLUME_EXTERNAL);
+    }
+
+    private static String[] appendArg(String[] args, String arg) {
+        if (args == null) {
+            return new String[]{arg};
+        }
+        String[] result = Arrays.copyOf(args, args.length + 1);
+        result[args.length] = arg;
+        return result;
+    }
+
+    /**
+     * 与媒体库对账：逐卷流式归并两边的有序ID，删除媒体库中已不存在的本地记录
+     * 只对本次查询成功的卷对账：未挂载的卷（如移除的SD卡）不在媒体库的查询结果中，
+     * 按整个外部存储对账会把该卷的照片连同滑动状态一起删除；所在卷未知的记录不参与对账
+     * 必须在工作线程调用
+     *
+     * 媒体库版本在本次运行期间变化（重建索引）时，查询结果可能不完整，跳过整次对账；
+     * 单个卷的孤儿比例过高时同样视为结果不完整，只记录日志不删除
+     *
+     * @param volumeNames  本次查询成功的媒体卷
+     * @param runVersion   本次运行开始时的媒体库版本
+     * @param notifyGroups 删除后是否通知界面重新加载分组（调用方随后会统一通知时传false）
+     * @return 删除的记录数
+     */
+    private int reconcileOrphans(Context context, Collection<String> volumeNames, String runVersion,
+                                 boolean notifyGroups) {
+        long startTime = System.currentTimeMillis();
+        String currentVersion = getMediaStoreVersion(context);
+        if (runVersion != null && !runVersion.equals(currentVersion)) {
+            XLog.w(TAG, "【对账】媒体库版本在本次运行期间变化 | 跳过对账 | 开始: " + runVersion
+                    + " | 当前: " + currentVersion);
+            return 0;
+        }
+        List<Long> orphans = new ArrayList<>();
+        for (String volumeName : volumeNames) {
+            try (Cursor remote = context.getContentResolver().query(
+                    MediaStore.Images.Media.getContentUri(volumeName),
+                    new String[]{MediaStore.Images.Media._ID},
+                    null, null, MediaStore.Images.Media._ID + " ASC");
+                 Cursor local = photoDao.getIdsByVolumeCursor(volumeName)) {
+                // 媒体卷为空通常是存储未挂载或权限被撤销，此时不能据此删除本地数据
+                if (remote == null || remote.getCount() == 0) {
+                    XLog.w(TAG, "【对账】媒体卷无记录 | 跳过对账 | 卷: " + volumeName);
+                    continue;
+                }
+                List<Long> volumeOrphans = OrphanReconciler.findOrphans(remote, local);
+                int localCount = local.getCount();
+                if (!OrphanReconciler.isPlausible(volumeOrphans.size(), localCount)) {
+                    XLog.w(TAG, "【对账】孤儿比例过高，媒体库结果可能不完整 | 跳过对账 | 卷: " + volumeName
+                            + " | 孤儿记录: " + volumeOrphans.size() + " | 本地记录: " + localCount
+                            + " | 媒体库记录: " + remote.getCount());
+                    continue;
+                }
+                XLog.d(TAG, "【对账】卷: " + volumeName + " | 孤儿记录: " + volumeOrphans.size());
+                orphans.addAll(volumeOrphans);
+            } catch (Exception e) {
+                XLog.e(TAG, "【错误】对账查询失败 | 卷: " + volumeName + " | 错误: " + e.getMessage());
+            }
+        }
+
+        if (orphans.isEmpty()) {
+            XLog.d(TAG, "【对账】无孤儿记录 | 耗时: " + (System.currentTimeMillis() - startTime) + "ms");
+            return 0;
+        }
+
+        // 单事务内分块删除，同时按增量更新受影响的分组
+        Set<Integer> affectedKeys = new HashSet<>();
+        int[] deleted = {0};
+        dbLock.lock();
+        try {
+            runWriteTransaction(() -> {
+                GroupDelta groupDelta = new GroupDelta();
+                for (int i = 0; i < orphans.size(); i += ORPHAN_DELETE_CHUNK) {
+                    List<Long> chunk = orphans.subList(i, Math.min(i + ORPHAN_DELETE_CHUNK, orphans.size()));
+                    for (Photo photo : photoDao.getPhotosByIdsSync(chunk)) {
+                        groupDelta.remove(photo);
+                    }
+                    deleted[0] += photoDao.deletePhotosByIds(chunk);
+                }
+                affectedKeys.addAll(applyGroupDelta(groupDelta));
+            });
+        } catch (Exception e) {
+            XLog.e(TAG, "【错误】删除孤儿记录失败: " + e.getMessage());
+            return 0;
+        } finally {
+            dbLock.unlock();
+        }
+
+        XLog.w(TAG, "【对账】孤儿记录删除完成 | 数量: " + deleted[0] +
+                " | 受影响分组: " + affectedKeys.size() +
+                " | 耗时: " + (System.currentTimeMillis() - startTime) + "ms");
+
+        if (notifyGroups && !affectedKeys.isEmpty()) {
+            notifyGroupsChanged();
+        }
+        return deleted[0];
+    }
+
+    /**
+     * 同步媒体库变化（由MediaStoreChangeTracker合并通知后调用）
+     * 只处理变化的记录，并只重算这些记录所在的年/月分组
+     * 没有可用水位线的卷不影响其它卷的同步，只为这些卷排队一次常规扫描
+     *
+     * @param changedIds 变化的_ID，fullDelta为true时忽略
+     * @param fullDelta  按水位线查询所有变化（通知不带_ID时）
+     */
+    public void syncMediaChanges(Context context, Set<Long> changedIds, boolean fullDelta) {
+        // 后台触发，无权限时静默跳过，不弹出权限引导
+        if (!PermissionManager.hasPermission(PermissionManager.PermissionType.SCAN)) {
+            XLog.w(TAG, "【变化同步】无相册扫描权限 | 跳过");
+            return;
+        }
+        if (isShuttingDown.get()) {
+            return;
+        }
+
+        executor.execute(() -> {
+            String mediaStoreVersion = getMediaStoreVersion(context);
+            List<ScanState> states = new ArrayList<>();
+            List<String> unsynced = new ArrayList<>();
+            for (String volumeName : getScanVolumes(context)) {
+                ScanState state = loadScanState(volumeName);
+                if (state == null
+                        || scanStateDao.getCheckpointSync(volumeName) != null
+                        || (mediaStoreVersion != null && !mediaStoreVersion.equals(state.mediaStoreVersion))) {
+                    // 首次扫描未完成、存在未完成的断点、媒体库版本变化或新挂载的卷：交给常规扫描处理
+                    XLog.i(TAG, "【变化同步】无可用水位线 | 卷: " + volumeName + " | 转为常规扫描");
+                    unsynced.add(volumeName);
+                    continue;
+                }
+                states.add(state);
+            }
+            if (!states.isEmpty()) {
+                if (fullDelta) {
+                    syncDelta(context, states, mediaStoreVersion);
+                } else if (!changedIds.isEmpty()) {
+                    syncChangedIds(context, states, new ArrayList<>(changedIds));
+                }
+            }
+            // 缺少水位线的卷排队一次常规扫描，已排队的卷不重复排队
+            unsynced.removeAll(syncScanVolumes);
+            if (!unsynced.isEmpty()) {
+                syncScanVolumes.addAll(unsynced);
+                scanMediaStore(context, null, unsynced);
+            }
+        });
+    }
+
+    /**
+     * 按_ID同步：查询返回的记录写入，媒体库中已不存在的记录删除
+     * 逐卷查询以记录照片所在卷；只删除所在卷本次查询成功的记录，未挂载卷上的照片即使查询不到也保留
+     */
+    private void syncChangedIds(Context context, List<ScanState> states, List<Long> ids) {
+        long startTime = System.currentTimeMillis();
+        MediaDelta delta = new MediaDelta(createRowChecker(new DateBucketer(TimeZone.getDefault())));
+        Set<String> volumeNames = new LinkedHashSet<>(volumeNamesOf(states));
+        for (int i = 0; i < ids.size(); i += ORPHAN_DELETE_CHUNK) {
+            List<Long> chunk = ids.subList(i, Math.min(i + ORPHAN_DELETE_CHUNK, ids.size()));
+            StringBuilder selection = new StringBuilder(MediaStore.Images.Media._ID).append(" IN (");
+            String[] args = new String[chunk.size()];
+            for (int j = 0; j < chunk.size(); j++) {
+                selection.append(j == 0 ? "?" : ",?");
+                args[j] = String.valueOf(chunk.get(j));
+            }
+            selection.append(')');
+            for (String volumeName : volumeNames) {
+                if (!delta.query(context, volumeName, selection.toString(), args)) {
+                    return;
+                }
+            }
+        }
+        // 通知了但所有卷都查询不到，且本地记录所在卷已查询：已从媒体库删除
+        List<Long> unseen = new ArrayList<>();
+        for (Long id : ids) {
+            if (!delta.seenIds.contains(id)) {
+                unseen.add(id);
+            }
+        }
+        for (Photo photo : loadPhotosByIds(unseen).values()) {
+            if (photo.volumeName != null && volumeNames.contains(photo.volumeName)) {
+                delta.missingIds.add(photo.mediaStoreId);
+            }
+        }
+        if (applyMediaDelta(delta)) {
+            XLog.i(TAG, "【变化同步】按ID同步完成 | 通知: " + ids.size() + delta
+                    + " | 耗时: " + (System.currentTimeMillis() - startTime) + "ms");
+        }
+    }
+
+    /**
+     * 按水位线同步：通知不带_ID时逐卷查询generation（Android 11+）或DATE_MODIFIED之后的变化，
+     * 删除通过对账识别，成功后推进各卷水位线
+     *
+     * @param mediaStoreVersion 同步开始时的媒体库版本，对账前据此判断版本是否变化
+     */
+    private void syncDelta(Context context, List<ScanState> states, String mediaStoreVersion) {
+        long startTime = System.currentTimeMillis();
+        long[] generations = new long[states.size()];
+        int written = 0;
+        for (int i = 0; i < states.size(); i++) {
+            ScanState state = states.get(i);
+            generations[i] = getMediaStoreGeneration(context, state.volumeName);
+            String selection;
+            String[] selectionArgs;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R && state.generation > 0) {
+                selection = MediaStore.MediaColumns.GENERATION_MODIFIED + " > ?";
+                selectionArgs = new String[]{String.valueOf(state.generation)};
+            } else {
+                selection = MediaStore.Images.Media.DATE_MODIFIED + " >= ? OR "
+                        + MediaStore.Images.Media._ID + " > ?";
+                selectionArgs = new String[]{String.valueOf(state.maxDateModified), String.valueOf(state.maxMediaId)};
+            }
+
+            MediaDelta delta = new MediaDelta(createRowChecker(new DateBucketer(TimeZone.getDefault())));
+            if (!delta.query(context, state.volumeName, selection, selectionArgs) || !applyMediaDelta(delta)) {
+                return;
+            }
+            state.maxDateModified = Math.max(state.maxDateModified, delta.maxDateModified);
+            state.maxMediaId = Math.max(state.maxMediaId, delta.maxMediaId);
+            written += delta.photos.size();
+        }
+        reconcileOrphans(context, volumeNamesOf(states), mediaStoreVersion, true);
+
+        // 推进各卷水位线（generation取查询前的值，查询期间的变化留给下一次）
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < states.size(); i++) {
+            ScanState state = states.get(i);
+            if (generations[i] > 0) {
+                state.generation = generations[i];
+            }
+            state.lastScanTime = now;
+            scanStateDao.saveState(state);
+        }
+        XLog.i(TAG, "【变化同步】按水位线同步完成 | 媒体卷: " + states.size() + " | 写入: " + written
+                + " | 耗时: " + (System.currentTimeMillis() - startTime) + "ms");
+    }
+
+    private static List<String> volumeNamesOf(List<ScanState> states) {
+        List<String> volumeNames = new ArrayList<>(states.size());
+        for (ScanState state : states) {
+            volumeNames.add(state.volumeName);
+        }
+        return volumeNames;
+    }
+
+    /**
+     * 在一个事务内写入变化并重算受影响的分组，之后通知界面刷新
+     *
+     * @return 是否成功
+     */
+    private boolean applyMediaDelta(MediaDelta delta) {
+        if (delta.photos.isEmpty() && delta.missingIds.isEmpty()) {
+            return true;
+        }
+        Set<Integer> affectedKeys = new HashSet<>();
+        dbLock.lock();
+        try {
+            runWriteTransaction(() -> {
+                // 写入前的记录：修改了拍摄时间或被删除的照片要从原分组中减去
+                List<Long> touchedIds = new ArrayList<>(delta.seenIds);
+                touchedIds.addAll(delta.missingIds);
+                Map<Long, Photo> before = loadPhotosByIds(touchedIds);
+
+                if (!delta.photos.isEmpty()) {
+                    ProcessResult written = processBatch(delta.photos);
+                    if (written.inserted + written.updated < delta.photos.size()) {
+                        throw new IllegalStateException("变化写入不完整 | 期望: " + delta.photos.size()
+                                + " | 实际: " + (written.inserted + written.updated));
+                    }
+                    delta.inserted = written.inserted;
+                }
+                for (int i = 0; i < delta.missingIds.size(); i += ORPHAN_DELETE_CHUNK) {
+                    delta.deleted += photoDao.deletePhotosByIds(delta.missingIds.subList(i,
+                            Math.min(i + ORPHAN_DELETE_CHUNK, delta.missingIds.size())));
+                }
+                GroupDelta groupDelta = new GroupDelta();
+                groupDelta.replaceAll(before, delta.photos, delta.missingIds);
+                affectedKeys.addAll(applyGroupDelta(groupDelta));
+                saveExifDateCache();
+            });
+        } catch (Exception e) {
+            XLog.e(TAG, "【错误】同步媒体库变化失败: " + e.getMessage());
+            return false;
+        } finally {
+            dbLock.unlock();
+        }
+
+        notifyGroupsChanged();
+        XLog.d(TAG, "【变化同步】受影响分组: " + affectedKeys);
+        return true;
+    }
+
+    /**
+     * 一次变化同步读取到的数据
+     */
+    private class MediaDelta {
+        final MediaScanPipeline.RowChecker checker;
+        final List<Photo> photos = new ArrayList<>();
+        final List<Long> missingIds = new ArrayList<>(); // 文件不存在或已从媒体库删除
+        final Set<Long> seenIds = new HashSet<>();
+        long maxDateModified = 0;
+        long maxMediaId = 0;
+        int inserted = 0;
+        int deleted = 0;
+
+        MediaDelta(MediaScanPipeline.RowChecker checker) {
+            this.checker = checker;
+        }
+
+        /**
+         * 查询一个媒体卷，读到的照片记录所在卷
+         *
+         * @return 查询是否成功
+         */
+        boolean query(Context context, String volumeName, String selection, String[] selectionArgs) {
+            try (Cursor cursor = context.getContentResolver().query(MediaStore.Images.Media.getContentUri(volumeName),
+                    ScanRow.PROJECTION, selection, selectionArgs, null)) {
+                if (cursor == null) {
+                    XLog.e(TAG, "【变化同步】媒体库查询失败: 返回的Cursor为null");
+                    return false;
+                }
+                ScanRow.Reader reader = new ScanRow.Reader(cursor);
+                List<ScanRow> liveRows = new ArrayList<>();
+                while (cursor.moveToNext()) {
+                    ScanRow row = reader.read(cursor);
+                    seenIds.add(row.mediaStoreId);
+                    maxMediaId = Math.max(maxMediaId, row.mediaStoreId);
+                    maxDateModified = Math.max(maxDateModified, row.dateModified);
+                    if (row.path == null || row.path.isEmpty()) {
+                        continue;
+                    }
+                    // 变化的文件所在目录缓存已过期
+                    pathLivenessCache.invalidate(row.path);
+                    if (!checker.exists(row.path)) {
+                        missingIds.add(row.mediaStoreId);
+                        continue;
+                    }
+                    liveRows.add(row);
+                }
+
+                Map<Long, Long> resolvedDates = checker.resolveDates(liveRows);
+                for (ScanRow row : liveRows) {
+                    Long dateTaken = resolvedDates.get(row.mediaStoreId);
+                    Photo photo = checker.toPhoto(dateTaken == null ? row : row.withDateTaken(dateTaken));
+                    if (photo != null) {
+                        photo.volumeName = volumeName;
+                        photos.add(photo);
                     }
                 }
+                return true;
+            } catch (SecurityException e) {
+                XLog.e(TAG, "【权限处理】媒体库访问被拒绝: " + e.getMessage());
+            } catch (Exception e) {
+                XLog.e(TAG, "【错误】变化查询失败: " + e.getMessage());
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return " | 写入: " + photos.size() + "（新增: " + inserted + "）| 删除: " + deleted;
+        }
+    }
+
+    /**
+     * 按增量更新受影响的分组行：计数由照片表触发器维护，边界和封面只在可能失效时重新聚合
+     * 分组行不存在（新分组或数据缺失）时聚合该分组写入，清空的分组删除
+     * 必须在写入事务（runWriteTransaction）内、照片写入之后调用
+     *
+     * @return 受影响的分组键
+     */
+    private Set<Integer> applyGroupDelta(GroupDelta delta) {
+        Set<Integer> buckets = new LinkedHashSet<>();
+        List<Integer> missing = new ArrayList<>();
+        Map<Integer, GroupDelta.Change> removals = new HashMap<>();
+        for (GroupDelta.Change change : delta.changes()) {
+            buckets.add(change.bucket);
+            // 计数已由照片表触发器在本事务内更新，这里只处理边界、封面和分组行的增删
+            int updated = photoGroupDao.extendBounds(change.bucket, change.addedLatest, change.addedEarliest);
+            if (updated == 0) {
+                missing.add(change.bucket);
+            } else if (change.hasRemovals() || !change.removedVisibleIds.isEmpty()) {
+                removals.put(change.bucket, change);
+            } else if (change.hasCoverCandidate()) {
+                offerCover(change);
+            }
+        }
+
+        // 有照片离开的分组一次读出，只重新聚合边界或封面已失效（或已清空）的分组
+        if (!removals.isEmpty()) {
+            List<Integer> stale = new ArrayList<>();
+            for (PhotoGroup group : photoGroupDao.getGroupsByKeysSync(new ArrayList<>(removals.keySet()))) {
+                GroupDelta.Change change = removals.get(group.bucket);
+                if (needsRecount(group, change)) {
+                    stale.add(group.bucket);
+                } else if (change.hasCoverCandidate()) {
+                    offerCover(change);
+                }
+            }
+            recountGroups(stale);
+        }
+
+        if (!missing.isEmpty()) {
+            List<PhotoGroup> created = photoDao.aggregateGroups(missing);
+            if (!created.isEmpty()) {
+                photoGroupDao.insertGroups(created);
+            }
+        }
+        // 写入后的分组行在本事务提交时写穿到缓存，已删除的分组保持移除
+        if (!buckets.isEmpty()) {
+            groupCache.writeThrough(buckets, photoGroupDao.getGroupsByKeysSync(new ArrayList<>(buckets)));
+        }
+        return buckets;
+    }
+
+    private void offerCover(GroupDelta.Change change) {
+        photoGroupDao.offerCover(change.bucket, change.coverCandidateId, change.coverCandidatePath,
+                change.coverCandidateDate);
+    }
+
+    /**
+     * 照片离开后分组行是否需要重新聚合：分组已清空、离开的照片落在时间边界上，或当前封面离开了可见集合
+     */
+    private static boolean needsRecount(PhotoGroup group, GroupDelta.Change change) {
+        if (group.photoCount <= 0) {
+            return true;
+        }
+        if (change.hasRemovals() && (group.latestPhotoTimestamp <= change.removedLatest
+                || group.earliestPhotoTimestamp >= change.removedEarliest)) {
+            return true;
+        }
+        return change.removedVisibleIds.contains(group.coverMediaId);
+    }
+
+    /**
+     * 一条聚合语句重新计算指定分组的计数、边界和封面，一次批量更新写回，已无照片的分组删除
+     * 必须在写入事务内调用
+     */
+    private void recountGroups(List<Integer> buckets) {
+        if (buckets.isEmpty()) {
+            return;
+        }
+        List<PhotoGroup> groups = photoDao.aggregateGroups(buckets);
+        if (!groups.isEmpty()) {
+            photoGroupDao.updateGroups(groups);
+        }
+        if (groups.size() < buckets.size()) {
+            Set<Integer> emptied = new LinkedHashSet<>(buckets);
+            for (PhotoGroup group : groups) {
+                emptied.remove(group.bucket);
+            }
+            photoGroupDao.deleteGroupsByKeys(new ArrayList<>(emptied));
+            XLog.w(TAG, "【数据库】删除空分组 | 分组: " + emptied);
+        }
+        XLog.d(TAG, "【分组】重新聚合分组 | 数量: " + buckets.size());
+    }
+
+    /**
+     * 按ID分块查询写入前的照片记录
+     */
+    private Map<Long, Photo> loadPhotosByIds(List<Long> ids) {
+        Map<Long, Photo> photos = new HashMap<>(ids.size() * 2);
+        for (int i = 0; i < ids.size(); i += ORPHAN_DELETE_CHUNK) {
+            for (Photo photo : photoDao.getPhotosByIdsSync(ids.subList(i, Math.min(i + ORPHAN_DELETE_CHUNK, ids.size())))) {
+                photos.put(photo.mediaStoreId, photo);
+            }
+        }
+        return photos;
+    }
+
+    /**
+     * 分组数据已变化：通知界面重新加载当前类型的分组（分组缓存已在写事务中按分组键失效）
+     */
+    private void notifyGroupsChanged() {
+        EventBus.getDefault().post(new GroupEvent.LoadedEvent(
+                photoGroupDao.getGroupsByTypeSync(getCurrentGroupType().toString())));
+    }
+
+    /**
+     * 确定实际扫描模式
+     * 首次运行（无水位线）使用渐进式全量扫描，媒体库版本变化时强制全量扫描
+     */
+    private ScanMode resolveScanMode(ScanMode requested, ScanState lastState, String mediaStoreVersion) {
+        if (requested == ScanMode.FULL || requested == ScanMode.PROGRESSIVE) {
+            return requested;
+        }
+        if (lastState == null) {
+            // 首次扫描时分组列表为空，从最新的照片开始逐月发布分组
+            XLog.i(TAG, "【相册扫描】无扫描水位线 | 执行渐进式全量扫描");
+            return ScanMode.PROGRESSIVE;
+        }
+        if (mediaStoreVersion != null && !mediaStoreVersion.equals(lastState.mediaStoreVersion)) {
+            XLog.w(TAG, "【相册扫描】媒体库版本变化 | 旧: " + lastState.mediaStoreVersion
+                    + " | 新: " + mediaStoreVersion + " | 执行全量扫描");
+            return ScanMode.FULL;
+        }
+        return ScanMode.INCREMENTAL;
+    }
+
+    /**
+     * 扫描完成：推进水位线并删除断点（同一事务）
+     *
+     * @param maxDateModified 本次运行读取到的最大DATE_MODIFIED（恢复前的部分已记录在断点中）
+     * @param maxMediaId      本次运行读取到的最大_ID
+     */
+    private void completeScan(ScanCheckpoint checkpoint, long maxDateModified, long maxMediaId) {
+        try {
+            ScanState state = new ScanState(checkpoint.volumeName);
+            state.mediaStoreVersion = checkpoint.mediaStoreVersion;
+            state.generation = checkpoint.startGeneration;
+            state.maxDateModified = Math.max(Math.max(maxDateModified, checkpoint.maxDateModified),
+                    checkpoint.baseMaxDateModified);
+            state.maxMediaId = Math.max(Math.max(maxMediaId, checkpoint.lastMediaId), checkpoint.baseMaxMediaId);
+            state.lastScanTime = System.currentTimeMillis();
+            scanStateDao.completeScan(state);
+            XLog.d(TAG, "【相册扫描】水位线已更新 | " + state);
+        } catch (Exception e) {
+            XLog.e(TAG, "【错误】保存扫描水位线失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 清除扫描水位线，下次扫描强制执行全量扫描（用于数据修复）
+     */
+    public void resetScanState() {
+        executor.execute(() -> {
+            int count = scanStateDao.clearAll();
+            int checkpoints = scanStateDao.clearCheckpoints();
+            XLog.w(TAG, "【相册扫描】扫描水位线已清除 | 数量: " + count + " | 断点: " + checkpoints);
+        });
+    }
+
+    /**
+     * 获取媒体库版本（Android 10+），版本变化意味着generation需要重新计算
+     */
+    private String getMediaStoreVersion(Context context) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            try {
+                return MediaStore.getVersion(context);
+            } catch (Exception e) {
+                XLog.e(TAG, "【相册扫描】获取媒体库版本失败: " + e.getMessage());
+            }
+        }
+        return null;
+    }
 
-                // 处理最后一批
-                if (!batch.isEmpty()) {
-                    ProcessResult result = processBatch(batch);
-                    insertedCount.addAndGet(result.inserted);
-                    updatedCount.addAndGet(result.updated);
-                    batchCounter.incrementAndGet();
-                }
+    /**
+     * 设置扫描读取方式：分页（默认）或单个游标，用于对比两种方式的耗时和内存
+     */
+    public void setPagedScanEnabled(boolean enabled) {
+        this.pagedScanEnabled = enabled;
+    }
 
-                // 性能统计
-                long duration = System.currentTimeMillis() - startTime;
-                XLog.w(TAG, "【扫描】媒体库扫描完成" +
-                        "\n| 批次处理: " + batchCounter.get() +
-                        "\n| 总扫描量: " + totalScanned.get() +
-                        "\n| 跳过文件: " + skippedFiles.get() +
-                        "\n| 删除记录: " + deletedRecords.get() +
-                        "\n| 新增: " + insertedCount.get() +
-                        "\n| 更新: " + updatedCount.get() +
-                        "\n| 耗时: " + duration + "ms | 速度: " +
-                        (totalScanned.get() > 0 ? (duration / totalScanned.get()) + "ms/张" : "N/A"));
+    /**
+     * 查询媒体卷的图片集合，limit > 0 时最多返回limit行
+     * Android 11+ 使用QUERY_ARG_LIMIT；低版本媒体库不识别该参数，在排序子句后附加LIMIT
+     */
+    private static Cursor queryImages(ContentResolver resolver, Uri uri, String[] projection, String selection,
+                                      String[] selectionArgs, String sortOrder, int limit) {
+        if (limit <= 0) {
+            return resolver.query(uri, projection, selection, selectionArgs, sortOrder);
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            Bundle queryArgs = new Bundle();
+            queryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION, selection);
+            queryArgs.putStringArray(ContentResolver.QUERY_ARG_SQL_SELECTION_ARGS, selectionArgs);
+            queryArgs.putString(ContentResolver.QUERY_ARG_SQL_SORT_ORDER, sortOrder);
+            queryArgs.putInt(ContentResolver.QUERY_ARG_LIMIT, limit);
+            return resolver.query(uri, projection, queryArgs, null);
+        }
+        return resolver.query(uri, projection, selection, selectionArgs, sortOrder + " LIMIT " + limit);
+    }
 
-                // 初始化分组
-                initializeGroups();
-                //XLog.i(TAG, "【分组】照片分组初始化完成");
-            } catch (SecurityException e) {
-                XLog.e(TAG, "【权限处理】媒体库访问被拒绝: " + e.getMessage());
-                //postPermissionRequired(PermissionRequiredEvent.OPERATION_SCAN); // 通知UI层
+    /**
+     * 获取媒体卷当前generation（Android 11+），低版本返回0
+     */
+    private long getMediaStoreGeneration(Context context, String volumeName) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            try {
+                return MediaStore.getGeneration(context, volumeName);
             } catch (Exception e) {
-                XLog.e(TAG, "【错误】扫描未预期错误: " + e.getMessage());
-            } finally {
-                long duration = System.currentTimeMillis() - startTime;
-                XLog.w(TAG, "【相册扫描】===== 媒体库扫描结束 ===== | 耗时: " + duration + "ms");
+                XLog.e(TAG, "【相册扫描】获取媒体库generation失败: " + e.getMessage());
             }
-        });
+        }
+        return 0;
     }
 
     /**
-     * 动态计算批次大小
+     * 计算初始批次大小（运行中由AdaptiveBatchSizer调整）
      */
     private int calculateOptimalBatchSize(int totalItems) {
         if (totalItems <= 500) return 100;
@@ -328,56 +1403,10 @@ public class PhotoRepository {
             int batchSize = batch.size();
             XLog.d(TAG, "【批处理】开始 | 数量: " + batchSize);
 
-            // 1. 获取数据库中已存在的照片
-            List<Long> existingIds = new ArrayList<>();
-            for (Photo photo : batch) {
-                existingIds.add(photo.mediaStoreId);
-            }
-            List<Photo> existingPhotos = photoDao.getPhotosByIdsSync(existingIds);
-            Map<Long, Photo> existingMap = new HashMap<>();
-            for (Photo photo : existingPhotos) {
-                existingMap.put(photo.mediaStoreId, photo);
-            }
-
-            // 2. 分离新照片和需要更新的照片
-            List<Photo> newPhotos = new ArrayList<>();
-            List<Photo> updatePhotos = new ArrayList<>();
-
-            for (Photo photo : batch) {
-                Photo existing = existingMap.get(photo.mediaStoreId);
-                if (existing != null) {
-                    // 保留原有状态
-                    photo.status = existing.status;
-                    updatePhotos.add(photo);
-                } else {
-                    // 新照片使用默认状态
-                    photo.status = Photo.Status.NORMAL;
-                    newPhotos.add(photo);
-                }
-            }
-
-            // 3. 执行数据库操作
-            if (!newPhotos.isEmpty()) {
-                try {
-                    photoDao.insertPhotos(newPhotos);
-                    XLog.d(TAG, "【数据库】新照片插入完成 | 数量: " + newPhotos.size());
-                    result.inserted = newPhotos.size();
-                } catch (Exception e) {
-                    XLog.e(TAG, "【错误】新照片插入失败: " + e.getMessage());
-                }
-            }
-
-            if (!updatePhotos.isEmpty()) {
-                try {
-                    photoDao.updatePhotos(updatePhotos);
-                    XLog.d(TAG, "【数据库】照片更新完成 | 数量: " + updatePhotos.size());
-                    result.updated = updatePhotos.size();
-                } catch (Exception e) {
-                    XLog.e(TAG, "【错误】照片更新失败: " + e.getMessage());
-                }
-            }
-
-            // 4. 记录结果
+            // 单事务内多行UPSERT，已有照片只更新元数据，不覆盖滑动状态
+            int inserted = scannedPhotoWriter.write(batch);
+            result.inserted = inserted;
+            result.updated = batchSize - inserted;
             result.total = batchSize;
 
             // 性能日志
@@ -404,6 +1433,7 @@ public class PhotoRepository {
     private ProcessResult tryRecoverFromOOM(List<Photo> batch) {
         XLog.w(TAG, "【恢复】内存恢复机制启动 | 原批次: " + batch.size());
         ProcessResult result = new ProcessResult();
+        result.memoryPressure = true; // 通知批次控制器缩小后续批次
 
         // 尝试减少批次大小重试
         int newBatchSize = batch.size() / 2;
@@ -444,10 +1474,10 @@ public class PhotoRepository {
 
             if (group.groupType.equals(GroupType.MONTH.toString())) {
                 // 月份分组查询所有照片（包括不同状态）
-                photos = photoDao.getAllPhotosByMonthSync(group.yearGroup, group.monthGroup);
+                photos = photoDao.getAllPhotosByMonthSync(group.bucket);
             } else if (group.groupType.equals(GroupType.YEAR.toString())) {
                 // 年份分组查询所有照片（包括不同状态）
-                photos = photoDao.getAllPhotosByYearSync(group.yearGroup);
+                photos = photoDao.getAllPhotosByYearSync(group.bucket);
             }
 
             // 根据排序方向对结果进行排序
@@ -458,8 +1488,7 @@ public class PhotoRepository {
             }
 
             XLog.d(TAG, "【分组】获取分组照片 | 类型: " + group.groupType +
-                    " | 年份: " + group.yearGroup +
-                    " | 月份: " + group.monthGroup +
+                    " | 分组: " + group.bucket +
                     " | 数量: " + photos.size());
 
             // 合并待恢复照片
@@ -507,17 +1536,29 @@ public class PhotoRepository {
         });
     }
 
+    /**
+     * 回收站总大小（字节），即清空回收站可释放的空间
+     * 使用扫描时记录的文件大小求和，不访问文件系统；回收站变化时自动更新
+     */
+    public LiveData<Long> getTrashBytes() {
+        return photoDao.observeTrashBytes();
+    }
+
     /**
      * 状态更新方法（完整优化版）
+     * <p>
+     * 在独立的状态线程上执行，扫描进行中也只需等待当前批次提交；多次更新按提交顺序执行
+     *
+     * @return 更新完成（包括分组缓存写穿）后结束的Future，调用方可以在完成回调中读取分组
      */
-    public void updatePhotoStatus(long mediaId, Photo.Status newStatus) {
+    public CompletableFuture<Void> updatePhotoStatus(long mediaId, Photo.Status newStatus) {
         // 检查关闭状态
         if (isShuttingDown.get()) {
             XLog.e(TAG, "【系统】更新操作被拒绝: 系统正在关闭");
-            return;
+            return CompletableFuture.completedFuture(null);
         }
 
-        executor.execute(() -> {
+        return CompletableFuture.runAsync(() -> {
             XLog.i(TAG, "【数据库】开始更新照片状态 | ID: " + mediaId + " | 新状态: " + newStatus);
             long startTime = System.currentTimeMillis();
 
@@ -535,25 +1576,31 @@ public class PhotoRepository {
                 Photo.Status oldStatus = existingPhoto.status;
                 XLog.d(TAG, "【数据库】当前状态 | ID: " + mediaId + " | 旧状态: " + oldStatus);
 
-                // 2. 更新数据库状态
-                photoDao.updateStatus(mediaId, newStatus);
+                // 2. 更新数据库状态：分组计数由触发器在同一事务内调整，这里只处理封面
+                runWriteTransaction(() -> {
+                    photoDao.updateStatus(mediaId, newStatus);
+                    GroupDelta groupDelta = new GroupDelta();
+                    groupDelta.changeStatus(existingPhoto, oldStatus, newStatus);
+                    applyGroupDelta(groupDelta);
+                });
 
-                // 3. 获取照片对象用于后续处理
-                Photo photo = photoDao.getPhotoByIdSync(mediaId);
-                if (photo == null) {
-                    XLog.e(TAG, "【数据库】照片更新后不存在 | ID: " + mediaId);
-                    return;
-                }
+                // 3. 更新后的照片对象用于后续处理（只有状态变化，无需重新查询）
+                Photo photo = new Photo(existingPhoto);
+                photo.status = newStatus;
 
                 XLog.d(TAG, "【数据库】状态更新完成 | ID: " + mediaId + " | 新状态: " + photo.getStatus());
 
-                // 4. 检查文件存在性
-                File file = new File(photo.path);
-                if (!file.exists()) {
+                // 4. 检查文件存在性（目录已被扫描缓存时直接查内存，否则单次stat）
+                if (!pathLivenessCache.exists(photo.path, false)) {
                     XLog.w(TAG, "【文件】照片文件不存在 | ID: " + mediaId + " | 路径: " + photo.path);
 
-                    // 直接删除记录（所有状态）
-                    photoDao.deletePhoto(photo);
+                    // 直接删除记录（所有状态），分组中减去该照片
+                    runWriteTransaction(() -> {
+                        photoDao.deletePhoto(photo);
+                        GroupDelta groupDelta = new GroupDelta();
+                        groupDelta.remove(photo);
+                        applyGroupDelta(groupDelta);
+                    });
                     XLog.i(TAG, "【数据库】已删除不存在文件的照片记录 | ID: " + mediaId);
                     return;
                 }
@@ -572,10 +1619,6 @@ public class PhotoRepository {
                 EventBus.getDefault().post(statusEvent);
                 XLog.d(TAG, "【事件】状态更新事件已发送 | ID: " + mediaId);
 
-                // 7. 状态变更时更新分组缓存
-                clearGroupCacheForGroup(photo.yearGroup, photo.monthGroup);
-                XLog.d(TAG, "【缓存】分组缓存已清除: " + photo.yearGroup + "-" + photo.monthGroup);
-
                 // 合并日志输出
                 XLog.i(TAG, "【状态】照片状态更新完成 | ID: " + mediaId +
                         " | 耗时: " + (System.currentTimeMillis() - startTime) + "ms" +
@@ -585,7 +1628,7 @@ public class PhotoRepository {
             } finally {
                 dbLock.unlock();
             }
-        });
+        }, statusExecutor);
     }
 
     /**
@@ -594,11 +1637,8 @@ public class PhotoRepository {
     private void handlePhotoKept(Photo photo) {
         XLog.d(TAG, "【操作】处理照片设为保护状态 | ID: " + photo.mediaStoreId);
 
-        // 1. 更新分组信息
+        // 更新分组信息（写事务已使缓存失效，这里用新读到的分组回填）
         updateGroupsAfterStatusChange(photo);
-
-        // 2. 清除相关缓存
-        clearGroupCacheForGroup(photo.yearGroup, photo.monthGroup);
         XLog.i(TAG, "【操作】照片已设为保护状态 | ID: " + photo.mediaStoreId);
     }
 
@@ -608,11 +1648,8 @@ public class PhotoRepository {
     private void handlePhotoNormal(Photo photo) {
         XLog.d(TAG, "【操作】处理照片恢复为正常状态 | ID: " + photo.mediaStoreId);
 
-        // 1. 更新分组信息
+        // 更新分组信息（写事务已使缓存失效，这里用新读到的分组回填）
         updateGroupsAfterStatusChange(photo);
-
-        // 2. 清除相关缓存
-        clearGroupCacheForGroup(photo.yearGroup, photo.monthGroup);
         XLog.i(TAG, "【操作】照片已恢复为正常状态 | ID: " + photo.mediaStoreId);
     }
 
@@ -622,16 +1659,15 @@ public class PhotoRepository {
     private void handlePhotoTrashed(Photo photo) {
         XLog.d(TAG, "【操作】处理照片放入垃圾桶 | ID: " + photo.mediaStoreId);
 
-        // 1. 更新分组信息
+        // 更新分组信息（写事务已使缓存失效，这里用新读到的分组回填）
         updateGroupsAfterStatusChange(photo);
-
-        // 2. 清除相关缓存
-        clearGroupCacheForGroup(photo.yearGroup, photo.monthGroup);
         XLog.i(TAG, "【操作】照片已放入垃圾桶 | ID: " + photo.mediaStoreId);
     }
 
     /**
-     * 初始化分组数据
+     * 全量重建分组数据（修复操作）
+     * 日常写入已在各自的事务内按增量维护分组，只有分组数据与照片表不一致时才需要调用；
+     * 删除和重建在同一事务内完成，观察者只收到一次变化
      */
     public void initializeGroups() {
         // 检查关闭状态
@@ -651,61 +1687,49 @@ public class PhotoRepository {
                 GroupType groupType = GroupTypeConverters.groupTypeFromInt(storedGroupType);
                 XLog.i(TAG, "【分组】当前分组类型: " + groupType);
 
-                // 2. 清除旧分组数据
-                int deletedCount = photoGroupDao.deleteAllGroups();
-                XLog.i(TAG, "【数据库】旧分组删除完成 | 数量: " + deletedCount);
-
-                // 3. 生成新分组
+                // 2. 生成新分组
                 List<PhotoGroup> allGroups = new ArrayList<>();
 
-                // 年份分组
-                List<PhotoGroup> yearGroups = photoDao.aggregateYearGroups();
-                if (yearGroups != null && !yearGroups.isEmpty()) {
-                    yearGroups.forEach(group -> {
-                        group.groupType = GroupType.YEAR.toString();
-                        group.displayName = group.yearGroup;
-                    });
-                    allGroups.addAll(yearGroups);
-                    XLog.i(TAG, "【分组】年份分组聚合完成 | 数量: " + yearGroups.size());
-                }
-
                 // 月份分组
                 List<PhotoGroup> monthGroups = photoDao.aggregateMonthGroups();
-                if (monthGroups != null && !monthGroups.isEmpty()) {
-                    monthGroups.forEach(group -> {
-                        group.groupType = GroupType.MONTH.toString();
-                        group.displayName = group.yearGroup + " " + group.monthGroup;
-                    });
-                    allGroups.addAll(monthGroups);
-                    XLog.i(TAG, "【分组】月份分组聚合完成 | 数量: " + monthGroups.size());
-                }
+                allGroups.addAll(monthGroups);
+                XLog.i(TAG, "【分组】月份分组聚合完成 | 数量: " + monthGroups.size());
+
+                // 年份分组（由月份分组汇总）
+                List<PhotoGroup> yearGroups = YearRollup.rollUp(monthGroups);
+                allGroups.addAll(yearGroups);
+                XLog.i(TAG, "【分组】年份分组汇总完成 | 数量: " + yearGroups.size());
+
+                // 3. 替换旧分组数据
+                runWriteTransaction(() -> {
+                    int deletedCount = photoGroupDao.deleteAllGroups();
+                    if (!allGroups.isEmpty()) {
+                        photoGroupDao.insertGroups(allGroups);
+                    }
+                    groupCache.invalidateAll();
+                    XLog.i(TAG, "【数据库】分组替换完成 | 删除: " + deletedCount + " | 写入: " + allGroups.size());
+                });
 
-                // 4. 保存到数据库
                 if (!allGroups.isEmpty()) {
-                    photoGroupDao.insertGroups(allGroups);
-                    XLog.i(TAG, "【数据库】分组保存完成 | 总数: " + allGroups.size());
-
                     // 发送分组加载完成事件
                     EventBus.getDefault().post(new GroupEvent.LoadedEvent(getCurrentGroupType() == GroupType.YEAR ? yearGroups : monthGroups));
                 }
 
-                // 5. 验证数据
+                // 4. 验证数据
                 int dbYearCount = photoGroupDao.countByGroupType(GroupType.YEAR.toString());
                 int dbMonthCount = photoGroupDao.countByGroupType(GroupType.MONTH.toString());
 
-                boolean isValid = ((yearGroups == null || dbYearCount == yearGroups.size()) &&
-                        (monthGroups == null || dbMonthCount == monthGroups.size()));
+                boolean isValid = dbYearCount == yearGroups.size() && dbMonthCount == monthGroups.size();
 
                 if (isValid) {
                     XLog.i(TAG, "【分组】数据验证成功");
                 } else {
-                    XLog.e(TAG, "【错误】数据不一致 | 年份: " + dbYearCount + "/" + (yearGroups != null ? yearGroups.size() : 0) + " | 月份: " + dbMonthCount + "/" + (monthGroups != null ? monthGroups.size() : 0));
+                    XLog.e(TAG, "【错误】数据不一致 | 年份: " + dbYearCount + "/" + yearGroups.size() + " | 月份: " + dbMonthCount + "/" + monthGroups.size());
                 }
             } catch (Exception e) {
                 XLog.e(TAG, "【错误】分组初始化失败: " + e.getMessage());
             } finally {
                 dbLock.unlock();
-                clearGroupCache();
 
                 long totalTime = System.currentTimeMillis() - startTime;
                 XLog.w(TAG, "【分组】初始化完成 | 耗时: " + totalTime + "ms");
@@ -719,10 +1743,83 @@ public class PhotoRepository {
      */
     public void clearGroupCache() {
         int count = groupCache.size();
-        groupCache.clear();
+        groupCache.invalidateAll();
         XLog.d(TAG, "【缓存】分组缓存已清空 | 清理项: " + count);
     }
 
+    /**
+     * 写事务：事务期间分组缓存不接受回填，提交或回滚后数据版本再次递增；
+     * 事务内由applyGroupDelta写穿受影响的分组，提交时发布，回滚时丢弃；提交后更新分组快照
+     */
+    private void runWriteTransaction(Runnable body) {
+        groupCache.beginWrite();
+        boolean committed = false;
+        try {
+            database.runInTransaction(body);
+            committed = true;
+        } finally {
+            groupCache.endWrite(committed);
+        }
+        scheduleGroupSnapshot();
+    }
+
+    /**
+     * 在工作线程上保存分组快照；已有快照写入排队时不再重复排队，
+     * 扫描和连续滑动的多个写事务合并为一次写入
+     */
+    private void scheduleGroupSnapshot() {
+        if (isShuttingDown.get() || !groupSnapshotScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(this::saveGroupSnapshot);
+        } catch (RejectedExecutionException e) {
+            groupSnapshotScheduled.set(false);
+        }
+    }
+
+    private void saveGroupSnapshot() {
+        // 先清除标志再读取：读取之后提交的写事务会重新排队
+        groupSnapshotScheduled.set(false);
+        try {
+            List<PhotoGroup> groups = photoGroupDao.getAllGroupsSync();
+            GroupSnapshot.write(groupSnapshotFile, groups);
+            XLog.d(TAG, "【分组】分组快照已保存 | 数量: " + groups.size());
+        } catch (Exception e) {
+            XLog.e(TAG, "【错误】分组快照保存失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 读取上次保存的分组快照，用于冷启动时在数据库打开之前显示分组列表
+     * 在快照读取线程上读取文件，不排在工作线程的扫描之后，也不访问数据库；没有可用快照时发布null
+     */
+    public LiveData<List<PhotoGroup>> loadGroupSnapshot(GroupType type) {
+        boolean ascending = isAscending();
+        MutableLiveData<List<PhotoGroup>> result = new MutableLiveData<>();
+        if (isShuttingDown.get()) {
+            result.postValue(null);
+            return result;
+        }
+        snapshotExecutor.execute(() -> {
+            long startTime = System.currentTimeMillis();
+            List<PhotoGroup> groups = null;
+            try {
+                List<PhotoGroup> all = GroupSnapshot.read(groupSnapshotFile);
+                if (all != null) {
+                    groups = GroupSnapshot.select(all, type, ascending);
+                }
+            } catch (IOException e) {
+                XLog.w(TAG, "【分组】分组快照损坏，已删除: " + e.getMessage());
+                groupSnapshotFile.delete();
+            }
+            XLog.d(TAG, "【分组】读取分组快照 | 类型: " + type + " | 数量: " + (groups == null ? 0 : groups.size())
+                    + " | 耗时: " + (System.currentTimeMillis() - startTime) + "ms");
+            result.postValue(groups);
+        });
+        return result;
+    }
+
     /**
      * 获取分组数据（带缓存）
      */
@@ -730,392 +1827,140 @@ public class PhotoRepository {
         boolean ascending = isAscending();
         XLog.i(TAG, "【分组】请求分组数据 | 类型: " + type + " | 排序: " + (ascending ? "升序" : "降序"));
 
-        // 创建缓存键
-        String cacheKey = type.name() + "_" + (ascending ? "ASC" : "DESC");
-
         // 检查缓存
-        synchronized (groupCache) {
-            if (groupCache.containsKey(cacheKey)) {
-                CacheEntry entry = groupCache.get(cacheKey);
-                if (entry != null && System.currentTimeMillis() - entry.timestamp < CACHE_EXPIRATION) {
-                    XLog.d(TAG, "【缓存】命中 | 键: " + cacheKey);
-                    return new MutableLiveData<>(entry.groups);
-                }
-            }
+        List<PhotoGroup> cached = groupCache.getList(type, ascending);
+        if (cached != null) {
+            XLog.d(TAG, "【缓存】命中 | 类型: " + type + " | 数量: " + cached.size());
+            return new MutableLiveData<>(cached);
         }
 
         XLog.d(TAG, "【缓存】未命中 | 从数据库加载: " + type);
+        fillGroupCache(type);
 
         // 获取数据库数据
         LiveData<List<PhotoGroup>> dbLiveData = ascending ?
                 photoGroupDao.getGroupsAsc(type.toString()) :
                 photoGroupDao.getGroupsDesc(type.toString());
 
-        // 转换结果并更新缓存
         return Transformations.map(dbLiveData, groups -> {
             if (groups == null || groups.isEmpty()) {
                 XLog.w(TAG, "【数据库】返回空分组 | 类型: " + type);
                 return groups;
             }
-
-            // 更新缓存
-            synchronized (groupCache) {
-                groupCache.put(cacheKey, new CacheEntry(groups, System.currentTimeMillis()));
-                cleanExpiredCache();
-            }
-
             XLog.i(TAG, "【分组】数据加载完成 | 类型: " + type + " | 数量: " + groups.size());
             return groups;
         });
     }
 
+    /**
+     * 在工作线程上读取某类型的全部分组回填缓存
+     * LiveData的查询时机不受控制，可能读到写入之前的数据，所以缓存只由读取前取得版本的同步查询回填
+     */
+    private void fillGroupCache(GroupType type) {
+        if (isShuttingDown.get()) {
+            return;
+        }
+        executor.execute(() -> {
+            long readVersion = groupCache.version();
+            List<PhotoGroup> groups = photoGroupDao.getGroupsByTypeSync(type.toString());
+            if (groupCache.putList(type, groups, readVersion)) {
+                XLog.d(TAG, "【缓存】回填分组 | 类型: " + type + " | 数量: " + groups.size());
+            } else {
+                XLog.d(TAG, "【缓存】读取期间发生写入，放弃回填 | 类型: " + type);
+            }
+        });
+    }
+
     /**
      * 获取分组对象
      */
-    public LiveData<PhotoGroup> getGroup(@NonNull String groupType, @NonNull String groupKey) {
-        XLog.w(TAG, "【分组】获取分组数据 | 分组类型: " + groupType + " | 分组键: " + groupKey);
-        String typeSuffix = isAscending() ? "_ASC" : "_DESC";
-        groupType = groupType + typeSuffix;
-        XLog.d(TAG, "【分组】分组类型: " + groupType);
+    public LiveData<PhotoGroup> getGroup(@NonNull String groupType, int bucket) {
+        XLog.w(TAG, "【分组】获取分组数据 | 分组类型: " + groupType + " | 分组键: " + bucket);
 
         // 1. 首先检查缓存
-        PhotoGroup cachedGroup = getGroupFromCache(groupKey);
+        PhotoGroup cachedGroup = groupCache.get(bucket);
         if (cachedGroup != null) {
-            XLog.d(TAG, "【缓存】分组缓存命中 | 键: " + groupKey);
+            XLog.d(TAG, "【缓存】分组缓存命中 | 键: " + bucket);
             return new MutableLiveData<>(cachedGroup);
         }
 
-        XLog.d(TAG, "【缓存】分组缓存未命中 | 从数据库加载: " + groupKey);
+        XLog.d(TAG, "【缓存】分组缓存未命中 | 从数据库加载: " + bucket);
         // 2. 使用 LiveData 从数据库加载分组
-        return photoGroupDao.getGroupByKey(groupKey);
-    }
-
-    /**
-     * 从缓存中获取分组
-     */
-    private PhotoGroup getGroupFromCache(String groupKey) {
-        synchronized (groupCache) {
-            for (CacheEntry entry : groupCache.values()) {
-                for (PhotoGroup group : entry.groups) {
-                    if (group.groupKey.equals(groupKey)) {
-                        return group;
-                    }
-                }
-            }
-        }
-        return null;
+        return photoGroupDao.getGroupByKey(bucket);
     }
 
 
     /**
      * 同步获取分组（带缓存）
+     * 缓存随写事务写穿，写入完成后读到的一定是写入后的分组
      */
-    public PhotoGroup getGroupByKeySync(String groupKey) {
-        XLog.d(TAG, "【数据库】查询分组 | 键: " + groupKey);
+    public PhotoGroup getGroupByKeySync(int bucket) {
+        XLog.d(TAG, "【数据库】查询分组 | 键: " + bucket);
 
         // 1. 检查缓存
-        if (singleGroupCache.containsKey(groupKey)) {
-            XLog.d(TAG, "【缓存】命中分组缓存 | 键: " + groupKey);
-            return singleGroupCache.get(groupKey);
+        PhotoGroup cached = groupCache.get(bucket);
+        if (cached != null) {
+            XLog.d(TAG, "【缓存】命中分组缓存 | 键: " + bucket);
+            return cached;
         }
 
-        // 2. 从数据库加载
-        PhotoGroup group = null;
+        // 2. 从数据库加载（读取前取得版本，期间发生写入时不回填）
+        PhotoGroup group;
+        dbLock.lock();
         try {
-            dbLock.lock();
-            group = photoGroupDao.getGroupByKeySync(groupKey);
+            long readVersion = groupCache.version();
+            group = photoGroupDao.getGroupByKeySync(bucket);
+            // 3. 存入缓存
+            if (group != null && groupCache.put(group, readVersion)) {
+                XLog.d(TAG, "【缓存】缓存分组 | 键: " + bucket);
+            }
         } finally {
             dbLock.unlock();
         }
 
-        // 3. 存入缓存
-        if (group != null) {
-            singleGroupCache.put(groupKey, group);
-            XLog.d(TAG, "【缓存】缓存分组 | 键: " + groupKey);
-        } else {
-            XLog.w(TAG, "【数据库】未找到分组 | 键: " + groupKey);
+        if (group == null) {
+            XLog.w(TAG, "【数据库】未找到分组 | 键: " + bucket);
         }
-
         return group;
     }
 
 
     /**
-     * 状态变更后更新分组信息
+     * 状态变更后通知界面（计数已在状态写入事务中按增量调整并写穿到缓存，这里只读取结果）
      */
     private void updateGroupsAfterStatusChange(Photo photo) {
-        String yearGroup = photo.yearGroup;
-        String monthGroup = photo.monthGroup;
-
-        XLog.d(TAG, "【分组】更新分组信息 | ID: " + photo.mediaStoreId + " | 年份: " + yearGroup + " | 月份: " + monthGroup);
-
-        // 初始化计数器
-        int updatedCount = 0;
-        int deletedCount = 0;
-
-        // 获取受影响的分组（包括月份和年份分组）
-        List<PhotoGroup> affectedGroups = new ArrayList<>();
-
-        // 添加月份分组
-        PhotoGroup monthGroupObj = photoGroupDao.getGroupByKeySync(yearGroup + "-" + monthGroup);
-        if (monthGroupObj != null) {
-            affectedGroups.add(monthGroupObj);
-        }
-        // 添加年份分组
-        PhotoGroup yearGroupObj = photoGroupDao.getGroupByKeySync(yearGroup);
-        if (yearGroupObj != null) {
-            affectedGroups.add(yearGroupObj);
-        }
-        if (affectedGroups.isEmpty()) {
-            XLog.w(TAG, "【分组】未找到受影响分组 | 年份: " + yearGroup + " | 月份: " + monthGroup);
-            return;
-        }
-        XLog.d(TAG, "【分组】受影响分组数量: " + affectedGroups.size());
-
-        // 更新每组数据
-        for (int i = 0; i < affectedGroups.size(); i++) {
-            PhotoGroup group = affectedGroups.get(i);
-            // 重新计算分组照片数量
-            if (group.groupKey.contains("-")) {
-                group.photoCount = photoDao.countPhotosInGroupByMonth(group.yearGroup, group.monthGroup);
-            } else {
-                group.photoCount = photoDao.countPhotosInGroupByYear(group.yearGroup);
-            }
-
-            // 更新状态计数
-            if (group.groupKey.contains("-")) { // 月份分组
-                group.trashCount = photoDao.countTrashPhotosInGroup(group.yearGroup, group.monthGroup);
-                group.keepCount = photoDao.countKeepPhotosInGroup(group.yearGroup, group.monthGroup);
-            } else { // 年份分组
-                group.trashCount = photoDao.countTrashPhotosInYear(group.yearGroup);
-                group.keepCount = photoDao.countKeepPhotosInYear(group.yearGroup);
-            }
-
-            // 更新分组封面
-            updateGroupCover(i, group);
-
-            // 更新分组数据
-            if (group.photoCount > 0) {
-                photoGroupDao.updateGroup(group);
-                updatedCount++;
-                XLog.i(TAG, "【数据库】分组更新完成 | 分组: " + group.groupKey);
-
-                // 更新缓存中的分组数据
-                updateGroupInCache(i, group);
-            } else {
-                // 分组中没有照片则删除
-                photoGroupDao.deleteGroup(group);
-                deletedCount++;
-                XLog.w(TAG, "【数据库】分组已删除 | 无照片: " + group.groupKey);
-            }
-        }
-
-        // 合并日志输出
-        XLog.i(TAG, "【分组】受影响分组处理完成 | 总数: " + affectedGroups.size() + " | 更新: " + updatedCount + " | 删除: " + deletedCount);
-    }
-
-    /**
-     * 更新缓存中的分组数据
-     */
-    public void updateGroupInCache(int position, PhotoGroup updatedGroup) {
-        if (updatedGroup == null) return;
-
-        XLog.d(TAG, "【缓存】更新缓存分组 | 分组键: " + updatedGroup.groupKey + " | 位置:" + position);
-
-        synchronized (groupCache) {
-            // 1. 更新所有包含该分组的缓存条目
-            for (Map.Entry<String, CacheEntry> entry : groupCache.entrySet()) {
-                CacheEntry cacheEntry = entry.getValue();
-                boolean updated = false;
-
-                for (int i = 0; i < cacheEntry.groups.size(); i++) {
-                    PhotoGroup group = cacheEntry.groups.get(i);
-                    if (group.groupKey.equals(updatedGroup.groupKey)) {
-                        cacheEntry.groups.set(i, updatedGroup);
-                        updated = true;
-                        XLog.e(TAG, "【缓存】分组更新成功 | 缓存键: " + entry.getKey() + " | 分组: " + updatedGroup.groupKey);
-                        EventBus.getDefault().post(new GroupEvent.UpdateEvent(updatedGroup));
-                        break;
-                    }
-                }
-
-                if (updated) {
-                    cacheEntry.timestamp = System.currentTimeMillis();
-                }
-            }
-
-            // 2. 特殊处理年份分组缓存
-            if (updatedGroup.groupType.equals(GroupType.YEAR.toString())) {
-                String yearCacheKey = GroupType.YEAR + "_" + (isAscending() ? "ASC" : "DESC");
-                CacheEntry yearEntry = groupCache.get(yearCacheKey);
-
-                if (yearEntry != null) {
-                    for (int i = 0; i < yearEntry.groups.size(); i++) {
-                        if (yearEntry.groups.get(i).groupKey.equals(updatedGroup.groupKey)) {
-                            yearEntry.groups.set(i, updatedGroup);
-                            yearEntry.timestamp = System.currentTimeMillis();
-                            XLog.d(TAG, "【缓存】年份分组缓存更新 | 缓存: " + yearCacheKey);
-                            break;
-                        }
-                    }
-                }
-            }
-        }
-    }
-
-    /**
-     * 更新分组封面
-     */
-    private void updateGroupCover(int position, PhotoGroup group) {
-        XLog.d(TAG, "【分组】更新分组封面 | 分组: " + group.groupKey);
-
-        // 查找最新的非TRASHED照片作为封面
-        Photo newCover;
-
-        if (group.getGroupKey().contains("-")) {
-            newCover = photoDao.findLatestPhotoInGroupByMonth(group.yearGroup, group.monthGroup);
-        } else {
-            newCover = photoDao.findLatestPhotoInGroupYear(group.yearGroup);
-        }
-
-        if (newCover != null) {
-            group.groupCover = newCover.path;
-            group.coverMediaId = newCover.mediaStoreId;
-            XLog.i(TAG, "【分组】封面更新成功 | 分组: " + group.groupKey);
-        } else {
-            // 仅重置封面信息
-            group.groupCover = null;
-            group.coverMediaId = 0;
-            XLog.w(TAG, "【分组】封面不可用 | 保留空封面分组: " + group.groupKey);
-        }
-    }
-
-    private void updateAffectedGroups(Set<String> groupKeys) {
-        try {
-            dbLock.lock();
-            XLog.d(TAG, "【分组更新】开始更新受影响分组 | 数量: " + groupKeys.size());
-
-            for (String groupKey : groupKeys) {
-                try {
-                    PhotoGroup group = photoGroupDao.getGroupByKeySync(groupKey);
-                    if (group == null) {
-                        XLog.w(TAG, "【分组更新】分组不存在 | 分组键: " + groupKey);
-                        continue;
-                    }
-
-                    // 根据分组类型执行不同的更新逻辑
-                    if (group.groupType.equals(GroupType.YEAR.toString())) {
-                        // 年份分组更新
-                        group.photoCount = photoDao.countPhotosInGroupByYear(group.yearGroup);
-                        group.trashCount = photoDao.countTrashPhotosInYear(group.yearGroup);
-                        group.keepCount = photoDao.countKeepPhotosInYear(group.yearGroup);
-                    } else {
-                        // 月份分组更新
-                        String[] parts = groupKey.split("-");
-                        if (parts.length < 2) {
-                            XLog.w(TAG, "【分组更新】无效的月份分组键: " + groupKey);
-                            continue;
-                        }
-                        group.photoCount = photoDao.countPhotosInGroupByMonth(parts[0], parts[1]);
-                        group.trashCount = photoDao.countTrashPhotosInGroup(parts[0], parts[1]);
-                        group.keepCount = photoDao.countKeepPhotosInGroup(parts[0], parts[1]);
-                    }
-
-                    // 更新封面
-                    updateGroupCover(0, group);
-
-                    // 保存更新
-                    if (group.photoCount > 0) {
-                        photoGroupDao.updateGroup(group);
-                        XLog.d(TAG, "【数据库】分组更新完成 | 分组: " + group.groupKey);
-                    } else {
-                        photoGroupDao.deleteGroup(group);
-                        XLog.w(TAG, "【数据库】删除空分组 | 分组: " + group.groupKey);
-                    }
-                } catch (Exception e) {
-                    XLog.e(TAG, "【错误】更新分组失败 | 分组键: " + groupKey + " | 错误: " + e.getMessage());
-                }
+        XLog.d(TAG, "【分组】更新分组信息 | ID: " + photo.mediaStoreId + " | 分组: " + photo.bucket);
+
+        // 月份和年份分组
+        int updated = 0;
+        for (int bucket : new int[]{photo.bucket, GroupBucket.yearBucketOf(photo.bucket)}) {
+            PhotoGroup group = getGroupByKeySync(bucket);
+            if (group != null) {
+                EventBus.getDefault().post(new GroupEvent.UpdateEvent(group));
+                updated++;
             }
-        } finally {
-            dbLock.unlock();
         }
-    }
-
-    /**
-     * 清除特定分组的缓存
-     */
-    public void clearGroupCacheForGroup(String yearGroup, String monthGroup) {
-        XLog.d(TAG, "【缓存】清除分组缓存 | 年份: " + yearGroup + " | 月份: " + monthGroup);
-
-        synchronized (groupCache) {
-            List<String> keysToRemove = new ArrayList<>();
-
-            for (Map.Entry<String, CacheEntry> entry : groupCache.entrySet()) {
-                boolean shouldRemove = false;
-
-                for (PhotoGroup group : entry.getValue().groups) {
-                    // 检查年份是否匹配
-                    if (yearGroup.equals(group.yearGroup)) {
-                        // 如果月份参数为空，清除该年份的所有分组
-                        if (monthGroup == null) {
-                            shouldRemove = true;
-                            break;
-                        }
-                        // 如果月份参数不为空，检查月份分组
-                        else {
-                            // 处理月份分组为空的情况
-                            if (group.monthGroup == null) {
-                                // 年份分组 - 月份参数不为空时不匹配
-                            } else if (monthGroup.equals(group.monthGroup)) {
-                                // 月份分组匹配
-                                shouldRemove = true;
-                                break;
-                            }
-                        }
-                    }
-                }
-
-                if (shouldRemove) {
-                    keysToRemove.add(entry.getKey());
-                }
-            }
-
-            keysToRemove.forEach(groupCache::remove);
-            XLog.d(TAG, "【缓存】清除完成 | 数量: " + keysToRemove.size());
+        if (updated == 0) {
+            XLog.w(TAG, "【分组】未找到受影响分组 | 分组: " + photo.bucket);
+            return;
         }
+        XLog.i(TAG, "【分组】受影响分组处理完成 | 总数: " + updated);
     }
 
     /**
-     * 清理过期缓存
+     * 清除特定分组的缓存：年份键同时清除该年份的全部月份
      */
-    private void cleanExpiredCache() {
-        long now = System.currentTimeMillis();
-        List<String> toRemove = new ArrayList<>();
-
-        synchronized (groupCache) {
-            // 寻找过期项
-            groupCache.forEach((key, entry) -> {
-                if (now - entry.timestamp > CACHE_EXPIRATION) {
-                    toRemove.add(key);
-                }
-            });
-
-            // 移除过期项
-            toRemove.forEach(key -> {
-                groupCache.remove(key);
-                XLog.d(TAG, "【缓存】过期移除 | 键: " + key);
-            });
-
-            // 检查缓存上限
-            if (groupCache.size() > MAX_CACHE_SIZE) {
-                groupCache.keySet().stream()
-                        .skip(MAX_CACHE_SIZE)
-                        .forEach(key -> {
-                            groupCache.remove(key);
-                            XLog.d(TAG, "【缓存】上限移除 | 键: " + key);
-                        });
+    public void clearGroupCacheForGroup(int bucket) {
+        XLog.d(TAG, "【缓存】清除分组缓存 | 分组: " + bucket);
+
+        List<Integer> buckets = new ArrayList<>();
+        buckets.add(bucket);
+        if (GroupBucket.isYear(bucket)) {
+            for (int month = GroupBucket.firstMonthOf(bucket); month <= GroupBucket.lastMonthOf(bucket); month++) {
+                buckets.add(month);
             }
         }
+        groupCache.invalidate(buckets);
     }
 
     /**
@@ -1148,7 +1993,7 @@ public class PhotoRepository {
             long startTime = System.currentTimeMillis();
             int successCount = 0;
             int failureCount = 0;
-            Set<String> affectedGroups = new LinkedHashSet<>();
+            Set<Integer> affectedGroups = new LinkedHashSet<>();
 
             // 获取照片详细信息
             List<Photo> photosToDelete;
@@ -1168,26 +2013,33 @@ public class PhotoRepository {
 
             // 先删除文件
             List<Long> successfullyDeletedFiles = new ArrayList<>();
+            GroupDelta groupDelta = new GroupDelta();
             for (Photo photo : photosToDelete) {
                 if (deletePhotoFile(photo)) {
                     successfullyDeletedFiles.add(photo.mediaStoreId);
+                    groupDelta.remove(photo);
                     successCount++;
 
                     // 收集受影响的分组
-                    affectedGroups.add(photo.yearGroup);
-                    affectedGroups.add(photo.yearGroup + "-" + photo.monthGroup);
+                    affectedGroups.add(GroupBucket.yearBucketOf(photo.bucket));
+                    affectedGroups.add(photo.bucket);
                 } else {
                     failureCount++;
                     XLog.w(TAG, "【文件】照片文件删除失败 | ID: " + photo.mediaStoreId);
                 }
             }
 
-            // 只删除文件删除成功的记录
+            // 只删除文件删除成功的记录，同一事务内从所在分组中减去
             if (!successfullyDeletedFiles.isEmpty()) {
                 try {
                     dbLock.lock();
-                    int deletedRecords = photoDao.deletePhotosByIds(successfullyDeletedFiles);
-                    XLog.i(TAG, "【数据库】删除照片记录成功 | 数量: " + deletedRecords);
+                    runWriteTransaction(() -> {
+                        int deletedRecords = photoDao.deletePhotosByIds(successfullyDeletedFiles);
+                        applyGroupDelta(groupDelta);
+                        XLog.i(TAG, "【数据库】删除照片记录成功 | 数量: " + deletedRecords);
+                    });
+                } catch (Exception e) {
+                    XLog.e(TAG, "【错误】删除照片记录失败: " + e.getMessage());
                 } finally {
                     dbLock.unlock();
                 }
@@ -1195,9 +2047,6 @@ public class PhotoRepository {
 
             // 更新分组信息
             if (!affectedGroups.isEmpty()) {
-                XLog.d(TAG, "【分组更新】开始更新受影响的分组 | 数量: " + affectedGroups.size());
-                updateAffectedGroups(affectedGroups);
-
                 // 发送事件通知UI刷新
                 XLog.d(TAG, "【事件】发送分组刷新事件 | 受影响分组数量: " + affectedGroups.size());
                 EventBus.getDefault().post(new ReloadGroupEvent(affectedGroups));
@@ -1225,19 +2074,18 @@ public class PhotoRepository {
 
             // 1. 尝试标准删除
             if (file.delete()) {
+                pathLivenessCache.invalidate(photo.path);
                 XLog.d(TAG, "【文件】文件删除成功 | ID: " + photo.mediaStoreId);
                 return true;
             }
 
             // 2. 标准删除失败时的备选方案
             XLog.w(TAG, "【文件】标准删除失败，尝试MediaStore删除 | ID: " + photo.mediaStoreId);
-            Uri uri = ContentUris.withAppendedId(
-                    MediaStore.Images.Media.EXTERNAL_CONTENT_URI,
-                    photo.mediaStoreId
-            );
+            Uri uri = contentUriOf(photo);
 
             int deleted = context.getContentResolver().delete(uri, null, null);
             if (deleted > 0) {
+                pathLivenessCache.invalidate(photo.path);
                 XLog.d(TAG, "【文件】MediaStore删除成功 | ID: " + photo.mediaStoreId);
                 return true;
             }
@@ -1253,6 +2101,17 @@ public class PhotoRepository {
         }
     }
 
+    /**
+     * 照片在媒体库中的URI：按所在卷构造，其它卷上可能有相同_ID的记录；所在卷未知时退回外部存储
+     */
+    @VisibleForTesting
+    static Uri contentUriOf(Photo photo) {
+        Uri collection = photo.volumeName != null
+                ? MediaStore.Images.Media.getContentUri(photo.volumeName)
+                : MediaStore.Images.Media.EXTERNAL_CONTENT_URI;
+        return ContentUris.withAppendedId(collection, photo.mediaStoreId);
+    }
+
     public GroupType getCurrentGroupType() {
         return GroupTypeConverters.groupTypeFromInt((int) SPUtils.get(SPConstants.GROUP_TYPE, GroupTypeConverters.groupTypeToInt(GroupType.MONTH)));
     }
@@ -1277,6 +2136,18 @@ public class PhotoRepository {
         isShuttingDown.set(true);
         XLog.w(TAG, "【系统】===== 开始关闭资源 =====");
 
+        // 已排队的状态写入先落库
+        statusExecutor.shutdown();
+        try {
+            if (!statusExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                statusExecutor.shutdownNow();
+                XLog.w(TAG, "【线程】状态写入线程强制关闭 | 等待超时");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            statusExecutor.shutdownNow();
+        }
+
         // 关闭线程池
         if (executor != null && !executor.isShutdown()) {
             executor.shutdown();
@@ -1294,19 +2165,47 @@ public class PhotoRepository {
             XLog.i(TAG, "【线程】线程池关闭完成");
         }
 
+        snapshotExecutor.shutdownNow();
+        exifDateResolver.shutdown();
+
         // 清理缓存
         clearGroupCache();
+        pathLivenessCache.clear();
         instance = null;
         XLog.w(TAG, "【系统】===== 资源关闭完成 =====");
     }
 
-    private static class CacheEntry {
-        final List<PhotoGroup> groups;
-        long timestamp;
+    /**
+     * 指定扫描的媒体卷（测试中模拟多个卷），传null恢复读取系统挂载的外部卷
+     */
+    @VisibleForTesting
+    void setScanVolumes(List<String> volumeNames) {
+        scanVolumesOverride = volumeNames;
+    }
+
+    /**
+     * 等待状态线程和工作线程上已提交的任务（包括任务执行中再提交的任务，如扫描后的分组初始化）全部完成
+     * 状态写入提交后只会向工作线程排队快照保存，所以先等状态线程
+     */
+    @VisibleForTesting
+    void awaitIdle(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        awaitIdle(statusExecutor, deadline);
+        awaitIdle(executor, deadline);
+    }
 
-        CacheEntry(List<PhotoGroup> groups, long timestamp) {
-            this.groups = groups;
-            this.timestamp = timestamp;
+    /**
+     * 哨兵任务在唯一的线程上执行，此时队列为空说明没有后续任务
+     */
+    private static void awaitIdle(ThreadPoolExecutor target, long deadline)
+            throws InterruptedException, TimeoutException {
+        try {
+            while (!target.submit(() -> target.getQueue().isEmpty())
+                    .get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                // 队列中仍有后续任务，继续等待
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
         }
     }
-}
\ No newline at end of file
+}
@@ -4,10 +4,12 @@ package com.gallery.sweeper.photo.cleaner.data;
  * 项目名称：
  * 作者：wx
  * 时间：2025/8/11 22:47
- * 描述：
+ * 描述：批处理结果
  */
 public class ProcessResult {
-    int total = 0;
-    int inserted = 0;
-    int updated = 0;
+    public int total = 0;
+    public int inserted = 0;
+    public int updated = 0;
+    public int deleted = 0; // 删除的失效记录数
+    public boolean memoryPressure = false; // 写入过程中发生内存不足（已降级分批完成）
 }
@@ -0,0 +1,13 @@
+package com.gallery.sweeper.photo.cleaner.data;
+
+/**
+ * 项目名称：
+ * 作者：wx
+ * 时间：2026/10/18 10:25
+ * 描述：媒体库扫描模式枚举
+ */
+public enum ScanMode {
+    FULL, // 全量扫描（首次运行、水位线失效或手动修复）
+    INCREMENTAL, // 增量扫描（仅处理水位线之后新增或修改的记录）
+    PROGRESSIVE // 渐进式全量扫描（按拍摄时间从新到旧读取，每个月份完成后立即发布分组）
+}
@@ -0,0 +1,29 @@
+package com.gallery.sweeper.photo.cleaner.data.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.gallery.sweeper.photo.cleaner.data.db.ExifDateCache;
+
+import java.util.List;
+
+/**
+ * 项目名称：
+ * 作者：wx
+ * 时间：2026/10/18 19:22
+ * 描述：EXIF拍摄时间缓存数据访问对象
+ */
+@Dao
+public interface ExifDateCacheDao {
+
+    @Query("SELECT * FROM exif_date_cache WHERE path IN (:paths)")
+    List<ExifDateCache> getByPaths(List<String> paths);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertAll(List<ExifDateCache> entries);
+
+    @Query("DELETE FROM exif_date_cache")
+    int clearAll();
+}
@@ -1,5 +1,7 @@
 package com.gallery.sweeper.photo.cleaner.data.dao;
 
+import android.database.Cursor;
+
 import androidx.lifecycle.LiveData;
 import androidx.room.Dao;
 import androidx.room.Delete;
@@ -9,12 +11,17 @@ import androidx.room.Query;
 import androidx.room.Transaction;
 import androidx.room.Update;
 
-import com.daz.lib_base.utils.XLog;
 import com.gallery.sweeper.photo.cleaner.data.db.Photo;
 import com.gallery.sweeper.photo.cleaner.data.db.PhotoGroup;
+import com.gallery.sweeper.photo.cleaner.data.group.GroupBucket;
+import com.gallery.sweeper.photo.cleaner.data.group.YearRollup;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 
 @Dao
 public interface PhotoDao {
@@ -39,23 +46,13 @@ public interface PhotoDao {
     @Query("UPDATE photos SET status = :status WHERE media_store_id IN (:mediaIds)")
     void batchUpdateStatus(List<Long> mediaIds, Photo.Status status);
 
-    default void upsertPhotos(List<Photo> photos) {
-        XLog.d(TAG, "【数据库】批量插入/更新照片 | 数量: " + photos.size());
-        insertPhotos(photos); // 先尝试插入
-
-        // 检查未插入成功的记录（冲突记录）
-        List<Photo> conflicts = new ArrayList<>();
-        for (Photo p : photos) {
-            if (getPhotoByIdSync(p.mediaStoreId) != null) {
-                conflicts.add(p);
-            }
-        }
+    // ====================== 扫描写入 ======================
 
-        if (!conflicts.isEmpty()) {
-            XLog.d(TAG, "【数据库】更新冲突照片 | 数量: " + conflicts.size());
-            updatePhotos(conflicts); // 更新冲突记录
-        }
-    }
+    /**
+     * 查询已存在的照片ID（扫描写入时区分插入和更新，见{@link ScannedPhotoWriter}）
+     */
+    @Query("SELECT media_store_id FROM photos WHERE media_store_id IN (:ids)")
+    List<Long> getExistingIds(List<Long> ids);
 
     @Delete
     int deletePhoto(Photo photo);
@@ -69,171 +66,183 @@ public interface PhotoDao {
     @Query("SELECT * FROM photos WHERE status = :status ORDER BY date_taken DESC")
     LiveData<List<Photo>> getPhotosByStatus(Photo.Status status);
 
-    @Query("SELECT * FROM photos " +
-            "WHERE year_group = :year AND month_group = :month " +
-            "ORDER BY " +
-            "  CASE status " +
-            "    WHEN 0 THEN 1 " +  // NORMAL最高优先级
-            "    WHEN 1 THEN 2 " +  // KEEP中等优先级
-            "    WHEN 2 THEN 3 " +  // TRASHED最低优先级
-            "    ELSE 4 " +
-            "  END, " +            // 状态优先级排序
-            "  date_taken DESC " + // 同状态按时间降序
-            "LIMIT 1")             // 只取第一条
-    Photo findLatestPhotoInGroupByMonth(String year, String month);
-
-    @Query("SELECT * FROM photos " +
-            "WHERE year_group = :year " +
-            "ORDER BY " +
-            "  CASE status " +
-            "    WHEN 0 THEN 1 " +  // NORMAL最高优先级
-            "    WHEN 1 THEN 2 " +  // KEEP中等优先级
-            "    WHEN 2 THEN 3 " +  // TRASHED最低优先级
-            "    ELSE 4 " +
-            "  END, " +            // 状态优先级排序
-            "  date_taken DESC " + // 同状态按时间降序
-            "LIMIT 1")             // 只取第一条
-    Photo findLatestPhotoInGroupYear(String year);
-
     /**
      * 按月份分组查询照片（升序）
      */
     @Query("SELECT * FROM photos " +
-            "WHERE year_group = :year AND month_group = :month " +
+            "WHERE bucket = :bucket " +
             "AND status = 0 " + // 使用整数值 0 (NORMAL)
             "ORDER BY date_taken ASC")
-    LiveData<List<Photo>> getPhotosByMonthAsc(String year, String month);
+    LiveData<List<Photo>> getPhotosByMonthAsc(int bucket);
 
     /**
      * 按月份分组查询照片（降序）
      */
     @Query("SELECT * FROM photos " +
-            "WHERE year_group = :year AND month_group = :month " +
+            "WHERE bucket = :bucket " +
             "AND status = 0 " + // 使用整数值 0 (NORMAL)
             "ORDER BY date_taken DESC")
-    LiveData<List<Photo>> getPhotosByMonthDesc(String year, String month);
+    LiveData<List<Photo>> getPhotosByMonthDesc(int bucket);
 
     /**
      * 按年份分组查询照片（升序）
+     * 年份是连续的月份键区间；月份键随拍摄时间递增，按（月份键，拍摄时间）排序即时间顺序，可直接沿索引读取
      */
     @Query("SELECT * FROM photos " +
-            "WHERE year_group = :year " +
-            "AND status = 0 " + // 使用整数值 0 (NORMAL)
-            "ORDER BY date_taken ASC")
-    LiveData<List<Photo>> getPhotosByYearAsc(String year);
+            "WHERE bucket BETWEEN :yearBucket + 1 AND :yearBucket + 12 " +
+            "AND +status = 0 " + // NORMAL；一元加号使状态条件不选用状态索引，沿分组索引按序读取
+            "ORDER BY bucket ASC, date_taken ASC")
+    LiveData<List<Photo>> getPhotosByYearAsc(int yearBucket);
 
     /**
      * 按年份分组查询照片（降序）
      */
     @Query("SELECT * FROM photos " +
-            "WHERE year_group = :year " +
-            "AND status = 0 " + // 使用整数值 0 (NORMAL)
-            "ORDER BY date_taken DESC")
-    LiveData<List<Photo>> getPhotosByYearDesc(String year);
+            "WHERE bucket BETWEEN :yearBucket + 1 AND :yearBucket + 12 " +
+            "AND +status = 0 " + // NORMAL；一元加号使状态条件不选用状态索引，沿分组索引按序读取
+            "ORDER BY bucket DESC, date_taken DESC")
+    LiveData<List<Photo>> getPhotosByYearDesc(int yearBucket);
 
     /**
      * 同步获取月份分组照片（用于后台处理）
      */
     @Query("SELECT * FROM photos " +
-            "WHERE year_group = :year AND month_group = :month " +
+            "WHERE bucket = :bucket " +
             "ORDER BY date_taken ASC")
-    List<Photo> getPhotosByMonthSync(String year, String month);
+    List<Photo> getPhotosByMonthSync(int bucket);
 
     /**
      * 同步获取年份分组照片（用于后台处理）
      */
     @Query("SELECT * FROM photos " +
-            "WHERE year_group = :year " +
-            "ORDER BY date_taken ASC")
-    List<Photo> getPhotosByYearSync(String year);
+            "WHERE bucket BETWEEN :yearBucket + 1 AND :yearBucket + 12 " +
+            "ORDER BY bucket ASC, date_taken ASC")
+    List<Photo> getPhotosByYearSync(int yearBucket);
 
     /**
      * 按月份分组查询所有状态的照片（升序）
      */
     @Query("SELECT * FROM photos " +
-            "WHERE year_group = :year AND month_group = :month " +
+            "WHERE bucket = :bucket " +
             "ORDER BY date_taken ASC")
-    LiveData<List<Photo>> getAllPhotosByMonthAsc(String year, String month);
+    LiveData<List<Photo>> getAllPhotosByMonthAsc(int bucket);
 
     /**
      * 按月份分组查询所有状态的照片（降序）
      */
     @Query("SELECT * FROM photos " +
-            "WHERE year_group = :year AND month_group = :month " +
+            "WHERE bucket = :bucket " +
             "ORDER BY date_taken DESC")
-    LiveData<List<Photo>> getAllPhotosByMonthDesc(String year, String month);
+    LiveData<List<Photo>> getAllPhotosByMonthDesc(int bucket);
 
     /**
      * 按年份分组查询所有状态的照片（升序）
      */
     @Query("SELECT * FROM photos " +
-            "WHERE year_group = :year " +
-            "ORDER BY date_taken ASC")
-    LiveData<List<Photo>> getAllPhotosByYearAsc(String year);
+            "WHERE bucket BETWEEN :yearBucket + 1 AND :yearBucket + 12 " +
+            "ORDER BY bucket ASC, date_taken ASC")
+    LiveData<List<Photo>> getAllPhotosByYearAsc(int yearBucket);
 
     /**
      * 按年份分组查询所有状态的照片（降序）
      */
     @Query("SELECT * FROM photos " +
-            "WHERE year_group = :year " +
-            "ORDER BY date_taken DESC")
-    LiveData<List<Photo>> getAllPhotosByYearDesc(String year);
+            "WHERE bucket BETWEEN :yearBucket + 1 AND :yearBucket + 12 " +
+            "ORDER BY bucket DESC, date_taken DESC")
+    LiveData<List<Photo>> getAllPhotosByYearDesc(int yearBucket);
 
-    /**
-     * 统计分组中状态为NORMAL的照片数量
-     */
-    @Query("SELECT COUNT(*) FROM photos " +
-            "WHERE year_group = :year AND month_group = :month " +
-            "AND status = 0 ")
-    int countNormalPhotosInGroup(String year, String month);
+    // ====================== 分组聚合 ======================
+    // 计数在分组索引上按分组顺序单次扫描完成；每个分组的封面ID用一次索引倒序查找
+    // （覆盖索引，不回表），封面路径在外层按主键回表一次
 
     /**
-     * 聚合年份分组数据
+     * 分组的计数和时间边界（聚合查询共用）
      */
-    @Query("SELECT \n" +
-            "  year_group AS group_key, \n" +
-            "  'YEAR' AS group_type, \n" +
-            "  MAX(date_taken) AS latest_photo_timestamp, \n" +
+    String GROUP_COUNTERS = "  MAX(date_taken) AS latest_photo_timestamp, \n" +
             "  MIN(date_taken) AS earliest_photo_timestamp, \n" +
             "  COUNT(*) AS photo_count, \n" +
             "  SUM(CASE WHEN status = 2 THEN 1 ELSE 0 END) AS trash_count, \n" +
             "  SUM(CASE WHEN status = 1 THEN 1 ELSE 0 END) AS keep_count, \n" +
-            "  (SELECT path FROM photos p2 WHERE p2.year_group = p.year_group " +
-            "   AND status != 2 ORDER BY date_taken DESC LIMIT 1) AS group_cover, \n" +
-            "  (SELECT media_store_id FROM photos p2 WHERE p2.year_group = p.year_group " +
-            "   AND status != 2 ORDER BY date_taken DESC LIMIT 1) AS cover_media_id, \n" +
-            "  year_group, \n" +
-            "  NULL AS month_group \n" +
-            "FROM photos p \n" +
-            "GROUP BY year_group")
-    List<PhotoGroup> aggregateYearGroups();
+            "  SUM(size) AS total_bytes, \n" +
+            "  SUM(CASE WHEN status = 2 THEN size ELSE 0 END) AS trash_bytes, \n";
+
+    String COVER_PATH = "SELECT g.*, (SELECT path FROM photos WHERE media_store_id = g.cover_media_id) AS group_cover \n";
+
+    String MONTH_COVER_ID = "  (SELECT media_store_id FROM photos p2 WHERE p2.bucket = p.bucket " +
+            "AND status != 2 ORDER BY date_taken DESC, media_store_id DESC LIMIT 1) AS cover_media_id \n";
 
     /**
-     * 聚合月份分组数据
+     * 聚合全部月份分组数据
      */
-    @Query("SELECT \n" +
-            "  year_group || '-' || month_group AS group_key, \n" +
+    @Query(COVER_PATH + "FROM (SELECT \n" +
+            "  bucket, \n" +
             "  'MONTH' AS group_type, \n" +
-            "  MAX(date_taken) AS latest_photo_timestamp, \n" +
-            "  MIN(date_taken) AS earliest_photo_timestamp, \n" +
-            "  COUNT(*) AS photo_count, \n" +
-            "  SUM(CASE WHEN status = 2 THEN 1 ELSE 0 END) AS trash_count, \n" +
-            "  SUM(CASE WHEN status = 1 THEN 1 ELSE 0 END) AS keep_count, \n" +
-            "  (SELECT path FROM photos p2 WHERE p2.year_group = p.year_group AND p2.month_group = p.month_group " +
-            "   AND status != 2 ORDER BY date_taken DESC LIMIT 1) AS group_cover, \n" +
-            "  (SELECT media_store_id FROM photos p2 WHERE p2.year_group = p.year_group AND p2.month_group = p.month_group " +
-            "   AND status != 2 ORDER BY date_taken DESC LIMIT 1) AS cover_media_id, \n" +
-            "  year_group, \n" +
-            "  month_group \n" +
+            GROUP_COUNTERS + MONTH_COVER_ID +
             "FROM photos p \n" +
-            "GROUP BY year_group, month_group")
+            "GROUP BY bucket) g")
     List<PhotoGroup> aggregateMonthGroups();
 
-    @Query("SELECT COUNT(*) FROM photos " + "WHERE year_group = :year AND month_group = :month")
-    int countPhotosInGroupByMonth(String year, String month);
+    /**
+     * 单次聚合的月份键上限（SQLite默认最多999个绑定参数）
+     */
+    int GROUP_KEY_CHUNK = 900;
+
+    /**
+     * 重新聚合指定的月份分组，没有照片的分组不返回
+     */
+    @Query(COVER_PATH + "FROM (SELECT \n" +
+            "  bucket, \n" +
+            "  'MONTH' AS group_type, \n" +
+            GROUP_COUNTERS + MONTH_COVER_ID +
+            "FROM photos p \n" +
+            "WHERE bucket IN (:buckets) \n" +
+            "GROUP BY bucket) g")
+    List<PhotoGroup> aggregateMonthGroupsByBuckets(List<Integer> buckets);
+
+    /**
+     * 聚合全部分组：月份分组由SQL聚合，年份分组由月份分组汇总
+     */
+    default List<PhotoGroup> aggregateAllGroups() {
+        List<PhotoGroup> groups = aggregateMonthGroups();
+        groups.addAll(YearRollup.rollUp(groups));
+        return groups;
+    }
+
+    /**
+     * 重新聚合任意一组分组（计数、边界和封面），没有照片的分组不返回
+     * 年份分组展开为其12个月份一起聚合后汇总，月份键按{@link #GROUP_KEY_CHUNK}分块，每块一条语句
+     */
+    default List<PhotoGroup> aggregateGroups(Collection<Integer> buckets) {
+        Set<Integer> requested = new HashSet<>(buckets);
+        Set<Integer> monthBuckets = new TreeSet<>();
+        for (int bucket : requested) {
+            if (GroupBucket.isYear(bucket)) {
+                for (int month = GroupBucket.firstMonthOf(bucket); month <= GroupBucket.lastMonthOf(bucket); month++) {
+                    monthBuckets.add(month);
+                }
+            } else {
+                monthBuckets.add(bucket);
+            }
+        }
+        List<Integer> keys = new ArrayList<>(monthBuckets);
+        List<PhotoGroup> months = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i += GROUP_KEY_CHUNK) {
+            months.addAll(aggregateMonthGroupsByBuckets(keys.subList(i, Math.min(i + GROUP_KEY_CHUNK, keys.size()))));
+        }
 
-    @Query("SELECT COUNT(*) FROM photos " + "WHERE year_group = :year")
-    int countPhotosInGroupByYear(String year);
+        List<PhotoGroup> groups = new ArrayList<>();
+        for (PhotoGroup month : months) {
+            if (requested.contains(month.bucket)) {
+                groups.add(month);
+            }
+        }
+        for (PhotoGroup year : YearRollup.rollUp(months)) {
+            if (requested.contains(year.bucket)) {
+                groups.add(year);
+            }
+        }
+        return groups;
+    }
 
     @Query("SELECT * FROM photos")
     List<Photo> getAllPhotosSync();
@@ -241,49 +250,44 @@ public interface PhotoDao {
     @Query("DELETE FROM photos WHERE media_store_id IN (:ids)")
     int deletePhotosByIds(List<Long> ids);
 
-    @Query("SELECT * FROM photos " +
-            "WHERE year_group = :year AND month_group = :month " +
-            "AND status = 0 " +
-            "ORDER BY date_taken DESC LIMIT 1")
-    Photo findLatestNormalPhotoInGroup(String year, String month);
-
-    // ====================== 状态计数查询 ======================
-    @Query("SELECT COUNT(*) FROM photos " +
-            "WHERE year_group = :year AND month_group = :month " +
-            "AND status = 2") // TRASHED状态
-    int countTrashPhotosInGroup(String year, String month);
+    /**
+     * 按ID升序流式读取某个媒体卷的照片ID（按卷对账，调用方负责关闭游标）
+     */
+    @Query("SELECT media_store_id FROM photos WHERE volume_name = :volumeName ORDER BY media_store_id ASC")
+    Cursor getIdsByVolumeCursor(String volumeName);
 
-    @Query("SELECT COUNT(*) FROM photos " +
-            "WHERE year_group = :year AND month_group = :month " +
-            "AND status = 1") // KEEP状态
-    int countKeepPhotosInGroup(String year, String month);
+    // ====================== 空间统计 ======================
+    /**
+     * 回收站总大小（清空后可释放的空间），由 (status, date_taken, size) 覆盖索引直接求和
+     */
+    @Query("SELECT COALESCE(SUM(size), 0) FROM photos WHERE status = 2")
+    LiveData<Long> observeTrashBytes();
 
-    @Query("SELECT COUNT(*) FROM photos " +
-            "WHERE year_group = :year " +
-            "AND status = 2") // TRASHED状态
-    int countTrashPhotosInYear(String year);
+    @Query("SELECT COALESCE(SUM(size), 0) FROM photos WHERE status = 2")
+    long getTrashBytesSync();
 
-    @Query("SELECT COUNT(*) FROM photos " +
-            "WHERE year_group = :year " +
-            "AND status = 1") // KEEP状态
-    int countKeepPhotosInYear(String year);
+    /**
+     * 指定照片的总大小（如回收站中选中的照片）
+     */
+    @Query("SELECT COALESCE(SUM(size), 0) FROM photos WHERE media_store_id IN (:ids)")
+    long sumBytesByIds(List<Long> ids);
 
 
     /**
      * 同步获取月份分组照片（所有状态）
      */
     @Query("SELECT * FROM photos " +
-            "WHERE year_group = :year AND month_group = :month " +
+            "WHERE bucket = :bucket " +
             "AND status = 0 " + // 使用整数值 0 (NORMAL)
             "ORDER BY date_taken ASC")
-    List<Photo> getAllPhotosByMonthSync(String year, String month);
+    List<Photo> getAllPhotosByMonthSync(int bucket);
 
     /**
      * 同步获取年份分组照片（所有状态）
      */
     @Query("SELECT * FROM photos " +
-            "WHERE year_group = :year " +
-            "AND status = 0 " + // 使用整数值 0 (NORMAL)
-            "ORDER BY date_taken ASC")
-    List<Photo> getAllPhotosByYearSync(String year);
+            "WHERE bucket BETWEEN :yearBucket + 1 AND :yearBucket + 12 " +
+            "AND +status = 0 " + // NORMAL；一元加号使状态条件不选用状态索引，沿分组索引按序读取
+            "ORDER BY bucket ASC, date_taken ASC")
+    List<Photo> getAllPhotosByYearSync(int yearBucket);
 }
\ No newline at end of file
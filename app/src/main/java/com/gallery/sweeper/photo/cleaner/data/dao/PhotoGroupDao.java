@@ -48,21 +48,33 @@ public interface PhotoGroupDao {
     @Query("SELECT * FROM photo_groups")
     List<PhotoGroup> getAllGroupsSync();
 
+    /**
+     * 按类型同步获取分组（仅用于后台线程）
+     */
+    @Query("SELECT * FROM photo_groups WHERE group_type = :groupType")
+    List<PhotoGroup> getGroupsByTypeSync(String groupType);
+
     @Query("SELECT * FROM photo_groups WHERE group_type = :groupType ORDER BY latest_photo_timestamp ASC")
     LiveData<List<PhotoGroup>> getGroupsAsc(String groupType);
 
     @Query("SELECT * FROM photo_groups WHERE group_type = :groupType ORDER BY latest_photo_timestamp DESC")
     LiveData<List<PhotoGroup>> getGroupsDesc(String groupType);
 
-    @Query("SELECT * FROM photo_groups WHERE year_group = :year AND month_group = :month")
-    List<PhotoGroup> findGroupsContainingPhoto(String year, String month);
-
+    /**
+     * 批量写回重新聚合的分组（按主键匹配，不存在的分组忽略）
+     */
     @Update
-    void updateGroup(PhotoGroup group);
+    int updateGroups(List<PhotoGroup> groups);
 
     @Delete
     void deleteGroup(PhotoGroup group);
 
+    /**
+     * 按分组键（yyyymm/yyyy00）删除分组（分组已无照片时）
+     */
+    @Query("DELETE FROM photo_groups WHERE bucket = :bucket")
+    int deleteGroupByKey(int bucket);
+
     // 新增：删除所有分组
     @Query("DELETE FROM photo_groups")
     int deleteAllGroups();
@@ -70,12 +82,46 @@ public interface PhotoGroupDao {
     /**
      * 根据分组键同步获取分组（仅用于后台线程）
      */
-    @Query("SELECT * FROM photo_groups WHERE group_key = :groupKey")
-    PhotoGroup getGroupByKeySync(String groupKey);
+    @Query("SELECT * FROM photo_groups WHERE bucket = :bucket")
+    PhotoGroup getGroupByKeySync(int bucket);
+
+    /**
+     * 一次查询多个分组（仅用于后台线程）
+     */
+    @Query("SELECT * FROM photo_groups WHERE bucket IN (:buckets)")
+    List<PhotoGroup> getGroupsByKeysSync(List<Integer> buckets);
 
     /**
      * 根据分组键异步获取分组（支持主线程观察）
      */
-    @Query("SELECT * FROM photo_groups WHERE group_key = :groupKey")
-    LiveData<PhotoGroup> getGroupByKey(String groupKey);
+    @Query("SELECT * FROM photo_groups WHERE bucket = :bucket")
+    LiveData<PhotoGroup> getGroupByKey(int bucket);
+
+    // ====================== 增量维护 ======================
+
+    /**
+     * 新进入分组的照片只会扩大时间边界（计数和字节数由照片表触发器维护，
+     * 移除照片后失效的边界和封面通过重新聚合整行写回）
+     *
+     * @param addedLatest   新照片中最新的拍摄时间，没有新照片时为Long.MIN_VALUE
+     * @param addedEarliest 新照片中最早的拍摄时间，没有新照片时为Long.MAX_VALUE
+     * @return 匹配的行数，分组行不存在时为0
+     */
+    @Query("UPDATE photo_groups SET " +
+            "latest_photo_timestamp = MAX(latest_photo_timestamp, :addedLatest), " +
+            "earliest_photo_timestamp = MIN(earliest_photo_timestamp, :addedEarliest) " +
+            "WHERE bucket = :bucket")
+    int extendBounds(int bucket, long addedLatest, long addedEarliest);
+
+    @Query("DELETE FROM photo_groups WHERE bucket IN (:buckets)")
+    int deleteGroupsByKeys(List<Integer> buckets);
+
+    /**
+     * 新进入可见集合的照片比当前封面更新（或分组没有可用封面）时替换封面，拍摄时间相同时ID大的优先
+     */
+    @Query("UPDATE photo_groups SET group_cover = :path, cover_media_id = :mediaId " +
+            "WHERE bucket = :bucket AND NOT EXISTS (SELECT 1 FROM photos " +
+            "  WHERE media_store_id = photo_groups.cover_media_id AND status != 2 " +
+            "  AND (date_taken > :dateTaken OR (date_taken = :dateTaken AND media_store_id >= :mediaId)))")
+    int offerCover(int bucket, long mediaId, String path, long dateTaken);
 }
@@ -0,0 +1,55 @@
+package com.gallery.sweeper.photo.cleaner.data.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import com.gallery.sweeper.photo.cleaner.data.db.ScanCheckpoint;
+import com.gallery.sweeper.photo.cleaner.data.db.ScanState;
+
+/**
+ * 项目名称：
+ * 作者：wx
+ * 时间：2026/10/18 10:20
+ * 描述：扫描水位线与扫描断点数据访问对象
+ */
+@Dao
+public interface ScanStateDao {
+
+    @Query("SELECT * FROM scan_state WHERE volume_name = :volumeName")
+    ScanState getStateSync(String volumeName);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void saveState(ScanState state);
+
+    /**
+     * 清除水位线，下次扫描将执行全量扫描
+     */
+    @Query("DELETE FROM scan_state")
+    int clearAll();
+
+    // ====================== 扫描断点 ======================
+
+    @Query("SELECT * FROM scan_checkpoint WHERE volume_name = :volumeName")
+    ScanCheckpoint getCheckpointSync(String volumeName);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void saveCheckpoint(ScanCheckpoint checkpoint);
+
+    @Query("DELETE FROM scan_checkpoint WHERE volume_name = :volumeName")
+    int deleteCheckpoint(String volumeName);
+
+    @Query("DELETE FROM scan_checkpoint")
+    int clearCheckpoints();
+
+    /**
+     * 扫描完成：推进水位线并删除断点
+     */
+    @Transaction
+    default void completeScan(ScanState state) {
+        saveState(state);
+        deleteCheckpoint(state.volumeName);
+    }
+}
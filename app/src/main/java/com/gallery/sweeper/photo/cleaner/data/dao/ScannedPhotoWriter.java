@@ -0,0 +1,223 @@
+package com.gallery.sweeper.photo.cleaner.data.dao;
+
+import android.os.Build;
+
+import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import com.gallery.sweeper.photo.cleaner.data.db.Photo;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 项目名称：
+ * 作者：wx
+ * 时间：2026/10/18 15:20
+ * 描述：扫描结果批量写入
+ * <p>
+ * 一条INSERT语句写入多行（VALUES (…),(…)），几百行的一批只需执行几条语句。
+ * Android 11+使用原生UPSERT（ON CONFLICT DO UPDATE）；低版本先查出已存在的ID，
+ * 新照片用多行INSERT OR IGNORE插入，只对已存在的照片执行预编译的UPDATE。
+ * 两种方式都不修改已有照片的status。SQLite绑定参数上限为999，每条语句最多{@link #ROWS_PER_STATEMENT}行。
+ * Room的@Query不支持可变行数的VALUES，因此直接在Room管理的连接上编译语句，写入同样触发失效通知。
+ */
+public final class ScannedPhotoWriter {
+
+    private static final String COLUMNS = "media_store_id, path, date_taken, bucket, status, "
+            + "size, width, height, mime_type, date_modified, volume_name";
+    private static final String ROW_VALUES = "(?, ?, ?, ?, 0, ?, ?, ?, ?, ?, ?)"; // 新照片为NORMAL
+    private static final int PARAMS_PER_ROW = 10;
+    private static final int ROWS_PER_STATEMENT = 999 / PARAMS_PER_ROW;
+    private static final int ID_CHUNK = 900; // 已存在ID查询的分块大小
+
+    private static final String UPSERT_CLAUSE = " ON CONFLICT(media_store_id) DO UPDATE SET "
+            + "path = excluded.path, "
+            + "date_taken = excluded.date_taken, "
+            + "bucket = excluded.bucket, "
+            + "size = excluded.size, "
+            + "width = excluded.width, "
+            + "height = excluded.height, "
+            + "mime_type = excluded.mime_type, "
+            + "date_modified = excluded.date_modified, "
+            + "volume_name = excluded.volume_name";
+    private static final String UPDATE_SQL = "UPDATE photos SET path = ?, date_taken = ?, bucket = ?, "
+            + "size = ?, width = ?, height = ?, mime_type = ?, date_modified = ?, volume_name = ? "
+            + "WHERE media_store_id = ?";
+
+    private final RoomDatabase database;
+    private final PhotoDao photoDao;
+    private final boolean nativeUpsert;
+
+    /**
+     * 按系统版本选择写入方式：Android 11+自带的SQLite支持原生UPSERT
+     */
+    public ScannedPhotoWriter(RoomDatabase database, PhotoDao photoDao) {
+        this(database, photoDao, Build.VERSION.SDK_INT >= Build.VERSION_CODES.R);
+    }
+
+    /**
+     * @param nativeUpsert 是否使用原生UPSERT语句（SQLite 3.24以下必须为false）
+     */
+    public ScannedPhotoWriter(RoomDatabase database, PhotoDao photoDao, boolean nativeUpsert) {
+        this.database = database;
+        this.photoDao = photoDao;
+        this.nativeUpsert = nativeUpsert;
+    }
+
+    /**
+     * 批量写入扫描结果，整批在一个事务内完成，已有照片的滑动状态（KEEP/TRASHED）保持不变
+     *
+     * @return 新插入的照片数（其余为更新）
+     */
+    public int write(List<Photo> photos) {
+        int[] inserted = {0};
+        database.runInTransaction(() -> {
+            // 同一事务内查出已存在的记录，用于区分插入和更新
+            Set<Long> existing = findExistingIds(photos);
+            if (nativeUpsert) {
+                insertRows(photos, "INSERT INTO photos (" + COLUMNS + ") VALUES ", UPSERT_CLAUSE);
+            } else {
+                List<Photo> added = new ArrayList<>();
+                List<Photo> updated = new ArrayList<>();
+                for (Photo photo : photos) {
+                    (existing.contains(photo.mediaStoreId) ? updated : added).add(photo);
+                }
+                insertRows(added, "INSERT OR IGNORE INTO photos (" + COLUMNS + ") VALUES ", "");
+                updateRows(updated);
+            }
+            Set<Long> newIds = new HashSet<>(); // 同一批内可能有重复ID
+            for (Photo photo : photos) {
+                if (!existing.contains(photo.mediaStoreId)) {
+                    newIds.add(photo.mediaStoreId);
+                }
+            }
+            inserted[0] = newIds.size();
+        });
+        return inserted[0];
+    }
+
+    private Set<Long> findExistingIds(List<Photo> photos) {
+        Set<Long> existing = new HashSet<>();
+        for (int i = 0; i < photos.size(); i += ID_CHUNK) {
+            List<Photo> chunk = photos.subList(i, Math.min(i + ID_CHUNK, photos.size()));
+            List<Long> ids = new ArrayList<>(chunk.size());
+            for (Photo photo : chunk) {
+                ids.add(photo.mediaStoreId);
+            }
+            existing.addAll(photoDao.getExistingIds(ids));
+        }
+        return existing;
+    }
+
+    /**
+     * 按{@link #ROWS_PER_STATEMENT}分块执行多行INSERT，整块复用同一条编译好的语句，最后不足一块的部分单独编译
+     */
+    private void insertRows(List<Photo> photos, String prefix, String suffix) {
+        if (photos.isEmpty()) {
+            return;
+        }
+        SupportSQLiteStatement full = null;
+        try {
+            for (int i = 0; i < photos.size(); i += ROWS_PER_STATEMENT) {
+                List<Photo> chunk = photos.subList(i, Math.min(i + ROWS_PER_STATEMENT, photos.size()));
+                if (chunk.size() < ROWS_PER_STATEMENT) {
+                    SupportSQLiteStatement partial = database.compileStatement(insertSql(prefix, chunk.size(), suffix));
+                    try {
+                        executeInsert(partial, chunk);
+                    } finally {
+                        closeQuietly(partial);
+                    }
+                    continue;
+                }
+                if (full == null) {
+                    full = database.compileStatement(insertSql(prefix, ROWS_PER_STATEMENT, suffix));
+                }
+                executeInsert(full, chunk);
+            }
+        } finally {
+            closeQuietly(full);
+        }
+    }
+
+    private static String insertSql(String prefix, int rows, String suffix) {
+        StringBuilder sql = new StringBuilder(prefix.length() + rows * (ROW_VALUES.length() + 1) + suffix.length());
+        sql.append(prefix);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.append(ROW_VALUES);
+        }
+        return sql.append(suffix).toString();
+    }
+
+    private static void executeInsert(SupportSQLiteStatement statement, List<Photo> chunk) {
+        statement.clearBindings();
+        int index = 1;
+        for (Photo photo : chunk) {
+            statement.bindLong(index++, photo.mediaStoreId);
+            index = bindMetadata(statement, index, photo);
+        }
+        statement.executeInsert();
+    }
+
+    /**
+     * 低版本回退：只更新已存在的照片，同一条预编译语句逐行执行
+     */
+    private void updateRows(List<Photo> photos) {
+        if (photos.isEmpty()) {
+            return;
+        }
+        SupportSQLiteStatement statement = database.compileStatement(UPDATE_SQL);
+        try {
+            for (Photo photo : photos) {
+                statement.clearBindings();
+                int index = bindMetadata(statement, 1, photo);
+                statement.bindLong(index, photo.mediaStoreId);
+                statement.executeUpdateDelete();
+            }
+        } finally {
+            closeQuietly(statement);
+        }
+    }
+
+    /**
+     * 绑定除ID和status外的列，顺序与{@link #COLUMNS}一致
+     *
+     * @return 下一个参数位置
+     */
+    private static int bindMetadata(SupportSQLiteStatement statement, int index, Photo photo) {
+        bindString(statement, index++, photo.path);
+        statement.bindLong(index++, photo.dateTaken);
+        statement.bindLong(index++, photo.bucket);
+        statement.bindLong(index++, photo.size);
+        statement.bindLong(index++, photo.width);
+        statement.bindLong(index++, photo.height);
+        bindString(statement, index++, photo.mimeType);
+        statement.bindLong(index++, photo.dateModified);
+        bindString(statement, index++, photo.volumeName);
+        return index;
+    }
+
+    private static void bindString(SupportSQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+
+    private static void closeQuietly(SupportSQLiteStatement statement) {
+        if (statement == null) {
+            return;
+        }
+        try {
+            statement.close();
+        } catch (Exception ignored) {
+            // 关闭失败不影响已提交的写入
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.gallery.sweeper.photo.cleaner.data.db;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.PrimaryKey;
+
+/**
+ * 项目名称：
+ * 作者：wx
+ * 时间：2026/10/18 19:20
+ * 描述：EXIF拍摄时间缓存，媒体库DATE_TAKEN无效时从文件头部解析的结果
+ * 说明：
+ * 1. 以路径为主键，文件大小和修改时间一致时缓存有效，文件被替换或编辑后重新解析
+ * 2. 没有EXIF日期的文件同样记录（dateTaken为0），避免每次扫描重复读取
+ */
+@Entity(tableName = "exif_date_cache")
+public class ExifDateCache {
+    @NonNull
+    @PrimaryKey
+    @ColumnInfo(name = "path")
+    public String path; // 文件路径
+
+    @ColumnInfo(name = "size")
+    public long size; // 文件大小（字节）
+
+    @ColumnInfo(name = "date_modified")
+    public long dateModified; // 文件修改时间（秒）
+
+    @ColumnInfo(name = "date_taken")
+    public long dateTaken; // EXIF拍摄时间（毫秒），0表示文件中没有日期
+
+    public ExifDateCache() {
+        // 无参构造方法用于Room
+        this.path = "";
+    }
+
+    @Ignore
+    public ExifDateCache(@NonNull String path, long size, long dateModified, long dateTaken) {
+        this.path = path;
+        this.size = size;
+        this.dateModified = dateModified;
+        this.dateTaken = dateTaken;
+    }
+
+    public boolean matches(long size, long dateModified) {
+        return this.size == size && this.dateModified == dateModified;
+    }
+}
@@ -3,6 +3,7 @@ package com.gallery.sweeper.photo.cleaner.data.db;
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
 import androidx.room.Ignore;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import androidx.room.TypeConverters;
 
@@ -21,7 +22,14 @@ import java.util.Objects;
  * 2. 增强数据验证
  * 3. 添加安全相关方法
  */
-@Entity(tableName = "photos")
+@Entity(tableName = "photos",
+        indices = {
+                // 状态+时间：按状态列出照片（回收站页面）无需排序；含大小，统计可释放空间时只扫描索引，不回表
+                @Index(name = "index_photos_status_date", value = {"status", "date_taken", "size"}),
+                // 月份键：按分组顺序扫描计数，按（拍摄时间，ID）倒序查找封面，按时间列出组内照片；
+                // 年份分组是连续的月份键区间，同样走该索引
+                @Index(name = "index_photos_bucket_date",
+                        value = {"bucket", "date_taken", "media_store_id", "status", "size"})})
 @TypeConverters(PhotoStatusConverter.class)
 public class Photo {
     @PrimaryKey
@@ -31,19 +39,35 @@ public class Photo {
     @ColumnInfo(name = "path")
     public String path; // 照片文件路径
 
-    @ColumnInfo(name = "date_taken", index = true)
+    @ColumnInfo(name = "date_taken")
     public long dateTaken; // 照片拍摄时间戳（毫秒）
 
-    @ColumnInfo(name = "year_group", index = true)
-    public String yearGroup; // 年份分组标识（如"2025"）
-
-    @ColumnInfo(name = "month_group", index = true)
-    public String monthGroup; // 年月分组标识（如"2025-06"）
+    @ColumnInfo(name = "bucket")
+    public int bucket; // 所属月份分组键（yyyymm，如202506），见GroupBucket
 
     // 添加状态字段
-    @ColumnInfo(name = "status", defaultValue = "NORMAL")
+    @ColumnInfo(name = "status", defaultValue = "0")
     public Status status = Status.NORMAL;
 
+    // 扫描时从媒体库读取的文件元数据
+    @ColumnInfo(name = "size", defaultValue = "0")
+    public long size; // 文件大小（字节）
+
+    @ColumnInfo(name = "width", defaultValue = "0")
+    public int width;
+
+    @ColumnInfo(name = "height", defaultValue = "0")
+    public int height;
+
+    @ColumnInfo(name = "mime_type")
+    public String mimeType;
+
+    @ColumnInfo(name = "date_modified", defaultValue = "0")
+    public long dateModified; // 文件修改时间（秒）
+
+    @ColumnInfo(name = "volume_name")
+    public String volumeName; // 所在媒体卷，与媒体库对账时按卷进行；为null时所在卷未知，不参与对账
+
     @Ignore
     private boolean isSelected; // UI状态，不持久化到数据库
 
@@ -81,19 +105,23 @@ public class Photo {
         this.mediaStoreId = other.mediaStoreId;
         this.path = other.path;
         this.dateTaken = other.dateTaken;
-        this.yearGroup = other.yearGroup;
-        this.monthGroup = other.monthGroup;
+        this.bucket = other.bucket;
         this.status = other.status;
+        this.size = other.size;
+        this.width = other.width;
+        this.height = other.height;
+        this.mimeType = other.mimeType;
+        this.dateModified = other.dateModified;
+        this.volumeName = other.volumeName;
         this.isSelected = other.isSelected;
     }
 
     @Ignore
-    public Photo(long mediaStoreId, String path, long dateTaken, String yearGroup, String monthGroup) {
+    public Photo(long mediaStoreId, String path, long dateTaken, int bucket) {
         this.mediaStoreId = mediaStoreId;
         this.path = path;
         this.dateTaken = dateTaken;
-        this.yearGroup = yearGroup;
-        this.monthGroup = monthGroup;
+        this.bucket = bucket;
     }
 
     // Getters and Setters
@@ -129,20 +157,12 @@ public class Photo {
         this.dateTaken = dateTaken;
     }
 
-    public String getYearGroup() {
-        return yearGroup;
-    }
-
-    public void setYearGroup(String yearGroup) {
-        this.yearGroup = yearGroup;
-    }
-
-    public String getMonthGroup() {
-        return monthGroup;
+    public int getBucket() {
+        return bucket;
     }
 
-    public void setMonthGroup(String monthGroup) {
-        this.monthGroup = monthGroup;
+    public void setBucket(int bucket) {
+        this.bucket = bucket;
     }
 
     // Helper methods
@@ -182,9 +202,11 @@ public class Photo {
                 "mediaStoreId=" + mediaStoreId +
                 ", path='" + path + '\'' +
                 ", dateTaken=" + dateTaken +
-                ", yearGroup='" + yearGroup + '\'' +
-                ", monthGroup='" + monthGroup + '\'' +
+                ", bucket=" + bucket +
                 ", status=" + status +
+                ", size=" + size +
+                ", " + width + "x" + height +
+                ", mimeType='" + mimeType + '\'' +
                 ", isSelected=" + isSelected +
                 '}';
     }
@@ -3,9 +3,10 @@ package com.gallery.sweeper.photo.cleaner.data.db;
 import androidx.annotation.NonNull;
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
-import androidx.room.Ignore;
+import androidx.room.Index;
 
 import com.daz.lib_base.utils.XLog;
+import com.gallery.sweeper.photo.cleaner.data.group.GroupBucket;
 
 /**
  * 项目名称：
@@ -17,28 +18,25 @@ import com.daz.lib_base.utils.XLog;
  * 2. 增强分组标识生成
  */
 @Entity(tableName = "photo_groups",
-        primaryKeys = {"group_key", "group_type"})
+        primaryKeys = {"bucket"},
+        // 按类型列出分组并按最新时间排序
+        indices = {@Index(name = "index_photo_groups_type_latest", value = {"group_type", "latest_photo_timestamp"})})
 public class PhotoGroup {
-    @NonNull
-    @ColumnInfo(name = "group_key")
-    public String groupKey; // 分组唯一标识
+    /**
+     * 分组键：月份为yyyymm，年份为yyyy00，见{@link GroupBucket}
+     */
+    @ColumnInfo(name = "bucket")
+    public int bucket;
 
     @NonNull
     @ColumnInfo(name = "group_type")
     public String groupType; // 分组类型 (YEAR/MONTH)
 
-    // 分组元数据
-    @ColumnInfo(name = "year_group")
-    public String yearGroup; // 所属年份
-
-    @ColumnInfo(name = "month_group")
-    public String monthGroup; // 月份分组(如"Jan")
-
     // 时间范围
-    @ColumnInfo(name = "latest_photo_timestamp", index = true)
+    @ColumnInfo(name = "latest_photo_timestamp")
     public long latestPhotoTimestamp; // 组内最新照片时间戳
 
-    @ColumnInfo(name = "earliest_photo_timestamp", index = true)
+    @ColumnInfo(name = "earliest_photo_timestamp")
     public long earliestPhotoTimestamp; // 组内最早照片时间戳
 
     // 状态计数
@@ -52,6 +50,13 @@ public class PhotoGroup {
     @ColumnInfo(name = "photo_count")
     public int photoCount; // 照片数量
 
+    // 空间统计（聚合时随计数一起计算，读取分组即可得到，无需访问文件）
+    @ColumnInfo(name = "total_bytes", defaultValue = "0")
+    public long totalBytes; // 组内照片总大小（字节）
+
+    @ColumnInfo(name = "trash_bytes", defaultValue = "0")
+    public long trashBytes; // 组内回收站照片总大小，即清空后可释放的空间
+
     // 封面信息
     @ColumnInfo(name = "group_cover")
     public String groupCover; // 封面照片路径
@@ -59,10 +64,6 @@ public class PhotoGroup {
     @ColumnInfo(name = "cover_media_id")
     public long coverMediaId; // 封面照片的媒体库ID
 
-    // 显示信息
-    @ColumnInfo(name = "display_name")
-    public String displayName; // 本地化显示名称
-
     // 构造方法
     public PhotoGroup() {
         // 无参构造方法用于Room
@@ -70,49 +71,25 @@ public class PhotoGroup {
 
     // 深拷贝构造函数
     public PhotoGroup(PhotoGroup other) {
-        this.groupKey = other.groupKey;
+        this.bucket = other.bucket;
         this.groupType = other.groupType;
-        this.yearGroup = other.yearGroup;
-        this.monthGroup = other.monthGroup;
         this.latestPhotoTimestamp = other.latestPhotoTimestamp;
         this.earliestPhotoTimestamp = other.earliestPhotoTimestamp;
         this.trashCount = other.trashCount;
         this.keepCount = other.keepCount;
         this.photoCount = other.photoCount;
+        this.totalBytes = other.totalBytes;
+        this.trashBytes = other.trashBytes;
         this.groupCover = other.groupCover;
         this.coverMediaId = other.coverMediaId;
-        this.displayName = other.displayName;
-    }
-
-    @Ignore
-    // 全参构造方法
-    public PhotoGroup(@NonNull String groupKey, @NonNull String groupType,
-                      String yearGroup, String monthGroup,
-                      long latestPhotoTimestamp, long earliestPhotoTimestamp,
-                      int trashCount, int keepCount, int photoCount,
-                      String groupCover, long coverMediaId,
-                      String displayName) {
-        this.groupKey = groupKey;
-        this.groupType = groupType;
-        this.yearGroup = yearGroup;
-        this.monthGroup = monthGroup;
-        this.latestPhotoTimestamp = latestPhotoTimestamp;
-        this.earliestPhotoTimestamp = earliestPhotoTimestamp;
-        this.trashCount = trashCount;
-        this.keepCount = keepCount;
-        this.photoCount = photoCount;
-        this.groupCover = groupCover;
-        this.coverMediaId = coverMediaId;
-        this.displayName = displayName;
     }
 
-    @NonNull
-    public String getGroupKey() {
-        return groupKey;
+    public int getBucket() {
+        return bucket;
     }
 
-    public void setGroupKey(@NonNull String groupKey) {
-        this.groupKey = groupKey;
+    public void setBucket(int bucket) {
+        this.bucket = bucket;
     }
 
     @NonNull
@@ -124,22 +101,6 @@ public class PhotoGroup {
         this.groupType = groupType;
     }
 
-    public String getYearGroup() {
-        return yearGroup;
-    }
-
-    public void setYearGroup(String yearGroup) {
-        this.yearGroup = yearGroup;
-    }
-
-    public String getMonthGroup() {
-        return monthGroup;
-    }
-
-    public void setMonthGroup(String monthGroup) {
-        this.monthGroup = monthGroup;
-    }
-
     public long getLatestPhotoTimestamp() {
         return latestPhotoTimestamp;
     }
@@ -179,6 +140,14 @@ public class PhotoGroup {
         return photoCount;
     }
 
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public long getTrashBytes() {
+        return trashBytes;
+    }
+
     public void setPhotoCount(int photoCount) {
         this.photoCount = photoCount;
     }
@@ -199,29 +168,27 @@ public class PhotoGroup {
         this.coverMediaId = coverMediaId;
     }
 
+    /**
+     * 显示名称（如"2025"、"2025 Jan"），由分组键生成
+     */
     public String getDisplayName() {
-        return displayName;
-    }
-
-    public void setDisplayName(String displayName) {
-        this.displayName = displayName;
+        return GroupBucket.displayName(bucket);
     }
 
     @Override
     public String toString() {
         return "PhotoGroup{" +
-                "groupKey='" + groupKey + '\'' +
+                "bucket=" + bucket +
                 ", groupType='" + groupType + '\'' +
-                ", yearGroup='" + yearGroup + '\'' +
-                ", monthGroup='" + monthGroup + '\'' +
                 ", latestPhotoTimestamp=" + latestPhotoTimestamp +
                 ", earliestPhotoTimestamp=" + earliestPhotoTimestamp +
                 ", trashCount=" + trashCount +
                 ", keepCount=" + keepCount +
                 ", photoCount=" + photoCount +
+                ", totalBytes=" + totalBytes +
+                ", trashBytes=" + trashBytes +
                 ", groupCover='" + groupCover + '\'' +
                 ", coverMediaId=" + coverMediaId +
-                ", displayName='" + displayName + '\'' +
                 '}';
     }
 }
\ No newline at end of file
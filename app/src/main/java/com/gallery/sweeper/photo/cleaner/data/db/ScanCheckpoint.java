@@ -0,0 +1,98 @@
+package com.gallery.sweeper.photo.cleaner.data.db;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.PrimaryKey;
+
+/**
+ * 项目名称：
+ * 作者：wx
+ * 时间：2026/10/18 16:50
+ * 描述：扫描断点，记录进行中的扫描已提交到哪里
+ * 说明：
+ * 1. 与每批照片在同一事务中写入，进程被杀后断点与已入库数据一致
+ * 2. lastMediaId 为连续提交的最大_ID，恢复时从 _ID > lastMediaId 继续；
+ *    渐进式扫描按拍摄时间倒序读取，恢复时从 (lastDateTaken, lastMediaId) 之后继续
+ * 3. base* 字段保存扫描开始时使用的水位线，恢复后沿用相同的增量条件
+ * 4. 扫描完整结束后删除
+ */
+@Entity(tableName = "scan_checkpoint")
+public class ScanCheckpoint {
+    @NonNull
+    @PrimaryKey
+    @ColumnInfo(name = "volume_name")
+    public String volumeName; // 媒体卷名称
+
+    @ColumnInfo(name = "scan_mode")
+    public String scanMode; // 扫描模式（ScanMode名称）
+
+    @ColumnInfo(name = "media_store_version")
+    public String mediaStoreVersion; // 扫描开始时的媒体库版本
+
+    @ColumnInfo(name = "start_generation")
+    public long startGeneration; // 扫描开始时的generation，完成后写入水位线
+
+    @ColumnInfo(name = "base_generation")
+    public long baseGeneration; // 增量条件使用的旧水位线
+
+    @ColumnInfo(name = "base_max_date_modified")
+    public long baseMaxDateModified;
+
+    @ColumnInfo(name = "base_max_media_id")
+    public long baseMaxMediaId;
+
+    @ColumnInfo(name = "last_media_id")
+    public long lastMediaId; // 游标顺序中最后一条连续提交记录的_ID
+
+    @ColumnInfo(name = "last_date_taken", defaultValue = "0")
+    public long lastDateTaken; // 该记录的DATE_TAKEN（毫秒），渐进式扫描恢复使用
+
+    @ColumnInfo(name = "max_date_modified")
+    public long maxDateModified; // 已提交记录的最大DATE_MODIFIED（秒）
+
+    @ColumnInfo(name = "committed_rows")
+    public int committedRows;
+
+    @ColumnInfo(name = "inserted")
+    public int inserted;
+
+    @ColumnInfo(name = "updated")
+    public int updated;
+
+    @ColumnInfo(name = "deleted")
+    public int deleted;
+
+    @ColumnInfo(name = "started_at")
+    public long startedAt;
+
+    @ColumnInfo(name = "updated_at")
+    public long updatedAt;
+
+    public ScanCheckpoint() {
+        // 无参构造方法用于Room
+        this.volumeName = "";
+    }
+
+    @Ignore
+    public ScanCheckpoint(@NonNull String volumeName) {
+        this.volumeName = volumeName;
+    }
+
+    @Override
+    public String toString() {
+        return "ScanCheckpoint{" +
+                "volumeName='" + volumeName + '\'' +
+                ", scanMode=" + scanMode +
+                ", lastMediaId=" + lastMediaId +
+                ", lastDateTaken=" + lastDateTaken +
+                ", committedRows=" + committedRows +
+                ", inserted=" + inserted +
+                ", updated=" + updated +
+                ", deleted=" + deleted +
+                ", startedAt=" + startedAt +
+                ", updatedAt=" + updatedAt +
+                '}';
+    }
+}
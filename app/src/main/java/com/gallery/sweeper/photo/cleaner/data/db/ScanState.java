@@ -0,0 +1,62 @@
+package com.gallery.sweeper.photo.cleaner.data.db;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.PrimaryKey;
+
+/**
+ * 项目名称：
+ * 作者：wx
+ * 时间：2026/10/18 10:12
+ * 描述：媒体库扫描水位线，记录上一次扫描完成时媒体库的状态
+ * 说明：
+ * 1. Android 11+ 使用 MediaStore generation 判断增量
+ * 2. 低版本使用 DATE_MODIFIED / _ID 最大值判断增量
+ * 3. mediaStoreVersion 变化（如清除媒体库数据）时 generation 失效，需要全量扫描
+ */
+@Entity(tableName = "scan_state")
+public class ScanState {
+    @NonNull
+    @PrimaryKey
+    @ColumnInfo(name = "volume_name")
+    public String volumeName; // 媒体卷名称
+
+    @ColumnInfo(name = "media_store_version")
+    public String mediaStoreVersion; // 媒体库版本标识
+
+    @ColumnInfo(name = "generation")
+    public long generation; // 上次扫描时的媒体库generation（Android 11+）
+
+    @ColumnInfo(name = "max_date_modified")
+    public long maxDateModified; // 已扫描记录的最大DATE_MODIFIED（秒）
+
+    @ColumnInfo(name = "max_media_id")
+    public long maxMediaId; // 已扫描记录的最大_ID
+
+    @ColumnInfo(name = "last_scan_time")
+    public long lastScanTime; // 上次扫描完成时间（毫秒）
+
+    public ScanState() {
+        // 无参构造方法用于Room
+        this.volumeName = "";
+    }
+
+    @Ignore
+    public ScanState(@NonNull String volumeName) {
+        this.volumeName = volumeName;
+    }
+
+    @Override
+    public String toString() {
+        return "ScanState{" +
+                "volumeName='" + volumeName + '\'' +
+                ", mediaStoreVersion='" + mediaStoreVersion + '\'' +
+                ", generation=" + generation +
+                ", maxDateModified=" + maxDateModified +
+                ", maxMediaId=" + maxMediaId +
+                ", lastScanTime=" + lastScanTime +
+                '}';
+    }
+}
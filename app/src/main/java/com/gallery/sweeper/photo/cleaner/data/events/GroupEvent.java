@@ -19,6 +19,17 @@ public class GroupEvent {
         }
     }
 
+    /**
+     * 渐进式扫描中一批分组已完整入库（包含年份和月份分组）
+     */
+    public static class PublishedEvent {
+        public final List<PhotoGroup> photoGroups;
+
+        public PublishedEvent(List<PhotoGroup> photoGroups) {
+            this.photoGroups = photoGroups;
+        }
+    }
+
     public static class UpdateEvent {
         public final PhotoGroup updatedGroup;
         public UpdateEvent(PhotoGroup updatedGroup) {
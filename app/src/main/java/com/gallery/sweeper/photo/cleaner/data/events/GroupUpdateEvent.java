@@ -7,11 +7,9 @@ package com.gallery.sweeper.photo.cleaner.data.events;
  * 描述：
  */
 public class GroupUpdateEvent {
-    public final String yearGroup;
-    public final String monthGroup;
+    public final int bucket; // 分组键，见GroupBucket
 
-    public GroupUpdateEvent(String yearGroup, String monthGroup) {
-        this.yearGroup = yearGroup;
-        this.monthGroup = monthGroup;
+    public GroupUpdateEvent(int bucket) {
+        this.bucket = bucket;
     }
 }
@@ -9,13 +9,13 @@ import java.util.Set;
  * 描述：
  */
 public class ReloadGroupEvent {
-    private final Set<String> groupKeys; // 需要刷新的分组键集合
+    private final Set<Integer> groupKeys; // 需要刷新的分组键集合
 
-    public ReloadGroupEvent(Set<String> groupKeys) {
+    public ReloadGroupEvent(Set<Integer> groupKeys) {
         this.groupKeys = groupKeys;
     }
 
-    public Set<String> getGroupKeys() {
+    public Set<Integer> getGroupKeys() {
         return groupKeys;
     }
 }
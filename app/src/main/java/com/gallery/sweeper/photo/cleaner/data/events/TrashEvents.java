@@ -9,11 +9,11 @@ package com.gallery.sweeper.photo.cleaner.data.events;
 public class TrashEvents {
     public static class selectTrashByGroup {
         public String groupType;
-        public String groupKey;
+        public int bucket;
 
-        public selectTrashByGroup(String groupType, String groupKey) {
+        public selectTrashByGroup(String groupType, int bucket) {
             this.groupType = groupType;
-            this.groupKey = groupKey;
+            this.bucket = bucket;
         }
     }
 
@@ -0,0 +1,103 @@
+package com.gallery.sweeper.photo.cleaner.data.group;
+
+import com.gallery.sweeper.photo.cleaner.data.GroupType;
+
+/**
+ * 项目名称：
+ * 作者：wx
+ * 时间：2026/10/18 23:40
+ * 描述：年/月分组的整数键
+ * <p>
+ * 月份分组为yyyymm（如202501），年份分组为yyyy00（如202500）。
+ * 照片表只存月份键，照片所属的年份键为{@code bucket / 100 * 100}，同一年的月份键是连续区间
+ * [yyyy01, yyyy12]。整数键按时间顺序排列，比较和索引都与Locale无关；
+ * 年份、月份等显示字符串只在渲染时由键生成。
+ */
+public final class GroupBucket {
+
+    private static final String[] MONTH_ABBR = {"Jan", "Feb", "Mar", "Apr", "May", "Jun",
+            "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"};
+
+    private GroupBucket() {
+    }
+
+    /**
+     * @param month 月份，1~12
+     */
+    public static int ofMonth(int year, int month) {
+        return year * 100 + month;
+    }
+
+    public static int ofYear(int year) {
+        return year * 100;
+    }
+
+    public static int yearOf(int bucket) {
+        return bucket / 100;
+    }
+
+    /**
+     * @return 月份1~12，年份分组为0
+     */
+    public static int monthOf(int bucket) {
+        return bucket % 100;
+    }
+
+    public static boolean isYear(int bucket) {
+        return monthOf(bucket) == 0;
+    }
+
+    /**
+     * 月份键所在年份的键（年份键返回自身）
+     */
+    public static int yearBucketOf(int bucket) {
+        return ofYear(yearOf(bucket));
+    }
+
+    public static int firstMonthOf(int yearBucket) {
+        return yearBucket + 1;
+    }
+
+    public static int lastMonthOf(int yearBucket) {
+        return yearBucket + 12;
+    }
+
+    public static GroupType typeOf(int bucket) {
+        return isYear(bucket) ? GroupType.YEAR : GroupType.MONTH;
+    }
+
+    /**
+     * 照片（月份键）是否属于指定分组
+     */
+    public static boolean contains(int groupBucket, int photoBucket) {
+        return isYear(groupBucket) ? yearBucketOf(photoBucket) == groupBucket : photoBucket == groupBucket;
+    }
+
+    // ====================== 显示 ======================
+
+    public static String yearLabel(int bucket) {
+        return String.valueOf(yearOf(bucket));
+    }
+
+    /**
+     * 月份缩写（如"Jan"），年份分组返回空字符串
+     */
+    public static String monthLabel(int bucket) {
+        int month = monthOf(bucket);
+        return month >= 1 && month <= 12 ? MONTH_ABBR[month - 1] : "";
+    }
+
+    /**
+     * 分组名称：年份"2025"，月份"2025 Jan"
+     */
+    public static String displayName(int bucket) {
+        return isYear(bucket) ? yearLabel(bucket) : yearLabel(bucket) + " " + monthLabel(bucket);
+    }
+
+    /**
+     * 分组标题：年份"2025"，月份"Jan.2025"
+     */
+    public static String title(int bucket) {
+        return isYear(bucket) ? yearLabel(bucket) : monthLabel(bucket) + "." + yearLabel(bucket);
+    }
+}
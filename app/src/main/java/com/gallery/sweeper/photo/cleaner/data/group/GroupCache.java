@@ -0,0 +1,180 @@
+package com.gallery.sweeper.photo.cleaner.data.group;
+
+import com.gallery.sweeper.photo.cleaner.data.GroupType;
+import com.gallery.sweeper.photo.cleaner.data.db.PhotoGroup;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 项目名称：
+ * 作者：wx
+ * 时间：2026/10/18 23:55
+ * 描述：按分组键索引的分组缓存
+ * <p>
+ * 缓存带有单调递增的数据版本：照片表和分组表的每个写事务开始和结束时各递增一次，
+ * 事务内受影响的分组键被精确移除。读取方在查询数据库之前取得版本，回填时如果版本已变化
+ * （期间发生过写入）或仍有写事务未结束则拒绝回填，因此写入之后不会再返回写入之前读到的数据。
+ * <p>
+ * 写事务可以把写入后的分组行写穿到缓存：事务提交时与版本递增一起发布，回滚时丢弃。
+ * <p>
+ * 分组列表只缓存各类型的分组键顺序（按最新照片时间升序），列表中的分组从键索引中取；
+ * 某个类型的分组失效时该类型的顺序一起失效（成员和排序都可能变化）。
+ */
+public final class GroupCache {
+
+    // 按最新照片时间升序，时间相同时按分组键，分组快照使用同一顺序
+    static final Comparator<PhotoGroup> BY_LATEST = (a, b) -> {
+        int compare = Long.compare(a.latestPhotoTimestamp, b.latestPhotoTimestamp);
+        return compare != 0 ? compare : Integer.compare(a.bucket, b.bucket);
+    };
+
+    private final Map<Integer, PhotoGroup> groups = new HashMap<>();
+    private final Map<GroupType, List<Integer>> orders = new EnumMap<>(GroupType.class);
+    private final Map<Integer, PhotoGroup> pending = new HashMap<>(); // 写事务提交后发布的分组行
+    private long version;
+    private int activeWrites; // 未结束的写事务数
+    private boolean rolledBack; // 嵌套事务中任意一层失败，整个事务回滚
+
+    /**
+     * 当前数据版本，查询数据库之前读取，回填时传回
+     */
+    public synchronized long version() {
+        return version;
+    }
+
+    public synchronized PhotoGroup get(int bucket) {
+        return groups.get(bucket);
+    }
+
+    /**
+     * @return 按最新照片时间排序的分组列表，该类型未缓存时为null
+     */
+    public synchronized List<PhotoGroup> getList(GroupType type, boolean ascending) {
+        List<Integer> order = orders.get(type);
+        if (order == null) {
+            return null;
+        }
+        List<PhotoGroup> list = new ArrayList<>(order.size());
+        for (Integer bucket : order) {
+            PhotoGroup group = groups.get(bucket);
+            if (group == null) {
+                return null;
+            }
+            list.add(group);
+        }
+        if (!ascending) {
+            Collections.reverse(list);
+        }
+        return list;
+    }
+
+    /**
+     * 回填单个分组
+     *
+     * @param readVersion 查询数据库之前取得的版本
+     * @return 期间发生过写入时不回填，返回false
+     */
+    public synchronized boolean put(PhotoGroup group, long readVersion) {
+        if (!canFill(readVersion)) {
+            return false;
+        }
+        groups.put(group.bucket, group);
+        return true;
+    }
+
+    /**
+     * 回填某个类型的全部分组及其顺序
+     *
+     * @param readVersion 查询数据库之前取得的版本
+     * @return 期间发生过写入时不回填，返回false
+     */
+    public synchronized boolean putList(GroupType type, List<PhotoGroup> typeGroups, long readVersion) {
+        if (!canFill(readVersion)) {
+            return false;
+        }
+        List<PhotoGroup> sorted = new ArrayList<>(typeGroups);
+        sorted.sort(BY_LATEST);
+        List<Integer> order = new ArrayList<>(sorted.size());
+        for (PhotoGroup group : sorted) {
+            groups.put(group.bucket, group);
+            order.add(group.bucket);
+        }
+        orders.put(type, order);
+        return true;
+    }
+
+    /**
+     * 写事务开始：事务结束前拒绝所有回填
+     */
+    public synchronized void beginWrite() {
+        activeWrites++;
+        version++;
+    }
+
+    /**
+     * 写事务结束：事务期间开始的读取不能回填；最外层事务提交时发布写穿的分组行
+     *
+     * @param committed 事务是否提交
+     */
+    public synchronized void endWrite(boolean committed) {
+        activeWrites--;
+        version++;
+        rolledBack |= !committed;
+        if (activeWrites == 0) {
+            if (!rolledBack) {
+                groups.putAll(pending);
+            }
+            pending.clear();
+            rolledBack = false;
+        }
+    }
+
+    /**
+     * 移除受写入影响的分组，以及这些分组所属类型的列表顺序
+     */
+    public synchronized void invalidate(Collection<Integer> buckets) {
+        version++;
+        for (Integer bucket : buckets) {
+            groups.remove(bucket);
+            orders.remove(GroupBucket.typeOf(bucket));
+        }
+    }
+
+    /**
+     * 写事务内写穿：立即移除这些分组（提交前其它线程从数据库读到的仍是旧数据），
+     * 事务提交后发布写入后的分组行；没有对应行的分组（已删除）保持移除。必须在写事务内调用
+     *
+     * @param rows 写入后从数据库读回的分组行
+     */
+    public synchronized void writeThrough(Collection<Integer> buckets, Collection<PhotoGroup> rows) {
+        invalidate(buckets);
+        for (Integer bucket : buckets) {
+            pending.remove(bucket);
+        }
+        for (PhotoGroup row : rows) {
+            pending.put(row.bucket, row);
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        version++;
+        groups.clear();
+        orders.clear();
+        pending.clear();
+    }
+
+    public synchronized int size() {
+        return groups.size();
+    }
+
+    private boolean canFill(long readVersion) {
+        return activeWrites == 0 && readVersion == version;
+    }
+}
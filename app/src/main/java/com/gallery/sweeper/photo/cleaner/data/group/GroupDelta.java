@@ -0,0 +1,257 @@
+package com.gallery.sweeper.photo.cleaner.data.group;
+
+import com.gallery.sweeper.photo.cleaner.data.db.Photo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 项目名称：
+ * 作者：wx
+ * 时间：2026/10/18 21:10
+ * 描述：一次写入对年/月分组统计的增量
+ * <p>
+ * 写入照片前后各取一次快照，按差异累加每个受影响分组的计数和字节数。
+ * 分组行的计数由照片表触发器在同一事务内维护，这里的计数用于判断分组是否可能被清空；
+ * 时间边界和封面只有在可能失效时才需要重新查询：
+ * <ul>
+ *     <li>移除的照片拍摄时间落在分组边界上时，重新计算边界</li>
+ *     <li>当前封面离开可见集合（删除、移出分组或放入回收站）时，重新选择封面</li>
+ *     <li>新进入可见集合的照片比当前封面更新时，成为新封面</li>
+ * </ul>
+ * 非线程安全。
+ */
+public final class GroupDelta {
+
+    /**
+     * 单个分组的增量
+     */
+    public static final class Change {
+        public final int bucket; // 分组键，见GroupBucket
+
+        public int photoCount;
+        public int trashCount;
+        public int keepCount;
+        public long totalBytes;
+        public long trashBytes;
+
+        // 新进入分组的照片的拍摄时间范围
+        public long addedLatest = Long.MIN_VALUE;
+        public long addedEarliest = Long.MAX_VALUE;
+        // 离开分组的照片的拍摄时间范围
+        public long removedLatest = Long.MIN_VALUE;
+        public long removedEarliest = Long.MAX_VALUE;
+
+        // 离开可见集合（非回收站）的照片，其中包含当前封面时需要重新选择
+        public final List<Long> removedVisibleIds = new ArrayList<>();
+        // 新进入可见集合的最新照片，比当前封面更新时替换封面
+        public long coverCandidateId;
+        public String coverCandidatePath;
+        public long coverCandidateDate = Long.MIN_VALUE;
+
+        Change(int bucket) {
+            this.bucket = bucket;
+        }
+
+        public boolean isMonth() {
+            return !GroupBucket.isYear(bucket);
+        }
+
+        public boolean hasRemovals() {
+            return removedLatest != Long.MIN_VALUE;
+        }
+
+        public boolean hasCoverCandidate() {
+            return coverCandidateId != 0;
+        }
+
+        /**
+         * 增量是否对分组行没有任何影响
+         */
+        public boolean isEmpty() {
+            return photoCount == 0 && trashCount == 0 && keepCount == 0 && totalBytes == 0 && trashBytes == 0
+                    && addedLatest == Long.MIN_VALUE && !hasRemovals()
+                    && removedVisibleIds.isEmpty() && !hasCoverCandidate();
+        }
+
+        private void count(Photo photo, int sign) {
+            photoCount += sign;
+            totalBytes += sign * photo.size;
+            if (photo.status == Photo.Status.TRASHED) {
+                trashCount += sign;
+                trashBytes += sign * photo.size;
+            } else if (photo.status == Photo.Status.KEEP) {
+                keepCount += sign;
+            }
+        }
+
+        private void offerCover(Photo photo) {
+            // 与聚合查询的封面顺序一致：拍摄时间倒序，相同时ID倒序
+            if (photo.dateTaken > coverCandidateDate
+                    || (photo.dateTaken == coverCandidateDate && photo.mediaStoreId > coverCandidateId)) {
+                coverCandidateId = photo.mediaStoreId;
+                coverCandidatePath = photo.path;
+                coverCandidateDate = photo.dateTaken;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return bucket + "{照片: " + photoCount + ", 回收站: " + trashCount + ", 保留: " + keepCount
+                    + ", 字节: " + totalBytes + "}";
+        }
+    }
+
+    private final Map<Integer, Change> changes = new LinkedHashMap<>();
+
+    /**
+     * 照片进入分组（新插入，或从其他分组移入）
+     */
+    public void add(Photo photo) {
+        for (Change change : changesOf(photo)) {
+            change.count(photo, 1);
+            change.addedLatest = Math.max(change.addedLatest, photo.dateTaken);
+            change.addedEarliest = Math.min(change.addedEarliest, photo.dateTaken);
+            if (photo.status != Photo.Status.TRASHED) {
+                change.offerCover(photo);
+            }
+        }
+    }
+
+    /**
+     * 照片离开分组（删除，或移到其他分组）
+     */
+    public void remove(Photo photo) {
+        for (Change change : changesOf(photo)) {
+            change.count(photo, -1);
+            change.removedLatest = Math.max(change.removedLatest, photo.dateTaken);
+            change.removedEarliest = Math.min(change.removedEarliest, photo.dateTaken);
+            if (photo.status != Photo.Status.TRASHED) {
+                change.removedVisibleIds.add(photo.mediaStoreId);
+            }
+        }
+    }
+
+    /**
+     * 照片状态变化，分组和拍摄时间不变
+     */
+    public void changeStatus(Photo photo, Photo.Status from, Photo.Status to) {
+        if (from == to) {
+            return;
+        }
+        for (Change change : changesOf(photo)) {
+            change.count(withStatus(photo, from), -1);
+            change.count(withStatus(photo, to), 1);
+            if (to == Photo.Status.TRASHED) {
+                change.removedVisibleIds.add(photo.mediaStoreId);
+            } else if (from == Photo.Status.TRASHED) {
+                change.offerCover(photo);
+            }
+        }
+    }
+
+    /**
+     * 同一张照片写入前后的变化
+     *
+     * @param before 写入前的记录，新照片为null
+     * @param after  写入后的记录，已删除为null
+     */
+    public void replace(Photo before, Photo after) {
+        if (before != null && after != null && sameSlot(before, after)) {
+            if (before.status != after.status) {
+                changeStatus(after, before.status, after.status);
+            }
+            long sizeDelta = after.size - before.size;
+            if (sizeDelta != 0) {
+                for (Change change : changesOf(after)) {
+                    change.totalBytes += sizeDelta;
+                    if (after.status == Photo.Status.TRASHED) {
+                        change.trashBytes += sizeDelta;
+                    }
+                }
+            }
+            return;
+        }
+        if (before != null) {
+            remove(before);
+        }
+        if (after != null) {
+            add(after);
+        }
+    }
+
+    /**
+     * 扫描或变化同步一批写入：扫描写入保留已有照片的状态，新照片为NORMAL
+     *
+     * @param before     写入前按ID查询到的记录
+     * @param written    写入的照片（可能包含重复ID，以最后一条为准）
+     * @param deletedIds 删除的ID
+     */
+    public void replaceAll(Map<Long, Photo> before, Collection<Photo> written, Collection<Long> deletedIds) {
+        Map<Long, Photo> after = new LinkedHashMap<>();
+        for (Photo photo : written) {
+            after.put(photo.mediaStoreId, photo);
+        }
+        for (Long id : deletedIds) {
+            after.put(id, null);
+        }
+        for (Map.Entry<Long, Photo> entry : after.entrySet()) {
+            Photo old = before.get(entry.getKey());
+            Photo now = entry.getValue();
+            if (now != null) {
+                now = withStatus(now, old != null ? old.status : Photo.Status.NORMAL);
+            }
+            replace(old, now);
+        }
+    }
+
+    /**
+     * 有实际变化的分组
+     */
+    public List<Change> changes() {
+        List<Change> result = new ArrayList<>(changes.size());
+        for (Change change : changes.values()) {
+            if (!change.isEmpty()) {
+                result.add(change);
+            }
+        }
+        return result;
+    }
+
+    public boolean isEmpty() {
+        return changes().isEmpty();
+    }
+
+    // 分组、拍摄时间和路径都没变：计数和边界不受影响
+    private static boolean sameSlot(Photo before, Photo after) {
+        return before.dateTaken == after.dateTaken
+                && before.bucket == after.bucket
+                && Objects.equals(before.path, after.path);
+    }
+
+    private static Photo withStatus(Photo photo, Photo.Status status) {
+        if (photo.status == status) {
+            return photo;
+        }
+        Photo copy = new Photo(photo);
+        copy.status = status;
+        return copy;
+    }
+
+    private Change[] changesOf(Photo photo) {
+        return new Change[]{changeOf(photo.bucket), changeOf(GroupBucket.yearBucketOf(photo.bucket))};
+    }
+
+    private Change changeOf(int bucket) {
+        Change change = changes.get(bucket);
+        if (change == null) {
+            change = new Change(bucket);
+            changes.put(bucket, change);
+        }
+        return change;
+    }
+}
@@ -0,0 +1,127 @@
+package com.gallery.sweeper.photo.cleaner.data.group;
+
+import com.gallery.sweeper.photo.cleaner.data.GroupType;
+import com.gallery.sweeper.photo.cleaner.data.db.PhotoGroup;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 项目名称：
+ * 作者：wx
+ * 时间：2026/10/18 23:59
+ * 描述：分组列表的二进制快照，冷启动时在数据库打开之前显示
+ * <p>
+ * 快照保存全部分组（年份和月份）的分组键、计数、字节数、时间边界和封面，按最新照片时间升序排列，
+ * 读取时按类型筛选并按当前排序方向排列。文件先写入临时文件再重命名替换，读取时不会读到写了一半的快照；
+ * 格式版本不符时视为没有快照。分组类型由分组键推出，不单独保存。
+ */
+public final class GroupSnapshot {
+
+    private static final int MAGIC = 0x4753_4E50; // "GSNP"
+    private static final int FORMAT_VERSION = 1;
+
+    private GroupSnapshot() {
+    }
+
+    /**
+     * 写入快照，替换已有文件
+     */
+    public static void write(File file, Collection<PhotoGroup> groups) throws IOException {
+        List<PhotoGroup> sorted = new ArrayList<>(groups);
+        sorted.sort(GroupCache.BY_LATEST);
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(sorted.size());
+            for (PhotoGroup group : sorted) {
+                out.writeInt(group.bucket);
+                out.writeLong(group.latestPhotoTimestamp);
+                out.writeLong(group.earliestPhotoTimestamp);
+                out.writeInt(group.photoCount);
+                out.writeInt(group.trashCount);
+                out.writeInt(group.keepCount);
+                out.writeLong(group.totalBytes);
+                out.writeLong(group.trashBytes);
+                out.writeLong(group.coverMediaId);
+                out.writeBoolean(group.groupCover != null);
+                if (group.groupCover != null) {
+                    out.writeUTF(group.groupCover);
+                }
+            }
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("快照重命名失败: " + file);
+        }
+    }
+
+    /**
+     * 读取快照
+     *
+     * @return 按最新照片时间升序的全部分组；文件不存在或格式版本不符时为null
+     * @throws IOException 文件损坏（如被截断）
+     */
+    public static List<PhotoGroup> read(File file) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            int count = in.readInt();
+            if (count < 0) {
+                throw new IOException("快照分组数无效: " + count);
+            }
+            List<PhotoGroup> groups = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                PhotoGroup group = new PhotoGroup();
+                group.bucket = in.readInt();
+                group.groupType = GroupBucket.typeOf(group.bucket).toString();
+                group.latestPhotoTimestamp = in.readLong();
+                group.earliestPhotoTimestamp = in.readLong();
+                group.photoCount = in.readInt();
+                group.trashCount = in.readInt();
+                group.keepCount = in.readInt();
+                group.totalBytes = in.readLong();
+                group.trashBytes = in.readLong();
+                group.coverMediaId = in.readLong();
+                group.groupCover = in.readBoolean() ? in.readUTF() : null;
+                groups.add(group);
+            }
+            return groups;
+        }
+    }
+
+    /**
+     * 从快照中取出某个类型的分组，按最新照片时间排列
+     *
+     * @param groups {@link #read}返回的分组（已按升序排列）
+     */
+    public static List<PhotoGroup> select(List<PhotoGroup> groups, GroupType type, boolean ascending) {
+        String groupType = type.toString();
+        List<PhotoGroup> selected = new ArrayList<>();
+        for (PhotoGroup group : groups) {
+            if (groupType.equals(group.groupType)) {
+                selected.add(group);
+            }
+        }
+        if (!ascending) {
+            Collections.reverse(selected);
+        }
+        return selected;
+    }
+}
@@ -0,0 +1,67 @@
+package com.gallery.sweeper.photo.cleaner.data.group;
+
+import com.gallery.sweeper.photo.cleaner.data.GroupType;
+import com.gallery.sweeper.photo.cleaner.data.db.PhotoGroup;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 项目名称：
+ * 作者：wx
+ * 时间：2026/10/18 23:50
+ * 描述：由月份分组汇总年份分组
+ * <p>
+ * 年份分组的计数和字节数是各月之和，时间边界取各月的最值；封面取最近一个有封面的月份的封面，
+ * 与按（月份键，拍摄时间，ID）倒序选择封面的结果一致。
+ * 汇总只需要遍历月份分组，SQL只按月份键聚合，不需要按表达式（年份）分组排序。
+ */
+public final class YearRollup {
+
+    private YearRollup() {
+    }
+
+    /**
+     * @param months 月份分组（同一年的月份可以不完整，只汇总给出的月份）
+     * @return 年份分组，按年份升序
+     */
+    public static List<PhotoGroup> rollUp(Collection<PhotoGroup> months) {
+        Map<Integer, PhotoGroup> years = new TreeMap<>();
+        Map<Integer, Integer> coverMonths = new HashMap<>(); // 年份键 -> 封面所在月份键
+        for (PhotoGroup month : months) {
+            int yearBucket = GroupBucket.yearBucketOf(month.bucket);
+            PhotoGroup year = years.get(yearBucket);
+            if (year == null) {
+                year = new PhotoGroup();
+                year.bucket = yearBucket;
+                year.groupType = GroupType.YEAR.toString();
+                year.latestPhotoTimestamp = Long.MIN_VALUE;
+                year.earliestPhotoTimestamp = Long.MAX_VALUE;
+                years.put(yearBucket, year);
+            }
+            add(year, month);
+            // 较新的月份优先
+            Integer coverMonth = coverMonths.get(yearBucket);
+            if (month.coverMediaId != 0 && (coverMonth == null || month.bucket > coverMonth)) {
+                year.coverMediaId = month.coverMediaId;
+                year.groupCover = month.groupCover;
+                coverMonths.put(yearBucket, month.bucket);
+            }
+        }
+        return new ArrayList<>(years.values());
+    }
+
+    private static void add(PhotoGroup year, PhotoGroup month) {
+        year.photoCount += month.photoCount;
+        year.trashCount += month.trashCount;
+        year.keepCount += month.keepCount;
+        year.totalBytes += month.totalBytes;
+        year.trashBytes += month.trashBytes;
+        year.latestPhotoTimestamp = Math.max(year.latestPhotoTimestamp, month.latestPhotoTimestamp);
+        year.earliestPhotoTimestamp = Math.min(year.earliestPhotoTimestamp, month.earliestPhotoTimestamp);
+    }
+}
@@ -0,0 +1,112 @@
+package com.gallery.sweeper.photo.cleaner.data.scan;
+
+/**
+ * 项目名称：
+ * 作者：wx
+ * 时间：2026/10/18 15:20
+ * 描述：自适应写入批次大小控制器
+ * <p>
+ * 根据每批事务耗时估算单行写入成本，使下一批的耗时接近目标值；
+ * 堆内存余量不足时主动缩小批次，而不是等到OutOfMemoryError才补救。
+ * 只在写入线程上调用，非线程安全。
+ */
+public class AdaptiveBatchSizer {
+
+    public static final int MIN_BATCH_SIZE = 50;
+    /**
+     * 写入阶段按整块累积记录，批次可能超出建议大小不到一块，因此从900中预留一块：
+     * 实际行数不超过900（IN (:ids) 绑定参数在旧版SQLite上限为999）
+     */
+    public static final int MAX_BATCH_SIZE = 900 - MediaScanPipeline.CHUNK_SIZE;
+
+    static final long TARGET_LATENCY_MS = 150; // 单批事务目标耗时，期间会占用数据库锁
+    static final double MIN_HEAP_HEADROOM = 0.15; // 可用堆内存低于该比例时缩小批次
+    private static final double LATENCY_SMOOTHING = 0.3; // 单行耗时指数平滑系数
+    private static final int MAX_STEP_FACTOR = 2; // 每次调整最多放大/缩小2倍
+
+    private int current;
+    private int minUsed;
+    private int maxUsed;
+    private int adjustments = 0;
+    private double perRowMs = -1; // 平滑后的单行写入耗时
+
+    public AdaptiveBatchSizer(int initialSize) {
+        this.current = clamp(initialSize);
+        this.minUsed = current;
+        this.maxUsed = current;
+    }
+
+    /**
+     * 当前建议的批次大小
+     */
+    public int current() {
+        return current;
+    }
+
+    /**
+     * 一批提交完成后回调
+     *
+     * @param size      本批实际行数
+     * @param elapsedMs 本批事务耗时（含等待数据库锁）
+     */
+    public void onBatchCommitted(int size, long elapsedMs) {
+        if (size <= 0) {
+            return;
+        }
+        double sample = Math.max(elapsedMs, 1) / (double) size;
+        perRowMs = perRowMs < 0 ? sample : perRowMs + LATENCY_SMOOTHING * (sample - perRowMs);
+
+        int next;
+        if (heapHeadroom() < MIN_HEAP_HEADROOM) {
+            // 内存紧张时只缩不涨
+            next = current / MAX_STEP_FACTOR;
+        } else {
+            int ideal = (int) (TARGET_LATENCY_MS / perRowMs);
+            next = Math.max(current / MAX_STEP_FACTOR, Math.min(current * MAX_STEP_FACTOR, ideal));
+        }
+        apply(next);
+    }
+
+    /**
+     * 写入发生内存不足时回调，大幅缩小批次
+     */
+    public void onMemoryPressure() {
+        apply(current / (MAX_STEP_FACTOR * 2));
+    }
+
+    public int getMinUsed() {
+        return minUsed;
+    }
+
+    public int getMaxUsed() {
+        return maxUsed;
+    }
+
+    public int getAdjustments() {
+        return adjustments;
+    }
+
+    private void apply(int next) {
+        next = clamp(next);
+        if (next != current) {
+            current = next;
+            adjustments++;
+            minUsed = Math.min(minUsed, next);
+            maxUsed = Math.max(maxUsed, next);
+        }
+    }
+
+    private static int clamp(int size) {
+        return Math.max(MIN_BATCH_SIZE, Math.min(MAX_BATCH_SIZE, size));
+    }
+
+    /**
+     * 可用堆内存占最大堆的比例（未分配部分 + 已分配未使用部分），测试中可覆盖
+     */
+    double heapHeadroom() {
+        Runtime runtime = Runtime.getRuntime();
+        long max = runtime.maxMemory();
+        long used = runtime.totalMemory() - runtime.freeMemory();
+        return max <= 0 ? 1.0 : (max - used) / (double) max;
+    }
+}
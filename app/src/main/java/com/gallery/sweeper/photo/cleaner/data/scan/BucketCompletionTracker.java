@@ -0,0 +1,131 @@
+package com.gallery.sweeper.photo.cleaner.data.scan;
+
+import com.gallery.sweeper.photo.cleaner.data.db.Photo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * 项目名称：
+ * 作者：wx
+ * 时间：2026/10/18 17:20
+ * 描述：按拍摄时间倒序扫描时，判断哪些年/月分组已经完整入库
+ * <p>
+ * 游标按DATE_TAKEN降序读取，连续提交水位线之前的记录都已落库，因此比水位线所在月份更新的
+ * 月份不会再有新照片，可以立即聚合并发布；年份同理。
+ * 多个卷并行扫描时，以进度最慢（水位线最新）的卷为准，已完整提交的卷不再限制。
+ * <p>
+ * 拍摄时间无效的记录排在游标末尾，入库时使用EXIF或修改时间分组，可能把已完成的月份重新打开，
+ * 这种月份在下一次提交后会被再次报告，重新聚合即可覆盖。
+ * <p>
+ * 只在写入线程上调用，非线程安全。
+ */
+public final class BucketCompletionTracker {
+
+    /**
+     * 本次新完成的分组，按时间从新到旧排列
+     */
+    public static final class Completed {
+        public static final Completed EMPTY = new Completed(Collections.emptyList(), Collections.emptyList());
+
+        public final List<Integer> months; // 月份序号（year * 12 + month）
+        public final List<Integer> years;
+
+        Completed(List<Integer> months, List<Integer> years) {
+            this.months = months;
+            this.years = years;
+        }
+
+        public boolean isEmpty() {
+            return months.isEmpty() && years.isEmpty();
+        }
+    }
+
+    private static final long NOT_STARTED = Long.MAX_VALUE; // 尚未提交任何记录，可能包含最新的照片
+    private static final long DATED_DONE = Long.MIN_VALUE; // 有效拍摄时间的记录已全部提交
+
+    private final DateBucketer bucketer;
+    // 已有照片提交但尚未发布的分组
+    private final TreeSet<Integer> openMonths = new TreeSet<>();
+    private final TreeSet<Integer> openYears = new TreeSet<>();
+    // 按拍摄时间倒序扫描且尚未完成的卷 -> 已连续提交的最后拍摄时间
+    private final Map<String, Long> volumeWatermarks = new HashMap<>();
+
+    /**
+     * @param volumes 按拍摄时间倒序扫描的卷，其他卷不限制分组完成
+     */
+    public BucketCompletionTracker(DateBucketer bucketer, Collection<String> volumes) {
+        this.bucketer = bucketer;
+        for (String volume : volumes) {
+            volumeWatermarks.put(volume, NOT_STARTED);
+        }
+    }
+
+    /**
+     * 记录一批已提交的照片所属的分组
+     */
+    public void onCommitted(List<Photo> photos) {
+        for (Photo photo : photos) {
+            int bucket = bucketer.bucketOf(photo.dateTaken);
+            openMonths.add(bucket);
+            openYears.add(DateBucketer.yearOf(bucket));
+        }
+    }
+
+    /**
+     * 水位线推进后，取出所有比各卷水位线都更新的分组
+     */
+    public Completed advance(List<MediaScanPipeline.Watermark> watermarks) {
+        for (MediaScanPipeline.Watermark watermark : watermarks) {
+            if (!volumeWatermarks.containsKey(watermark.volumeName)) {
+                continue;
+            }
+            if (watermark.complete) {
+                volumeWatermarks.remove(watermark.volumeName);
+            } else if (watermark.committedRows > 0) {
+                // 已进入无拍摄时间的尾部时，该卷所有有效时间的记录都已提交
+                volumeWatermarks.put(watermark.volumeName,
+                        watermark.lastDateTaken <= 0 ? DATED_DONE : watermark.lastDateTaken);
+            }
+        }
+
+        long newest = DATED_DONE;
+        for (long dateTaken : volumeWatermarks.values()) {
+            newest = Math.max(newest, dateTaken);
+        }
+        if (newest == NOT_STARTED) {
+            return Completed.EMPTY;
+        }
+        if (newest == DATED_DONE) {
+            return drainAll();
+        }
+        int boundary = bucketer.bucketOf(newest);
+        return new Completed(drain(openMonths.tailSet(boundary, false)),
+                drain(openYears.tailSet(DateBucketer.yearOf(boundary), false)));
+    }
+
+    /**
+     * 扫描结束时取出所有剩余分组
+     */
+    public Completed drainAll() {
+        if (openMonths.isEmpty() && openYears.isEmpty()) {
+            return Completed.EMPTY;
+        }
+        return new Completed(drain(openMonths), drain(openYears));
+    }
+
+    private static List<Integer> drain(NavigableSet<Integer> set) {
+        if (set.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Integer> result = new ArrayList<>(set.descendingSet());
+        set.clear();
+        return result;
+    }
+}
@@ -0,0 +1,60 @@
+package com.gallery.sweeper.photo.cleaner.data.scan;
+
+import android.database.Cursor;
+
+import java.io.Closeable;
+
+/**
+ * 项目名称：
+ * 作者：wx
+ * 时间：2026/10/18 18:20
+ * 描述：扫描流水线的游标来源，可以是整个结果集的单个游标，也可以是按窗口分页的多个游标
+ */
+public interface CursorSource extends Closeable {
+
+    /**
+     * 本次扫描的总行数（结果缓存），查询失败返回-1
+     */
+    int count();
+
+    /**
+     * 获取下一页游标，返回前释放上一页；没有更多数据时返回null
+     */
+    Cursor nextPage();
+
+    /**
+     * 释放当前持有的游标
+     */
+    @Override
+    void close();
+
+    /**
+     * 单游标来源：整个结果集作为一页
+     */
+    static CursorSource single(Cursor cursor) {
+        return new CursorSource() {
+            private boolean consumed = false;
+
+            @Override
+            public int count() {
+                return cursor == null ? -1 : cursor.getCount();
+            }
+
+            @Override
+            public Cursor nextPage() {
+                if (consumed || cursor == null) {
+                    return null;
+                }
+                consumed = true;
+                return cursor;
+            }
+
+            @Override
+            public void close() {
+                if (cursor != null) {
+                    cursor.close();
+                }
+            }
+        };
+    }
+}
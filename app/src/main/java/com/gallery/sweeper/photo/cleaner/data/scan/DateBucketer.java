@@ -0,0 +1,104 @@
+package com.gallery.sweeper.photo.cleaner.data.scan;
+
+import com.gallery.sweeper.photo.cleaner.data.group.GroupBucket;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+/**
+ * 项目名称：
+ * 作者：wx
+ * 时间：2026/10/18 15:45
+ * 描述：年/月分组计算
+ * <p>
+ * 预先计算范围内每个本地月份的起始时刻，拍摄时间通过二分查找映射为紧凑的月份序号
+ * （year * 12 + month），再换算为数据库中的月份分组键（yyyymm，见{@link GroupBucket}），
+ * 扫描时不再为每张照片创建Calendar计算。
+ * <p>
+ * 月份起始时刻由GregorianCalendar按指定时区计算，夏令时和时区历史变更（包括跳过的日期）
+ * 都已体现在边界中。构造后不可变，可被多个检查线程共享。
+ */
+public final class DateBucketer {
+
+    private static final int DEFAULT_MIN_YEAR = 1970;
+
+    private final TimeZone timeZone;
+    private final int minYear;
+    private final long[] monthStarts; // 第i个月的起始时刻，最后一个元素为范围结束时刻
+
+    /**
+     * 覆盖1970年至明年的默认范围
+     */
+    public DateBucketer(TimeZone timeZone) {
+        this(timeZone, DEFAULT_MIN_YEAR, new GregorianCalendar(timeZone).get(Calendar.YEAR) + 1);
+    }
+
+    /**
+     * @param minYear 预计算范围起始年份（含）
+     * @param maxYear 预计算范围结束年份（含）
+     */
+    public DateBucketer(TimeZone timeZone, int minYear, int maxYear) {
+        if (maxYear < minYear) {
+            throw new IllegalArgumentException("maxYear < minYear: " + maxYear + " < " + minYear);
+        }
+        this.timeZone = (TimeZone) timeZone.clone();
+        this.minYear = minYear;
+
+        int years = maxYear - minYear + 1;
+        this.monthStarts = new long[years * 12 + 1];
+
+        Calendar calendar = newCalendar();
+        for (int i = 0; i < monthStarts.length; i++) {
+            calendar.clear();
+            // 本地零点不存在时（夏令时从零点开始），宽松模式会顺延到该日第一个有效时刻
+            calendar.set(minYear + i / 12, i % 12, 1, 0, 0, 0);
+            monthStarts[i] = calendar.getTimeInMillis();
+        }
+    }
+
+    /**
+     * 计算时间戳所属的月份序号（year * 12 + month，month从0开始）
+     */
+    public int bucketOf(long millis) {
+        if (millis < monthStarts[0] || millis >= monthStarts[monthStarts.length - 1]) {
+            return slowBucketOf(millis); // 范围外（极少见）回退到Calendar
+        }
+        int index = Arrays.binarySearch(monthStarts, millis);
+        if (index < 0) {
+            index = -index - 2; // 插入点的前一个边界
+        }
+        return minYear * 12 + index;
+    }
+
+    public static int yearOf(int bucket) {
+        return bucket / 12;
+    }
+
+    public static int monthOf(int bucket) {
+        return bucket % 12;
+    }
+
+    /**
+     * 月份序号换算为月份分组键（yyyymm）
+     */
+    public static int yearMonth(int bucket) {
+        return GroupBucket.ofMonth(yearOf(bucket), monthOf(bucket) + 1);
+    }
+
+    public TimeZone getTimeZone() {
+        return (TimeZone) timeZone.clone();
+    }
+
+    private int slowBucketOf(long millis) {
+        Calendar calendar = newCalendar();
+        calendar.setTimeInMillis(millis);
+        return calendar.get(Calendar.YEAR) * 12 + calendar.get(Calendar.MONTH);
+    }
+
+    private Calendar newCalendar() {
+        // 固定使用公历，避免默认Locale为佛历/和历时年份错误
+        return new GregorianCalendar(timeZone);
+    }
+}
@@ -0,0 +1,294 @@
+package com.gallery.sweeper.photo.cleaner.data.scan;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+/**
+ * 项目名称：
+ * 作者：wx
+ * 时间：2026/10/18 19:10
+ * 描述：只读取文件头部解析EXIF拍摄时间
+ * <p>
+ * JPEG的EXIF位于文件开头的APP1段，先读取{@link #PROBE_BYTES}字节，
+ * 拍摄时间的偏移超出已读范围时再读到APP1段末尾（不超过{@link #MAX_BYTES}），不解码图像。
+ * <p>
+ * 依次尝试 DateTimeOriginal、DateTimeDigitized、IFD0 DateTime；存在OffsetTimeOriginal时按该时区解析，
+ * 否则按本地时区解析（与相机写入时的约定一致）。非JPEG或无EXIF时返回{@link #NO_DATE}。
+ * 无状态，线程安全。
+ */
+public final class ExifDateReader {
+
+    public static final long NO_DATE = 0;
+
+    static final int PROBE_BYTES = 4 * 1024;
+    static final int MAX_BYTES = 64 * 1024; // APP1段最大长度
+
+    private static final long TRUNCATED = -1; // 已读取的头部不完整，需要读更多
+
+    private static final int TAG_DATE_TIME = 0x0132;
+    private static final int TAG_EXIF_IFD = 0x8769;
+    private static final int TAG_DATE_TIME_ORIGINAL = 0x9003;
+    private static final int TAG_DATE_TIME_DIGITIZED = 0x9004;
+    private static final int TAG_OFFSET_TIME_ORIGINAL = 0x9011;
+    private static final int TYPE_ASCII = 2;
+    private static final int TYPE_LONG = 4;
+
+    private ExifDateReader() {
+    }
+
+    /**
+     * 读取文件的EXIF拍摄时间（毫秒），读取失败或没有日期时返回{@link #NO_DATE}
+     */
+    public static long read(File file, TimeZone zone) {
+        byte[] buffer = new byte[PROBE_BYTES];
+        try (InputStream in = new FileInputStream(file)) {
+            int length = readFully(in, buffer, 0, buffer.length);
+            long date = parse(buffer, length, zone);
+            if (date != TRUNCATED || length < buffer.length) {
+                return Math.max(date, NO_DATE);
+            }
+            // 拍摄时间在APP1段靠后的位置，继续读取剩余部分
+            byte[] larger = new byte[MAX_BYTES];
+            System.arraycopy(buffer, 0, larger, 0, length);
+            length += readFully(in, larger, length, larger.length - length);
+            return Math.max(parse(larger, length, zone), NO_DATE);
+        } catch (IOException | SecurityException e) {
+            return NO_DATE;
+        }
+    }
+
+    /**
+     * 从文件头部字节解析拍摄时间
+     *
+     * @return 拍摄时间（毫秒）；{@link #NO_DATE}表示没有日期；负数表示头部不完整
+     */
+    static long parse(byte[] data, int length, TimeZone zone) {
+        if (length < 4 || (data[0] & 0xFF) != 0xFF || (data[1] & 0xFF) != 0xD8) {
+            return NO_DATE; // 不是JPEG
+        }
+        int offset = 2;
+        while (offset + 4 <= length) {
+            if ((data[offset] & 0xFF) != 0xFF) {
+                return NO_DATE;
+            }
+            int marker = data[offset + 1] & 0xFF;
+            if (marker == 0xD8 || (marker >= 0xD0 && marker <= 0xD7) || marker == 0x01) {
+                offset += 2; // 无长度字段的标记
+                continue;
+            }
+            if (marker == 0xDA || marker == 0xD9) {
+                return NO_DATE; // 已到图像数据，没有EXIF
+            }
+            int segmentLength = readShort(data, offset + 2, false);
+            int segmentStart = offset + 4;
+            if (marker == 0xE1 && isExifHeader(data, segmentStart, length)) {
+                int tiffStart = segmentStart + 6;
+                int segmentEnd = Math.min(offset + 2 + segmentLength, length);
+                return parseTiff(data, tiffStart, segmentEnd, offset + 2 + segmentLength > length, zone);
+            }
+            offset += 2 + segmentLength;
+        }
+        return offset > length || length >= PROBE_BYTES ? TRUNCATED : NO_DATE;
+    }
+
+    private static boolean isExifHeader(byte[] data, int start, int length) {
+        return start + 6 <= length
+                && data[start] == 'E' && data[start + 1] == 'x' && data[start + 2] == 'i' && data[start + 3] == 'f'
+                && data[start + 4] == 0 && data[start + 5] == 0;
+    }
+
+    /**
+     * @param end       已读取数据中APP1段的结束位置
+     * @param truncated APP1段是否超出已读取范围
+     */
+    private static long parseTiff(byte[] data, int tiffStart, int end, boolean truncated, TimeZone zone) {
+        if (tiffStart + 8 > end) {
+            return truncated ? TRUNCATED : NO_DATE;
+        }
+        boolean littleEndian;
+        if (data[tiffStart] == 'I' && data[tiffStart + 1] == 'I') {
+            littleEndian = true;
+        } else if (data[tiffStart] == 'M' && data[tiffStart + 1] == 'M') {
+            littleEndian = false;
+        } else {
+            return NO_DATE;
+        }
+        Tiff tiff = new Tiff(data, tiffStart, end, littleEndian);
+
+        IfdValues ifd0 = tiff.readIfd(tiff.readInt(tiffStart + 4));
+        IfdValues exif = ifd0 != null && ifd0.exifIfdOffset > 0 ? tiff.readIfd(ifd0.exifIfdOffset) : null;
+        if (tiff.outOfRange) {
+            return truncated ? TRUNCATED : NO_DATE;
+        }
+
+        String offsetTime = exif != null ? exif.offsetTimeOriginal : null;
+        String[] candidates = {
+                exif != null ? exif.dateTimeOriginal : null,
+                exif != null ? exif.dateTimeDigitized : null,
+                ifd0 != null ? ifd0.dateTime : null};
+        for (String candidate : candidates) {
+            long date = parseDate(candidate, offsetTime, zone);
+            if (date > 0) {
+                return date;
+            }
+        }
+        return NO_DATE;
+    }
+
+    /**
+     * 解析 "yyyy:MM:dd HH:mm:ss"，全零或格式错误时返回{@link #NO_DATE}
+     *
+     * @param offsetTime "+08:00"形式的时区偏移，可为null
+     */
+    static long parseDate(String value, String offsetTime, TimeZone zone) {
+        if (value == null || value.length() < 19) {
+            return NO_DATE;
+        }
+        try {
+            int year = Integer.parseInt(value.substring(0, 4));
+            int month = Integer.parseInt(value.substring(5, 7));
+            int day = Integer.parseInt(value.substring(8, 10));
+            int hour = Integer.parseInt(value.substring(11, 13));
+            int minute = Integer.parseInt(value.substring(14, 16));
+            int second = Integer.parseInt(value.substring(17, 19));
+            if (year < 1900 || month < 1 || month > 12 || day < 1 || day > 31
+                    || hour > 23 || minute > 59 || second > 60) {
+                return NO_DATE;
+            }
+            TimeZone dateZone = zone;
+            if (offsetTime != null && offsetTime.length() >= 6
+                    && (offsetTime.charAt(0) == '+' || offsetTime.charAt(0) == '-')) {
+                dateZone = TimeZone.getTimeZone("GMT" + offsetTime.substring(0, 6));
+            }
+            Calendar calendar = new GregorianCalendar(dateZone);
+            calendar.clear();
+            calendar.set(year, month - 1, day, hour, minute, second);
+            return calendar.getTimeInMillis();
+        } catch (NumberFormatException e) {
+            return NO_DATE;
+        }
+    }
+
+    private static int readFully(InputStream in, byte[] buffer, int offset, int count) throws IOException {
+        int total = 0;
+        while (total < count) {
+            int read = in.read(buffer, offset + total, count - total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private static int readShort(byte[] data, int offset, boolean littleEndian) {
+        int b0 = data[offset] & 0xFF;
+        int b1 = data[offset + 1] & 0xFF;
+        return littleEndian ? (b1 << 8) | b0 : (b0 << 8) | b1;
+    }
+
+    // 一个IFD中需要的字段
+    private static class IfdValues {
+        long exifIfdOffset;
+        String dateTime;
+        String dateTimeOriginal;
+        String dateTimeDigitized;
+        String offsetTimeOriginal;
+    }
+
+    // TIFF结构读取，偏移超出已读范围时标记outOfRange
+    private static class Tiff {
+        final byte[] data;
+        final int start;
+        final int end;
+        final boolean littleEndian;
+        boolean outOfRange = false;
+
+        Tiff(byte[] data, int start, int end, boolean littleEndian) {
+            this.data = data;
+            this.start = start;
+            this.end = end;
+            this.littleEndian = littleEndian;
+        }
+
+        IfdValues readIfd(long ifdOffset) {
+            int position = (int) Math.min(Integer.MAX_VALUE - 16, start + ifdOffset);
+            if (ifdOffset < 8 || position + 2 > end) {
+                outOfRange |= ifdOffset >= 8;
+                return null;
+            }
+            int count = readShort(data, position, littleEndian);
+            IfdValues values = new IfdValues();
+            for (int i = 0; i < count; i++) {
+                int entry = position + 2 + i * 12;
+                if (entry + 12 > end) {
+                    outOfRange = true;
+                    return values;
+                }
+                int tag = readShort(data, entry, littleEndian);
+                int type = readShort(data, entry + 2, littleEndian);
+                switch (tag) {
+                    case TAG_EXIF_IFD:
+                        if (type == TYPE_LONG) {
+                            values.exifIfdOffset = readInt(entry + 8);
+                        }
+                        break;
+                    case TAG_DATE_TIME:
+                        values.dateTime = readAscii(entry, type);
+                        break;
+                    case TAG_DATE_TIME_ORIGINAL:
+                        values.dateTimeOriginal = readAscii(entry, type);
+                        break;
+                    case TAG_DATE_TIME_DIGITIZED:
+                        values.dateTimeDigitized = readAscii(entry, type);
+                        break;
+                    case TAG_OFFSET_TIME_ORIGINAL:
+                        values.offsetTimeOriginal = readAscii(entry, type);
+                        break;
+                    default:
+                        break;
+                }
+            }
+            return values;
+        }
+
+        long readInt(int offset) {
+            if (offset + 4 > end) {
+                outOfRange = true;
+                return 0;
+            }
+            long b0 = data[offset] & 0xFF;
+            long b1 = data[offset + 1] & 0xFF;
+            long b2 = data[offset + 2] & 0xFF;
+            long b3 = data[offset + 3] & 0xFF;
+            return littleEndian ? (b3 << 24) | (b2 << 16) | (b1 << 8) | b0 : (b0 << 24) | (b1 << 16) | (b2 << 8) | b3;
+        }
+
+        String readAscii(int entry, int type) {
+            if (type != TYPE_ASCII) {
+                return null;
+            }
+            long count = readInt(entry + 4);
+            if (count <= 0 || count > 64) {
+                return null;
+            }
+            // 不超过4字节时值直接存放在条目中
+            long position = count <= 4 ? entry + 8 : start + readInt(entry + 8);
+            if (position + count > end) {
+                outOfRange = true;
+                return null;
+            }
+            int length = (int) count;
+            while (length > 0 && data[(int) position + length - 1] == 0) {
+                length--;
+            }
+            return new String(data, (int) position, length, StandardCharsets.US_ASCII);
+        }
+    }
+}
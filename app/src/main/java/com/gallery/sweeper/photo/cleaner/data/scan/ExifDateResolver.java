@@ -0,0 +1,161 @@
+package com.gallery.sweeper.photo.cleaner.data.scan;
+
+import com.daz.lib_base.utils.XLog;
+import com.gallery.sweeper.photo.cleaner.data.dao.ExifDateCacheDao;
+import com.gallery.sweeper.photo.cleaner.data.db.ExifDateCache;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 项目名称：
+ * 作者：wx
+ * 时间：2026/10/18 19:30
+ * 描述：为媒体库DATE_TAKEN无效的照片补全拍摄时间
+ * <p>
+ * 1. 先按路径批量查询缓存，文件大小和修改时间一致时直接使用
+ * 2. 未命中的文件交给固定大小的工作线程池并行读取头部EXIF（{@link ExifDateReader}），
+ *    多个检查线程同时调用时读取并发度也不超过{@link #WORKER_COUNT}
+ * 3. 新的解析结果（包括没有日期的文件）暂存在内存中，由写入线程在批次事务内落库，
+ *    数据库写入仍只在单一写入线程上进行
+ * <p>
+ * 线程安全。
+ */
+public class ExifDateResolver {
+    private static final String TAG = "ExifDateResolver";
+
+    private static final int WORKER_COUNT = 4;
+    private static final int CACHE_QUERY_CHUNK = 500; // 低于SQLite参数上限
+    private static final long WORKER_KEEP_ALIVE_SECONDS = 30; // 空闲后回收线程
+
+    private final ExifDateCacheDao cacheDao;
+    private final ThreadPoolExecutor workers;
+    private final ConcurrentLinkedQueue<ExifDateCache> pendingEntries = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger cacheHits = new AtomicInteger(0);
+    private final AtomicInteger headerReads = new AtomicInteger(0);
+    private final AtomicInteger resolved = new AtomicInteger(0);
+
+    public ExifDateResolver(ExifDateCacheDao cacheDao) {
+        this.cacheDao = cacheDao;
+        AtomicInteger index = new AtomicInteger(0);
+        this.workers = new ThreadPoolExecutor(WORKER_COUNT, WORKER_COUNT,
+                WORKER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "Exif-Reader-" + index.incrementAndGet());
+            thread.setPriority(Thread.NORM_PRIORITY - 1); // 降低优先级避免阻塞UI
+            return thread;
+        });
+        this.workers.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 为DATE_TAKEN无效的记录读取EXIF拍摄时间，阻塞直到本批全部完成
+     *
+     * @param rows 待检查的记录，DATE_TAKEN有效的记录被忽略
+     * @return _ID -> 拍摄时间（毫秒），只包含成功解析出日期的记录
+     */
+    public Map<Long, Long> resolve(List<ScanRow> rows, TimeZone zone) {
+        List<ScanRow> missing = new ArrayList<>();
+        for (ScanRow row : rows) {
+            if (row.dateTaken <= 0 && row.path != null && !row.path.isEmpty()) {
+                missing.add(row);
+            }
+        }
+        if (missing.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, ExifDateCache> cached = loadCache(missing);
+        List<Callable<Long>> tasks = new ArrayList<>(missing.size());
+        for (ScanRow row : missing) {
+            ExifDateCache entry = cached.get(row.path);
+            tasks.add(() -> readDate(row, entry, zone));
+        }
+
+        Map<Long, Long> dates = new HashMap<>();
+        try {
+            List<Future<Long>> results = workers.invokeAll(tasks);
+            for (int i = 0; i < results.size(); i++) {
+                long date = results.get(i).get();
+                if (date > 0) {
+                    dates.put(missing.get(i).mediaStoreId, date);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            XLog.e(TAG, "【EXIF】读取拍摄时间失败: " + e.getCause());
+        }
+        resolved.addAndGet(dates.size());
+        return dates;
+    }
+
+    /**
+     * 取出尚未落库的解析结果，调用方在写入事务内保存
+     */
+    public List<ExifDateCache> drainPending() {
+        List<ExifDateCache> entries = new ArrayList<>();
+        ExifDateCache entry;
+        while ((entry = pendingEntries.poll()) != null) {
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    @Override
+    public String toString() {
+        return "缓存命中 " + cacheHits.get() + " / 读取文件头 " + headerReads.get() + " / 补全 " + resolved.get();
+    }
+
+    private long readDate(ScanRow row, ExifDateCache entry, TimeZone zone) {
+        File file = new File(row.path);
+        long size = file.length();
+        if (entry != null && entry.matches(size, row.dateModified)) {
+            cacheHits.incrementAndGet();
+            return entry.dateTaken;
+        }
+        headerReads.incrementAndGet();
+        long date = ExifDateReader.read(file, zone);
+        if (size > 0) {
+            // 文件不可读（size为0）时不缓存，下次重试
+            pendingEntries.add(new ExifDateCache(row.path, size, row.dateModified, date));
+        }
+        return date;
+    }
+
+    private Map<String, ExifDateCache> loadCache(List<ScanRow> rows) {
+        Map<String, ExifDateCache> cached = new HashMap<>();
+        try {
+            for (int i = 0; i < rows.size(); i += CACHE_QUERY_CHUNK) {
+                List<String> paths = new ArrayList<>();
+                for (ScanRow row : rows.subList(i, Math.min(i + CACHE_QUERY_CHUNK, rows.size()))) {
+                    paths.add(row.path);
+                }
+                for (ExifDateCache entry : cacheDao.getByPaths(paths)) {
+                    cached.put(entry.path, entry);
+                }
+            }
+        } catch (Exception e) {
+            // 缓存不可用时直接读取文件
+            XLog.e(TAG, "【EXIF】查询缓存失败: " + e.getMessage());
+        }
+        return cached;
+    }
+}
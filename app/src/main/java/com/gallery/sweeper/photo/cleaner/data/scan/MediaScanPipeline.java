@@ -0,0 +1,587 @@
+package com.gallery.sweeper.photo.cleaner.data.scan;
+
+import android.database.Cursor;
+
+import com.daz.lib_base.utils.XLog;
+import com.gallery.sweeper.photo.cleaner.data.ProcessResult;
+import com.gallery.sweeper.photo.cleaner.data.db.Photo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 项目名称：
+ * 作者：wx
+ * 时间：2026/10/18 11:10
+ * 描述：多阶段媒体库扫描流水线
+ * <p>
+ * 读取线程（每个媒体卷一个） -> [有界队列] -> 检查线程池（文件存在性/拍摄时间补全/分组计算） -> [有界队列] -> 单一写入线程（批量入库）
+ * <p>
+ * 各阶段并行执行，队列满时上游阻塞（背压），总耗时接近最慢阶段而不是各阶段之和。
+ * 多个媒体卷并行读取，但写入只在一个线程上进行，写竞争不随卷数量增加。
+ * <p>
+ * 读取阶段为每个卷的记录块按游标顺序编号，检查阶段并发处理后到达写入阶段的顺序可能打乱，
+ * 写入阶段据此为每个卷分别计算"连续提交水位线"：水位线之前的所有记录都已落库，可作为断点安全恢复。
+ * <p>
+ * 读取阶段从{@link CursorSource}逐页取游标，分页时各页按顺序连续编号，对下游透明。
+ */
+public class MediaScanPipeline {
+    private static final String TAG = "MediaScanPipeline";
+
+    static final int CHUNK_SIZE = 64; // 阶段间传递的记录块大小
+    private static final int QUEUE_CAPACITY = 8; // 每个队列最多缓存的记录块数
+    private static final int MISSING_FLUSH_SIZE = 200; // 缺失记录累计到该数量时提前提交
+    private static final long POLL_TIMEOUT_MS = 100;
+
+    /**
+     * 检查阶段回调，会被多个线程并发调用，实现必须线程安全
+     */
+    public interface RowChecker {
+        boolean exists(String path);
+
+        /**
+         * 为一个记录块中DATE_TAKEN无效的记录补全拍摄时间（文件存在性检查之后调用）
+         *
+         * @return _ID -> 拍摄时间（毫秒），未补全的记录不包含在内
+         */
+        default Map<Long, Long> resolveDates(List<ScanRow> rows) {
+            return Collections.emptyMap();
+        }
+
+        /**
+         * 将原始记录转换为照片对象，返回null表示跳过
+         */
+        Photo toPhoto(ScanRow row);
+    }
+
+    /**
+     * 写入阶段回调，只在写入线程上调用
+     */
+    public interface BatchWriter {
+        /**
+         * 在一个事务内写入照片、删除失效记录并保存断点
+         *
+         * @param batch      待写入的照片（可能为空，可能包含多个卷的记录）
+         * @param missingIds 文件已不存在的照片ID（可能为空）
+         * @param watermarks 本批涉及的各卷提交后的连续提交水位线（最后一批包含所有卷）
+         */
+        ProcessResult writeBatch(List<Photo> batch, List<Long> missingIds, List<Watermark> watermarks);
+    }
+
+    /**
+     * 一个媒体卷的读取来源
+     */
+    public static class Volume {
+        public final String name;
+        public final CursorSource source;
+
+        public Volume(String name, CursorSource source) {
+            this.name = name;
+            this.source = source;
+        }
+    }
+
+    /**
+     * 连续提交水位线：该卷游标中该位置及之前的所有记录都已随本批提交
+     */
+    public static class Watermark {
+        public final String volumeName;
+        public final long lastMediaId; // 游标顺序中最后一条已提交记录的_ID
+        public final long lastDateTaken; // 该记录的DATE_TAKEN（毫秒）
+        public final long maxDateModified; // 已提交记录的最大DATE_MODIFIED（秒）
+        public final int committedRows; // 已提交的游标行数
+        public final boolean complete; // 该卷已读取完毕且全部提交
+
+        Watermark(String volumeName, long lastMediaId, long lastDateTaken, long maxDateModified,
+                  int committedRows, boolean complete) {
+            this.volumeName = volumeName;
+            this.lastMediaId = lastMediaId;
+            this.lastDateTaken = lastDateTaken;
+            this.maxDateModified = maxDateModified;
+            this.committedRows = committedRows;
+            this.complete = complete;
+        }
+    }
+
+    // 单个卷的运行状态
+    private static class VolumeState {
+        final Volume volume;
+        final ScanStats.VolumeStats stats;
+        volatile long offeredChunks = 0; // 读取线程已入队的块数（仅该卷的读取线程写入）
+        volatile boolean readFinished = false; // 读取线程正常读完（未中止）
+
+        // 以下字段只在写入线程访问
+        final TreeMap<Long, CheckedChunk> committedAhead = new TreeMap<>(); // 已提交但前面还有空缺的块
+        long nextSequence = 0;
+        long committedLastMediaId = 0;
+        long committedLastDateTaken = 0;
+        long committedMaxDateModified = 0;
+        int committedRows = 0;
+
+        VolumeState(Volume volume, ScanStats.VolumeStats stats) {
+            this.volume = volume;
+            this.stats = stats;
+        }
+    }
+
+    // 读取阶段输出，按所属卷的游标顺序编号
+    private static class RowChunk {
+        final VolumeState volume;
+        final long sequence;
+        final List<ScanRow> rows;
+        long maxDateModified = 0;
+
+        RowChunk(VolumeState volume, long sequence, int capacity) {
+            this.volume = volume;
+            this.sequence = sequence;
+            this.rows = new ArrayList<>(capacity);
+        }
+    }
+
+    // 检查阶段输出
+    private static class CheckedChunk {
+        final VolumeState volume;
+        final long sequence;
+        final List<Photo> photos;
+        final List<Long> missingIds;
+        final long lastMediaId;
+        final long lastDateTaken;
+        final long maxDateModified;
+        final int rowCount;
+
+        CheckedChunk(RowChunk source, List<Photo> photos, List<Long> missingIds) {
+            this.volume = source.volume;
+            this.sequence = source.sequence;
+            this.photos = photos;
+            this.missingIds = missingIds;
+            ScanRow last = source.rows.isEmpty() ? null : source.rows.get(source.rows.size() - 1);
+            this.lastMediaId = last != null ? last.mediaStoreId : 0;
+            this.lastDateTaken = last != null ? last.dateTaken : 0;
+            this.maxDateModified = source.maxDateModified;
+            this.rowCount = source.rows.size();
+        }
+    }
+
+    // 队列结束标记
+    private static final RowChunk END_OF_ROWS = new RowChunk(null, -1, 0);
+    private static final CheckedChunk END_OF_CHECKED = new CheckedChunk(END_OF_ROWS, null, null);
+
+    private final AdaptiveBatchSizer batchSizer;
+    private final int checkerCount;
+    private final RowChecker checker;
+    private final BatchWriter writer;
+    private final BooleanSupplier cancelled;
+    private final ScanProgressTracker progress; // 可为null
+
+    private final BlockingQueue<RowChunk> rowQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BlockingQueue<CheckedChunk> checkedQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final ScanStats stats = new ScanStats();
+    private final List<VolumeState> volumeStates = new ArrayList<>();
+
+    /**
+     * @param initialBatchSize 初始写入批次大小，运行中按事务耗时和堆内存余量自适应调整
+     * @param progress         进度发布器，为null时不发布进度
+     */
+    public MediaScanPipeline(int initialBatchSize, RowChecker checker, BatchWriter writer,
+                             BooleanSupplier cancelled, ScanProgressTracker progress) {
+        this.progress = progress;
+        this.batchSizer = new AdaptiveBatchSizer(initialBatchSize);
+        this.stats.initialBatchSize = batchSizer.current();
+        this.checker = checker;
+        this.writer = writer;
+        this.cancelled = cancelled;
+        // 检查阶段以IO等待为主，线程数略多于CPU核数但设置上限
+        this.checkerCount = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * 驱动整个流水线：每个卷一个读取线程并行读取，所有阶段结束后返回
+     * 游标由调用方关闭
+     */
+    public ScanStats run(List<Volume> volumes) {
+        for (Volume volume : volumes) {
+            volumeStates.add(new VolumeState(volume, stats.addVolume(volume.name, volume.source.count())));
+        }
+
+        ExecutorService readPool = Executors.newFixedThreadPool(Math.max(1, volumes.size()),
+                new StageThreadFactory("Scan-Read"));
+        ExecutorService checkPool = Executors.newFixedThreadPool(checkerCount, new StageThreadFactory("Scan-Check"));
+        ExecutorService writePool = Executors.newSingleThreadExecutor(new StageThreadFactory("Scan-Write"));
+        long readStart = System.currentTimeMillis();
+        try {
+            for (int i = 0; i < checkerCount; i++) {
+                checkPool.execute(this::checkLoop);
+            }
+            writePool.execute(this::writeLoop);
+
+            List<Future<?>> reads = new ArrayList<>(volumeStates.size());
+            for (VolumeState volume : volumeStates) {
+                reads.add(readPool.submit(() -> {
+                    readLoop(volume);
+                    return null;
+                }));
+            }
+            for (Future<?> read : reads) {
+                try {
+                    read.get();
+                } catch (ExecutionException e) {
+                    failure.compareAndSet(null, e.getCause());
+                }
+            }
+            stats.readTime = System.currentTimeMillis() - readStart;
+
+            // 所有卷读取结束后，每个检查线程一个结束标记
+            for (int i = 0; i < checkerCount; i++) {
+                offer(rowQueue, END_OF_ROWS);
+            }
+
+            checkPool.shutdown();
+            writePool.shutdown();
+            // 等待写入线程提交最后一批
+            while (!writePool.awaitTermination(1, TimeUnit.SECONDS)) {
+                if (failure.get() != null) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+        } finally {
+            readPool.shutdownNow();
+            checkPool.shutdownNow();
+            writePool.shutdownNow();
+        }
+
+        // 汇总各卷
+        for (VolumeState volume : volumeStates) {
+            stats.maxMediaId = Math.max(stats.maxMediaId, volume.stats.maxMediaId);
+            stats.maxDateModified = Math.max(stats.maxDateModified, volume.stats.maxDateModified);
+            stats.pages += volume.stats.pages;
+        }
+
+        Throwable error = failure.get();
+        if (error != null) {
+            stats.aborted = true;
+            XLog.e(TAG, "【流水线】扫描异常终止: " + error.getMessage());
+        }
+        return stats;
+    }
+
+    // ==================== 读取阶段 ====================
+
+    private void readLoop(VolumeState volume) throws InterruptedException {
+        ScanStats.VolumeStats volumeStats = volume.stats;
+        CursorSource source = volume.volume.source;
+        int cursorCount = volumeStats.total;
+
+        long sequence = 0;
+        RowChunk chunk = new RowChunk(volume, sequence++, CHUNK_SIZE);
+        boolean aborted = false;
+        try {
+            pages:
+            while (true) {
+                Cursor cursor;
+                try {
+                    cursor = source.nextPage(); // 分页时会先释放上一页
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                    aborted = true;
+                    break;
+                }
+                if (cursor == null) {
+                    break;
+                }
+                volumeStats.pages++;
+                ScanRow.Reader reader = new ScanRow.Reader(cursor);
+
+                while (cursor.moveToNext()) {
+                    if (failure.get() != null || cancelled.getAsBoolean()) {
+                        XLog.w(TAG, "【流水线】读取中止 | 卷: " + volumeStats.volumeName
+                                + " | 已读取: " + volumeStats.scanned.get());
+                        aborted = true;
+                        break pages;
+                    }
+                    int currentCount = volumeStats.scanned.incrementAndGet();
+                    stats.totalScanned.incrementAndGet();
+                    // 每100张记录一次进度
+                    if (currentCount % 100 == 0) {
+                        XLog.d(TAG, "【扫描】扫描进度: " + volumeStats.volumeName + " " + currentCount + "/" + cursorCount);
+                    }
+
+                    try {
+                        ScanRow row = reader.read(cursor);
+                        volumeStats.maxMediaId = Math.max(volumeStats.maxMediaId, row.mediaStoreId);
+                        volumeStats.maxDateModified = Math.max(volumeStats.maxDateModified, row.dateModified);
+                        chunk.maxDateModified = Math.max(chunk.maxDateModified, row.dateModified);
+                        chunk.rows.add(row);
+                    } catch (Exception e) {
+                        XLog.e(TAG, "【错误】读取记录失败 | 位置: " + currentCount + " | 错误: " + e.getMessage());
+                    }
+
+                    if (chunk.rows.size() >= CHUNK_SIZE) {
+                        offerChunk(chunk);
+                        chunk = new RowChunk(volume, sequence++, CHUNK_SIZE);
+                        sampleHeap();
+                        reportProgress();
+                    }
+                }
+            }
+            if (!chunk.rows.isEmpty()) {
+                offerChunk(chunk);
+            }
+        } finally {
+            sampleHeap();
+            volumeStats.aborted = aborted;
+            if (aborted) {
+                stats.aborted = true;
+            }
+            volume.readFinished = !aborted && failure.get() == null;
+        }
+    }
+
+    private void offerChunk(RowChunk chunk) throws InterruptedException {
+        offer(rowQueue, chunk);
+        chunk.volume.offeredChunks++;
+    }
+
+    // ==================== 检查阶段 ====================
+
+    private void checkLoop() {
+        try {
+            while (true) {
+                RowChunk chunk = rowQueue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (chunk == null) {
+                    if (failure.get() != null) {
+                        return;
+                    }
+                    continue;
+                }
+                if (chunk == END_OF_ROWS) {
+                    break;
+                }
+
+                long start = System.currentTimeMillis();
+                List<ScanRow> liveRows = new ArrayList<>(chunk.rows.size());
+                List<Long> missingIds = new ArrayList<>();
+                boolean hasInvalidDate = false;
+                for (ScanRow row : chunk.rows) {
+                    try {
+                        // 路径验证
+                        if (row.path == null || row.path.isEmpty()) {
+                            XLog.w(TAG, "【扫描】跳过无效路径照片 | ID: " + row.mediaStoreId);
+                            continue;
+                        }
+                        // 文件存在性检查
+                        if (!checker.exists(row.path)) {
+                            XLog.w(TAG, "【扫描】跳过不存在的文件 | ID: " + row.mediaStoreId + " | 路径: " + row.path);
+                            stats.skippedFiles.incrementAndGet();
+                            missingIds.add(row.mediaStoreId);
+                            continue;
+                        }
+                        liveRows.add(row);
+                        hasInvalidDate |= row.dateTaken <= 0;
+                    } catch (Exception e) {
+                        XLog.e(TAG, "【错误】处理记录失败 | ID: " + row.mediaStoreId + " | 错误: " + e.getMessage());
+                    }
+                }
+
+                // 拍摄时间无效的记录从文件头部补全，块内并行读取
+                Map<Long, Long> resolvedDates = hasInvalidDate
+                        ? checker.resolveDates(liveRows) : Collections.emptyMap();
+                List<Photo> photos = new ArrayList<>(liveRows.size());
+                for (ScanRow row : liveRows) {
+                    try {
+                        Long dateTaken = resolvedDates.get(row.mediaStoreId);
+                        Photo photo = checker.toPhoto(dateTaken == null ? row : row.withDateTaken(dateTaken));
+                        if (photo != null) {
+                            photo.volumeName = chunk.volume.volume.name; // 对账按卷进行
+                            photos.add(photo);
+                        }
+                    } catch (Exception e) {
+                        XLog.e(TAG, "【错误】处理记录失败 | ID: " + row.mediaStoreId + " | 错误: " + e.getMessage());
+                    }
+                }
+                stats.checkTime.addAndGet(System.currentTimeMillis() - start);
+                offer(checkedQueue, new CheckedChunk(chunk, photos, missingIds));
+            }
+            offer(checkedQueue, END_OF_CHECKED);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable t) {
+            failure.compareAndSet(null, t);
+        }
+    }
+
+    // ==================== 写入阶段 ====================
+
+    private void writeLoop() {
+        List<Photo> batch = new ArrayList<>(batchSizer.current());
+        List<Long> missing = new ArrayList<>();
+        List<CheckedChunk> batchChunks = new ArrayList<>();
+        int finishedCheckers = 0;
+        try {
+            while (finishedCheckers < checkerCount) {
+                CheckedChunk chunk = checkedQueue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (chunk == null) {
+                    if (failure.get() != null) {
+                        return;
+                    }
+                    continue;
+                }
+                if (chunk == END_OF_CHECKED) {
+                    finishedCheckers++;
+                    continue;
+                }
+
+                batch.addAll(chunk.photos);
+                missing.addAll(chunk.missingIds);
+                batchChunks.add(chunk);
+                // 按整块累积以便逐块推进水位线，批次最多超出建议大小CHUNK_SIZE-1行，上限已预留
+                if (batch.size() >= batchSizer.current() || missing.size() >= MISSING_FLUSH_SIZE) {
+                    flushBatch(batch, missing, batchChunks, false);
+                }
+            }
+            // 处理最后一批，同时确定各卷是否已完整提交
+            flushBatch(batch, missing, batchChunks, true);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable t) {
+            failure.compareAndSet(null, t);
+        } finally {
+            stats.finalBatchSize = batchSizer.current();
+            stats.minBatchSize = batchSizer.getMinUsed();
+            stats.maxBatchSize = batchSizer.getMaxUsed();
+            stats.batchAdjustments = batchSizer.getAdjustments();
+        }
+    }
+
+    /**
+     * @param last 所有检查线程都已结束（此时各卷读取线程也已结束）
+     */
+    private void flushBatch(List<Photo> batch, List<Long> missing, List<CheckedChunk> batchChunks, boolean last) {
+        List<Watermark> watermarks = advanceWatermarks(batchChunks, last);
+        if (watermarks.isEmpty()) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        ProcessResult result = writer.writeBatch(batch, missing, watermarks);
+        long elapsed = System.currentTimeMillis() - start;
+        stats.inserted.addAndGet(result.inserted);
+        stats.updated.addAndGet(result.updated);
+        stats.deletedRecords.addAndGet(result.deleted);
+        stats.batches.incrementAndGet();
+        stats.writeTime += elapsed;
+        for (Watermark watermark : watermarks) {
+            if (watermark.complete) {
+                stats.getVolume(watermark.volumeName).complete = true;
+            }
+        }
+
+        // 根据本批耗时调整下一批大小
+        if (result.memoryPressure) {
+            batchSizer.onMemoryPressure();
+        } else if (!batch.isEmpty()) {
+            batchSizer.onBatchCommitted(batch.size(), elapsed);
+        }
+        batch.clear();
+        missing.clear();
+        batchChunks.clear();
+        reportProgress();
+    }
+
+    /**
+     * 将本批包含的块标记为已提交，并沿编号推进各卷的连续提交水位线
+     *
+     * @param all 为true时返回所有卷的水位线，否则只返回本批涉及的卷
+     */
+    private List<Watermark> advanceWatermarks(List<CheckedChunk> batchChunks, boolean all) {
+        Set<VolumeState> touched = new LinkedHashSet<>();
+        for (CheckedChunk chunk : batchChunks) {
+            chunk.volume.committedAhead.put(chunk.sequence, chunk);
+            touched.add(chunk.volume);
+        }
+        if (all) {
+            touched.addAll(volumeStates);
+        }
+        if (touched.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Watermark> watermarks = new ArrayList<>(touched.size());
+        for (VolumeState volume : touched) {
+            CheckedChunk next;
+            while ((next = volume.committedAhead.remove(volume.nextSequence)) != null) {
+                volume.committedLastMediaId = next.lastMediaId;
+                volume.committedLastDateTaken = next.lastDateTaken;
+                volume.committedMaxDateModified = Math.max(volume.committedMaxDateModified, next.maxDateModified);
+                volume.committedRows += next.rowCount;
+                volume.nextSequence++;
+            }
+            // 读取线程已正常结束且所有块都已连续提交
+            boolean complete = all && volume.readFinished && volume.nextSequence == volume.offeredChunks;
+            watermarks.add(new Watermark(volume.volume.name, volume.committedLastMediaId, volume.committedLastDateTaken,
+                    volume.committedMaxDateModified, volume.committedRows, complete));
+        }
+        return watermarks;
+    }
+
+    /**
+     * 记录Java堆使用峰值（读取线程调用）
+     */
+    private void sampleHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = runtime.totalMemory() - runtime.freeMemory();
+        stats.peakHeapBytes.accumulateAndGet(used, Math::max);
+    }
+
+    private void reportProgress() {
+        if (progress != null) {
+            progress.update(stats); // 未到发布时间时仅一次时钟比较
+        }
+    }
+
+    /**
+     * 带超时的入队，下游异常终止时放弃等待，避免读取线程永久阻塞
+     */
+    private <T> void offer(BlockingQueue<T> queue, T item) throws InterruptedException {
+        while (!queue.offer(item, POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            if (failure.get() != null) {
+                return;
+            }
+        }
+    }
+
+    private static class StageThreadFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger index = new AtomicInteger(0);
+
+        StageThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, name + "-" + index.incrementAndGet());
+            thread.setPriority(Thread.NORM_PRIORITY - 1); // 降低优先级避免阻塞UI
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.gallery.sweeper.photo.cleaner.data.scan;
+
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.provider.MediaStore;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.daz.lib_base.utils.XLog;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 项目名称：
+ * 作者：wx
+ * 时间：2026/10/18 17:50
+ * 描述：媒体库变化跟踪
+ * <p>
+ * 监听图片集合的变化通知，在后台线程上合并一段时间内的所有通知后统一回调一次：
+ * 连拍30张只触发一次同步，且只携带变化的_ID。
+ * <p>
+ * 去抖规则：每次通知把截止时间推迟{@link #DEBOUNCE_MS}，但距第一条未处理通知不超过
+ * {@link #MAX_DELAY_MS}，持续不断的通知也能按时处理。通知URI不带_ID或变化过多时
+ * 回调为"全量增量"，由调用方按generation/水位线查询变化。
+ */
+public class MediaStoreChangeTracker {
+    private static final String TAG = "MediaStoreChangeTracker";
+
+    public static final long DEBOUNCE_MS = 1000;
+    public static final long MAX_DELAY_MS = 5000;
+    static final int MAX_PENDING_IDS = 500; // 超过后改为全量增量，避免超长IN查询
+
+    /**
+     * 变化回调，在跟踪线程上调用
+     */
+    public interface Listener {
+        /**
+         * @param changedIds 变化的_ID（新增、修改或删除），fullDelta为true时为空
+         * @param fullDelta  无法确定具体_ID，需要按水位线查询所有变化
+         */
+        void onMediaChanged(Set<Long> changedIds, boolean fullDelta);
+    }
+
+    private final ContentResolver resolver;
+    private final Listener listener;
+    private final Runnable flushRunnable = this::flush;
+
+    private HandlerThread thread;
+    private Handler handler;
+    private ContentObserver observer;
+
+    // 以下字段只在跟踪线程访问
+    private final Set<Long> pendingIds = new HashSet<>();
+    private boolean pendingFullDelta = false;
+    private long firstPendingAt = 0; // 第一条未处理通知的时间，0表示无未处理通知
+
+    public MediaStoreChangeTracker(ContentResolver resolver, Listener listener) {
+        this.resolver = resolver;
+        this.listener = listener;
+    }
+
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        thread = new HandlerThread("MediaStore-Tracker", android.os.Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        observer = new ContentObserver(handler) {
+            @Override
+            public void onChange(boolean selfChange) {
+                onChange(selfChange, null);
+            }
+
+            @Override
+            public void onChange(boolean selfChange, Uri uri) {
+                onUriChanged(uri);
+            }
+        };
+        resolver.registerContentObserver(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, true, observer);
+        XLog.i(TAG, "【变化跟踪】开始监听媒体库变化");
+    }
+
+    public synchronized void stop() {
+        if (thread == null) {
+            return;
+        }
+        resolver.unregisterContentObserver(observer);
+        handler.removeCallbacks(flushRunnable);
+        thread.quitSafely();
+        thread = null;
+        handler = null;
+        observer = null;
+        XLog.i(TAG, "【变化跟踪】停止监听媒体库变化");
+    }
+
+    /**
+     * 跟踪线程的Looper，未启动时为null
+     */
+    @VisibleForTesting
+    synchronized Looper getLooper() {
+        return thread != null ? thread.getLooper() : null;
+    }
+
+    private void onUriChanged(Uri uri) {
+        long id = parseId(uri);
+        if (id > 0 && !pendingFullDelta) {
+            pendingIds.add(id);
+            if (pendingIds.size() > MAX_PENDING_IDS) {
+                markFullDelta();
+            }
+        } else {
+            markFullDelta();
+        }
+
+        long now = SystemClock.uptimeMillis();
+        if (firstPendingAt == 0) {
+            firstPendingAt = now;
+        }
+        // 推迟处理，直到通知停止或达到最大延迟
+        long deadline = Math.min(now + DEBOUNCE_MS, firstPendingAt + MAX_DELAY_MS);
+        handler.removeCallbacks(flushRunnable);
+        handler.postAtTime(flushRunnable, deadline);
+    }
+
+    private void markFullDelta() {
+        pendingFullDelta = true;
+        pendingIds.clear();
+    }
+
+    private void flush() {
+        if (firstPendingAt == 0) {
+            return;
+        }
+        Set<Long> ids = new HashSet<>(pendingIds);
+        boolean fullDelta = pendingFullDelta;
+        long waited = SystemClock.uptimeMillis() - firstPendingAt;
+        pendingIds.clear();
+        pendingFullDelta = false;
+        firstPendingAt = 0;
+
+        XLog.d(TAG, "【变化跟踪】合并通知完成 | 变化ID: " + ids.size() + " | 全量增量: " + fullDelta
+                + " | 等待: " + waited + "ms");
+        try {
+            listener.onMediaChanged(ids, fullDelta);
+        } catch (Exception e) {
+            XLog.e(TAG, "【错误】处理媒体库变化失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 从通知URI中解析_ID，集合级通知或无法解析时返回-1
+     */
+    private static long parseId(Uri uri) {
+        if (uri == null) {
+            return -1;
+        }
+        try {
+            return ContentUris.parseId(uri);
+        } catch (NumberFormatException | UnsupportedOperationException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.gallery.sweeper.photo.cleaner.data.scan;
+
+import android.database.Cursor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 项目名称：
+ * 作者：wx
+ * 时间：2026/10/18 14:40
+ * 描述：媒体库与本地照片表对账
+ * <p>
+ * 两边的ID都按升序流式读取，一次归并即可得到差集，内存中只保留孤儿ID，
+ * 不需要把任何一边整体加载成集合。
+ * <p>
+ * 媒体库短时间返回不完整的结果（重建索引、卷刚挂载还在扫描）时，归并会把大量仍存在的照片当成孤儿，
+ * 因此孤儿占本地记录的比例过高时不删除，交给后续对账或按ID的变化同步处理。
+ */
+public final class OrphanReconciler {
+
+    /** 孤儿数超过本地记录的这一比例时视为媒体库结果不完整 */
+    static final double MAX_ORPHAN_FRACTION = 0.5;
+    /** 孤儿数不超过此值时不做比例检查，避免小图库删除大半照片后永远无法对账 */
+    static final int MIN_GUARDED_ORPHANS = 20;
+
+    private OrphanReconciler() {
+    }
+
+    /**
+     * 归并两个按ID升序排列的游标（第0列为ID），返回只存在于本地表中的ID
+     *
+     * @param mediaStoreIds 媒体库ID游标
+     * @param localIds      本地照片表ID游标
+     * @return 孤儿ID列表（升序）
+     */
+    public static List<Long> findOrphans(Cursor mediaStoreIds, Cursor localIds) {
+        List<Long> orphans = new ArrayList<>();
+        boolean hasRemote = mediaStoreIds.moveToNext();
+        while (localIds.moveToNext()) {
+            long localId = localIds.getLong(0);
+            // 跳过只存在于媒体库的ID（新增记录由扫描负责）
+            while (hasRemote && mediaStoreIds.getLong(0) < localId) {
+                hasRemote = mediaStoreIds.moveToNext();
+            }
+            if (!hasRemote || mediaStoreIds.getLong(0) != localId) {
+                orphans.add(localId);
+            }
+        }
+        return orphans;
+    }
+
+    /**
+     * 孤儿数量是否可信
+     *
+     * @param orphanCount 孤儿ID数量
+     * @param localCount  本地照片表中参与归并的记录数
+     * @return false表示孤儿比例过高，不应据此删除
+     */
+    public static boolean isPlausible(int orphanCount, int localCount) {
+        return orphanCount <= MIN_GUARDED_ORPHANS || orphanCount <= localCount * MAX_ORPHAN_FRACTION;
+    }
+}
@@ -0,0 +1,169 @@
+package com.gallery.sweeper.photo.cleaner.data.scan;
+
+import android.database.Cursor;
+import android.provider.MediaStore;
+
+import java.util.Arrays;
+
+/**
+ * 项目名称：
+ * 作者：wx
+ * 时间：2026/10/18 18:25
+ * 描述：按固定窗口分页读取媒体库
+ * <p>
+ * 每页最多{@code pageSize}行，下一页通过排序键（键集）定位而不是OFFSET，
+ * 翻页代价与位置无关，扫描期间新增/删除记录也不会导致跳行或重复。
+ * 获取下一页前先关闭上一页，任一时刻只持有一个小游标，CursorWindow不再反复填充整个结果集。
+ * <p>
+ * 支持两种排序：
+ * 1. _ID ASC：键集为 _ID > last
+ * 2. DATE_TAKEN DESC, _ID DESC（渐进式扫描）：DATE_TAKEN为NULL的记录排在最后
+ */
+public class PagedCursorSource implements CursorSource {
+
+    /**
+     * 实际的查询（由调用方决定如何传递LIMIT）
+     */
+    public interface Query {
+        /**
+         * @param limit 最多返回行数，<=0表示不限制
+         */
+        Cursor query(String[] projection, String selection, String[] selectionArgs, String sortOrder, int limit);
+    }
+
+    private static final String ID = MediaStore.Images.Media._ID;
+    private static final String DATE_TAKEN = MediaStore.Images.Media.DATE_TAKEN;
+
+    private final Query query;
+    private final String[] projection;
+    private final String baseSelection;
+    private final String[] baseArgs;
+    private final boolean newestFirst;
+    private final int pageSize;
+
+    private Cursor current;
+    private int count = -2; // -2表示尚未统计
+    private int pages = 0;
+    private boolean finished = false;
+
+    // 上一页最后一行的排序键
+    private boolean hasKey = false;
+    private long lastId;
+    private long lastDateTaken;
+    private boolean lastDateTakenNull;
+
+    /**
+     * @param projection  查询列，必须包含_ID（newestFirst时还须包含DATE_TAKEN）
+     * @param newestFirst true按 DATE_TAKEN DESC, _ID DESC 排序，false按 _ID ASC 排序
+     */
+    public PagedCursorSource(Query query, String[] projection, String selection, String[] selectionArgs,
+                             boolean newestFirst, int pageSize) {
+        this.query = query;
+        this.projection = projection;
+        this.baseSelection = selection;
+        this.baseArgs = selectionArgs;
+        this.newestFirst = newestFirst;
+        this.pageSize = pageSize;
+    }
+
+    public static String sortOrder(boolean newestFirst) {
+        return newestFirst ? DATE_TAKEN + " DESC, " + ID + " DESC" : ID + " ASC";
+    }
+
+    @Override
+    public int count() {
+        if (count == -2) {
+            // 只查询_ID统计行数，不加载其他列
+            try (Cursor cursor = query.query(new String[]{ID}, baseSelection, baseArgs, null, 0)) {
+                count = cursor == null ? -1 : cursor.getCount();
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public Cursor nextPage() {
+        if (current != null) {
+            // 上一页不满说明已经读完
+            boolean lastPage = current.getCount() < pageSize;
+            if (!lastPage && current.moveToLast()) {
+                rememberKey(current);
+            } else {
+                finished = true;
+            }
+            current.close();
+            current = null;
+        }
+        if (finished) {
+            return null;
+        }
+
+        String selection = baseSelection;
+        String[] args = baseArgs;
+        if (hasKey) {
+            selection = baseSelection == null ? keySelection() : "(" + baseSelection + ") AND (" + keySelection() + ")";
+            args = concat(baseArgs, keyArgs());
+        }
+        current = query.query(projection, selection, args, sortOrder(newestFirst), pageSize);
+        if (current == null) {
+            finished = true;
+            throw new IllegalStateException("分页查询返回null | 页码: " + (pages + 1));
+        }
+        pages++;
+        return current;
+    }
+
+    public int getPageCount() {
+        return pages;
+    }
+
+    @Override
+    public void close() {
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+        finished = true;
+    }
+
+    private void rememberKey(Cursor cursor) {
+        lastId = cursor.getLong(cursor.getColumnIndexOrThrow(ID));
+        if (newestFirst) {
+            int dateColumn = cursor.getColumnIndexOrThrow(DATE_TAKEN);
+            lastDateTakenNull = cursor.isNull(dateColumn);
+            lastDateTaken = lastDateTakenNull ? 0 : cursor.getLong(dateColumn);
+        }
+        hasKey = true;
+    }
+
+    /**
+     * 排在上一页最后一行之后的记录
+     */
+    String keySelection() {
+        if (!newestFirst) {
+            return ID + " > ?";
+        }
+        if (lastDateTakenNull) {
+            return DATE_TAKEN + " IS NULL AND " + ID + " < ?";
+        }
+        return DATE_TAKEN + " < ? OR (" + DATE_TAKEN + " = ? AND " + ID + " < ?) OR " + DATE_TAKEN + " IS NULL";
+    }
+
+    String[] keyArgs() {
+        String id = String.valueOf(lastId);
+        if (!newestFirst || lastDateTakenNull) {
+            return new String[]{id};
+        }
+        String date = String.valueOf(lastDateTaken);
+        return new String[]{date, date, id};
+    }
+
+    private static String[] concat(String[] first, String[] second) {
+        if (first == null || first.length == 0) {
+            return second;
+        }
+        String[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+}
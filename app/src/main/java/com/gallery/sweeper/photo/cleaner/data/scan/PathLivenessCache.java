@@ -0,0 +1,128 @@
+package com.gallery.sweeper.photo.cleaner.data.scan;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 项目名称：
+ * 作者：wx
+ * 时间：2026/10/18 14:06
+ * 描述：文件存在性缓存
+ * <p>
+ * 每个父目录只列举一次，把文件名集合保存在内存中，之后的存在性判断直接查内存，
+ * 避免每张照片一次 stat 系统调用（FUSE 外部存储上 stat 开销很大）。
+ * <p>
+ * 目录的 mtime 在增删文件时会变化，缓存按 mtime 失效；同一目录在
+ * {@link #REVALIDATE_INTERVAL_MS} 内最多检查一次 mtime。
+ * 线程安全，可被扫描流水线的多个检查线程并发调用。
+ */
+public class PathLivenessCache {
+
+    private static final long REVALIDATE_INTERVAL_MS = 2000; // 目录mtime复查间隔
+
+    private final ConcurrentHashMap<String, DirEntry> dirs = new ConcurrentHashMap<>();
+
+    private static class DirEntry {
+        final long mtime;
+        final Set<String> names; // 为null表示目录无法列举（无权限等），需要回退到stat
+        volatile long verifiedAt;
+
+        DirEntry(long mtime, Set<String> names, long verifiedAt) {
+            this.mtime = mtime;
+            this.names = names;
+            this.verifiedAt = verifiedAt;
+        }
+    }
+
+    /**
+     * 判断文件是否存在，必要时列举父目录
+     */
+    public boolean exists(String path) {
+        return exists(path, true);
+    }
+
+    /**
+     * 判断文件是否存在
+     *
+     * @param allowListing 为false时只使用已缓存的目录，未缓存则直接stat；
+     *                     用于单次查询，避免为一个文件列举整个大目录
+     */
+    public boolean exists(String path, boolean allowListing) {
+        int slash = path.lastIndexOf('/');
+        if (slash <= 0 || slash == path.length() - 1) {
+            return new File(path).exists();
+        }
+        String dirPath = path.substring(0, slash);
+        DirEntry entry = allowListing ? resolve(dirPath) : resolveCached(dirPath);
+        if (entry == null || entry.names == null) {
+            return new File(path).exists();
+        }
+        return entry.names.contains(path.substring(slash + 1));
+    }
+
+    /**
+     * 文件被删除或新增后使对应目录的缓存失效
+     */
+    public void invalidate(String path) {
+        int slash = path.lastIndexOf('/');
+        if (slash > 0) {
+            dirs.remove(path.substring(0, slash));
+        }
+    }
+
+    public void clear() {
+        dirs.clear();
+    }
+
+    public int size() {
+        return dirs.size();
+    }
+
+    private DirEntry resolveCached(String dirPath) {
+        DirEntry entry = dirs.get(dirPath);
+        if (entry == null) {
+            return null;
+        }
+        return isFresh(entry, dirPath) ? entry : null;
+    }
+
+    private DirEntry resolve(String dirPath) {
+        DirEntry entry = dirs.get(dirPath);
+        if (entry != null && isFresh(entry, dirPath)) {
+            return entry;
+        }
+        // 同一目录只由一个线程列举，其他线程等待结果
+        return dirs.compute(dirPath, (key, old) -> {
+            if (old != null && old != entry && isFresh(old, key)) {
+                return old; // 其他线程已刷新
+            }
+            return list(key);
+        });
+    }
+
+    private boolean isFresh(DirEntry entry, String dirPath) {
+        long now = System.currentTimeMillis();
+        if (now - entry.verifiedAt < REVALIDATE_INTERVAL_MS) {
+            return true;
+        }
+        long mtime = new File(dirPath).lastModified();
+        if (mtime != 0 && mtime == entry.mtime) {
+            entry.verifiedAt = now;
+            return true;
+        }
+        return false;
+    }
+
+    private static DirEntry list(String dirPath) {
+        File dir = new File(dirPath);
+        long mtime = dir.lastModified();
+        String[] names = dir.list();
+        Set<String> nameSet = names == null ? null
+                : Collections.unmodifiableSet(new HashSet<>(Arrays.asList(names)));
+        return new DirEntry(mtime, nameSet, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,88 @@
+package com.gallery.sweeper.photo.cleaner.data.scan;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 项目名称：
+ * 作者：wx
+ * 时间：2026/10/18 16:20
+ * 描述：扫描进度快照（不可变），由ScanProgressTracker按固定频率发布
+ */
+public class ScanProgress {
+    public static final ScanProgress IDLE = new ScanProgress(0, 0, 0, 0, 0, 0, 0, -1, true,
+            Collections.emptyList());
+
+    /**
+     * 单个媒体卷的读取进度
+     */
+    public static class VolumeProgress {
+        public final String volumeName;
+        public final int scanned;
+        public final int total;
+        public final boolean complete; // 该卷已全部读取并提交
+
+        public VolumeProgress(String volumeName, int scanned, int total, boolean complete) {
+            this.volumeName = volumeName;
+            this.scanned = scanned;
+            this.total = total;
+            this.complete = complete;
+        }
+
+        @Override
+        public String toString() {
+            return volumeName + " " + scanned + "/" + total + (complete ? " 完成" : "");
+        }
+    }
+
+    public final int scanned; // 已读取行数
+    public final int total; // 本次扫描总行数
+    public final int inserted;
+    public final int updated;
+    public final int skipped; // 文件不存在而跳过的行数
+    public final double rowsPerSecond;
+    public final long elapsedMillis;
+    public final long etaMillis; // 预计剩余时间，-1表示未知
+    public final boolean finished;
+    public final List<VolumeProgress> volumes; // 各媒体卷进度，按扫描顺序排列
+
+    public ScanProgress(int scanned, int total, int inserted, int updated, int skipped,
+                        double rowsPerSecond, long elapsedMillis, long etaMillis, boolean finished,
+                        List<VolumeProgress> volumes) {
+        this.scanned = scanned;
+        this.total = total;
+        this.inserted = inserted;
+        this.updated = updated;
+        this.skipped = skipped;
+        this.rowsPerSecond = rowsPerSecond;
+        this.elapsedMillis = elapsedMillis;
+        this.etaMillis = etaMillis;
+        this.finished = finished;
+        this.volumes = volumes;
+    }
+
+    public boolean isRunning() {
+        return !finished;
+    }
+
+    public int getPercent() {
+        if (total <= 0) {
+            return finished ? 100 : 0;
+        }
+        return (int) Math.min(100, scanned * 100L / total);
+    }
+
+    @Override
+    public String toString() {
+        return "ScanProgress{" +
+                "scanned=" + scanned + "/" + total +
+                ", inserted=" + inserted +
+                ", updated=" + updated +
+                ", skipped=" + skipped +
+                ", rowsPerSecond=" + (int) rowsPerSecond +
+                ", etaMillis=" + etaMillis +
+                ", finished=" + finished +
+                ", volumes=" + volumes +
+                '}';
+    }
+}
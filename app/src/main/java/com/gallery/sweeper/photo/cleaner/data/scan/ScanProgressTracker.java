@@ -0,0 +1,100 @@
+package com.gallery.sweeper.photo.cleaner.data.scan;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 项目名称：
+ * 作者：wx
+ * 时间：2026/10/18 16:25
+ * 描述：扫描进度节流发布
+ * <p>
+ * 流水线在每个记录块/每批写入后调用{@link #update}，未到发布时间时只有一次时钟读取和比较；
+ * 到期后由CAS选出唯一一个线程生成快照并发布，发布频率与扫描速度无关。
+ */
+public class ScanProgressTracker {
+    public static final long DEFAULT_INTERVAL_MS = 250;
+
+    private static final double RATE_SMOOTHING = 0.3; // 速率指数平滑系数
+
+    private final long intervalNanos;
+    private final Consumer<ScanProgress> sink;
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong nextPublishAt;
+
+    private final int total;
+    private volatile boolean finished = false;
+
+    // 以下字段只在publish中访问（已同步）
+    private long lastSampleNanos = startNanos;
+    private int lastSampleRows = 0;
+    private double rowsPerSecond = 0;
+
+    public ScanProgressTracker(int total, long intervalMs, Consumer<ScanProgress> sink) {
+        this.total = total;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMs);
+        this.sink = sink;
+        this.nextPublishAt = new AtomicLong(startNanos);
+    }
+
+    /**
+     * 可能发布一次进度（可被多个线程并发调用）
+     */
+    public void update(ScanStats stats) {
+        long now = System.nanoTime();
+        long next = nextPublishAt.get();
+        if (now < next || finished) {
+            return;
+        }
+        if (!nextPublishAt.compareAndSet(next, now + intervalNanos)) {
+            return; // 其他线程已负责本次发布
+        }
+        publish(stats, now, false);
+    }
+
+    /**
+     * 发布最终进度，之后的update调用被忽略
+     */
+    public void finish(ScanStats stats) {
+        finished = true;
+        publish(stats, System.nanoTime(), true);
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    private synchronized void publish(ScanStats stats, long now, boolean done) {
+        int scanned = stats.totalScanned.get();
+
+        // 按发布间隔采样速率并平滑，避免ETA剧烈跳动
+        long sampleNanos = now - lastSampleNanos;
+        if (sampleNanos > 0 && scanned >= lastSampleRows) {
+            double sample = (scanned - lastSampleRows) * 1e9 / sampleNanos;
+            rowsPerSecond = lastSampleRows == 0 ? sample : rowsPerSecond + RATE_SMOOTHING * (sample - rowsPerSecond);
+            lastSampleNanos = now;
+            lastSampleRows = scanned;
+        }
+
+        long eta = -1;
+        if (done) {
+            eta = 0;
+        } else if (rowsPerSecond > 0 && total >= scanned) {
+            eta = (long) ((total - scanned) * 1000 / rowsPerSecond);
+        }
+
+        List<ScanStats.VolumeStats> volumeStats = stats.getVolumes();
+        List<ScanProgress.VolumeProgress> volumes = new ArrayList<>(volumeStats.size());
+        for (ScanStats.VolumeStats volume : volumeStats) {
+            volumes.add(new ScanProgress.VolumeProgress(volume.volumeName, volume.scanned.get(), volume.total,
+                    volume.complete));
+        }
+
+        sink.accept(new ScanProgress(scanned, total,
+                stats.inserted.get(), stats.updated.get(), stats.skippedFiles.get(),
+                rowsPerSecond, TimeUnit.NANOSECONDS.toMillis(now - startNanos), eta, done, volumes));
+    }
+}
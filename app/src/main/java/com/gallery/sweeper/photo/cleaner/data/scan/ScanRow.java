@@ -0,0 +1,87 @@
+package com.gallery.sweeper.photo.cleaner.data.scan;
+
+import android.database.Cursor;
+import android.provider.MediaStore;
+
+/**
+ * 项目名称：
+ * 作者：wx
+ * 时间：2026/10/18 11:02
+ * 描述：从媒体库游标读取的原始记录，只在扫描流水线内部流转
+ */
+public class ScanRow {
+
+    /**
+     * 扫描查询的列（全量扫描、增量扫描和变化同步共用）
+     */
+    public static final String[] PROJECTION = {
+            MediaStore.Images.Media._ID,
+            MediaStore.Images.Media.DATA,
+            MediaStore.Images.Media.DATE_TAKEN,
+            MediaStore.Images.Media.DATE_MODIFIED,
+            MediaStore.MediaColumns.SIZE,
+            MediaStore.MediaColumns.WIDTH,
+            MediaStore.MediaColumns.HEIGHT,
+            MediaStore.MediaColumns.MIME_TYPE};
+
+    public final long mediaStoreId;
+    public final String path;
+    public final long dateTaken; // 毫秒，可能<=0
+    public final long dateModified; // 秒
+    public final long size; // 字节
+    public final int width;
+    public final int height;
+    public final String mimeType;
+
+    public ScanRow(long mediaStoreId, String path, long dateTaken, long dateModified,
+                   long size, int width, int height, String mimeType) {
+        this.mediaStoreId = mediaStoreId;
+        this.path = path;
+        this.dateTaken = dateTaken;
+        this.dateModified = dateModified;
+        this.size = size;
+        this.width = width;
+        this.height = height;
+        this.mimeType = mimeType;
+    }
+
+    /**
+     * 使用补全后的拍摄时间创建副本
+     */
+    public ScanRow withDateTaken(long dateTaken) {
+        return new ScanRow(mediaStoreId, path, dateTaken, dateModified, size, width, height, mimeType);
+    }
+
+    /**
+     * 按{@link #PROJECTION}读取游标当前行，列索引只解析一次
+     */
+    public static class Reader {
+        private final int idColumn;
+        private final int pathColumn;
+        private final int dateTakenColumn;
+        private final int dateModifiedColumn;
+        private final int sizeColumn;
+        private final int widthColumn;
+        private final int heightColumn;
+        private final int mimeTypeColumn;
+
+        public Reader(Cursor cursor) {
+            idColumn = cursor.getColumnIndexOrThrow(MediaStore.Images.Media._ID);
+            pathColumn = cursor.getColumnIndexOrThrow(MediaStore.Images.Media.DATA);
+            dateTakenColumn = cursor.getColumnIndexOrThrow(MediaStore.Images.Media.DATE_TAKEN);
+            dateModifiedColumn = cursor.getColumnIndexOrThrow(MediaStore.Images.Media.DATE_MODIFIED);
+            sizeColumn = cursor.getColumnIndexOrThrow(MediaStore.MediaColumns.SIZE);
+            widthColumn = cursor.getColumnIndexOrThrow(MediaStore.MediaColumns.WIDTH);
+            heightColumn = cursor.getColumnIndexOrThrow(MediaStore.MediaColumns.HEIGHT);
+            mimeTypeColumn = cursor.getColumnIndexOrThrow(MediaStore.MediaColumns.MIME_TYPE);
+        }
+
+        public ScanRow read(Cursor cursor) {
+            // 尺寸和大小在媒体库尚未完成扫描时可能为NULL，getLong/getInt返回0
+            return new ScanRow(cursor.getLong(idColumn), cursor.getString(pathColumn),
+                    cursor.getLong(dateTakenColumn), cursor.getLong(dateModifiedColumn),
+                    cursor.getLong(sizeColumn), cursor.getInt(widthColumn), cursor.getInt(heightColumn),
+                    cursor.getString(mimeTypeColumn));
+        }
+    }
+}
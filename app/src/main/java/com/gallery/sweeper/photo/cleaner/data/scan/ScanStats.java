@@ -0,0 +1,109 @@
+package com.gallery.sweeper.photo.cleaner.data.scan;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 项目名称：
+ * 作者：wx
+ * 时间：2026/10/18 11:05
+ * 描述：扫描统计，各阶段线程并发累加
+ */
+public class ScanStats {
+
+    /**
+     * 单个媒体卷的读取统计与完成状态（仅该卷的读取线程写入，流水线结束后读取）
+     */
+    public static class VolumeStats {
+        public final String volumeName;
+        public final int total; // 该卷本次需要读取的行数
+        public final AtomicInteger scanned = new AtomicInteger(0);
+        public volatile long maxMediaId = 0;
+        public volatile long maxDateModified = 0;
+        public volatile int pages = 0;
+        public volatile boolean aborted = false;
+        public volatile boolean complete = false; // 所有记录都已读取并提交，可以推进该卷的水位线
+
+        public VolumeStats(String volumeName, int total) {
+            this.volumeName = volumeName;
+            this.total = total;
+        }
+
+        @Override
+        public String toString() {
+            return volumeName + " " + scanned.get() + "/" + total + (complete ? " 完成" : aborted ? " 中止" : "");
+        }
+    }
+
+    // 各卷统计，按注册顺序排列
+    private final Map<String, VolumeStats> volumes = Collections.synchronizedMap(new LinkedHashMap<>());
+    public final AtomicInteger totalScanned = new AtomicInteger(0);
+    public final AtomicInteger inserted = new AtomicInteger(0);
+    public final AtomicInteger updated = new AtomicInteger(0);
+    public final AtomicInteger batches = new AtomicInteger(0);
+    public final AtomicInteger skippedFiles = new AtomicInteger(0);
+    public final AtomicInteger deletedRecords = new AtomicInteger(0);
+
+    // 扫描被取消或异常终止时为true，此时不能推进水位线
+    public volatile boolean aborted = false;
+
+    // 所有卷合计的水位线（流水线结束后汇总）
+    public volatile long maxMediaId = 0;
+    public volatile long maxDateModified = 0;
+
+    // 各阶段累计耗时（毫秒），用于定位瓶颈
+    public volatile long readTime = 0;
+    public final AtomicLong checkTime = new AtomicLong(0);
+    public volatile long writeTime = 0;
+
+    // 自适应批次大小（仅写入线程写入）
+    public volatile int initialBatchSize = 0;
+    public volatile int finalBatchSize = 0;
+    public volatile int minBatchSize = 0;
+    public volatile int maxBatchSize = 0;
+    public volatile int batchAdjustments = 0;
+
+    // 读取方式与内存
+    public volatile int pages = 0; // 读取的游标页数合计，单游标模式每卷为1
+    public final AtomicLong peakHeapBytes = new AtomicLong(0); // 读取期间采样到的Java堆使用峰值
+
+    public VolumeStats addVolume(String volumeName, int total) {
+        VolumeStats volume = new VolumeStats(volumeName, total);
+        volumes.put(volumeName, volume);
+        return volume;
+    }
+
+    public VolumeStats getVolume(String volumeName) {
+        return volumes.get(volumeName);
+    }
+
+    public List<VolumeStats> getVolumes() {
+        synchronized (volumes) {
+            return new ArrayList<>(volumes.values());
+        }
+    }
+
+    public int changedCount() {
+        return inserted.get() + updated.get() + deletedRecords.get();
+    }
+
+    @Override
+    public String toString() {
+        return "\n| 批次处理: " + batches.get() +
+                "\n| 总扫描量: " + totalScanned.get() +
+                "\n| 跳过文件: " + skippedFiles.get() +
+                "\n| 删除记录: " + deletedRecords.get() +
+                "\n| 新增: " + inserted.get() +
+                "\n| 更新: " + updated.get() +
+                "\n| 批次大小: 初始 " + initialBatchSize + " / 最终 " + finalBatchSize +
+                " / 范围 " + minBatchSize + "-" + maxBatchSize + " / 调整 " + batchAdjustments + "次" +
+                "\n| 阶段耗时: 读取 " + readTime + "ms / 检查(累计) " + checkTime.get() + "ms / 写入 " + writeTime + "ms" +
+                "\n| 游标页数: " + pages + " | 堆峰值: " + (peakHeapBytes.get() >> 10) + "KB" +
+                "\n| 媒体卷: " + getVolumes();
+    }
+}
@@ -25,11 +25,11 @@ import com.daz.tantan.CardItemTouchHelperCallback;
 import com.daz.tantan.CardLayoutManager;
 import com.daz.tantan.OnSwipeListener;
 import com.gallery.sweeper.photo.cleaner.R;
-import com.gallery.sweeper.photo.cleaner.data.PhotoRepository;
 import com.gallery.sweeper.photo.cleaner.data.db.Photo;
 import com.gallery.sweeper.photo.cleaner.data.db.PhotoGroup;
 import com.gallery.sweeper.photo.cleaner.data.events.SwipePhotoChangeEvents;
 import com.gallery.sweeper.photo.cleaner.data.events.TrashEvents;
+import com.gallery.sweeper.photo.cleaner.data.group.GroupBucket;
 import com.gallery.sweeper.photo.cleaner.databinding.ActivitySwipeTrashBinding;
 
 import org.greenrobot.eventbus.EventBus;
@@ -43,7 +43,7 @@ import java.util.List;
 public class SwipeTrashActivity extends AVBSimpleActivity<ActivitySwipeTrashBinding, SwipeTrashViewModel> {
     private PhotoAdapter photoAdapter;
     private ItemTouchHelper touchHelper;
-    private String groupKey;
+    private int groupBucket;
     private String groupType;
     private boolean isFirst = true;
 
@@ -60,9 +60,9 @@ public class SwipeTrashActivity extends AVBSimpleActivity<ActivitySwipeTrashBind
     @Override
     protected void initEventAndData() {
         XLog.d(TAG, "【初始化】活动初始化开始");
-        groupKey = getIntent().getStringExtra("group_key");
+        groupBucket = getIntent().getIntExtra("group_bucket", 0);
         groupType = getIntent().getStringExtra("group_type");
-        XLog.i(TAG, "【数据】接收分组参数: key=" + groupKey + ", type=" + groupType);
+        XLog.i(TAG, "【数据】接收分组参数: key=" + groupBucket + ", type=" + groupType);
 
         initViews();
         initWithCachedData();
@@ -101,7 +101,7 @@ public class SwipeTrashActivity extends AVBSimpleActivity<ActivitySwipeTrashBind
 
                         @Override
                         public void messageDialogClickRightButtonListener(Dialog dialog, int messageType, String buttonText) {
-                            EventBus.getDefault().post(new TrashEvents.selectTrashByGroup(groupKey, groupType));
+                            EventBus.getDefault().post(new TrashEvents.selectTrashByGroup(groupType, groupBucket));
                             // 延迟100ms再finish()，确保MainActivity处理事件
                             binding.getRoot().postDelayed(() -> finish(), 100);
                         }
@@ -133,7 +133,7 @@ public class SwipeTrashActivity extends AVBSimpleActivity<ActivitySwipeTrashBind
                     XLog.e(TAG, "【错误】分组数据为空");
                     return;
                 }
-                XLog.d(TAG, "【数据】分组数据变更: " + group.getGroupKey());
+                XLog.d(TAG, "【数据】分组数据变更: " + group.getBucket());
 
                 binding.tvCountTrash.setText(String.valueOf(group.getTrashCount()));
 
@@ -328,12 +328,12 @@ public class SwipeTrashActivity extends AVBSimpleActivity<ActivitySwipeTrashBind
     private void initWithCachedData() {
         List<Photo> cachedPhotos = viewModel.getCachedPhotos();
         PhotoGroup cachedGroup = viewModel.getCachedGroup();
-        if (cachedPhotos != null && !cachedPhotos.isEmpty() && cachedGroup != null && groupKey.equals(cachedGroup.getGroupKey()) && groupType.equals(cachedGroup.getGroupType())) {
+        if (cachedPhotos != null && !cachedPhotos.isEmpty() && cachedGroup != null && groupBucket == cachedGroup.getBucket() && groupType.equals(cachedGroup.getGroupType())) {
             updateUIWithCachedGroup(cachedGroup);
             initSwipeCardSystem(cachedPhotos);
             XLog.d(TAG, "【缓存】使用缓存数据初始化UI");
         } else {
-            viewModel.setGroupKey(groupType, groupKey);
+            viewModel.setGroupKey(groupType, groupBucket);
             updateProgressUI();
             XLog.d(TAG, "【数据】加载新数据");
         }
@@ -341,16 +341,7 @@ public class SwipeTrashActivity extends AVBSimpleActivity<ActivitySwipeTrashBind
 
     private void updateUIWithCachedGroup(PhotoGroup group) {
         withBinding(binding -> {
-            String title = "";
-            switch (PhotoRepository.getInstance().getCurrentGroupType()) {
-                case YEAR:
-                    title = group.yearGroup;
-                    break;
-                case MONTH:
-                    title = group.monthGroup + "." + group.yearGroup;
-                    break;
-            }
-            binding.tvTitle.setText(title);
+            binding.tvTitle.setText(GroupBucket.title(group.bucket));
 
             binding.tvCountTrash.setText(String.valueOf(group.getTrashCount()));
 
@@ -405,10 +396,10 @@ public class SwipeTrashActivity extends AVBSimpleActivity<ActivitySwipeTrashBind
 
     @Override
     public void finish() {
-        XLog.i(TAG, "【生命周期】活动结束 - 分组类型: " + groupType + ", 键: " + groupKey);
+        XLog.i(TAG, "【生命周期】活动结束 - 分组类型: " + groupType + ", 键: " + groupBucket);
         Intent intent = new Intent();
         intent.putExtra("groupType", groupType);
-        intent.putExtra("groupKey", groupKey);
+        intent.putExtra("groupBucket", groupBucket);
         setResult(Activity.RESULT_OK, intent);
         super.finish();
     }
@@ -12,6 +12,7 @@ import com.gallery.sweeper.photo.cleaner.data.PhotoRepository;
 import com.gallery.sweeper.photo.cleaner.data.db.Photo;
 import com.gallery.sweeper.photo.cleaner.data.db.PhotoGroup;
 import com.gallery.sweeper.photo.cleaner.data.events.SwipePhotoChangeEvents;
+import com.gallery.sweeper.photo.cleaner.data.group.GroupBucket;
 
 import org.greenrobot.eventbus.EventBus;
 
@@ -39,6 +40,9 @@ public class SwipeTrashViewModel extends AVBAndroidViewModel {
     // 操作栈
     private Stack<UndoAction> undoStack = new Stack<>();
     private PhotoGroup currentGroup;
+    // 已在本地计入、仓库写入尚未完成的状态变化，按提交顺序排列（由groupLock保护）
+    private final List<PendingStatus> pendingStatuses = new ArrayList<>();
+    private final Object groupLock = new Object();
 
     // 缓存系统
     private List<Photo> cachedPhotos = new ArrayList<>();
@@ -89,30 +93,20 @@ public class SwipeTrashViewModel extends AVBAndroidViewModel {
      * 设置分组键值，根据指定的分组类型和键值获取分组信息并进行相关处理
      *
      * @param groupType 分组类型，用于标识分组的分类方式
-     * @param groupKey  分组键值，用于唯一标识一个分组
+     * @param bucket    分组键值（yyyymm/yyyy00），用于唯一标识一个分组
      */
-    public void setGroupKey(String groupType, String groupKey) {
-        XLog.d(TAG, "【分组】设置分组键值 - 类型: " + groupType + ", 键值: " + groupKey);
+    public void setGroupKey(String groupType, int bucket) {
+        XLog.d(TAG, "【分组】设置分组键值 - 类型: " + groupType + ", 键值: " + bucket);
 
         // 监听分组数据变化，获取指定分组类型和键值对应的分组信息
-        PhotoRepository.getInstance().getGroup(groupType, groupKey).observeForever(group -> {
+        PhotoRepository.getInstance().getGroup(groupType, bucket).observeForever(group -> {
             if (group != null) {
-                // 缓存当前分组数据
-                currentGroup = group;
-                cachedGroup = new PhotoGroup(currentGroup);
-                groupChange.postValue(currentGroup);
-                XLog.d(TAG, "【缓存】分组数据缓存成功: " + currentGroup.getGroupKey());
+                // 缓存当前分组数据（叠加尚未写完的滑动）
+                publishGroup(group);
+                XLog.d(TAG, "【缓存】分组数据缓存成功: " + currentGroup.getBucket());
 
                 // 根据分组类型设置标题显示内容
-                String title = "";
-                switch (PhotoRepository.getInstance().getCurrentGroupType()) {
-                    case YEAR:
-                        title = currentGroup.yearGroup;
-                        break;
-                    case MONTH:
-                        title = currentGroup.monthGroup + "." + currentGroup.yearGroup;
-                        break;
-                }
+                String title = GroupBucket.title(currentGroup.bucket);
                 titleStatus.postValue(title);
                 XLog.d(TAG, "【UI】标题设置: " + title);
 
@@ -132,7 +126,7 @@ public class SwipeTrashViewModel extends AVBAndroidViewModel {
      * @param currentGroup 当前要加载照片的分组对象，包含分组标识等信息
      */
     public void loadPhotos(PhotoGroup currentGroup) {
-        XLog.d(TAG, "【数据】开始加载照片 - 分组: " + currentGroup.getGroupKey());
+        XLog.d(TAG, "【数据】开始加载照片 - 分组: " + currentGroup.getBucket());
         // 设置加载状态为正在加载
         loadingState.setValue(true);
         errorMessage.setValue("");
@@ -141,7 +135,7 @@ public class SwipeTrashViewModel extends AVBAndroidViewModel {
         PhotoRepository.getInstance().getPhotos(currentGroup, new ArrayList<>()).observeForever(photos -> {
             // 检查照片数据是否为空
             if (photos == null || photos.isEmpty()) {
-                errorMessage.postValue("【" + currentGroup.getGroupKey() + "】分组图片数据为空");
+                errorMessage.postValue("【" + currentGroup.getBucket() + "】分组图片数据为空");
                 loadingState.postValue(false);
                 XLog.e(TAG, "【错误】照片数据加载失败");
                 return;
@@ -172,23 +166,13 @@ public class SwipeTrashViewModel extends AVBAndroidViewModel {
         // 更新缓存中的照片状态为已回收
         updateCachedPhotoStatus(photo.mediaStoreId, Photo.Status.TRASHED);
 
-        // 立即更新UI中当前分组的回收站计数
-        if (currentGroup != null) {
-            currentGroup.trashCount = Math.max(0, currentGroup.trashCount + 1);
-            if (cachedGroup != null) {
-                cachedGroup.trashCount = currentGroup.trashCount;
-            }
-            groupChange.postValue(currentGroup);
-            XLog.d(TAG, "【UI】回收站计数更新: " + currentGroup.trashCount);
-        } else {
-            XLog.e(TAG, "【错误】当前分组为空");
-        }
-
-        // 添加数据库更新操作到队列中异步执行
+        // 分组计数先在本地计入，数据库更新加入队列异步执行，写入完成后以仓库计数确认
+        PendingStatus pending = applyPendingStatus(originalPhoto, originalStatus, Photo.Status.TRASHED);
         addToOperationQueue(() -> {
             XLog.i(TAG, "【数据库】更新照片状态 | ID: " + photo.mediaStoreId +
                     " | 旧状态: " + originalStatus + " | 新状态: TRASHED");
-            PhotoRepository.getInstance().updatePhotoStatus(photo.mediaStoreId, Photo.Status.TRASHED);
+            PhotoRepository.getInstance().updatePhotoStatus(photo.mediaStoreId, Photo.Status.TRASHED)
+                    .whenComplete((ignored, error) -> confirmPendingStatus(pending));
         });
 
         // 创建并保存撤销操作记录，以便用户可以撤销本次操作
@@ -210,10 +194,9 @@ public class SwipeTrashViewModel extends AVBAndroidViewModel {
      * 该方法会执行以下操作：
      * 1. 记录原始照片状态并创建深拷贝；
      * 2. 更新缓存中的照片状态为 KEEP；
-     * 3. 立即更新当前分组的保留计数并通知UI刷新；
-     * 4. 将数据库状态更新操作加入异步队列；
-     * 5. 创建撤销操作记录并压入撤销栈；
-     * 6. 更新撤销按钮的可用性。
+     * 3. 在本地分组计数中计入本次变化，数据库状态更新加入异步队列，写入完成后以仓库计数确认；
+     * 4. 创建撤销操作记录并压入撤销栈；
+     * 5. 更新撤销按钮的可用性。
      *
      * @param photo 需要被标记为保留的照片对象，不能为 null
      */
@@ -228,23 +211,13 @@ public class SwipeTrashViewModel extends AVBAndroidViewModel {
         // 更新缓存中该照片的状态为 KEEP
         updateCachedPhotoStatus(photo.mediaStoreId, Photo.Status.KEEP);
 
-        // 立即更新UI计数并通知观察者刷新界面
-        if (currentGroup != null) {
-            currentGroup.keepCount = Math.max(0, currentGroup.keepCount + 1);
-            if (cachedGroup != null) {
-                cachedGroup.keepCount = currentGroup.keepCount;
-            }
-            groupChange.postValue(currentGroup);
-            XLog.d(TAG, "【UI】保留计数更新: " + currentGroup.keepCount);
-        } else {
-            XLog.e(TAG, "【错误】当前分组为空");
-        }
-
-        // 添加数据库更新操作到异步任务队列中执行
+        // 分组计数先在本地计入，数据库更新加入异步任务队列，写入完成后以仓库计数确认
+        PendingStatus pending = applyPendingStatus(originalPhoto, originalStatus, Photo.Status.KEEP);
         addToOperationQueue(() -> {
             XLog.i(TAG, "【数据库】更新照片状态 | ID: " + photo.mediaStoreId +
                     " | 旧状态: " + originalStatus + " | 新状态: KEEP");
-            PhotoRepository.getInstance().updatePhotoStatus(photo.mediaStoreId, Photo.Status.KEEP);
+            PhotoRepository.getInstance().updatePhotoStatus(photo.mediaStoreId, Photo.Status.KEEP)
+                    .whenComplete((ignored, error) -> confirmPendingStatus(pending));
         });
 
         // 创建撤销操作记录（包含完整照片对象）
@@ -303,26 +276,21 @@ public class SwipeTrashViewModel extends AVBAndroidViewModel {
         }
         cachedPhotos = newCache;
 
-        // 2. 更新分组计数
-        updateGroupCountAfterUndo(action);
-
-        // 3. 添加到操作队列
+        // 2. 分组计数先在本地撤回，再添加到操作队列
+        PendingStatus pending = applyPendingStatus(recoveredPhoto, action.actionType, recoveredPhoto.status);
         addToOperationQueue(() -> {
             XLog.i(TAG, "【数据库】撤销操作 | ID: " + recoveredPhoto.mediaStoreId);
             PhotoRepository.getInstance().updatePhotoStatus(
                     recoveredPhoto.mediaStoreId,
                     recoveredPhoto.status
-            );
-
-            // 刷新分组数据
-            refreshGroupDataSync();
+            ).whenComplete((ignored, error) -> confirmPendingStatus(pending));
         });
 
-        // 4. 立即发送照片更新事件
+        // 3. 立即发送照片更新事件
         EventBus.getDefault().post(new SwipePhotoChangeEvents(cachedPhotos));
         XLog.d(TAG, "【事件】发送照片更新事件 | 数量: " + cachedPhotos.size());
 
-        // 5. 更新撤销按钮状态
+        // 4. 更新撤销按钮状态
         updateUndoAvailability();
 
         XLog.i(TAG, "【操作】撤销完成");
@@ -347,83 +315,78 @@ public class SwipeTrashViewModel extends AVBAndroidViewModel {
                 "  path = " + (photo.path != null ? photo.path : "null") + "\n" +
                 "  status = " + photo.status + "\n" +
                 "  dateTaken = " + photo.dateTaken + "\n" +
-                "  yearGroup = " + (photo.yearGroup != null ? photo.yearGroup : "null") + "\n" +
-                "  monthGroup = " + (photo.monthGroup != null ? photo.monthGroup : "null") + "\n" +
+                "  bucket = " + photo.bucket + "\n" +
                 "}";
     }
 
     /**
-     * 同步刷新分组数据
+     * 在本地分组计数中计入一次状态变化并立即通知UI，不等待仓库写入
      * <p>
-     * 该方法用于从数据仓库同步获取最新的分组数据，并更新当前分组状态。
-     * 在刷新过程中会保留用户在UI操作中手动更新的计数信息。
+     * 扫描进行中写入可能要等当前批次提交，界面计数不随之停顿；写入完成后由{@link #confirmPendingStatus}确认
      * </p>
      */
-    private void refreshGroupDataSync() {
-        XLog.d(TAG, "【数据】同步刷新分组数据");
-
-        // 检查当前分组是否为空
-        if (currentGroup == null) {
-            XLog.e(TAG, "【错误】当前分组为空，无法刷新");
-            return;
+    private PendingStatus applyPendingStatus(Photo photo, Photo.Status from, Photo.Status to) {
+        PendingStatus pending = new PendingStatus(photo.size, from, to);
+        synchronized (groupLock) {
+            pendingStatuses.add(pending);
+            if (currentGroup != null) {
+                PhotoGroup group = new PhotoGroup(currentGroup);
+                pending.applyTo(group);
+                setGroup(group);
+            }
         }
+        XLog.d(TAG, "【分组】本地计入状态变化 | ID: " + photo.mediaStoreId + " | " + from + " -> " + to);
+        return pending;
+    }
 
-        // 从数据仓库同步获取分组数据
-        PhotoGroup group = PhotoRepository.getInstance().getGroupByKeySync(
-                currentGroup.getGroupKey()
-        );
-
-        if (group != null) {
-            // 保留手动更新的计数
-            int trashCount = currentGroup.getTrashCount();
-            int keepCount = currentGroup.getKeepCount();
-
-            currentGroup = group;
-
-            // 保留UI操作后的计数
-            currentGroup.trashCount = trashCount;
-            currentGroup.keepCount = keepCount;
-
-            // 更新缓存
-            cachedGroup = new PhotoGroup(currentGroup);
+    /**
+     * 仓库写入完成（成功或失败）后确认本地计数
+     * <p>
+     * 仓库的分组缓存随写入写穿，此时读到的计数已包含本次写入；在其上叠加仍未完成的变化后发布。
+     * 写入失败或照片已被删除时，仓库计数同样是准确值，本地的预估随之被纠正。
+     * 状态写入在仓库的单一状态线程上按提交顺序执行，完成回调在下一次写入开始前运行，不会把后续写入重复计入。
+     * </p>
+     */
+    private void confirmPendingStatus(PendingStatus pending) {
+        PhotoGroup current;
+        synchronized (groupLock) {
+            current = currentGroup;
+        }
+        PhotoGroup group = current != null
+                ? PhotoRepository.getInstance().getGroupByKeySync(current.getBucket())
+                : null;
 
-            groupChange.postValue(currentGroup);
-            XLog.i(TAG, "【数据】分组刷新成功");
-        } else {
-            XLog.e(TAG, "【错误】分组刷新失败");
+        synchronized (groupLock) {
+            pendingStatuses.remove(pending);
+            if (group != null) {
+                publishGroup(group);
+                XLog.i(TAG, "【分组】写入确认 | 回收站: " + currentGroup.trashCount
+                        + " | 保留: " + currentGroup.keepCount
+                        + " | 未完成: " + pendingStatuses.size());
+            } else {
+                XLog.e(TAG, "【错误】分组刷新失败");
+            }
         }
     }
 
     /**
-     * 在执行撤销操作后更新分组计数
-     *
-     * @param action 撤销操作对象，包含操作类型等信息
+     * 以仓库读到的分组为基准，叠加尚未写完的状态变化后发布
      */
-    private void updateGroupCountAfterUndo(UndoAction action) {
-        if (currentGroup != null) {
-            // 根据撤销的操作类型减少对应的计数器
-            if (action.actionType == Photo.Status.TRASHED) {
-                currentGroup.trashCount = Math.max(0, currentGroup.trashCount - 1);
-                XLog.d(TAG, "【计数】回收站计数减少: " + currentGroup.trashCount);
-            } else if (action.actionType == Photo.Status.KEEP) {
-                currentGroup.keepCount = Math.max(0, currentGroup.keepCount - 1);
-                XLog.d(TAG, "【计数】保留计数减少: " + currentGroup.keepCount);
-            }
-
-            // 更新缓存分组的计数，保持与当前分组同步
-            if (cachedGroup != null) {
-                cachedGroup.trashCount = currentGroup.trashCount;
-                cachedGroup.keepCount = currentGroup.keepCount;
-                XLog.d(TAG, "【缓存】更新分组计数: trash=" + cachedGroup.trashCount +
-                        ", keep=" + cachedGroup.keepCount);
+    private void publishGroup(PhotoGroup confirmed) {
+        synchronized (groupLock) {
+            PhotoGroup group = new PhotoGroup(confirmed);
+            for (PendingStatus pending : pendingStatuses) {
+                pending.applyTo(group);
             }
-
-            // 直接发送更新，不触发数据重载
-            groupChange.postValue(currentGroup);
-            XLog.d(TAG, "【UI】本地计数已更新 | 分组: " + currentGroup.getGroupKey());
+            setGroup(group);
         }
     }
 
+    private void setGroup(PhotoGroup group) {
+        currentGroup = group;
+        cachedGroup = new PhotoGroup(group);
+        groupChange.postValue(group);
+    }
 
     /**
      * 更新缓存中指定照片的状态
@@ -563,6 +526,35 @@ public class SwipeTrashViewModel extends AVBAndroidViewModel {
 
     // ==================== 内部类 ====================
 
+    /**
+     * 已在本地计入、尚未写入仓库的一次状态变化，与仓库分组增量的计数规则一致
+     */
+    private static class PendingStatus {
+        final long size;
+        final Photo.Status from;
+        final Photo.Status to;
+
+        PendingStatus(long size, Photo.Status from, Photo.Status to) {
+            this.size = size;
+            this.from = from;
+            this.to = to;
+        }
+
+        void applyTo(PhotoGroup group) {
+            count(group, from, -1);
+            count(group, to, 1);
+        }
+
+        private void count(PhotoGroup group, Photo.Status status, int sign) {
+            if (status == Photo.Status.TRASHED) {
+                group.trashCount += sign;
+                group.trashBytes += sign * size;
+            } else if (status == Photo.Status.KEEP) {
+                group.keepCount += sign;
+            }
+        }
+    }
+
     /**
      * 撤销操作类，用于存储照片编辑操作前的状态信息，支持撤销功能
      *
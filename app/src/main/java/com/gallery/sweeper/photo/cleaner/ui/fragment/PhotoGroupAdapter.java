@@ -5,6 +5,7 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.daz.lib_base.base.BaseRecyclerViewAdapter;
@@ -12,9 +13,11 @@ import com.daz.lib_base.view.bitmap.GlideProxy;
 import com.gallery.sweeper.photo.cleaner.R;
 import com.gallery.sweeper.photo.cleaner.data.PhotoRepository;
 import com.gallery.sweeper.photo.cleaner.data.db.PhotoGroup;
+import com.gallery.sweeper.photo.cleaner.data.group.GroupBucket;
 import com.gallery.sweeper.photo.cleaner.widget.RoundImageView2;
 
 import java.util.List;
+import java.util.Objects;
 
 /**
  * 项目名称：
@@ -41,22 +44,22 @@ public class PhotoGroupAdapter extends BaseRecyclerViewAdapter<PhotoGroupAdapter
         // 加载分组封面图片
         GlideProxy.circleCorners(holder.ivCover.getContext(), group.getGroupCover(), holder.ivCover, 25);
         // 设置最新照片时间
-        holder.tvMonth.setText(String.format("%s.", group.getMonthGroup()));
+        holder.tvMonth.setText(String.format("%s.", GroupBucket.monthLabel(group.bucket)));
         // 设置分组名称
-        holder.tvYear.setText(group.yearGroup);
+        holder.tvYear.setText(GroupBucket.yearLabel(group.bucket));
 
         switch (PhotoRepository.getInstance().getCurrentGroupType()) {
             case YEAR:
                 // 设置最新照片时间
-                holder.tvMonth.setText(group.yearGroup);
+                holder.tvMonth.setText(GroupBucket.yearLabel(group.bucket));
                 // 设置分组名称
                 holder.tvYear.setText("");
                 break;
             case MONTH:
                 // 设置最新照片时间
-                holder.tvMonth.setText(String.format("%s.", group.getMonthGroup()));
+                holder.tvMonth.setText(String.format("%s.", GroupBucket.monthLabel(group.bucket)));
                 // 设置分组名称
-                holder.tvYear.setText(group.yearGroup);
+                holder.tvYear.setText(GroupBucket.yearLabel(group.bucket));
                 break;
         }
         // 设置照片数量
@@ -70,10 +73,15 @@ public class PhotoGroupAdapter extends BaseRecyclerViewAdapter<PhotoGroupAdapter
         return groupList == null ? 0 : groupList.size();
     }
 
-    // 更新数据
+    // 更新数据：按分组键差量更新，快照替换为数据库分组时未变化的项不重新绑定
     public void submitList(List<PhotoGroup> newList) {
+        List<PhotoGroup> oldList = groupList;
         groupList = newList;
-        notifyDataSetChanged();
+        if (oldList == null || oldList.isEmpty() || newList == null) {
+            notifyDataSetChanged();
+            return;
+        }
+        DiffUtil.calculateDiff(new GroupDiffCallback(oldList, newList)).dispatchUpdatesTo(this);
     }
 
     // 获取指定位置的分组
@@ -90,6 +98,46 @@ public class PhotoGroupAdapter extends BaseRecyclerViewAdapter<PhotoGroupAdapter
         notifyDataSetChanged();
     }
 
+    private static class GroupDiffCallback extends DiffUtil.Callback {
+        private final List<PhotoGroup> oldList;
+        private final List<PhotoGroup> newList;
+
+        GroupDiffCallback(List<PhotoGroup> oldList, List<PhotoGroup> newList) {
+            this.oldList = oldList;
+            this.newList = newList;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldList.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newList.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return oldList.get(oldItemPosition).bucket == newList.get(newItemPosition).bucket;
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            PhotoGroup oldGroup = oldList.get(oldItemPosition);
+            PhotoGroup newGroup = newList.get(newItemPosition);
+            return oldGroup.photoCount == newGroup.photoCount
+                    && oldGroup.trashCount == newGroup.trashCount
+                    && oldGroup.keepCount == newGroup.keepCount
+                    && Objects.equals(oldGroup.groupCover, newGroup.groupCover);
+        }
+
+        @Override
+        public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+            return Boolean.TRUE; // 原位重新绑定，不做交叉淡入淡出
+        }
+    }
+
     public class ViewHolder extends RecyclerView.ViewHolder {
         RoundImageView2 ivCover;
         TextView tvYear;
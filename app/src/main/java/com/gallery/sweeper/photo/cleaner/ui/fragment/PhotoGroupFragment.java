@@ -25,6 +25,7 @@ import com.gallery.sweeper.photo.cleaner.data.PhotoRepository;
 import com.gallery.sweeper.photo.cleaner.data.db.PhotoGroup;
 import com.gallery.sweeper.photo.cleaner.data.events.GroupEvent;
 import com.gallery.sweeper.photo.cleaner.data.events.ReloadGroupEvent;
+import com.gallery.sweeper.photo.cleaner.data.scan.ScanProgress;
 import com.gallery.sweeper.photo.cleaner.databinding.FragmentPhotoGroupBinding;
 import com.gallery.sweeper.photo.cleaner.permission.PermissionConstants;
 import com.gallery.sweeper.photo.cleaner.permission.PermissionManager;
@@ -72,6 +73,9 @@ public class PhotoGroupFragment extends VBBaseFragment<FragmentPhotoGroupBinding
         XLog.d(TAG, "【UI初始化】照片分组页面初始化完成");
         initViews();
         initSortingControls();
+        if (PermissionManager.hasPermission(PermissionManager.PermissionType.SCAN)) {
+            viewModel.restoreGroupSnapshot(); // 冷启动先显示上次的分组，不等待数据库和扫描
+        }
         // 延迟启动权限检查流程
         new Handler().postDelayed(this::checkAndRequestScanPermission, 500);
     }
@@ -80,9 +84,9 @@ public class PhotoGroupFragment extends VBBaseFragment<FragmentPhotoGroupBinding
     protected void observeViewModel() {
         viewModel.getPhotoGroups().observe(getViewLifecycleOwner(), this::updateGroups);
 
-        viewModel.getLoadingState().observe(getViewLifecycleOwner(), isLoading -> {
-            binding.progressBar.setVisibility(isLoading ? View.VISIBLE : View.GONE);
-        });
+        viewModel.getLoadingState().observe(getViewLifecycleOwner(), isLoading -> updateProgressVisibility());
+
+        viewModel.getScanProgress().observe(getViewLifecycleOwner(), this::updateScanProgress);
 
         viewModel.getErrorMessage().observe(getViewLifecycleOwner(), errorMessage -> {
             if (errorMessage != null && !errorMessage.isEmpty()) {
@@ -94,6 +98,36 @@ public class PhotoGroupFragment extends VBBaseFragment<FragmentPhotoGroupBinding
         });
     }
 
+    /**
+     * 加载中或扫描中（且列表为空）时显示进度视图
+     */
+    private void updateProgressVisibility() {
+        boolean isLoading = Boolean.TRUE.equals(viewModel.getLoadingState().getValue());
+        ScanProgress progress = viewModel.getScanProgress().getValue();
+        boolean isScanning = progress != null && progress.isRunning()
+                && binding.viewMain.getVisibility() != View.VISIBLE;
+        binding.progressBar.setVisibility(isLoading || isScanning ? View.VISIBLE : View.GONE);
+        if (isScanning) {
+            binding.viewEmpty.setVisibility(View.GONE);
+        }
+    }
+
+    private void updateScanProgress(ScanProgress progress) {
+        if (progress != null && progress.isRunning() && progress.total > 0) {
+            String eta = progress.etaMillis >= 0 ? formatDuration(progress.etaMillis) : "--";
+            binding.tvProgress.setText(getString(R.string.scan_progress,
+                    progress.scanned, progress.total, (int) progress.rowsPerSecond, eta));
+        } else {
+            binding.tvProgress.setText(R.string.loading);
+        }
+        updateProgressVisibility();
+    }
+
+    private static String formatDuration(long millis) {
+        long seconds = (millis + 999) / 1000;
+        return seconds >= 60 ? (seconds / 60) + "m " + (seconds % 60) + "s" : seconds + "s";
+    }
+
     private void initViews() {
         groupAdapter = new PhotoGroupAdapter(new ArrayList<>());
         binding.viewMain.setLayoutManager(new LinearLayoutManager(requireActivity()));
@@ -106,7 +140,7 @@ public class PhotoGroupFragment extends VBBaseFragment<FragmentPhotoGroupBinding
 
                 XLog.d(TAG, "点击分组: " + group);
                 Intent intent = new Intent(getActivity(), SwipeTrashActivity.class);
-                intent.putExtra("group_key", group.getGroupKey());
+                intent.putExtra("group_bucket", group.getBucket());
                 intent.putExtra("group_type", group.getGroupType());
                 startActivityForResult(intent, 1000);
             }
@@ -176,6 +210,7 @@ public class PhotoGroupFragment extends VBBaseFragment<FragmentPhotoGroupBinding
             binding.viewEmpty.setVisibility(View.GONE);
             binding.viewMain.setVisibility(View.VISIBLE);
         }
+        updateProgressVisibility();
     }
 
     /**
@@ -415,14 +450,22 @@ public class PhotoGroupFragment extends VBBaseFragment<FragmentPhotoGroupBinding
         }
     }
 
+    @Subscribe(threadMode = ThreadMode.MAIN)
+    public void onGroupEventPublished(GroupEvent.PublishedEvent event) {
+        XLog.d(TAG, "【事件】收到分组发布事件 | 分组数量: " + event.photoGroups.size());
+        if (groupAdapter != null) {
+            viewModel.mergePublishedGroups(event.photoGroups); // 扫描进行中逐步显示已完成的分组
+        }
+    }
+
     @Subscribe(threadMode = ThreadMode.MAIN)
     public void onPhotoGroupUpdateEvent(GroupEvent.UpdateEvent event) {
-        XLog.e(TAG, "【事件】收到分组更新事件 | 分组: " + event.updatedGroup.getGroupKey());
+        XLog.e(TAG, "【事件】收到分组更新事件 | 分组: " + event.updatedGroup.getBucket());
         if (groupAdapter != null) {
             for (int i = 0; i < groupAdapter.getCurrentList().size(); i++) {
-                if (groupAdapter.getItem(i).getGroupKey().equals(event.updatedGroup.getGroupKey())){
+                if (groupAdapter.getItem(i).getBucket() == event.updatedGroup.getBucket()){
                     groupAdapter.setGroup(i, event.updatedGroup);
-                    XLog.e(TAG, "【UI交互】更新UI | 分组: " + event.updatedGroup.getGroupKey());
+                    XLog.e(TAG, "【UI交互】更新UI | 分组: " + event.updatedGroup.getBucket());
                     break;
                 }
             }
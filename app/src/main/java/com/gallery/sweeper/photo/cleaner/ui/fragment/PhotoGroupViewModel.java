@@ -12,9 +12,13 @@ import com.daz.lib_base.utils.XLog;
 import com.gallery.sweeper.photo.cleaner.data.GroupType;
 import com.gallery.sweeper.photo.cleaner.data.PhotoRepository;
 import com.gallery.sweeper.photo.cleaner.data.db.PhotoGroup;
+import com.gallery.sweeper.photo.cleaner.data.scan.ScanProgress;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class PhotoGroupViewModel extends AVBAndroidViewModel {
@@ -22,6 +26,7 @@ public class PhotoGroupViewModel extends AVBAndroidViewModel {
     private final MutableLiveData<List<PhotoGroup>> photoGroups = new MutableLiveData<>(new ArrayList<>());
     private final MutableLiveData<Boolean> loadingState = new MutableLiveData<>(false);
     private final MutableLiveData<String> errorMessage = new MutableLiveData<>("");
+    private boolean groupsLoaded; // 已显示数据库中的分组，之后读到的快照不再显示（仅主线程访问）
 
     public PhotoGroupViewModel(@NonNull Application application) {
         super(application);
@@ -42,6 +47,7 @@ public class PhotoGroupViewModel extends AVBAndroidViewModel {
             @Override
             public void onChanged(List<PhotoGroup> groups) {
                 groupsLiveData.removeObserver(this);
+                groupsLoaded = true;
 
                 if (groups == null) {
                     errorMessage.postValue("分组数据为空");
@@ -63,6 +69,31 @@ public class PhotoGroupViewModel extends AVBAndroidViewModel {
         });
     }
 
+    /**
+     * 冷启动：先显示上次保存的分组快照，再加载数据库中的分组替换（列表按分组键差量更新）
+     * 没有快照时不做任何事，保持扫描完成后加载的流程
+     * 必须在主线程调用
+     */
+    public void restoreGroupSnapshot() {
+        if (groupsLoaded) {
+            return;
+        }
+        LiveData<List<PhotoGroup>> snapshotLiveData = PhotoRepository.getInstance()
+                .loadGroupSnapshot(PhotoRepository.getInstance().getCurrentGroupType());
+        snapshotLiveData.observeForever(new Observer<List<PhotoGroup>>() {
+            @Override
+            public void onChanged(List<PhotoGroup> groups) {
+                snapshotLiveData.removeObserver(this);
+                if (groups == null || groups.isEmpty() || groupsLoaded) {
+                    return;
+                }
+                XLog.d(TAG, "【数据加载】显示分组快照，数量：" + groups.size());
+                photoGroups.setValue(groups);
+                loadGroups(); // 与数据库中的分组对账
+            }
+        });
+    }
+
     public void setGroupType(GroupType type) {
         if (PhotoRepository.getInstance().getCurrentGroupType() != type) {
             PhotoRepository.getInstance().setCurrentGroupType(type);
@@ -70,6 +101,38 @@ public class PhotoGroupViewModel extends AVBAndroidViewModel {
         }
     }
 
+    /**
+     * 合并渐进式扫描发布的分组：同键替换、新分组插入，并按当前排序方向排列
+     * 必须在主线程调用
+     */
+    public void mergePublishedGroups(List<PhotoGroup> published) {
+        String groupType = PhotoRepository.getInstance().getCurrentGroupType().toString();
+        List<PhotoGroup> current = photoGroups.getValue();
+        Map<Integer, PhotoGroup> merged = new LinkedHashMap<>();
+        if (current != null) {
+            for (PhotoGroup group : current) {
+                merged.put(group.bucket, group);
+            }
+        }
+        int count = 0;
+        for (PhotoGroup group : published) {
+            if (groupType.equals(group.groupType)) {
+                merged.put(group.bucket, group);
+                count++;
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+
+        List<PhotoGroup> groups = new ArrayList<>(merged.values());
+        Comparator<PhotoGroup> byLatest = Comparator.comparingLong(group -> group.latestPhotoTimestamp);
+        groups.sort(PhotoRepository.getInstance().isAscending() ? byLatest : byLatest.reversed());
+        photoGroups.setValue(groups);
+        groupsLoaded = true;
+        XLog.d(TAG, "【数据加载】合并渐进发布的分组 | 新增/更新: " + count + " | 总数: " + groups.size());
+    }
+
     public LiveData<List<PhotoGroup>> getPhotoGroups() {
         return photoGroups;
     }
@@ -81,4 +144,8 @@ public class PhotoGroupViewModel extends AVBAndroidViewModel {
     public LiveData<String> getErrorMessage() {
         return errorMessage;
     }
+
+    public LiveData<ScanProgress> getScanProgress() {
+        return PhotoRepository.getInstance().getScanProgress();
+    }
 }
\ No newline at end of file
@@ -14,6 +14,7 @@ import com.gallery.sweeper.photo.cleaner.data.db.Photo;
 import com.gallery.sweeper.photo.cleaner.data.events.PhotoStatusChangedEvent;
 import com.gallery.sweeper.photo.cleaner.data.events.ReloadGroupEvent;
 import com.gallery.sweeper.photo.cleaner.data.events.TrashEvents;
+import com.gallery.sweeper.photo.cleaner.data.group.GroupBucket;
 
 import org.greenrobot.eventbus.EventBus;
 import org.greenrobot.eventbus.Subscribe;
@@ -180,8 +181,8 @@ public class TrashViewModel extends AVBAndroidViewModel {
     @Subscribe(threadMode = ThreadMode.MAIN)
     public void eventTrashSelectEvents(TrashEvents.selectTrashByGroup event) {
         // 记录分组选择事件日志并更新照片选择状态
-        XLog.d(TAG, "【分组选择】收到选择分组事件 | 类型: " + event.groupType + " | key: " + event.groupKey);
-        updatePhotoSelection(event.groupType, event.groupKey);
+        XLog.d(TAG, "【分组选择】收到选择分组事件 | 类型: " + event.groupType + " | key: " + event.bucket);
+        updatePhotoSelection(event.bucket);
     }
 
 
@@ -243,12 +244,11 @@ public class TrashViewModel extends AVBAndroidViewModel {
 
 
     /**
-     * 根据分组类型和分组键更新照片选中状态
+     * 根据分组键更新照片选中状态
      *
-     * @param groupType 分组类型，用于匹配照片的年份或月份分组
-     * @param groupKey  分组键，可选值为"YEAR"或"MONTH"，表示按年份或月份进行分组匹配
+     * @param bucket 分组键：年份分组选中该年的照片，月份分组选中该月的照片
      */
-    private void updatePhotoSelection(String groupType, String groupKey) {
+    private void updatePhotoSelection(int bucket) {
         List<Photo> current = photos.getValue();
         if (current == null) {
             XLog.w(TAG, "【分组选择】当前照片列表为空");
@@ -262,19 +262,8 @@ public class TrashViewModel extends AVBAndroidViewModel {
         for (Photo photo : current) {
             Photo copy = new Photo(photo);
 
-            boolean match = false;
-
-            if (groupType != null) {
-                switch (groupKey) {
-                    case "YEAR":
-                        match = groupType.contains(photo.getYearGroup());
-                        break;
-                    case "MONTH":
-                        match = groupType.contains(photo.getMonthGroup());
-                        break;
-                }
-                selectedCount += match ? 1 : 0;
-            }
+            boolean match = GroupBucket.contains(bucket, photo.getBucket());
+            selectedCount += match ? 1 : 0;
             copy.setSelected(match);
             updated.add(copy);
         }
@@ -306,7 +295,7 @@ public class TrashViewModel extends AVBAndroidViewModel {
         // 分离选中和未选中的照片
         List<Photo> toRestore = new ArrayList<>();
         List<Photo> remaining = new ArrayList<>();
-        Set<String> affectedGroups = new HashSet<>(); // 受影响的分组集合
+        Set<Integer> affectedGroups = new HashSet<>(); // 受影响的分组集合
 
         for (Photo photo : current) {
             if (photo.isSelected()) {
@@ -354,7 +343,7 @@ public class TrashViewModel extends AVBAndroidViewModel {
         // 分离保留的照片和待删除的照片
         List<Photo> remaining = new ArrayList<>();
         List<Long> toDeleteIds = new ArrayList<>();
-        Set<String> affectedGroups = new HashSet<>(); // 受影响的分组集合
+        Set<Integer> affectedGroups = new HashSet<>(); // 受影响的分组集合
 
         for (Photo photo : current) {
             if (!photo.isSelected()) {
@@ -390,11 +379,11 @@ public class TrashViewModel extends AVBAndroidViewModel {
      * @param affectedGroups 受影响的分组集合，用于存储需要更新的分组键
      * @param photo          照片对象，包含年份和月份分组信息
      */
-    private void addAffectedGroups(Set<String> affectedGroups, Photo photo) {
-        // 年分组键 (格式: "2025")
-        String yearGroupKey = photo.getYearGroup();
-        // 月分组键 (格式: "2025-Feb")
-        String monthGroupKey = photo.getYearGroup() + "-" + photo.getMonthGroup();
+    private void addAffectedGroups(Set<Integer> affectedGroups, Photo photo) {
+        // 年分组键 (格式: 202500)
+        int yearGroupKey = GroupBucket.yearBucketOf(photo.getBucket());
+        // 月分组键 (格式: 202502)
+        int monthGroupKey = photo.getBucket();
 
         // 检查年份和月份分组是否已存在，避免重复添加
         if (affectedGroups.contains(yearGroupKey) && affectedGroups.contains(monthGroupKey)) {
@@ -486,4 +475,11 @@ public class TrashViewModel extends AVBAndroidViewModel {
     public LiveData<String> getErrorMessage() {
         return errorMessage;
     }
+
+    /**
+     * 回收站可释放的空间（字节）
+     */
+    public LiveData<Long> getTrashBytes() {
+        return photoRepository.getTrashBytes();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,225 @@
+package com.gallery.sweeper.photo.cleaner.data;
+
+import android.app.Application;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.gallery.sweeper.photo.cleaner.data.db.Photo;
+import com.gallery.sweeper.photo.cleaner.data.db.PhotoGroup;
+import com.gallery.sweeper.photo.cleaner.data.group.YearRollup;
+import com.gallery.sweeper.photo.cleaner.data.scan.DateBucketer;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 分组聚合查询的对照测试和基准测试
+ * <p>
+ * 对比三种写法：每个分组两次相关子查询（旧写法）、ROW_NUMBER()窗口函数单次扫描、
+ * 当前写法（分组覆盖索引 + 每个月份一次封面ID查找，年份由月份汇总）。基准测试默认跳过，指定行数后运行：
+ * ./gradlew :app:testDebugUnitTest --tests '*GroupAggregationBenchmarkTest*' -Dgallery.fixture.rows=200000
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+@SQLiteMode(SQLiteMode.Mode.NATIVE) // 窗口函数需要SQLite 3.25+
+public class GroupAggregationBenchmarkTest {
+
+    private static final String COUNTERS = "MAX(date_taken) AS latest_photo_timestamp, " +
+            "MIN(date_taken) AS earliest_photo_timestamp, COUNT(*) AS photo_count, " +
+            "SUM(CASE WHEN status = 2 THEN 1 ELSE 0 END) AS trash_count, " +
+            "SUM(CASE WHEN status = 1 THEN 1 ELSE 0 END) AS keep_count, " +
+            "SUM(size) AS total_bytes, SUM(CASE WHEN status = 2 THEN size ELSE 0 END) AS trash_bytes, ";
+
+    // 旧写法：封面路径和封面ID各一次相关子查询
+    private static final String CORRELATED_MONTHS = "SELECT bucket AS group_bucket, " + COUNTERS +
+            "(SELECT path FROM photos p2 WHERE p2.bucket = p.bucket " +
+            " AND status != 2 ORDER BY date_taken DESC, media_store_id DESC LIMIT 1) AS group_cover, " +
+            "(SELECT media_store_id FROM photos p2 WHERE p2.bucket = p.bucket " +
+            " AND status != 2 ORDER BY date_taken DESC, media_store_id DESC LIMIT 1) AS cover_media_id " +
+            "FROM photos p GROUP BY bucket";
+
+    // 年份在SQL里按表达式分组，作为Java汇总年份的对照
+    private static final String CORRELATED_YEARS = "SELECT bucket / 100 * 100 AS group_bucket, " + COUNTERS +
+            "(SELECT path FROM photos p2 WHERE p2.bucket / 100 = p.bucket / 100 " +
+            " AND status != 2 ORDER BY date_taken DESC, media_store_id DESC LIMIT 1) AS group_cover, " +
+            "(SELECT media_store_id FROM photos p2 WHERE p2.bucket / 100 = p.bucket / 100 " +
+            " AND status != 2 ORDER BY date_taken DESC, media_store_id DESC LIMIT 1) AS cover_media_id " +
+            "FROM photos p GROUP BY bucket / 100";
+
+    // 窗口函数写法：按（非回收站优先，拍摄时间倒序）编号，第1行不在回收站时为封面
+    private static final String WINDOW_MONTHS = "SELECT g.*, " +
+            "(SELECT path FROM photos WHERE media_store_id = g.cover_media_id) AS group_cover FROM (" +
+            "SELECT bucket AS group_bucket, " + COUNTERS +
+            "MAX(CASE WHEN rn = 1 AND status != 2 THEN media_store_id END) AS cover_media_id " +
+            "FROM (SELECT media_store_id, date_taken, status, size, bucket, " +
+            " ROW_NUMBER() OVER (PARTITION BY bucket " +
+            " ORDER BY status = 2, date_taken DESC, media_store_id DESC) AS rn FROM photos) " +
+            "GROUP BY bucket) g";
+
+    private static final String WINDOW_YEARS = "SELECT g.*, " +
+            "(SELECT path FROM photos WHERE media_store_id = g.cover_media_id) AS group_cover FROM (" +
+            "SELECT bucket / 100 * 100 AS group_bucket, " + COUNTERS +
+            "MAX(CASE WHEN rn = 1 AND status != 2 THEN media_store_id END) AS cover_media_id " +
+            "FROM (SELECT media_store_id, date_taken, status, size, bucket, " +
+            " ROW_NUMBER() OVER (PARTITION BY bucket / 100 " +
+            " ORDER BY status = 2, date_taken DESC, media_store_id DESC) AS rn FROM photos) " +
+            "GROUP BY bucket / 100) g";
+
+    private static final String CREATE_BUCKET_INDEX = "CREATE INDEX IF NOT EXISTS `index_photos_bucket_date` " +
+            "ON `photos` (`bucket`, `date_taken`, `media_store_id`, `status`, `size`)";
+
+    private PhotoDatabase database;
+    private SupportSQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        Application application = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(application, PhotoDatabase.class)
+                .addCallback(PhotoDatabase.CALLBACK)
+                .allowMainThreadQueries()
+                .build();
+        db = database.getOpenHelper().getWritableDatabase();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void allVariants_produceSameGroups() {
+        populate(5000, 1);
+
+        List<PhotoGroup> monthGroups = database.photoDao().aggregateMonthGroups();
+        List<PhotoGroup> yearGroups = YearRollup.rollUp(monthGroups);
+        List<String> months = snapshot(monthGroups);
+        List<String> years = snapshot(yearGroups);
+        assertEquals(months, snapshot(CORRELATED_MONTHS));
+        assertEquals(months, snapshot(WINDOW_MONTHS));
+        assertEquals(years, snapshot(CORRELATED_YEARS));
+        assertEquals(years, snapshot(WINDOW_YEARS));
+
+        // 按分组键聚合（月份和年份混合，不存在的分组不返回）与全量聚合中的对应行一致
+        PhotoGroup month = monthGroups.get(0);
+        PhotoGroup year = yearGroups.get(yearGroups.size() - 1);
+        assertEquals(snapshot(Arrays.asList(month, year)), snapshot(database.photoDao().aggregateGroups(
+                Arrays.asList(month.bucket, year.bucket, 197001, 197000))));
+    }
+
+    @Test
+    public void benchmark() {
+        int rows = Integer.getInteger("gallery.fixture.rows", 0);
+        Assume.assumeTrue("未指定gallery.fixture.rows，跳过聚合基准测试", rows > 0);
+        populate(rows, 42);
+
+        // 旧写法的对照：只有单列分组索引
+        db.execSQL("DROP INDEX IF EXISTS `index_photos_bucket_date`");
+        db.execSQL("CREATE INDEX `bench_bucket` ON `photos` (`bucket`)");
+        db.execSQL("ANALYZE");
+        long before = time(CORRELATED_MONTHS) + time(CORRELATED_YEARS);
+        long windowNoIndex = time(WINDOW_MONTHS) + time(WINDOW_YEARS);
+
+        db.execSQL("DROP INDEX `bench_bucket`");
+        db.execSQL(CREATE_BUCKET_INDEX);
+        db.execSQL("ANALYZE");
+        long window = time(WINDOW_MONTHS) + time(WINDOW_YEARS);
+        long start = System.nanoTime();
+        List<PhotoGroup> monthGroups = database.photoDao().aggregateMonthGroups();
+        List<PhotoGroup> yearGroups = YearRollup.rollUp(monthGroups);
+        long after = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        System.out.println("【聚合基准】行数: " + rows
+                + " | 旧写法(无覆盖索引): " + before + "ms"
+                + " | 窗口函数(无覆盖索引): " + windowNoIndex + "ms"
+                + " | 窗口函数(覆盖索引): " + window + "ms"
+                + " | 当前写法(覆盖索引): " + after + "ms");
+        assertEquals(snapshot(monthGroups), snapshot(WINDOW_MONTHS));
+        assertEquals(snapshot(yearGroups), snapshot(WINDOW_YEARS));
+    }
+
+    /**
+     * 写入rows张照片：8年内均匀分布，约10%在回收站、10%已保留
+     */
+    private void populate(int rows, long seed) {
+        Random random = new Random(seed);
+        DateBucketer bucketer = new DateBucketer(TimeZone.getDefault());
+        long end = System.currentTimeMillis();
+        long span = TimeUnit.DAYS.toMillis(365L * 8);
+        List<Photo> batch = new ArrayList<>();
+        for (int id = 1; id <= rows; id++) {
+            long taken = end - (long) (random.nextDouble() * span);
+            int bucket = bucketer.bucketOf(taken);
+            Photo photo = new Photo(id, "/DCIM/Camera/IMG_" + id + ".jpg", taken, DateBucketer.yearMonth(bucket));
+            int roll = random.nextInt(10);
+            photo.status = roll == 0 ? Photo.Status.TRASHED : roll == 1 ? Photo.Status.KEEP : Photo.Status.NORMAL;
+            photo.size = 500_000 + random.nextInt(6_000_000);
+            batch.add(photo);
+            if (batch.size() == 1000 || id == rows) {
+                database.photoDao().insertPhotos(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private long time(String sql) {
+        long start = System.nanoTime();
+        snapshot(sql);
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private List<String> snapshot(String sql) {
+        List<String> rows = new ArrayList<>();
+        try (Cursor cursor = db.query(new SimpleSQLiteQuery(sql))) {
+            while (cursor.moveToNext()) {
+                rows.add(row(cursor.getInt(cursor.getColumnIndexOrThrow("group_bucket")),
+                        cursor.getLong(cursor.getColumnIndexOrThrow("photo_count")),
+                        cursor.getLong(cursor.getColumnIndexOrThrow("trash_count")),
+                        cursor.getLong(cursor.getColumnIndexOrThrow("keep_count")),
+                        cursor.getLong(cursor.getColumnIndexOrThrow("total_bytes")),
+                        cursor.getLong(cursor.getColumnIndexOrThrow("trash_bytes")),
+                        cursor.getLong(cursor.getColumnIndexOrThrow("latest_photo_timestamp")),
+                        cursor.getLong(cursor.getColumnIndexOrThrow("earliest_photo_timestamp")),
+                        cursor.getLong(cursor.getColumnIndexOrThrow("cover_media_id")),
+                        cursor.getString(cursor.getColumnIndexOrThrow("group_cover"))));
+            }
+        }
+        Collections.sort(rows);
+        return rows;
+    }
+
+    private static List<String> snapshot(List<PhotoGroup> groups) {
+        List<String> rows = new ArrayList<>();
+        for (PhotoGroup g : groups) {
+            rows.add(row(g.bucket, g.photoCount, g.trashCount, g.keepCount, g.totalBytes, g.trashBytes,
+                    g.latestPhotoTimestamp, g.earliestPhotoTimestamp, g.coverMediaId, g.groupCover));
+        }
+        Collections.sort(rows);
+        return rows;
+    }
+
+    private static String row(int bucket, long photos, long trash, long keep, long bytes, long trashBytes,
+                              long latest, long earliest, long coverId, String cover) {
+        return bucket + "|" + photos + "|" + trash + "|" + keep + "|" + bytes + "|" + trashBytes
+                + "|" + latest + "|" + earliest + "|" + coverId + "|" + cover;
+    }
+}
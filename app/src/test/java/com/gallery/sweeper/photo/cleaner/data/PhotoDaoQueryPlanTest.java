@@ -0,0 +1,272 @@
+package com.gallery.sweeper.photo.cleaner.data;
+
+import android.app.Application;
+import android.database.Cursor;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
+import androidx.room.Room;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.gallery.sweeper.photo.cleaner.data.dao.PhotoDao;
+import com.gallery.sweeper.photo.cleaner.data.dao.PhotoGroupDao;
+import com.gallery.sweeper.photo.cleaner.data.db.Photo;
+import com.gallery.sweeper.photo.cleaner.data.db.PhotoGroup;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * PhotoDao/PhotoGroupDao查询计划回归测试
+ * <p>
+ * 逐个调用DAO的每个数据库方法，通过查询回调拿到实际执行的SQL和参数，再对每条语句执行
+ * EXPLAIN QUERY PLAN：出现全表扫描（SCAN TABLE）或临时B树排序（USE TEMP B-TREE）即失败，
+ * 除非该方法在{@link #FULL_SCAN_BY_DESIGN}中说明了原因。新增查询时无需修改本测试。
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class PhotoDaoQueryPlanTest {
+
+    /**
+     * 有意读取整张表的方法及原因
+     */
+    private static final Map<String, String> FULL_SCAN_BY_DESIGN = new HashMap<>();
+
+    static {
+        FULL_SCAN_BY_DESIGN.put("PhotoDao.getAllPhotosSync", "读取全部照片");
+        FULL_SCAN_BY_DESIGN.put("PhotoDao.getIdsByVolumeCursor", "按主键顺序流式读取一个卷的全部ID与媒体库对账");
+        FULL_SCAN_BY_DESIGN.put("PhotoGroupDao.getAllGroups", "读取全部分组（行数即分组数）");
+        FULL_SCAN_BY_DESIGN.put("PhotoGroupDao.getAllGroupsSync", "读取全部分组（行数即分组数）");
+        FULL_SCAN_BY_DESIGN.put("PhotoGroupDao.deleteAllGroups", "清空分组表");
+    }
+
+    // 旧版SQLite："SCAN TABLE photos AS p"，新版："SCAN p"；带USING INDEX的扫描不匹配
+    private static final Pattern TABLE_SCAN = Pattern.compile("^SCAN (?:TABLE )?(\\S+)(?: AS (\\S+))?$");
+    private static final Pattern DERIVED = Pattern.compile("^(?:CO-ROUTINE|MATERIALIZE) (\\S+)");
+
+    private PhotoDatabase database;
+    private SupportSQLiteDatabase db;
+
+    private final List<Statement> captured = new ArrayList<>();
+    private boolean capturing;
+
+    private static final class Statement {
+        final String sql;
+        final Object[] args;
+
+        Statement(String sql, List<Object> args) {
+            this.sql = sql;
+            this.args = args.toArray();
+        }
+    }
+
+    @Before
+    public void setUp() {
+        Application application = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(application, PhotoDatabase.class)
+                .addCallback(PhotoDatabase.CALLBACK)
+                .allowMainThreadQueries()
+                .setQueryExecutor(Runnable::run) // LiveData查询同步执行
+                .setQueryCallback((sql, args) -> {
+                    if (capturing && isDaoStatement(sql)) {
+                        captured.add(new Statement(sql, args));
+                    }
+                }, Runnable::run)
+                .build();
+        db = database.getOpenHelper().getWritableDatabase();
+
+        List<Photo> photos = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            photos.add(photo(i));
+        }
+        database.photoDao().insertPhotos(photos);
+        database.photoGroupDao().insertGroups(Collections.singletonList(group()));
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void photoDao_usesIndexes() throws Exception {
+        assertQueryPlans(PhotoDao.class, database.photoDao());
+    }
+
+    @Test
+    public void photoGroupDao_usesIndexes() throws Exception {
+        assertQueryPlans(PhotoGroupDao.class, database.photoGroupDao());
+    }
+
+    private void assertQueryPlans(Class<?> daoClass, Object dao) throws Exception {
+        List<String> violations = new ArrayList<>();
+        List<Method> methods = new ArrayList<>(Arrays.asList(daoClass.getDeclaredMethods()));
+        methods.sort(Comparator.comparing(Method::getName));
+        for (Method method : methods) {
+            if (!Modifier.isAbstract(method.getModifiers())) {
+                continue; // default方法由其调用的抽象方法覆盖
+            }
+            String name = daoClass.getSimpleName() + "." + method.getName();
+            List<Statement> statements = invoke(method, dao);
+            assertTrue(name + " 没有执行任何语句", !statements.isEmpty());
+
+            for (Statement statement : statements) {
+                List<String> plan = explain(statement);
+                for (String problem : problems(plan)) {
+                    if (!FULL_SCAN_BY_DESIGN.containsKey(name)) {
+                        violations.add(name + ": " + problem + "\n    " + statement.sql + "\n    " + plan);
+                    }
+                }
+            }
+        }
+        if (!violations.isEmpty()) {
+            fail("以下查询没有走索引：\n" + String.join("\n", violations));
+        }
+    }
+
+    /**
+     * 调用方法并返回其执行的语句
+     */
+    private List<Statement> invoke(Method method, Object dao) throws Exception {
+        Type[] types = method.getGenericParameterTypes();
+        Object[] args = new Object[types.length];
+        for (int i = 0; i < types.length; i++) {
+            args[i] = argumentOf(types[i]);
+        }
+
+        captured.clear();
+        capturing = true;
+        try {
+            Object result = method.invoke(dao, args);
+            if (result instanceof LiveData) {
+                // LiveData在有观察者时才执行查询
+                Observer<Object> observer = value -> {
+                };
+                @SuppressWarnings("unchecked")
+                LiveData<Object> liveData = (LiveData<Object>) result;
+                liveData.observeForever(observer);
+                liveData.removeObserver(observer);
+            } else if (result instanceof Cursor) {
+                ((Cursor) result).close();
+            }
+        } finally {
+            capturing = false;
+        }
+        return new ArrayList<>(captured);
+    }
+
+    private List<String> explain(Statement statement) {
+        List<String> plan = new ArrayList<>();
+        try (Cursor cursor = db.query(new SimpleSQLiteQuery("EXPLAIN QUERY PLAN " + statement.sql, statement.args))) {
+            while (cursor.moveToNext()) {
+                plan.add(cursor.getString(3));
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * 计划中的全表扫描和临时B树排序（扫描子查询结果不算全表扫描）
+     */
+    private static List<String> problems(List<String> plan) {
+        Set<String> derived = new HashSet<>();
+        for (String detail : plan) {
+            Matcher matcher = DERIVED.matcher(detail);
+            if (matcher.find()) {
+                derived.add(matcher.group(1));
+            }
+        }
+        List<String> problems = new ArrayList<>();
+        for (String detail : plan) {
+            Matcher matcher = TABLE_SCAN.matcher(detail);
+            if (matcher.matches()) {
+                String table = matcher.group(2) != null ? matcher.group(2) : matcher.group(1);
+                if (!derived.contains(table) && !table.startsWith("(") && !table.startsWith("SUBQUERY")) {
+                    problems.add(detail);
+                }
+            } else if (detail.contains("USE TEMP B-TREE")) {
+                problems.add(detail);
+            }
+        }
+        return problems;
+    }
+
+    // 只检查DAO语句，忽略事务控制和Room失效跟踪表的维护语句
+    private static boolean isDaoStatement(String sql) {
+        String head = sql.trim().toUpperCase();
+        return (head.startsWith("SELECT") || head.startsWith("UPDATE") || head.startsWith("DELETE")
+                || head.startsWith("INSERT") || head.startsWith("WITH"))
+                && !sql.contains("room_table_modification_log") && !sql.contains("room_master_table");
+    }
+
+    private static Object argumentOf(Type type) {
+        if (type instanceof ParameterizedType) {
+            Type element = ((ParameterizedType) type).getActualTypeArguments()[0];
+            if (element == Integer.class) {
+                return Arrays.asList(202501, 202502, 202500);
+            } else if (element == Long.class) {
+                return Arrays.asList(1L, 2L, 3L);
+            } else if (element == Photo.class) {
+                return Collections.singletonList(photo(100));
+            } else if (element == PhotoGroup.class) {
+                return Collections.singletonList(group());
+            }
+        } else if (type == String.class) {
+            return "2025";
+        } else if (type == long.class) {
+            return 1L;
+        } else if (type == int.class) {
+            return 202501;
+        } else if (type == boolean.class) {
+            return false;
+        } else if (type == Photo.Status.class) {
+            return Photo.Status.TRASHED;
+        } else if (type == Photo.class) {
+            return photo(1);
+        } else if (type == PhotoGroup.class) {
+            return group();
+        }
+        throw new IllegalArgumentException("不支持的参数类型: " + type);
+    }
+
+    private static Photo photo(long id) {
+        Photo photo = new Photo(id, "/DCIM/IMG_" + id + ".jpg", id * 1000, id % 2 == 0 ? 202501 : 202502);
+        photo.size = id * 100;
+        photo.status = id % 5 == 0 ? Photo.Status.TRASHED : Photo.Status.NORMAL;
+        return photo;
+    }
+
+    private static PhotoGroup group() {
+        PhotoGroup group = new PhotoGroup();
+        group.bucket = 202501;
+        group.groupType = GroupType.MONTH.toString();
+        return group;
+    }
+}
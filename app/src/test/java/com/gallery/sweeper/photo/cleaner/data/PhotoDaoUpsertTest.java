@@ -0,0 +1,137 @@
+package com.gallery.sweeper.photo.cleaner.data;
+
+import android.app.Application;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.gallery.sweeper.photo.cleaner.data.dao.PhotoDao;
+import com.gallery.sweeper.photo.cleaner.data.dao.ScannedPhotoWriter;
+import com.gallery.sweeper.photo.cleaner.data.db.Photo;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 扫描写入回归测试：重新扫描不能覆盖用户的滑动状态（KEEP/TRASHED）
+ * <p>
+ * 写入方式按系统版本选择：sdk 30走原生UPSERT，sdk 28走INSERT OR IGNORE + UPDATE
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+@SQLiteMode(SQLiteMode.Mode.NATIVE) // 原生UPSERT需要SQLite 3.24+
+public class PhotoDaoUpsertTest {
+    private PhotoDatabase database;
+    private PhotoDao photoDao;
+    private ScannedPhotoWriter writer;
+
+    @Before
+    public void setUp() {
+        Application application = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(application, PhotoDatabase.class)
+                .addCallback(PhotoDatabase.CALLBACK)
+                .allowMainThreadQueries()
+                .build();
+        photoDao = database.photoDao();
+        writer = new ScannedPhotoWriter(database, photoDao);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    @Config(sdk = 30)
+    public void rescanPreservesStatus_nativeUpsert() {
+        assertRescanPreservesStatus();
+    }
+
+    @Test
+    public void rescanPreservesStatus_legacyFallback() {
+        assertRescanPreservesStatus();
+    }
+
+    @Test
+    @Config(sdk = 30)
+    public void largeBatchSpansStatements_nativeUpsert() {
+        assertLargeBatch();
+    }
+
+    @Test
+    public void largeBatchSpansStatements_legacyFallback() {
+        assertLargeBatch();
+    }
+
+    /**
+     * 一批超过单条语句的行数上限：多条整块语句加一条不足一块的语句，新旧照片交错
+     */
+    private void assertLargeBatch() {
+        List<Photo> first = new ArrayList<>();
+        for (int id = 1; id <= 500; id += 2) {
+            first.add(new Photo(id, "/sdcard/DCIM/" + id + ".jpg", id * 1000L, 202401));
+        }
+        assertEquals(250, writer.write(first));
+        photoDao.updateStatus(99, Photo.Status.TRASHED);
+
+        List<Photo> second = new ArrayList<>();
+        for (int id = 1; id <= 500; id++) {
+            second.add(new Photo(id, "/sdcard/Pictures/" + id + ".jpg", id * 1000L, 202402));
+        }
+        assertEquals(250, writer.write(second));
+
+        assertEquals(500, photoDao.getAllPhotosSync().size());
+        Photo trashed = photoDao.getPhotoByIdSync(99);
+        assertEquals(Photo.Status.TRASHED, trashed.status);
+        assertEquals("/sdcard/Pictures/99.jpg", trashed.path);
+        assertEquals(202402, trashed.bucket);
+        assertEquals(Photo.Status.NORMAL, photoDao.getPhotoByIdSync(500).status);
+    }
+
+    private void assertRescanPreservesStatus() {
+        // 首次扫描：全部新增
+        int inserted = writer.write(Arrays.asList(
+                new Photo(1, "/sdcard/DCIM/a.jpg", 1000L, 202401),
+                new Photo(2, "/sdcard/DCIM/b.jpg", 2000L, 202401),
+                new Photo(3, "/sdcard/DCIM/c.jpg", 3000L, 202402)));
+        assertEquals(3, inserted);
+
+        // 用户滑动
+        photoDao.updateStatus(1, Photo.Status.KEEP);
+        photoDao.updateStatus(2, Photo.Status.TRASHED);
+
+        // 重新扫描：文件被移动、时间被修正，并出现一张新照片
+        inserted = writer.write(Arrays.asList(
+                new Photo(1, "/sdcard/Pictures/a.jpg", 1000L, 202401),
+                new Photo(2, "/sdcard/DCIM/b.jpg", 5000L, 202403),
+                new Photo(3, "/sdcard/DCIM/c.jpg", 3000L, 202402),
+                new Photo(4, "/sdcard/DCIM/d.jpg", 4000L, 202402)));
+        assertEquals(1, inserted);
+
+        Photo kept = photoDao.getPhotoByIdSync(1);
+        assertEquals(Photo.Status.KEEP, kept.status);
+        assertEquals("/sdcard/Pictures/a.jpg", kept.path);
+
+        Photo trashed = photoDao.getPhotoByIdSync(2);
+        assertEquals(Photo.Status.TRASHED, trashed.status);
+        assertEquals(5000L, trashed.dateTaken);
+        assertEquals(202403, trashed.bucket);
+
+        assertEquals(Photo.Status.NORMAL, photoDao.getPhotoByIdSync(3).status);
+        assertEquals(Photo.Status.NORMAL, photoDao.getPhotoByIdSync(4).status);
+
+        List<Photo> all = photoDao.getAllPhotosSync();
+        assertEquals(4, all.size());
+    }
+}
@@ -0,0 +1,301 @@
+package com.gallery.sweeper.photo.cleaner.data;
+
+import android.app.Application;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.gallery.sweeper.photo.cleaner.data.dao.PhotoDao;
+import com.gallery.sweeper.photo.cleaner.data.dao.PhotoGroupDao;
+import com.gallery.sweeper.photo.cleaner.data.dao.ScannedPhotoWriter;
+import com.gallery.sweeper.photo.cleaner.data.db.Photo;
+import com.gallery.sweeper.photo.cleaner.data.db.PhotoGroup;
+import com.gallery.sweeper.photo.cleaner.data.group.GroupBucket;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 照片表触发器维护的分组计数测试：随机操作序列后计数与照片表完全一致
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class PhotoGroupCounterTriggerTest {
+
+    private static final int[] YEARS = {2024, 2025};
+    private static final int[] MONTHS = {1, 2, 3};
+    private static final Photo.Status[] STATUSES = Photo.Status.values();
+
+    private PhotoDatabase database;
+    private PhotoDao photoDao;
+    private PhotoGroupDao groupDao;
+
+    // 期望的照片表内容
+    private final Map<Long, Photo> photos = new HashMap<>();
+    private final Random random = new Random(7);
+    private long nextId = 1;
+
+    @Before
+    public void setUp() {
+        Application application = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(application, PhotoDatabase.class)
+                .addCallback(PhotoDatabase.CALLBACK)
+                .allowMainThreadQueries()
+                .build();
+        photoDao = database.photoDao();
+        groupDao = database.photoGroupDao();
+
+        // 触发器只更新已存在的分组行
+        List<PhotoGroup> groups = new ArrayList<>();
+        for (int year : YEARS) {
+            groups.add(group(GroupBucket.ofYear(year)));
+            for (int month : MONTHS) {
+                groups.add(group(GroupBucket.ofMonth(year, month)));
+            }
+        }
+        groupDao.insertGroups(groups);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void singleOperations_updateMonthAndYear() {
+        Photo photo = randomPhoto();
+        photo.bucket = 202502;
+        photoDao.insertPhoto(photo);
+        photos.put(photo.mediaStoreId, photo);
+        assertCounters();
+
+        photoDao.updateStatus(photo.mediaStoreId, Photo.Status.TRASHED);
+        photo.status = Photo.Status.TRASHED;
+        PhotoGroup month = groupDao.getGroupByKeySync(202502);
+        assertEquals(1, month.trashCount);
+        assertEquals(photo.size, month.trashBytes);
+        assertEquals(1, groupDao.getGroupByKeySync(202500).trashCount);
+
+        photoDao.deletePhotosByIds(Collections.singletonList(photo.mediaStoreId));
+        photos.remove(photo.mediaStoreId);
+        assertCounters();
+    }
+
+    @Test
+    public void randomOperations_keepCountersExact() {
+        for (int i = 0; i < 3000; i++) {
+            int op = photos.isEmpty() ? 0 : random.nextInt(7);
+            switch (op) {
+                case 0:
+                    insertBatch();
+                    break;
+                case 1:
+                    updateStatus();
+                    break;
+                case 2:
+                    batchUpdateStatus();
+                    break;
+                case 3:
+                    rescan();
+                    break;
+                case 4:
+                    updatePhoto();
+                    break;
+                case 5:
+                    deleteBatch();
+                    break;
+                default:
+                    deleteSingle();
+                    break;
+            }
+            if (i % 100 == 0) {
+                assertCounters();
+            }
+        }
+        assertCounters();
+    }
+
+    @Test
+    public void rolledBackTransaction_leavesCountersUnchanged() {
+        insertBatch();
+        assertCounters();
+        Photo photo = photos.values().iterator().next();
+        try {
+            database.runInTransaction(() -> {
+                photoDao.updateStatus(photo.mediaStoreId, Photo.Status.TRASHED);
+                photoDao.deletePhotosByIds(new ArrayList<>(photos.keySet()));
+                throw new IllegalStateException("回滚");
+            });
+        } catch (IllegalStateException expected) {
+            // 事务回滚，触发器的修改一起撤销
+        }
+        assertCounters();
+    }
+
+    // ====================== 随机操作 ======================
+
+    private void insertBatch() {
+        int count = 1 + random.nextInt(20);
+        List<Photo> batch = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Photo photo = randomPhoto();
+            photo.status = STATUSES[random.nextInt(STATUSES.length)];
+            batch.add(photo);
+        }
+        photoDao.insertPhotos(batch);
+        for (Photo photo : batch) {
+            photos.put(photo.mediaStoreId, new Photo(photo));
+        }
+    }
+
+    private void updateStatus() {
+        Photo photo = anyPhoto();
+        Photo.Status status = STATUSES[random.nextInt(STATUSES.length)];
+        photoDao.updateStatus(photo.mediaStoreId, status);
+        photo.status = status;
+    }
+
+    private void batchUpdateStatus() {
+        List<Long> ids = new ArrayList<>();
+        Photo.Status status = STATUSES[random.nextInt(STATUSES.length)];
+        int count = 1 + random.nextInt(10);
+        for (int i = 0; i < count; i++) {
+            Photo photo = anyPhoto();
+            if (!ids.contains(photo.mediaStoreId)) {
+                ids.add(photo.mediaStoreId);
+            }
+            photo.status = status;
+        }
+        photoDao.batchUpdateStatus(ids, status);
+    }
+
+    /**
+     * 扫描写入：已有照片可能换分组、换大小（状态保持），新照片为NORMAL
+     */
+    private void rescan() {
+        List<Photo> batch = new ArrayList<>();
+        int count = 1 + random.nextInt(10);
+        for (int i = 0; i < count; i++) {
+            Photo scanned = random.nextInt(3) == 0 ? randomPhoto() : moved(anyPhoto());
+            scanned.status = Photo.Status.NORMAL;
+            batch.add(scanned);
+        }
+        new ScannedPhotoWriter(database, photoDao, false).write(batch);
+        for (Photo scanned : batch) {
+            Photo existing = photos.get(scanned.mediaStoreId);
+            Photo.Status status = existing != null ? existing.status : Photo.Status.NORMAL;
+            Photo stored = new Photo(scanned);
+            stored.status = status;
+            photos.put(stored.mediaStoreId, stored);
+        }
+    }
+
+    private void updatePhoto() {
+        Photo photo = moved(anyPhoto());
+        photo.status = STATUSES[random.nextInt(STATUSES.length)];
+        photoDao.updatePhotos(Collections.singletonList(photo));
+        photos.put(photo.mediaStoreId, photo);
+    }
+
+    private void deleteBatch() {
+        List<Long> ids = new ArrayList<>();
+        int count = 1 + random.nextInt(5);
+        for (int i = 0; i < count; i++) {
+            ids.add(anyPhoto().mediaStoreId);
+        }
+        ids.add(nextId + 1000); // 不存在的ID
+        photoDao.deletePhotosByIds(ids);
+        for (Long id : ids) {
+            photos.remove(id);
+        }
+    }
+
+    private void deleteSingle() {
+        Photo photo = anyPhoto();
+        photoDao.deletePhoto(photo);
+        photos.remove(photo.mediaStoreId);
+    }
+
+    private Photo randomPhoto() {
+        long id = nextId++;
+        Photo photo = new Photo(id, "/DCIM/IMG_" + id + ".jpg", 0, 0);
+        place(photo);
+        return photo;
+    }
+
+    private Photo moved(Photo photo) {
+        Photo copy = new Photo(photo);
+        if (random.nextBoolean()) {
+            place(copy);
+        } else {
+            copy.size = 1 + random.nextInt(5_000_000);
+        }
+        return copy;
+    }
+
+    private void place(Photo photo) {
+        photo.bucket = GroupBucket.ofMonth(YEARS[random.nextInt(YEARS.length)], MONTHS[random.nextInt(MONTHS.length)]);
+        photo.dateTaken = random.nextInt(Integer.MAX_VALUE);
+        photo.size = 1 + random.nextInt(5_000_000);
+    }
+
+    private Photo anyPhoto() {
+        List<Long> ids = new ArrayList<>(photos.keySet());
+        Collections.sort(ids); // HashMap遍历顺序不影响可重复性
+        return photos.get(ids.get(random.nextInt(ids.size())));
+    }
+
+    // ====================== 校验 ======================
+
+    private void assertCounters() {
+        Map<Integer, long[]> expected = new HashMap<>();
+        for (Photo photo : photos.values()) {
+            count(expected, photo.bucket, photo);
+            count(expected, GroupBucket.yearBucketOf(photo.bucket), photo);
+        }
+        for (PhotoGroup group : groupDao.getAllGroupsSync()) {
+            long[] counts = expected.containsKey(group.bucket) ? expected.get(group.bucket) : new long[5];
+            assertEquals(group.bucket + " 照片数", counts[0], group.photoCount);
+            assertEquals(group.bucket + " 回收站", counts[1], group.trashCount);
+            assertEquals(group.bucket + " 保留", counts[2], group.keepCount);
+            assertEquals(group.bucket + " 字节", counts[3], group.totalBytes);
+            assertEquals(group.bucket + " 回收站字节", counts[4], group.trashBytes);
+        }
+    }
+
+    private static void count(Map<Integer, long[]> expected, int bucket, Photo photo) {
+        long[] counts = expected.get(bucket);
+        if (counts == null) {
+            counts = new long[5];
+            expected.put(bucket, counts);
+        }
+        counts[0]++;
+        counts[3] += photo.size;
+        if (photo.status == Photo.Status.TRASHED) {
+            counts[1]++;
+            counts[4] += photo.size;
+        } else if (photo.status == Photo.Status.KEEP) {
+            counts[2]++;
+        }
+    }
+
+    private static PhotoGroup group(int bucket) {
+        PhotoGroup group = new PhotoGroup();
+        group.bucket = bucket;
+        group.groupType = GroupBucket.typeOf(bucket).toString();
+        return group;
+    }
+}
@@ -0,0 +1,478 @@
+package com.gallery.sweeper.photo.cleaner.data;
+
+import android.Manifest;
+import android.app.Application;
+import android.database.Cursor;
+import android.provider.MediaStore;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.gallery.sweeper.photo.cleaner.data.db.Photo;
+import com.gallery.sweeper.photo.cleaner.data.db.PhotoGroup;
+import com.gallery.sweeper.photo.cleaner.data.fixture.FakeMediaStoreProvider;
+import com.gallery.sweeper.photo.cleaner.data.fixture.SyntheticGallery;
+import com.gallery.sweeper.photo.cleaner.data.group.GroupBucket;
+import com.gallery.sweeper.photo.cleaner.data.scan.DateBucketer;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * 使用合成图库在JVM上运行扫描、分组初始化和状态更新
+ * <p>
+ * 大图库测试默认跳过，指定行数后运行：
+ * ./gradlew :app:testDebugUnitTest --tests '*PhotoRepositoryGalleryTest*' -Dgallery.fixture.rows=200000
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class PhotoRepositoryGalleryTest {
+
+    private static final long TIMEOUT_SECONDS = 600; // 大图库扫描耗时较长
+    private static final String CARD_VOLUME = "1234-5678"; // SD卡卷名
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Application application;
+    private FakeMediaStoreProvider mediaStore;
+    private PhotoDatabase database;
+    private PhotoRepository repository;
+
+    @Before
+    public void setUp() {
+        application = ApplicationProvider.getApplicationContext();
+        shadowOf(application).grantPermissions(Manifest.permission.READ_EXTERNAL_STORAGE);
+        mediaStore = Robolectric.setupContentProvider(FakeMediaStoreProvider.class, MediaStore.AUTHORITY);
+        database = Room.inMemoryDatabaseBuilder(application, PhotoDatabase.class)
+                .addCallback(PhotoDatabase.CALLBACK)
+                .allowMainThreadQueries()
+                .build();
+        repository = new PhotoRepository(application, database);
+    }
+
+    @After
+    public void tearDown() {
+        repository.shutdown();
+        database.close();
+    }
+
+    @Test
+    public void scan_importsLivePhotosAndBuildsGroups() throws Exception {
+        SyntheticGallery gallery = install(SyntheticGallery.builder()
+                .rows(5000)
+                .missingDateRatio(0.02)
+                .missingFileRatio(0.05)
+                .duplicateIds(50));
+
+        scan(null);
+
+        assertEquals(gallery.liveIds(), localIds());
+        assertGroupsMatch(gallery);
+    }
+
+    @Test
+    public void pagedAndSingleCursorScans_importSameRows() throws Exception {
+        SyntheticGallery gallery = install(SyntheticGallery.builder()
+                .rows(4500)
+                .distribution(SyntheticGallery.DateDistribution.BURSTS)
+                .missingDateRatio(0.05)
+                .duplicateIds(20));
+
+        repository.setPagedScanEnabled(false);
+        scan(ScanMode.FULL);
+        assertEquals(gallery.liveIds(), localIds());
+
+        database.clearAllTables();
+        repository.setPagedScanEnabled(true);
+        scan(ScanMode.FULL);
+        assertEquals(gallery.liveIds(), localIds());
+        assertGroupsMatch(gallery);
+    }
+
+    @Test
+    public void rescanAndInitializeGroups_areIdempotent() throws Exception {
+        SyntheticGallery gallery = install(SyntheticGallery.builder()
+                .rows(3000)
+                .distribution(SyntheticGallery.DateDistribution.UNIFORM)
+                .missingFileRatio(0.1));
+
+        scan(null);
+        List<String> groups = groupSnapshot();
+
+        scan(null); // 已有水位线，执行增量扫描
+        assertEquals(groups, groupSnapshot());
+        assertGroupsMatchRepair();
+
+        assertEquals(gallery.liveIds(), localIds());
+    }
+
+    @Test
+    public void deletedFromMediaStore_isReconciledOnRescan() throws Exception {
+        SyntheticGallery gallery = install(SyntheticGallery.builder().rows(2000));
+        scan(null);
+
+        List<Long> removed = new ArrayList<>(gallery.liveIds()).subList(0, 100);
+        mediaStore.deleteRows(removed);
+        scan(null);
+
+        Set<Long> expected = new HashSet<>(gallery.liveIds());
+        expected.removeAll(removed);
+        assertEquals(expected, localIds());
+        for (long id : removed) {
+            assertNull(database.photoDao().getPhotoByIdSync(id));
+        }
+        assertGroupsMatchRepair();
+    }
+
+    @Test
+    public void implausibleOrphanFraction_isNotReconciled() throws Exception {
+        SyntheticGallery gallery = install(SyntheticGallery.builder().rows(1000));
+        scan(null);
+
+        // 媒体库只返回了不到一半的记录（如正在重建索引），不能据此删除本地数据
+        List<Long> liveIds = new ArrayList<>(gallery.liveIds());
+        mediaStore.deleteRows(liveIds.subList(0, liveIds.size() * 2 / 3));
+        scan(null);
+        repository.syncMediaChanges(application, Collections.emptySet(), true);
+        repository.awaitIdle(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        assertEquals(gallery.liveIds(), localIds());
+    }
+
+    @Test
+    public void unmountedVolume_keepsItsPhotosAndStatuses() throws Exception {
+        // 主存储和SD卡两个卷，_ID在卷间唯一
+        SyntheticGallery gallery = SyntheticGallery.builder().rows(1500).build(folder.getRoot());
+        List<SyntheticGallery.MediaRow> primaryRows = new ArrayList<>();
+        List<SyntheticGallery.MediaRow> cardRows = new ArrayList<>();
+        for (SyntheticGallery.MediaRow row : gallery.rows()) {
+            (row.id % 3 == 0 ? cardRows : primaryRows).add(row);
+        }
+        mediaStore.insertRows(FakeMediaStoreProvider.PRIMARY_VOLUME, primaryRows);
+        mediaStore.insertRows(CARD_VOLUME, cardRows);
+        repository.setScanVolumes(Arrays.asList(FakeMediaStoreProvider.PRIMARY_VOLUME, CARD_VOLUME));
+        scan(null);
+        assertEquals(gallery.liveIds(), localIds());
+
+        // SD卡上的照片已被滑动
+        List<Long> cardIds = new ArrayList<>();
+        for (SyntheticGallery.MediaRow row : cardRows) {
+            if (row.fileExists && !cardIds.contains(row.id)) {
+                cardIds.add(row.id);
+            }
+        }
+        Collections.sort(cardIds);
+        List<Long> swiped = cardIds.subList(0, 20);
+        for (int i = 0; i < swiped.size(); i++) {
+            repository.updatePhotoStatus(swiped.get(i), i % 2 == 0 ? Photo.Status.TRASHED : Photo.Status.KEEP)
+                    .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+
+        // SD卡移除：该卷查询返回null，主存储仍有记录，扫描和变化同步都不能删除SD卡上的照片
+        mediaStore.setVolumeAvailable(CARD_VOLUME, false);
+        scan(null);
+        repository.syncMediaChanges(application, Collections.emptySet(), true);
+        repository.syncMediaChanges(application, new HashSet<>(swiped), false);
+        repository.awaitIdle(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertEquals(gallery.liveIds(), localIds());
+        for (int i = 0; i < swiped.size(); i++) {
+            assertEquals(i % 2 == 0 ? Photo.Status.TRASHED : Photo.Status.KEEP,
+                    database.photoDao().getPhotoByIdSync(swiped.get(i)).status);
+        }
+
+        // 重新挂载后SD卡上删除的照片仍按卷对账清除
+        mediaStore.setVolumeAvailable(CARD_VOLUME, true);
+        List<Long> removed = cardIds.subList(swiped.size(), swiped.size() + 30);
+        mediaStore.deleteRows(removed);
+        scan(null);
+        Set<Long> expected = new HashSet<>(gallery.liveIds());
+        expected.removeAll(removed);
+        assertEquals(expected, localIds());
+        assertEquals(Photo.Status.TRASHED, database.photoDao().getPhotoByIdSync(swiped.get(0)).status);
+        assertGroupsMatchRepair();
+    }
+
+    @Test
+    public void changeSync_scansOnlyVolumesWithoutWatermark() throws Exception {
+        SyntheticGallery gallery = SyntheticGallery.builder().rows(1200).build(folder.getRoot());
+        List<SyntheticGallery.MediaRow> primaryRows = new ArrayList<>();
+        List<SyntheticGallery.MediaRow> cardRows = new ArrayList<>();
+        for (SyntheticGallery.MediaRow row : gallery.rows()) {
+            (row.id % 3 == 0 ? cardRows : primaryRows).add(row);
+        }
+        mediaStore.insertRows(FakeMediaStoreProvider.PRIMARY_VOLUME, primaryRows);
+        repository.setScanVolumes(Collections.singletonList(FakeMediaStoreProvider.PRIMARY_VOLUME));
+        scan(null);
+        Set<Long> primaryIds = new HashSet<>(localIds());
+
+        // SD卡挂载后还没有水位线；主存储上删除的照片仍按ID同步
+        mediaStore.insertRows(CARD_VOLUME, cardRows);
+        repository.setScanVolumes(Arrays.asList(FakeMediaStoreProvider.PRIMARY_VOLUME, CARD_VOLUME));
+        List<Long> removed = new ArrayList<>(primaryIds).subList(0, 10);
+        mediaStore.deleteRows(removed);
+        repository.syncMediaChanges(application, new HashSet<>(removed), false);
+        repository.awaitIdle(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        Set<Long> expected = new HashSet<>(gallery.liveIds());
+        expected.removeAll(removed);
+        assertEquals(expected, localIds());
+        assertNotNull(database.scanStateDao().getStateSync(CARD_VOLUME));
+        assertGroupsMatchRepair();
+    }
+
+    @Test
+    public void contentUri_pointsAtPhotoVolume() {
+        Photo card = new Photo(42, "/storage/1234-5678/DCIM/a.jpg", 1000L, 202401);
+        card.volumeName = CARD_VOLUME;
+        assertEquals(MediaStore.Images.Media.getContentUri(CARD_VOLUME).buildUpon().appendPath("42").build(),
+                PhotoRepository.contentUriOf(card));
+
+        // 迁移前写入的记录所在卷未知，按外部存储删除
+        Photo legacy = new Photo(42, "/sdcard/DCIM/a.jpg", 1000L, 202401);
+        assertEquals(MediaStore.Images.Media.EXTERNAL_CONTENT_URI.buildUpon().appendPath("42").build(),
+                PhotoRepository.contentUriOf(legacy));
+    }
+
+    @Test
+    public void statusUpdates_updateGroupCountsAndTrashBytes() throws Exception {
+        SyntheticGallery gallery = install(SyntheticGallery.builder().rows(1000));
+        scan(null);
+
+        SyntheticGallery.MediaRow trashed = gallery.liveRows().get(0);
+        SyntheticGallery.MediaRow kept = gallery.liveRows().get(1);
+        repository.updatePhotoStatus(trashed.id, Photo.Status.TRASHED);
+        repository.updatePhotoStatus(kept.id, Photo.Status.KEEP);
+        repository.awaitIdle(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        assertEquals(trashed.size, database.photoDao().getTrashBytesSync());
+        Photo photo = database.photoDao().getPhotoByIdSync(trashed.id);
+        PhotoGroup month = database.photoGroupDao().getGroupByKeySync(photo.bucket);
+        assertNotNull(month);
+        assertEquals(1, month.trashCount);
+        assertEquals(trashed.size, month.trashBytes);
+        PhotoGroup year = database.photoGroupDao().getGroupByKeySync(GroupBucket.yearBucketOf(photo.bucket));
+        assertEquals(1, year.trashCount);
+        assertEquals(Photo.Status.KEEP, database.photoDao().getPhotoByIdSync(kept.id).status);
+
+        repository.updatePhotoStatus(trashed.id, Photo.Status.NORMAL);
+        repository.awaitIdle(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertEquals(0, database.photoDao().getTrashBytesSync());
+        assertEquals(0, database.photoGroupDao().getGroupByKeySync(month.bucket).trashCount);
+        assertGroupsMatchRepair();
+    }
+
+    @Test
+    public void swipeDuringScan_isNotQueuedBehindScan() throws Exception {
+        SyntheticGallery gallery = install(SyntheticGallery.builder().rows(5000));
+        scan(null);
+        int bucket = database.photoDao().getPhotoByIdSync(gallery.liveRows().get(0).id).bucket;
+        List<Photo> photos = database.photoDao().getPhotosByMonthSync(bucket);
+        int swipes = Math.min(6, photos.size());
+
+        // 全量重新扫描停在第二次媒体库查询上，工作线程被扫描占用
+        CountDownLatch gate = new CountDownLatch(1);
+        CountDownLatch held = mediaStore.holdQueries(1, gate);
+        repository.scanMediaStore(application, ScanMode.FULL);
+        long trashBytes = 0;
+        try {
+            assertTrue(held.await(5, TimeUnit.SECONDS));
+
+            // 扫描进行中滑动同一个月份分组的照片，写入不等扫描结束
+            for (int i = 0; i < swipes; i++) {
+                Photo.Status status = i % 2 == 0 ? Photo.Status.TRASHED : Photo.Status.KEEP;
+                repository.updatePhotoStatus(photos.get(i).mediaStoreId, status).get(5, TimeUnit.SECONDS);
+                if (status == Photo.Status.TRASHED) {
+                    trashBytes += photos.get(i).size;
+                }
+            }
+
+            PhotoGroup month = repository.getGroupByKeySync(bucket);
+            assertEquals((swipes + 1) / 2, month.trashCount);
+            assertEquals(swipes / 2, month.keepCount);
+            assertEquals(trashBytes, month.trashBytes);
+        } finally {
+            gate.countDown();
+        }
+
+        // 扫描完成后状态和计数保持不变
+        repository.awaitIdle(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertEquals(gallery.liveIds(), localIds());
+        PhotoGroup month = database.photoGroupDao().getGroupByKeySync(bucket);
+        assertEquals((swipes + 1) / 2, month.trashCount);
+        assertEquals(swipes / 2, month.keepCount);
+        assertEquals(trashBytes, month.trashBytes);
+        assertGroupsMatchRepair();
+    }
+
+    @Test
+    public void incrementalGroups_matchRepairAggregation() throws Exception {
+        SyntheticGallery gallery = install(SyntheticGallery.builder()
+                .rows(2000)
+                .distribution(SyntheticGallery.DateDistribution.UNIFORM)); // 避免拍摄时间相同时封面不确定
+        scan(null);
+
+        // 放入回收站的照片包括每个分组的封面
+        List<SyntheticGallery.MediaRow> rows = gallery.liveRows();
+        for (PhotoGroup group : monthGroups()) {
+            repository.updatePhotoStatus(group.coverMediaId, Photo.Status.TRASHED);
+        }
+        for (int i = 0; i < rows.size(); i += 7) {
+            repository.updatePhotoStatus(rows.get(i).id, i % 2 == 0 ? Photo.Status.TRASHED : Photo.Status.KEEP);
+        }
+        repository.awaitIdle(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertGroupsMatchRepair();
+
+        // 媒体库删除照片（包括回收站中的照片和分组边界上的照片）
+        List<Long> removed = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i += 5) {
+            removed.add(rows.get(i).id);
+        }
+        mediaStore.deleteRows(removed);
+        scan(null);
+        assertGroupsMatchRepair();
+    }
+
+    @Test
+    public void removedMonth_deletesGroupAndRecountsYear() throws Exception {
+        install(SyntheticGallery.builder().rows(1000));
+        scan(null);
+
+        PhotoGroup month = monthGroups().get(0);
+        List<Long> removed = new ArrayList<>();
+        for (Photo photo : database.photoDao().getPhotosByMonthSync(month.bucket)) {
+            removed.add(photo.mediaStoreId);
+        }
+        mediaStore.deleteRows(removed);
+        scan(null);
+
+        assertNull(database.photoGroupDao().getGroupByKeySync(month.bucket));
+        assertGroupsMatchRepair();
+    }
+
+    @Test
+    public void largeGallery() throws Exception {
+        int rows = Integer.getInteger("gallery.fixture.rows", 0);
+        Assume.assumeTrue("未指定gallery.fixture.rows，跳过大图库测试", rows > 0);
+        SyntheticGallery gallery = install(SyntheticGallery.builder()
+                .rows(rows)
+                .missingDateRatio(0.01)
+                .missingFileRatio(0.02)
+                .duplicateIds(rows / 1000));
+
+        long start = System.nanoTime();
+        scan(null);
+        long scanMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        start = System.nanoTime();
+        repository.initializeGroups();
+        repository.awaitIdle(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        long groupsMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        System.out.println("【大图库】行数: " + rows + " | 扫描: " + scanMs + "ms | 分组初始化: " + groupsMs
+                + "ms | 媒体库查询: " + mediaStore.getQueryCount());
+        assertEquals(gallery.liveIds().size(), localIds().size());
+        assertGroupsMatch(gallery);
+    }
+
+    private SyntheticGallery install(SyntheticGallery.Builder builder) throws Exception {
+        SyntheticGallery gallery = builder.build(folder.getRoot());
+        mediaStore.insertRows(gallery.rows());
+        return gallery;
+    }
+
+    private void scan(ScanMode mode) throws Exception {
+        repository.scanMediaStore(application, mode);
+        repository.awaitIdle(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private Set<Long> localIds() {
+        Set<Long> ids = new HashSet<>();
+        try (Cursor cursor = database.query("SELECT media_store_id FROM photos", null)) {
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getLong(0));
+            }
+        }
+        return ids;
+    }
+
+    private List<PhotoGroup> monthGroups() {
+        List<PhotoGroup> groups = database.photoGroupDao().getGroupsByTypeSync(GroupType.MONTH.toString());
+        groups.sort(Comparator.comparingInt(group -> group.bucket));
+        return groups;
+    }
+
+    /**
+     * 所有分组行的内容，按分组标识排序
+     */
+    private List<String> groupSnapshot() {
+        List<String> snapshot = new ArrayList<>();
+        for (PhotoGroup group : database.photoGroupDao().getAllGroupsSync()) {
+            snapshot.add(group.bucket + "|" + group.groupType + "|" + group.photoCount + "|" + group.trashCount
+                    + "|" + group.keepCount + "|" + group.totalBytes + "|" + group.trashBytes
+                    + "|" + group.latestPhotoTimestamp + "|" + group.earliestPhotoTimestamp
+                    + "|" + group.coverMediaId + "|" + group.groupCover);
+        }
+        Collections.sort(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * 增量维护的分组与全量重新聚合的结果一致
+     */
+    private void assertGroupsMatchRepair() throws Exception {
+        List<String> incremental = groupSnapshot();
+        repository.initializeGroups();
+        repository.awaitIdle(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertEquals(groupSnapshot(), incremental);
+    }
+
+    /**
+     * 月份分组与按本地时区统计的合成数据一致
+     */
+    private void assertGroupsMatch(SyntheticGallery gallery) {
+        DateBucketer bucketer = new DateBucketer(TimeZone.getDefault());
+        Map<Integer, Integer> expected = new HashMap<>();
+        Map<Integer, Long> expectedBytes = new HashMap<>();
+        for (SyntheticGallery.MediaRow row : gallery.liveRows()) {
+            int bucket = bucketer.bucketOf(row.effectiveDate());
+            int key = DateBucketer.yearMonth(bucket);
+            expected.merge(key, 1, Integer::sum);
+            expectedBytes.merge(key, row.size, Long::sum);
+        }
+
+        List<PhotoGroup> groups = monthGroups();
+        assertEquals(expected.size(), groups.size());
+        for (PhotoGroup group : groups) {
+            assertEquals(String.valueOf(group.bucket), expected.get(group.bucket), Integer.valueOf(group.photoCount));
+            assertEquals(String.valueOf(group.bucket), expectedBytes.get(group.bucket), Long.valueOf(group.totalBytes));
+        }
+    }
+}
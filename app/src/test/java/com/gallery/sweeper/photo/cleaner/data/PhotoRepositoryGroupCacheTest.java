@@ -0,0 +1,165 @@
+package com.gallery.sweeper.photo.cleaner.data;
+
+import android.Manifest;
+import android.app.Application;
+import android.provider.MediaStore;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.gallery.sweeper.photo.cleaner.data.db.Photo;
+import com.gallery.sweeper.photo.cleaner.data.db.PhotoGroup;
+import com.gallery.sweeper.photo.cleaner.data.fixture.FakeMediaStoreProvider;
+import com.gallery.sweeper.photo.cleaner.data.fixture.SyntheticGallery;
+import com.gallery.sweeper.photo.cleaner.data.group.GroupBucket;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * 分组缓存写穿测试：滑动（状态写入）与并发读取交错时，读到的分组计数不早于已完成的写入
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class PhotoRepositoryGroupCacheTest {
+
+    private static final long TIMEOUT_SECONDS = 60;
+    private static final int READERS = 3;
+    private static final int SWIPES = 40;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Application application;
+    private PhotoDatabase database;
+    private PhotoRepository repository;
+
+    @Before
+    public void setUp() throws Exception {
+        application = ApplicationProvider.getApplicationContext();
+        shadowOf(application).grantPermissions(Manifest.permission.READ_EXTERNAL_STORAGE);
+        FakeMediaStoreProvider mediaStore = Robolectric.setupContentProvider(FakeMediaStoreProvider.class,
+                MediaStore.AUTHORITY);
+        database = Room.inMemoryDatabaseBuilder(application, PhotoDatabase.class)
+                .addCallback(PhotoDatabase.CALLBACK)
+                .allowMainThreadQueries()
+                .build();
+        repository = new PhotoRepository(application, database);
+
+        SyntheticGallery gallery = SyntheticGallery.builder()
+                .rows(800)
+                .dateRange(System.currentTimeMillis(), 1) // 每个月约60张
+                .distribution(SyntheticGallery.DateDistribution.UNIFORM)
+                .build(folder.getRoot());
+        mediaStore.insertRows(gallery.rows());
+        repository.scanMediaStore(application, null);
+        repository.awaitIdle(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @After
+    public void tearDown() {
+        repository.shutdown();
+        database.close();
+    }
+
+    @Test
+    public void interleavedSwipesAndReads_neverReturnStaleCounts() throws Exception {
+        PhotoGroup month = largestMonth();
+        int monthBucket = month.bucket;
+        int yearBucket = GroupBucket.yearBucketOf(monthBucket);
+        List<Photo> photos = database.photoDao().getPhotosByMonthSync(monthBucket);
+        assertTrue("分组照片不足", photos.size() >= SWIPES);
+
+        // 先读取一次，缓存中已有写入前的分组
+        int monthProcessed = processed(repository.getGroupByKeySync(monthBucket));
+        int yearProcessed = processed(repository.getGroupByKeySync(yearBucket));
+
+        // 已完成的写入之后，分组的已处理数（回收站 + 保留）不会再小于这个值
+        AtomicInteger monthFloor = new AtomicInteger(monthProcessed);
+        AtomicInteger yearFloor = new AtomicInteger(yearProcessed);
+        AtomicBoolean done = new AtomicBoolean(false);
+        List<String> staleReads = Collections.synchronizedList(new ArrayList<>());
+
+        ExecutorService readers = Executors.newFixedThreadPool(READERS);
+        for (int r = 0; r < READERS; r++) {
+            readers.execute(() -> {
+                while (!done.get()) {
+                    assertNotStale(monthBucket, monthFloor.get(), staleReads);
+                    assertNotStale(yearBucket, yearFloor.get(), staleReads);
+                }
+            });
+        }
+
+        try {
+            for (int i = 0; i < SWIPES; i++) {
+                Photo.Status status = i % 3 == 0 ? Photo.Status.KEEP : Photo.Status.TRASHED;
+                repository.updatePhotoStatus(photos.get(i).mediaStoreId, status).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                monthFloor.set(++monthProcessed);
+                yearFloor.set(++yearProcessed);
+
+                // 写入完成后立即读取：与数据库中的分组行一致
+                assertSameCounts(monthBucket);
+                assertSameCounts(yearBucket);
+            }
+        } finally {
+            done.set(true);
+            readers.shutdown();
+            assertTrue(readers.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+        assertTrue("读到了过期的分组计数：\n" + String.join("\n", staleReads), staleReads.isEmpty());
+
+        // 撤销：计数减少，写入完成后同样立即可见
+        for (int i = 0; i < SWIPES; i += 2) {
+            repository.updatePhotoStatus(photos.get(i).mediaStoreId, Photo.Status.NORMAL)
+                    .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            assertSameCounts(monthBucket);
+            assertSameCounts(yearBucket);
+        }
+    }
+
+    private void assertNotStale(int bucket, int floor, List<String> staleReads) {
+        PhotoGroup group = repository.getGroupByKeySync(bucket);
+        int processed = processed(group);
+        if (processed < floor) {
+            staleReads.add(bucket + " 已处理: " + processed + " < " + floor);
+        }
+    }
+
+    private void assertSameCounts(int bucket) {
+        PhotoGroup cached = repository.getGroupByKeySync(bucket);
+        PhotoGroup stored = database.photoGroupDao().getGroupByKeySync(bucket);
+        assertEquals(bucket + " 回收站", stored.trashCount, cached.trashCount);
+        assertEquals(bucket + " 保留", stored.keepCount, cached.keepCount);
+        assertEquals(bucket + " 回收站字节", stored.trashBytes, cached.trashBytes);
+    }
+
+    private PhotoGroup largestMonth() {
+        List<PhotoGroup> groups = database.photoGroupDao().getGroupsByTypeSync(GroupType.MONTH.toString());
+        return Collections.max(groups, Comparator.comparingInt(group -> group.photoCount));
+    }
+
+    private static int processed(PhotoGroup group) {
+        return group.trashCount + group.keepCount;
+    }
+}
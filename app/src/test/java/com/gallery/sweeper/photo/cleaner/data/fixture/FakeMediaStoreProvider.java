@@ -0,0 +1,239 @@
+package com.gallery.sweeper.photo.cleaner.data.fixture;
+
+import android.content.ContentProvider;
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.CancellationSignal;
+import android.provider.MediaStore;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 模拟媒体库图片集合的ContentProvider，注册在{@link MediaStore#AUTHORITY}下
+ * <p>
+ * 数据保存在内存SQLite表中，查询直接交给SQLite执行，因此扫描使用的选择条件、排序和LIMIT
+ * （排序子句后附加或QUERY_ARG_LIMIT）与真实媒体库的行为一致。
+ * _ID不设主键，可以插入重复ID模拟游标返回重复行。每行记录所在卷，按卷的Uri只返回该卷的记录，
+ * "external"返回所有可用卷的记录；不可用的卷（模拟移除的SD卡）查询返回null。
+ */
+public class FakeMediaStoreProvider extends ContentProvider {
+
+    private static final String TABLE = "images";
+    private static final String VOLUME_COLUMN = "volume_name";
+
+    public static final String PRIMARY_VOLUME = "external_primary";
+
+    private SQLiteDatabase db;
+    private final AtomicInteger queryCount = new AtomicInteger(0);
+    private final Set<String> unavailableVolumes = ConcurrentHashMap.newKeySet();
+    private volatile CountDownLatch queryGate; // 非null时超出放行次数的查询在此等待
+    private volatile CountDownLatch queryHeld;
+    private final AtomicInteger passingQueries = new AtomicInteger(0);
+
+    @Override
+    public boolean onCreate() {
+        db = SQLiteDatabase.create(null);
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+                + MediaStore.Images.Media._ID + " INTEGER NOT NULL, "
+                + MediaStore.Images.Media.DATA + " TEXT, "
+                + MediaStore.Images.Media.DATE_TAKEN + " INTEGER, "
+                + MediaStore.Images.Media.DATE_MODIFIED + " INTEGER, "
+                + MediaStore.MediaColumns.SIZE + " INTEGER, "
+                + MediaStore.MediaColumns.WIDTH + " INTEGER, "
+                + MediaStore.MediaColumns.HEIGHT + " INTEGER, "
+                + MediaStore.MediaColumns.MIME_TYPE + " TEXT, "
+                + MediaStore.MediaColumns.GENERATION_MODIFIED + " INTEGER NOT NULL DEFAULT 0, "
+                + VOLUME_COLUMN + " TEXT NOT NULL)");
+        // 与媒体库相同的两种扫描顺序都走索引
+        db.execSQL("CREATE INDEX images_id ON " + TABLE + "(" + MediaStore.Images.Media._ID + ")");
+        db.execSQL("CREATE INDEX images_date_taken ON " + TABLE + "("
+                + MediaStore.Images.Media.DATE_TAKEN + ", " + MediaStore.Images.Media._ID + ")");
+        return true;
+    }
+
+    /**
+     * 批量写入主存储卷的记录（单事务），不发送变化通知
+     */
+    public void insertRows(List<SyntheticGallery.MediaRow> rows) {
+        insertRows(PRIMARY_VOLUME, rows);
+    }
+
+    /**
+     * 批量写入指定卷的记录（单事务），不发送变化通知
+     */
+    public void insertRows(String volumeName, List<SyntheticGallery.MediaRow> rows) {
+        SQLiteStatement statement = db.compileStatement("INSERT INTO " + TABLE + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0, ?)");
+        db.beginTransaction();
+        try {
+            for (SyntheticGallery.MediaRow row : rows) {
+                statement.clearBindings();
+                statement.bindLong(1, row.id);
+                statement.bindString(2, row.path);
+                if (row.dateTaken != null) {
+                    statement.bindLong(3, row.dateTaken);
+                }
+                statement.bindLong(4, row.dateModified);
+                statement.bindLong(5, row.size);
+                statement.bindLong(6, row.width);
+                statement.bindLong(7, row.height);
+                statement.bindString(8, row.mimeType);
+                statement.bindString(9, volumeName);
+                statement.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            statement.close();
+        }
+    }
+
+    /**
+     * 删除指定ID的记录（包括重复行），模拟照片在媒体库中被删除
+     */
+    public int deleteRows(Collection<Long> ids) {
+        int deleted = 0;
+        for (long id : ids) {
+            deleted += db.delete(TABLE, MediaStore.Images.Media._ID + " = ?", new String[]{String.valueOf(id)});
+        }
+        return deleted;
+    }
+
+    /**
+     * 设置卷是否可用：不可用时按该卷的Uri查询返回null，"external"也不返回该卷的记录
+     */
+    public void setVolumeAvailable(String volumeName, boolean available) {
+        if (available) {
+            unavailableVolumes.remove(volumeName);
+        } else {
+            unavailableVolumes.add(volumeName);
+        }
+    }
+
+    public int rowCount() {
+        try (Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + TABLE, null)) {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        }
+    }
+
+    /**
+     * 放行前passQueries次查询，之后的查询阻塞到gate打开，模拟扫描长时间占用工作线程
+     *
+     * @return 第一个查询被阻塞时释放的闩锁
+     */
+    public CountDownLatch holdQueries(int passQueries, CountDownLatch gate) {
+        passingQueries.set(passQueries);
+        queryHeld = new CountDownLatch(1);
+        queryGate = gate;
+        return queryHeld;
+    }
+
+    /**
+     * 收到的查询次数（分页扫描每页一次）
+     */
+    public int getQueryCount() {
+        return queryCount.get();
+    }
+
+    @Override
+    public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder) {
+        if (!isImagesUri(uri)) {
+            return null;
+        }
+        String volumeName = uri.getPathSegments().get(0);
+        if (unavailableVolumes.contains(volumeName)) {
+            return null;
+        }
+        queryCount.incrementAndGet();
+        awaitGate();
+        String id = itemId(uri);
+        if (id != null) {
+            selection = and(MediaStore.Images.Media._ID + " = " + Long.parseLong(id), selection);
+        }
+        if (MediaStore.VOLUME_EXTERNAL.equals(volumeName)) {
+            for (String unavailable : unavailableVolumes) {
+                selection = and(VOLUME_COLUMN + " != " + DatabaseUtils.sqlEscapeString(unavailable), selection);
+            }
+        } else {
+            selection = and(VOLUME_COLUMN + " = " + DatabaseUtils.sqlEscapeString(volumeName), selection);
+        }
+        return db.query(TABLE, projection, selection, selectionArgs, null, null, sortOrder);
+    }
+
+    private void awaitGate() {
+        CountDownLatch gate = queryGate;
+        if (gate == null || passingQueries.getAndDecrement() > 0) {
+            return;
+        }
+        queryHeld.countDown();
+        try {
+            gate.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public Cursor query(Uri uri, String[] projection, Bundle queryArgs, CancellationSignal cancellationSignal) {
+        if (queryArgs == null) {
+            return query(uri, projection, null, null, null);
+        }
+        // Android 11+ 的分页查询通过QUERY_ARG_LIMIT传递行数
+        String sortOrder = queryArgs.getString(ContentResolver.QUERY_ARG_SQL_SORT_ORDER);
+        int limit = queryArgs.getInt(ContentResolver.QUERY_ARG_LIMIT, 0);
+        if (limit > 0) {
+            sortOrder = (sortOrder == null ? MediaStore.Images.Media._ID : sortOrder) + " LIMIT " + limit;
+        }
+        return query(uri, projection, queryArgs.getString(ContentResolver.QUERY_ARG_SQL_SELECTION),
+                queryArgs.getStringArray(ContentResolver.QUERY_ARG_SQL_SELECTION_ARGS), sortOrder);
+    }
+
+    @Override
+    public int delete(Uri uri, String selection, String[] selectionArgs) {
+        String id = itemId(uri);
+        if (!isImagesUri(uri) || id == null) {
+            return 0;
+        }
+        return db.delete(TABLE, MediaStore.Images.Media._ID + " = ?", new String[]{id});
+    }
+
+    @Override
+    public String getType(Uri uri) {
+        return null;
+    }
+
+    @Override
+    public Uri insert(Uri uri, ContentValues values) {
+        throw new UnsupportedOperationException("使用insertRows写入测试数据");
+    }
+
+    @Override
+    public int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+        throw new UnsupportedOperationException("测试媒体库不支持更新");
+    }
+
+    private static String and(String condition, String selection) {
+        return condition + (selection == null ? "" : " AND (" + selection + ")");
+    }
+
+    // content://media/<volume>/images/media[/<id>]
+    private static boolean isImagesUri(Uri uri) {
+        List<String> segments = uri.getPathSegments();
+        return segments.size() >= 3 && "images".equals(segments.get(1)) && "media".equals(segments.get(2));
+    }
+
+    private static String itemId(Uri uri) {
+        List<String> segments = uri.getPathSegments();
+        return segments.size() >= 4 ? segments.get(3) : null;
+    }
+}
@@ -0,0 +1,231 @@
+package com.gallery.sweeper.photo.cleaner.data.fixture;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 合成的大图库：按配置生成媒体库记录，并在磁盘上创建对应的（空）文件
+ * <p>
+ * 可配置行数、拍摄时间分布、缺失拍摄时间比例、文件已删除比例和重复ID数量；
+ * 相同的种子生成相同的数据，便于对比优化前后的结果。
+ */
+public final class SyntheticGallery {
+
+    /**
+     * 拍摄时间分布
+     */
+    public enum DateDistribution {
+        UNIFORM, // 时间跨度内均匀分布
+        RECENT_HEAVY, // 越近的月份照片越多（手机图库的常见形态）
+        BURSTS // 集中在少数事件（旅行、聚会）前后几小时内
+    }
+
+    /**
+     * 一条媒体库记录
+     */
+    public static final class MediaRow {
+        public final long id;
+        public final String path;
+        public final Long dateTaken; // 毫秒，null或0表示缺失
+        public final long dateModified; // 秒
+        public final long size;
+        public final int width;
+        public final int height;
+        public final String mimeType;
+        public final boolean fileExists;
+
+        MediaRow(long id, String path, Long dateTaken, long dateModified, long size, int width, int height,
+                 String mimeType, boolean fileExists) {
+            this.id = id;
+            this.path = path;
+            this.dateTaken = dateTaken;
+            this.dateModified = dateModified;
+            this.size = size;
+            this.width = width;
+            this.height = height;
+            this.mimeType = mimeType;
+            this.fileExists = fileExists;
+        }
+
+        /**
+         * 扫描入库时使用的时间：有效拍摄时间，否则为修改时间（空文件没有EXIF）
+         */
+        public long effectiveDate() {
+            return dateTaken != null && dateTaken > 0 ? dateTaken : dateModified * 1000;
+        }
+    }
+
+    private final List<MediaRow> rows;
+    private final List<MediaRow> liveRows;
+
+    private SyntheticGallery(List<MediaRow> rows) {
+        this.rows = Collections.unmodifiableList(rows);
+        List<MediaRow> live = new ArrayList<>();
+        Set<Long> seen = new LinkedHashSet<>();
+        for (MediaRow row : rows) {
+            if (row.fileExists && seen.add(row.id)) {
+                live.add(row);
+            }
+        }
+        this.liveRows = Collections.unmodifiableList(live);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 写入媒体库的所有记录（包括文件已删除的记录和重复行）
+     */
+    public List<MediaRow> rows() {
+        return rows;
+    }
+
+    /**
+     * 扫描后应当入库的记录：文件存在，重复ID只保留一条
+     */
+    public List<MediaRow> liveRows() {
+        return liveRows;
+    }
+
+    public Set<Long> liveIds() {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (MediaRow row : liveRows) {
+            ids.add(row.id);
+        }
+        return ids;
+    }
+
+    public static final class Builder {
+        private int rowCount = 1000;
+        private long seed = 42;
+        private long endMillis = System.currentTimeMillis();
+        private int years = 8;
+        private DateDistribution distribution = DateDistribution.RECENT_HEAVY;
+        private double missingDateRatio = 0;
+        private double missingFileRatio = 0;
+        private int duplicateIds = 0;
+        private int photosPerFolder = 2000;
+
+        public Builder rows(int rowCount) {
+            this.rowCount = rowCount;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * 拍摄时间范围：endMillis之前的years年
+         */
+        public Builder dateRange(long endMillis, int years) {
+            this.endMillis = endMillis;
+            this.years = years;
+            return this;
+        }
+
+        public Builder distribution(DateDistribution distribution) {
+            this.distribution = distribution;
+            return this;
+        }
+
+        /**
+         * DATE_TAKEN缺失的比例（一半为NULL，一半为0）
+         */
+        public Builder missingDateRatio(double ratio) {
+            this.missingDateRatio = ratio;
+            return this;
+        }
+
+        /**
+         * 媒体库中有记录但文件已被删除的比例
+         */
+        public Builder missingFileRatio(double ratio) {
+            this.missingFileRatio = ratio;
+            return this;
+        }
+
+        /**
+         * 额外写入的重复行数量（与已有记录的ID和内容完全相同）
+         */
+        public Builder duplicateIds(int count) {
+            this.duplicateIds = count;
+            return this;
+        }
+
+        public Builder photosPerFolder(int count) {
+            this.photosPerFolder = count;
+            return this;
+        }
+
+        /**
+         * 生成记录并在root下创建存在的文件
+         */
+        public SyntheticGallery build(File root) throws IOException {
+            Random random = new Random(seed);
+            long span = TimeUnit.DAYS.toMillis(365L * years);
+            long[] bursts = new long[Math.max(1, rowCount / 500)];
+            for (int i = 0; i < bursts.length; i++) {
+                bursts[i] = endMillis - (long) (random.nextDouble() * span);
+            }
+
+            List<MediaRow> rows = new ArrayList<>(rowCount + duplicateIds);
+            long id = 0;
+            File folder = null;
+            for (int i = 0; i < rowCount; i++) {
+                if (i % photosPerFolder == 0) {
+                    folder = new File(root, "DCIM/Folder" + (i / photosPerFolder));
+                    if (!folder.mkdirs() && !folder.isDirectory()) {
+                        throw new IOException("无法创建目录: " + folder);
+                    }
+                }
+                id += 1 + random.nextInt(3); // 媒体库ID递增但不连续
+                long taken = dateOf(random, span, bursts);
+                long dateModified = (taken + random.nextInt(60_000)) / 1000;
+
+                Long dateTaken = taken;
+                if (random.nextDouble() < missingDateRatio) {
+                    dateTaken = random.nextBoolean() ? null : 0L;
+                }
+                boolean exists = random.nextDouble() >= missingFileRatio;
+                boolean png = random.nextInt(10) == 0;
+                File file = new File(folder, "IMG_" + id + (png ? ".png" : ".jpg"));
+                if (exists && !file.createNewFile() && !file.exists()) {
+                    throw new IOException("无法创建文件: " + file);
+                }
+                boolean portrait = random.nextBoolean();
+                rows.add(new MediaRow(id, file.getAbsolutePath(), dateTaken, dateModified,
+                        500_000 + random.nextInt(6_000_000), portrait ? 3024 : 4032, portrait ? 4032 : 3024,
+                        png ? "image/png" : "image/jpeg", exists));
+            }
+            for (int i = 0; i < duplicateIds && !rows.isEmpty(); i++) {
+                rows.add(rows.get(random.nextInt(rowCount)));
+            }
+            Collections.shuffle(rows, random); // 写入顺序与ID、时间都无关
+            return new SyntheticGallery(rows);
+        }
+
+        private long dateOf(Random random, long span, long[] bursts) {
+            switch (distribution) {
+                case UNIFORM:
+                    return endMillis - (long) (random.nextDouble() * span);
+                case BURSTS:
+                    long center = bursts[random.nextInt(bursts.length)];
+                    return Math.min(endMillis, center + (long) (random.nextGaussian() * TimeUnit.HOURS.toMillis(3)));
+                case RECENT_HEAVY:
+                default:
+                    double age = Math.pow(random.nextDouble(), 3);
+                    return endMillis - (long) (age * span);
+            }
+        }
+    }
+}
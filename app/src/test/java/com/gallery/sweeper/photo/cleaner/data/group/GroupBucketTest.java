@@ -0,0 +1,90 @@
+package com.gallery.sweeper.photo.cleaner.data.group;
+
+import com.gallery.sweeper.photo.cleaner.data.GroupType;
+import com.gallery.sweeper.photo.cleaner.data.db.PhotoGroup;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 分组整数键和年份汇总测试
+ */
+public class GroupBucketTest {
+
+    @Test
+    public void keys_yearAndMonth() {
+        int month = GroupBucket.ofMonth(2025, 1);
+        assertEquals(202501, month);
+        assertEquals(202500, GroupBucket.yearBucketOf(month));
+        assertEquals(202500, GroupBucket.yearBucketOf(202500));
+        assertEquals(GroupType.MONTH, GroupBucket.typeOf(month));
+        assertEquals(GroupType.YEAR, GroupBucket.typeOf(202500));
+        assertEquals(202501, GroupBucket.firstMonthOf(202500));
+        assertEquals(202512, GroupBucket.lastMonthOf(202500));
+        // 键的数值顺序即时间顺序，跨年也成立
+        assertTrue(GroupBucket.ofMonth(2024, 12) < GroupBucket.ofYear(2025));
+        assertTrue(GroupBucket.ofYear(2025) < GroupBucket.ofMonth(2025, 1));
+    }
+
+    @Test
+    public void contains_matchesYearOrExactMonth() {
+        assertTrue(GroupBucket.contains(202500, 202503));
+        assertTrue(GroupBucket.contains(202503, 202503));
+        assertFalse(GroupBucket.contains(202503, 202504));
+        // 旧的字符串键按子串匹配时，"2025"年份会误选其它年份的"2025"子串
+        assertFalse(GroupBucket.contains(202500, 202401));
+    }
+
+    @Test
+    public void labels() {
+        assertEquals("2025", GroupBucket.displayName(202500));
+        assertEquals("2025 Jan", GroupBucket.displayName(202501));
+        assertEquals("Dec.2024", GroupBucket.title(202412));
+        assertEquals("2024", GroupBucket.title(202400));
+        assertEquals("", GroupBucket.monthLabel(202400));
+    }
+
+    @Test
+    public void rollUp_sumsMonthsAndTakesNewestCover() {
+        PhotoGroup january = month(202501, 3, 100, 1000, 1100, 11);
+        PhotoGroup february = month(202502, 2, 50, 2000, 2100, 0); // 整月都在回收站，没有封面
+        PhotoGroup december = month(202412, 1, 10, 500, 500, 5);
+
+        List<PhotoGroup> years = YearRollup.rollUp(Arrays.asList(february, december, january));
+        assertEquals(2, years.size());
+
+        PhotoGroup y2024 = years.get(0);
+        assertEquals(202400, y2024.bucket);
+        assertEquals(1, y2024.photoCount);
+        assertEquals(5, y2024.coverMediaId);
+
+        PhotoGroup y2025 = years.get(1);
+        assertEquals(202500, y2025.bucket);
+        assertEquals(GroupType.YEAR.toString(), y2025.groupType);
+        assertEquals(5, y2025.photoCount);
+        assertEquals(150, y2025.totalBytes);
+        assertEquals(1000, y2025.earliestPhotoTimestamp);
+        assertEquals(2100, y2025.latestPhotoTimestamp);
+        assertEquals(11, y2025.coverMediaId);
+        assertEquals("/DCIM/IMG_11.jpg", y2025.groupCover);
+    }
+
+    private static PhotoGroup month(int bucket, int photos, long bytes, long earliest, long latest, long coverId) {
+        PhotoGroup group = new PhotoGroup();
+        group.bucket = bucket;
+        group.groupType = GroupType.MONTH.toString();
+        group.photoCount = photos;
+        group.totalBytes = bytes;
+        group.earliestPhotoTimestamp = earliest;
+        group.latestPhotoTimestamp = latest;
+        group.coverMediaId = coverId;
+        group.groupCover = coverId != 0 ? "/DCIM/IMG_" + coverId + ".jpg" : null;
+        return group;
+    }
+}
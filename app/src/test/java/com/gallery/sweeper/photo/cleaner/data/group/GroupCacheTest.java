@@ -0,0 +1,143 @@
+package com.gallery.sweeper.photo.cleaner.data.group;
+
+import com.gallery.sweeper.photo.cleaner.data.GroupType;
+import com.gallery.sweeper.photo.cleaner.data.db.PhotoGroup;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 带数据版本的分组缓存测试
+ */
+public class GroupCacheTest {
+
+    @Test
+    public void put_lookupByKey() {
+        GroupCache cache = new GroupCache();
+        PhotoGroup january = group(202501, 100);
+        assertTrue(cache.put(january, cache.version()));
+        assertSame(january, cache.get(202501));
+        assertNull(cache.get(202502));
+    }
+
+    @Test
+    public void readBeforeWrite_isNotCached() {
+        GroupCache cache = new GroupCache();
+        long readVersion = cache.version();
+        // 读取数据库之后、回填之前完成了一次写入
+        cache.beginWrite();
+        cache.invalidate(Collections.singletonList(202501));
+        cache.endWrite(true);
+        assertFalse(cache.put(group(202501, 100), readVersion));
+        assertNull(cache.get(202501));
+    }
+
+    @Test
+    public void readDuringWrite_isNotCached() {
+        GroupCache cache = new GroupCache();
+        cache.beginWrite();
+        // 写事务进行中开始的读取，可能读到提交前的数据
+        assertFalse(cache.put(group(202501, 100), cache.version()));
+        long readVersion = cache.version();
+        cache.endWrite(true);
+        assertFalse(cache.put(group(202501, 100), readVersion));
+        assertTrue(cache.put(group(202501, 100), cache.version()));
+    }
+
+    @Test
+    public void writeThrough_publishedOnCommit() {
+        GroupCache cache = new GroupCache();
+        cache.put(group(202501, 100), cache.version());
+        cache.put(group(202502, 200), cache.version());
+
+        cache.beginWrite();
+        PhotoGroup written = group(202501, 300);
+        written.trashCount = 1;
+        // 202502已删除，没有写入后的行
+        cache.writeThrough(Arrays.asList(202501, 202502), Collections.singletonList(written));
+        // 提交前不返回写入前的分组，也不返回未提交的分组
+        assertNull(cache.get(202501));
+        cache.endWrite(true);
+
+        assertSame(written, cache.get(202501));
+        assertNull(cache.get(202502));
+    }
+
+    @Test
+    public void writeThrough_discardedOnRollback() {
+        GroupCache cache = new GroupCache();
+        cache.beginWrite();
+        cache.beginWrite(); // 嵌套事务
+        cache.writeThrough(Collections.singletonList(202501), Collections.singletonList(group(202501, 300)));
+        cache.endWrite(false);
+        cache.endWrite(true);
+        assertNull(cache.get(202501));
+
+        // 下一个事务不受上一次回滚影响
+        cache.beginWrite();
+        cache.writeThrough(Collections.singletonList(202501), Collections.singletonList(group(202501, 400)));
+        cache.endWrite(true);
+        assertEquals(400, cache.get(202501).latestPhotoTimestamp);
+    }
+
+    @Test
+    public void invalidate_removesOnlyAffectedKeys() {
+        GroupCache cache = new GroupCache();
+        cache.putList(GroupType.MONTH, Arrays.asList(group(202501, 100), group(202502, 200)), cache.version());
+        cache.putList(GroupType.YEAR, Collections.singletonList(group(202500, 200)), cache.version());
+
+        cache.invalidate(Collections.singletonList(202502));
+        assertNull(cache.get(202502));
+        assertEquals(202501, cache.get(202501).bucket);
+        // 月份列表的成员和顺序可能变化，年份列表不受影响
+        assertNull(cache.getList(GroupType.MONTH, true));
+        assertEquals(1, cache.getList(GroupType.YEAR, true).size());
+    }
+
+    @Test
+    public void getList_sortedByLatest() {
+        GroupCache cache = new GroupCache();
+        cache.putList(GroupType.MONTH, Arrays.asList(group(202503, 300), group(202501, 100), group(202502, 200)),
+                cache.version());
+
+        assertEquals(Arrays.asList(202501, 202502, 202503), buckets(cache.getList(GroupType.MONTH, true)));
+        assertEquals(Arrays.asList(202503, 202502, 202501), buckets(cache.getList(GroupType.MONTH, false)));
+        assertNull(cache.getList(GroupType.YEAR, true));
+    }
+
+    @Test
+    public void invalidateAll_clearsEverything() {
+        GroupCache cache = new GroupCache();
+        cache.putList(GroupType.MONTH, Collections.singletonList(group(202501, 100)), cache.version());
+        long readVersion = cache.version();
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+        assertNull(cache.getList(GroupType.MONTH, true));
+        assertFalse(cache.put(group(202501, 100), readVersion));
+    }
+
+    private static List<Integer> buckets(List<PhotoGroup> groups) {
+        Integer[] buckets = new Integer[groups.size()];
+        for (int i = 0; i < groups.size(); i++) {
+            buckets[i] = groups.get(i).bucket;
+        }
+        return Arrays.asList(buckets);
+    }
+
+    private static PhotoGroup group(int bucket, long latest) {
+        PhotoGroup group = new PhotoGroup();
+        group.bucket = bucket;
+        group.groupType = GroupBucket.typeOf(bucket).toString();
+        group.latestPhotoTimestamp = latest;
+        return group;
+    }
+}
@@ -0,0 +1,154 @@
+package com.gallery.sweeper.photo.cleaner.data.group;
+
+import com.gallery.sweeper.photo.cleaner.data.db.Photo;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 分组增量计算测试
+ */
+public class GroupDeltaTest {
+
+    @Test
+    public void addAndRemove_countMonthAndYear() {
+        GroupDelta delta = new GroupDelta();
+        delta.add(photo(1, 1000, 202501, 100));
+        delta.add(photo(2, 2000, 202502, 200));
+        delta.remove(photo(3, 500, 202501, 50));
+
+        GroupDelta.Change january = change(delta, 202501);
+        assertTrue(january.isMonth());
+        assertEquals(0, january.photoCount);
+        assertEquals(50, january.totalBytes);
+        assertEquals(1000, january.addedLatest);
+        assertEquals(500, january.removedLatest);
+        assertEquals(Collections.singletonList(3L), january.removedVisibleIds);
+        assertEquals(1, january.coverCandidateId);
+
+        GroupDelta.Change year = change(delta, 202500);
+        assertFalse(year.isMonth());
+        assertEquals(1, year.photoCount);
+        assertEquals(250, year.totalBytes);
+        assertEquals(3, delta.changes().size());
+    }
+
+    @Test
+    public void trashAndRestore_moveCountsAndCover() {
+        Photo photo = photo(1, 1000, 202501, 100);
+
+        GroupDelta trash = new GroupDelta();
+        trash.changeStatus(photo, Photo.Status.NORMAL, Photo.Status.TRASHED);
+        GroupDelta.Change month = change(trash, 202501);
+        assertEquals(0, month.photoCount);
+        assertEquals(1, month.trashCount);
+        assertEquals(0, month.totalBytes);
+        assertEquals(100, month.trashBytes);
+        assertEquals(Collections.singletonList(1L), month.removedVisibleIds);
+        assertFalse(month.hasCoverCandidate());
+        assertFalse(month.hasRemovals()); // 拍摄时间边界不变
+
+        GroupDelta restore = new GroupDelta();
+        restore.changeStatus(photo, Photo.Status.TRASHED, Photo.Status.KEEP);
+        month = change(restore, 202501);
+        assertEquals(-1, month.trashCount);
+        assertEquals(1, month.keepCount);
+        assertEquals(-100, month.trashBytes);
+        assertEquals(1, month.coverCandidateId);
+        assertTrue(month.removedVisibleIds.isEmpty());
+
+        GroupDelta same = new GroupDelta();
+        same.changeStatus(photo, Photo.Status.KEEP, Photo.Status.KEEP);
+        assertTrue(same.isEmpty());
+    }
+
+    @Test
+    public void replaceInSameSlot_onlyAppliesSizeDelta() {
+        Photo before = photo(1, 1000, 202501, 100);
+        before.status = Photo.Status.TRASHED;
+        Photo after = new Photo(before);
+        after.size = 150;
+
+        GroupDelta delta = new GroupDelta();
+        delta.replace(before, after);
+        GroupDelta.Change month = change(delta, 202501);
+        assertEquals(0, month.photoCount);
+        assertEquals(50, month.totalBytes);
+        assertEquals(50, month.trashBytes);
+        assertFalse(month.hasRemovals());
+        assertFalse(month.hasCoverCandidate());
+
+        GroupDelta unchanged = new GroupDelta();
+        unchanged.replace(before, new Photo(before));
+        assertTrue(unchanged.isEmpty());
+    }
+
+    @Test
+    public void replaceAcrossGroups_movesPhoto() {
+        GroupDelta delta = new GroupDelta();
+        delta.replace(photo(1, 1000, 202501, 100), photo(1, 3000, 202503, 100));
+
+        assertEquals(-1, change(delta, 202501).photoCount);
+        assertTrue(change(delta, 202501).hasRemovals());
+        assertEquals(1, change(delta, 202503).photoCount);
+        assertEquals(1, change(delta, 202503).coverCandidateId);
+        // 年份分组计数不变，但封面和边界可能变化
+        GroupDelta.Change year = change(delta, 202500);
+        assertEquals(0, year.photoCount);
+        assertTrue(year.hasRemovals());
+        assertTrue(year.hasCoverCandidate());
+    }
+
+    @Test
+    public void replaceAll_keepsExistingStatusAndDeduplicates() {
+        Photo kept = photo(1, 1000, 202501, 100);
+        kept.status = Photo.Status.KEEP;
+        Photo trashed = photo(2, 2000, 202501, 200);
+        trashed.status = Photo.Status.TRASHED;
+        Map<Long, Photo> before = new HashMap<>();
+        before.put(1L, kept);
+        before.put(2L, trashed);
+
+        // 扫描写入的记录状态总是NORMAL，重复ID只计一次
+        Photo rescanned = photo(1, 1000, 202501, 120);
+        Photo added = photo(3, 3000, 202501, 300);
+        List<Photo> written = Arrays.asList(rescanned, added, photo(3, 3000, 202501, 300));
+
+        GroupDelta delta = new GroupDelta();
+        delta.replaceAll(before, written, Collections.singletonList(2L));
+
+        GroupDelta.Change month = change(delta, 202501);
+        assertEquals(0, month.photoCount); // +3 -2
+        assertEquals(-1, month.trashCount);
+        assertEquals(0, month.keepCount);
+        assertEquals(20 + 300 - 200, month.totalBytes);
+        assertEquals(-200, month.trashBytes);
+        assertTrue(month.removedVisibleIds.isEmpty()); // 删除的照片在回收站中，不影响封面
+        assertEquals(3, month.coverCandidateId);
+        assertEquals(Photo.Status.NORMAL, rescanned.status); // 不修改传入的记录
+    }
+
+    private static GroupDelta.Change change(GroupDelta delta, int bucket) {
+        for (GroupDelta.Change change : delta.changes()) {
+            if (change.bucket == bucket) {
+                return change;
+            }
+        }
+        throw new AssertionError("缺少分组增量: " + bucket);
+    }
+
+    private static Photo photo(long id, long dateTaken, int bucket, long size) {
+        Photo photo = new Photo(id, "/DCIM/IMG_" + id + ".jpg", dateTaken, bucket);
+        photo.size = size;
+        return photo;
+    }
+}
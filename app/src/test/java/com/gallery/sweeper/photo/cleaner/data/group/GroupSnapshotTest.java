@@ -0,0 +1,132 @@
+package com.gallery.sweeper.photo.cleaner.data.group;
+
+import com.gallery.sweeper.photo.cleaner.data.GroupType;
+import com.gallery.sweeper.photo.cleaner.data.db.PhotoGroup;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 分组列表二进制快照测试
+ */
+public class GroupSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTrip_keepsAllFields() throws IOException {
+        File file = new File(folder.getRoot(), "groups.bin");
+        PhotoGroup january = group(202501, 300, "/DCIM/IMG_1.jpg");
+        january.earliestPhotoTimestamp = 100;
+        january.photoCount = 10;
+        january.trashCount = 2;
+        january.keepCount = 3;
+        january.totalBytes = 5_000_000_000L;
+        january.trashBytes = 1024;
+        january.coverMediaId = 1;
+        PhotoGroup february = group(202502, 400, null); // 整月都在回收站，没有封面
+
+        GroupSnapshot.write(file, Arrays.asList(february, january));
+        List<PhotoGroup> read = GroupSnapshot.read(file);
+
+        assertEquals(2, read.size());
+        PhotoGroup restored = read.get(0);
+        assertEquals(202501, restored.bucket);
+        assertEquals(GroupType.MONTH.toString(), restored.groupType);
+        assertEquals(300, restored.latestPhotoTimestamp);
+        assertEquals(100, restored.earliestPhotoTimestamp);
+        assertEquals(10, restored.photoCount);
+        assertEquals(2, restored.trashCount);
+        assertEquals(3, restored.keepCount);
+        assertEquals(5_000_000_000L, restored.totalBytes);
+        assertEquals(1024, restored.trashBytes);
+        assertEquals(1, restored.coverMediaId);
+        assertEquals("/DCIM/IMG_1.jpg", restored.groupCover);
+        assertNull(read.get(1).groupCover);
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void select_filtersTypeAndOrdersByLatest() throws IOException {
+        File file = new File(folder.getRoot(), "groups.bin");
+        GroupSnapshot.write(file, Arrays.asList(
+                group(202503, 300, null), group(202500, 300, null), group(202501, 100, null),
+                group(202412, 50, null), group(202400, 50, null)));
+        List<PhotoGroup> read = GroupSnapshot.read(file);
+
+        assertEquals(Arrays.asList(202412, 202501, 202503),
+                buckets(GroupSnapshot.select(read, GroupType.MONTH, true)));
+        assertEquals(Arrays.asList(202503, 202501, 202412),
+                buckets(GroupSnapshot.select(read, GroupType.MONTH, false)));
+        assertEquals(Arrays.asList(202500, 202400),
+                buckets(GroupSnapshot.select(read, GroupType.YEAR, false)));
+    }
+
+    @Test
+    public void write_replacesPreviousSnapshot() throws IOException {
+        File file = new File(folder.getRoot(), "groups.bin");
+        GroupSnapshot.write(file, Arrays.asList(group(202501, 100, null), group(202502, 200, null)));
+        GroupSnapshot.write(file, Collections.singletonList(group(202503, 300, null)));
+        assertEquals(Collections.singletonList(202503), buckets(GroupSnapshot.read(file)));
+    }
+
+    @Test
+    public void read_missingOrIncompatible_returnsNull() throws IOException {
+        File file = new File(folder.getRoot(), "groups.bin");
+        assertNull(GroupSnapshot.read(file));
+
+        GroupSnapshot.write(file, Collections.singletonList(group(202501, 100, null)));
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(4);
+            raf.writeInt(99); // 其它格式版本
+        }
+        assertNull(GroupSnapshot.read(file));
+    }
+
+    @Test
+    public void read_truncated_throws() throws IOException {
+        File file = new File(folder.getRoot(), "groups.bin");
+        GroupSnapshot.write(file, Arrays.asList(group(202501, 100, "/DCIM/IMG_1.jpg"), group(202502, 200, null)));
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 10);
+        }
+        try {
+            GroupSnapshot.read(file);
+            fail("截断的快照应读取失败");
+        } catch (IOException expected) {
+            assertTrue(file.exists());
+        }
+    }
+
+    private static List<Integer> buckets(List<PhotoGroup> groups) {
+        Integer[] buckets = new Integer[groups.size()];
+        for (int i = 0; i < groups.size(); i++) {
+            buckets[i] = groups.get(i).bucket;
+        }
+        return Arrays.asList(buckets);
+    }
+
+    private static PhotoGroup group(int bucket, long latest, String cover) {
+        PhotoGroup group = new PhotoGroup();
+        group.bucket = bucket;
+        group.groupType = GroupBucket.typeOf(bucket).toString();
+        group.latestPhotoTimestamp = latest;
+        group.groupCover = cover;
+        return group;
+    }
+}
@@ -0,0 +1,107 @@
+package com.gallery.sweeper.photo.cleaner.data.scan;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 自适应批次大小测试：目标耗时、调整步长、内存压力
+ */
+public class AdaptiveBatchSizerTest {
+
+    /**
+     * 堆内存余量可指定的批次控制器
+     */
+    private static class FixedHeapSizer extends AdaptiveBatchSizer {
+        double headroom = 1.0;
+
+        FixedHeapSizer(int initialSize) {
+            super(initialSize);
+        }
+
+        @Override
+        double heapHeadroom() {
+            return headroom;
+        }
+    }
+
+    @Test
+    public void growsTowardTargetLatency() {
+        FixedHeapSizer sizer = new FixedHeapSizer(50);
+        long perRowMs = 1;
+        long target = AdaptiveBatchSizer.TARGET_LATENCY_MS / perRowMs;
+
+        // 每行1ms：第一批只能翻倍，之后停在目标耗时对应的行数
+        sizer.onBatchCommitted(50, 50 * perRowMs);
+        assertEquals(100, sizer.current());
+        sizer.onBatchCommitted(100, 100 * perRowMs);
+        assertEquals(target, sizer.current());
+        sizer.onBatchCommitted((int) target, target * perRowMs);
+        assertEquals(target, sizer.current());
+        assertEquals(2, sizer.getAdjustments());
+    }
+
+    @Test
+    public void stepIsLimitedToTwice() {
+        // 写入很快：每批最多翻倍，直到上限
+        FixedHeapSizer fast = new FixedHeapSizer(100);
+        int[] expected = {200, 400, 800, AdaptiveBatchSizer.MAX_BATCH_SIZE, AdaptiveBatchSizer.MAX_BATCH_SIZE};
+        for (int size : expected) {
+            fast.onBatchCommitted(fast.current(), 1);
+            assertEquals(size, fast.current());
+        }
+        assertEquals(AdaptiveBatchSizer.MAX_BATCH_SIZE, fast.getMaxUsed());
+
+        // 写入很慢：每批最多减半
+        FixedHeapSizer slow = new FixedHeapSizer(800);
+        slow.onBatchCommitted(800, 800 * 100);
+        assertEquals(400, slow.current());
+        slow.onBatchCommitted(400, 400 * 100);
+        assertEquals(200, slow.current());
+    }
+
+    @Test
+    public void heapPressure_onlyShrinks() {
+        FixedHeapSizer sizer = new FixedHeapSizer(400);
+        sizer.headroom = AdaptiveBatchSizer.MIN_HEAP_HEADROOM / 2;
+
+        // 写入很快也不放大
+        int[] expected = {200, 100, AdaptiveBatchSizer.MIN_BATCH_SIZE, AdaptiveBatchSizer.MIN_BATCH_SIZE};
+        for (int size : expected) {
+            sizer.onBatchCommitted(sizer.current(), 1);
+            assertEquals(size, sizer.current());
+        }
+        assertEquals(400, sizer.getMaxUsed());
+        assertEquals(AdaptiveBatchSizer.MIN_BATCH_SIZE, sizer.getMinUsed());
+
+        // 内存恢复后重新放大
+        sizer.headroom = 1.0;
+        sizer.onBatchCommitted(sizer.current(), 1);
+        assertEquals(AdaptiveBatchSizer.MIN_BATCH_SIZE * 2, sizer.current());
+    }
+
+    @Test
+    public void memoryPressure_shrinksByQuarter() {
+        FixedHeapSizer sizer = new FixedHeapSizer(800);
+        sizer.onMemoryPressure();
+        assertEquals(200, sizer.current());
+        sizer.onMemoryPressure();
+        assertEquals(AdaptiveBatchSizer.MIN_BATCH_SIZE, sizer.current());
+        sizer.onMemoryPressure();
+        assertEquals(AdaptiveBatchSizer.MIN_BATCH_SIZE, sizer.current());
+        assertEquals(2, sizer.getAdjustments());
+    }
+
+    @Test
+    public void initialSize_isClamped() {
+        assertEquals(AdaptiveBatchSizer.MIN_BATCH_SIZE, new FixedHeapSizer(1).current());
+        assertEquals(AdaptiveBatchSizer.MAX_BATCH_SIZE, new FixedHeapSizer(10_000).current());
+    }
+
+    @Test
+    public void maxBatchPlusPartialChunk_staysWithinBindLimit() {
+        // 写入阶段按整块累积，最大批次加上不到一块的超出量仍不超过900行
+        assertTrue(AdaptiveBatchSizer.MAX_BATCH_SIZE + MediaScanPipeline.CHUNK_SIZE - 1 <= 900);
+    }
+}
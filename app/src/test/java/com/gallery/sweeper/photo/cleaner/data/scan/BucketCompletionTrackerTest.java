@@ -0,0 +1,127 @@
+package com.gallery.sweeper.photo.cleaner.data.scan;
+
+import com.gallery.sweeper.photo.cleaner.data.db.Photo;
+import com.gallery.sweeper.photo.cleaner.data.group.GroupBucket;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 倒序扫描分组完成判断测试
+ */
+public class BucketCompletionTrackerTest {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private static final String VOLUME = "external_primary";
+    private static final String SD_CARD = "1234-5678";
+
+    private final DateBucketer bucketer = new DateBucketer(UTC, 2020, 2026);
+
+    @Test
+    public void monthsNewerThanWatermark_areCompleted() {
+        BucketCompletionTracker tracker = new BucketCompletionTracker(bucketer, Collections.singletonList(VOLUME));
+        tracker.onCommitted(Arrays.asList(photo(2025, 11, 20), photo(2025, 10, 3), photo(2025, 9, 30)));
+
+        // 水位线停在2025年10月：11月、12月已完整，10月可能还有照片
+        BucketCompletionTracker.Completed completed = tracker.advance(watermarks(utc(2025, 9, 30)));
+        assertEquals(Arrays.asList(month(2025, 11), month(2025, 10)), completed.months);
+        assertTrue(completed.years.isEmpty());
+
+        // 同一批分组不会重复报告
+        assertTrue(tracker.advance(watermarks(utc(2025, 9, 30))).isEmpty());
+    }
+
+    @Test
+    public void yearCompletes_whenWatermarkEntersPreviousYear() {
+        BucketCompletionTracker tracker = new BucketCompletionTracker(bucketer, Collections.singletonList(VOLUME));
+        tracker.onCommitted(Arrays.asList(photo(2025, 0, 5), photo(2024, 11, 31)));
+
+        BucketCompletionTracker.Completed completed = tracker.advance(watermarks(utc(2024, 11, 31)));
+        assertEquals(Collections.singletonList(month(2025, 0)), completed.months);
+        assertEquals(Collections.singletonList(2025), completed.years);
+
+        completed = tracker.drainAll();
+        assertEquals(Collections.singletonList(month(2024, 11)), completed.months);
+        assertEquals(Collections.singletonList(2024), completed.years);
+    }
+
+    @Test
+    public void uncommittedWatermark_completesNothing() {
+        BucketCompletionTracker tracker = new BucketCompletionTracker(bucketer, Collections.singletonList(VOLUME));
+        tracker.onCommitted(Collections.singletonList(photo(2025, 5, 1)));
+        assertTrue(tracker.advance(Collections.singletonList(
+                new MediaScanPipeline.Watermark(VOLUME, 0, 0, 0, 0, false))).isEmpty());
+    }
+
+    @Test
+    public void invalidDateTail_completesEverything_andReopensMonth() {
+        BucketCompletionTracker tracker = new BucketCompletionTracker(bucketer, Collections.singletonList(VOLUME));
+        tracker.onCommitted(Arrays.asList(photo(2025, 3, 1), photo(2023, 7, 1)));
+
+        // 水位线进入无拍摄时间的尾部
+        BucketCompletionTracker.Completed completed = tracker.advance(watermarks(0));
+        assertEquals(Arrays.asList(month(2025, 3), month(2023, 7)), completed.months);
+        assertEquals(Arrays.asList(2025, 2023), completed.years);
+
+        // 尾部记录以当前时间入库，已完成的月份被重新打开并再次报告
+        tracker.onCommitted(Collections.singletonList(photo(2025, 3, 15)));
+        completed = tracker.advance(watermarks(0));
+        assertEquals(Collections.singletonList(month(2025, 3)), completed.months);
+        assertEquals(Collections.singletonList(2025), completed.years);
+    }
+
+    @Test
+    public void multipleVolumes_waitForSlowestVolume() {
+        BucketCompletionTracker tracker = new BucketCompletionTracker(bucketer, Arrays.asList(VOLUME, SD_CARD));
+        tracker.onCommitted(Arrays.asList(photo(2025, 11, 20), photo(2025, 6, 1)));
+
+        // SD卡尚未提交任何记录，可能还有更新的照片
+        assertTrue(tracker.advance(Collections.singletonList(watermark(VOLUME, utc(2025, 6, 1), false))).isEmpty());
+
+        // SD卡水位线停在2025年11月：只有12月之后的分组完成（没有），内部存储已到7月也不能发布
+        assertTrue(tracker.advance(Collections.singletonList(watermark(SD_CARD, utc(2025, 11, 1), false))).isEmpty());
+
+        // SD卡读完后只受内部存储水位线限制
+        BucketCompletionTracker.Completed completed =
+                tracker.advance(Collections.singletonList(watermark(SD_CARD, utc(2025, 11, 1), true)));
+        assertEquals(Collections.singletonList(month(2025, 11)), completed.months);
+
+        // 所有卷完成后全部发布
+        completed = tracker.advance(Collections.singletonList(watermark(VOLUME, utc(2025, 6, 1), true)));
+        assertEquals(Collections.singletonList(month(2025, 6)), completed.months);
+        assertEquals(Collections.singletonList(2025), completed.years);
+    }
+
+    private static List<MediaScanPipeline.Watermark> watermarks(long lastDateTaken) {
+        return Collections.singletonList(watermark(VOLUME, lastDateTaken, false));
+    }
+
+    private static MediaScanPipeline.Watermark watermark(String volume, long lastDateTaken, boolean complete) {
+        return new MediaScanPipeline.Watermark(volume, 1, lastDateTaken, 0, 1, complete);
+    }
+
+    private static Photo photo(int year, int month, int day) {
+        return new Photo(1, "/sdcard/DCIM/a.jpg", utc(year, month, day), GroupBucket.ofMonth(year, month + 1));
+    }
+
+    private static int month(int year, int month) {
+        return year * 12 + month;
+    }
+
+    private static long utc(int year, int month, int day) {
+        Calendar calendar = new GregorianCalendar(UTC);
+        calendar.clear();
+        calendar.set(year, month, day, 12, 0, 0);
+        return calendar.getTimeInMillis();
+    }
+}
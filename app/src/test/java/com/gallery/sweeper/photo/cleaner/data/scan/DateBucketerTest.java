@@ -0,0 +1,125 @@
+package com.gallery.sweeper.photo.cleaner.data.scan;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 月份分组计算测试：与GregorianCalendar逐一对比，覆盖夏令时切换和时区历史变更
+ */
+public class DateBucketerTest {
+
+    private static final String[] ZONES = {
+            "UTC",
+            "America/New_York",     // 夏令时凌晨2点切换
+            "America/Sao_Paulo",    // 历史上夏令时从零点开始，月初零点可能不存在
+            "Australia/Lord_Howe",  // 30分钟夏令时
+            "Asia/Kolkata",         // 非整点偏移
+            "Asia/Tehran",          // 曾经使用夏令时，后取消
+            "Pacific/Apia",         // 2011-12-30整天被跳过
+            "Pacific/Kiritimati",   // +14
+            "Pacific/Pago_Pago",    // -11
+    };
+
+    @Test
+    public void randomInstants_matchCalendar() {
+        Random random = new Random(20261018L);
+        long start = utc(1970, 0, 1);
+        long end = utc(2027, 0, 1);
+        for (String zoneId : ZONES) {
+            TimeZone zone = TimeZone.getTimeZone(zoneId);
+            DateBucketer bucketer = new DateBucketer(zone, 1970, 2026);
+            for (int i = 0; i < 20000; i++) {
+                long millis = start + (long) (random.nextDouble() * (end - start));
+                assertEquals(zoneId + " @ " + millis, expected(zone, millis), bucketer.bucketOf(millis));
+            }
+        }
+    }
+
+    @Test
+    public void monthBoundaries_matchCalendar() {
+        for (String zoneId : ZONES) {
+            TimeZone zone = TimeZone.getTimeZone(zoneId);
+            DateBucketer bucketer = new DateBucketer(zone, 1970, 2026);
+            Calendar calendar = new GregorianCalendar(zone);
+            for (int year = 1970; year <= 2026; year++) {
+                for (int month = 0; month < 12; month++) {
+                    calendar.clear();
+                    calendar.set(year, month, 1, 0, 0, 0);
+                    long monthStart = calendar.getTimeInMillis();
+                    for (long delta : new long[]{-3_600_000L, -1L, 0L, 1L, 3_600_000L}) {
+                        long millis = monthStart + delta;
+                        assertEquals(zoneId + " " + year + "-" + (month + 1) + " " + delta,
+                                expected(zone, millis), bucketer.bucketOf(millis));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void dstTransitions_matchCalendar() {
+        // 逐小时扫过有夏令时切换的年份
+        for (String zoneId : new String[]{"America/New_York", "America/Sao_Paulo", "Australia/Lord_Howe", "Pacific/Apia"}) {
+            TimeZone zone = TimeZone.getTimeZone(zoneId);
+            DateBucketer bucketer = new DateBucketer(zone, 2010, 2019);
+            for (long millis = utc(2011, 0, 1); millis < utc(2012, 1, 1); millis += 15 * 60 * 1000L) {
+                assertEquals(zoneId + " @ " + millis, expected(zone, millis), bucketer.bucketOf(millis));
+            }
+        }
+    }
+
+    @Test
+    public void sameInstant_differentZones() {
+        // 2024-01-31 23:30 UTC：纽约仍是1月，东京已是2月
+        long millis = utc(2024, 0, 31) + 23 * 3_600_000L + 30 * 60_000L;
+        DateBucketer newYork = new DateBucketer(TimeZone.getTimeZone("America/New_York"));
+        DateBucketer tokyo = new DateBucketer(TimeZone.getTimeZone("Asia/Tokyo"));
+
+        int nyBucket = newYork.bucketOf(millis);
+        int tokyoBucket = tokyo.bucketOf(millis);
+        assertEquals(202401, DateBucketer.yearMonth(nyBucket));
+        assertEquals(202402, DateBucketer.yearMonth(tokyoBucket));
+    }
+
+    @Test
+    public void outOfRange_fallsBackToCalendar() {
+        TimeZone zone = TimeZone.getTimeZone("Europe/Berlin");
+        DateBucketer bucketer = new DateBucketer(zone, 2000, 2001);
+        long before = utc(1995, 5, 15);
+        long after = utc(2030, 10, 2);
+        assertEquals(expected(zone, before), bucketer.bucketOf(before));
+        assertEquals(expected(zone, after), bucketer.bucketOf(after));
+        assertEquals(203011, DateBucketer.yearMonth(bucketer.bucketOf(after)));
+    }
+
+    @Test
+    public void yearMonth_matchesGroupBucket() {
+        DateBucketer bucketer = new DateBucketer(TimeZone.getTimeZone("UTC"), 2020, 2025);
+        int first = bucketer.bucketOf(utc(2023, 3, 1));
+        int second = bucketer.bucketOf(utc(2023, 3, 28));
+        assertEquals(first, second);
+        assertEquals(2023, DateBucketer.yearOf(first));
+        assertEquals(3, DateBucketer.monthOf(first));
+        assertEquals(202304, DateBucketer.yearMonth(first));
+        assertEquals(202312, DateBucketer.yearMonth(bucketer.bucketOf(utc(2023, 11, 31))));
+    }
+
+    private static int expected(TimeZone zone, long millis) {
+        Calendar calendar = new GregorianCalendar(zone);
+        calendar.setTimeInMillis(millis);
+        return calendar.get(Calendar.YEAR) * 12 + calendar.get(Calendar.MONTH);
+    }
+
+    private static long utc(int year, int month, int day) {
+        Calendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        calendar.clear();
+        calendar.set(year, month, day, 0, 0, 0);
+        return calendar.getTimeInMillis();
+    }
+}
@@ -0,0 +1,165 @@
+package com.gallery.sweeper.photo.cleaner.data.scan;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 文件头部EXIF日期解析测试
+ */
+public class ExifDateReaderTest {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    @Test
+    public void dateTimeOriginal_bothByteOrders() {
+        for (boolean littleEndian : new boolean[]{true, false}) {
+            byte[] jpeg = jpeg(0, tiff(littleEndian, "2024:02:29 13:45:10", null, null));
+            assertEquals(utc(2024, 1, 29, 13, 45, 10), ExifDateReader.parse(jpeg, jpeg.length, UTC));
+        }
+    }
+
+    @Test
+    public void offsetTimeOriginal_overridesZone() {
+        byte[] jpeg = jpeg(0, tiff(true, "2024:06:01 08:00:00", "+08:00", null));
+        assertEquals(utc(2024, 5, 1, 0, 0, 0), ExifDateReader.parse(jpeg, jpeg.length, UTC));
+    }
+
+    @Test
+    public void fallsBackToIfd0DateTime_andRejectsZeroDate() {
+        byte[] jpeg = jpeg(0, tiff(false, "0000:00:00 00:00:00", null, "2019:12:31 23:59:59"));
+        assertEquals(utc(2019, 11, 31, 23, 59, 59), ExifDateReader.parse(jpeg, jpeg.length, UTC));
+
+        jpeg = jpeg(0, tiff(false, "0000:00:00 00:00:00", null, null));
+        assertEquals(ExifDateReader.NO_DATE, ExifDateReader.parse(jpeg, jpeg.length, UTC));
+    }
+
+    @Test
+    public void nonJpegOrMissingExif_hasNoDate() {
+        byte[] png = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A};
+        assertEquals(ExifDateReader.NO_DATE, ExifDateReader.parse(png, png.length, UTC));
+
+        byte[] bare = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xDA, 0, 2};
+        assertEquals(ExifDateReader.NO_DATE, ExifDateReader.parse(bare, bare.length, UTC));
+    }
+
+    @Test
+    public void exifBeyondProbe_isReadFromFile() throws IOException {
+        // APP1之前有一个大于探测长度的APP0段，第一次读取不完整
+        byte[] jpeg = jpeg(ExifDateReader.PROBE_BYTES, tiff(true, "2021:07:04 09:30:00", null, null));
+        assertTrue(ExifDateReader.parse(jpeg, ExifDateReader.PROBE_BYTES, UTC) < 0);
+
+        File file = File.createTempFile("exif", ".jpg");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(jpeg);
+            out.write(new byte[100 * 1024]); // 图像数据不会被读取
+        }
+        try {
+            assertEquals(utc(2021, 6, 4, 9, 30, 0), ExifDateReader.read(file, UTC));
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * @param paddingBytes APP1之前APP0段的数据长度，0表示没有APP0
+     */
+    private static byte[] jpeg(int paddingBytes, byte[] tiff) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(0xFF);
+        out.write(0xD8);
+        if (paddingBytes > 0) {
+            out.write(0xFF);
+            out.write(0xE0);
+            writeShort(out, paddingBytes + 2, false);
+            out.write(new byte[paddingBytes], 0, paddingBytes);
+        }
+        out.write(0xFF);
+        out.write(0xE1);
+        writeShort(out, tiff.length + 8, false);
+        out.write(new byte[]{'E', 'x', 'i', 'f', 0, 0}, 0, 6);
+        out.write(tiff, 0, tiff.length);
+        out.write(0xFF);
+        out.write(0xDA);
+        return out.toByteArray();
+    }
+
+    /**
+     * IFD0（DateTime、Exif IFD指针） + Exif IFD（DateTimeOriginal、OffsetTimeOriginal）
+     */
+    private static byte[] tiff(boolean littleEndian, String original, String offset, String ifd0DateTime) {
+        byte[] data = new byte[256];
+        data[0] = data[1] = (byte) (littleEndian ? 'I' : 'M');
+        putShort(data, 2, 42, littleEndian);
+        putInt(data, 4, 8, littleEndian);
+
+        int stringArea = 160;
+        // IFD0 @8
+        int ifd0Count = ifd0DateTime != null ? 2 : 1;
+        putShort(data, 8, ifd0Count, littleEndian);
+        int entry = 10;
+        int exifIfd = 10 + ifd0Count * 12 + 4;
+        if (ifd0DateTime != null) {
+            stringArea = putAscii(data, entry, 0x0132, ifd0DateTime, stringArea, littleEndian);
+            entry += 12;
+        }
+        putShort(data, entry, 0x8769, littleEndian);
+        putShort(data, entry + 2, 4, littleEndian);
+        putInt(data, entry + 4, 1, littleEndian);
+        putInt(data, entry + 8, exifIfd, littleEndian);
+
+        // Exif IFD
+        int exifCount = offset != null ? 2 : 1;
+        putShort(data, exifIfd, exifCount, littleEndian);
+        stringArea = putAscii(data, exifIfd + 2, 0x9003, original, stringArea, littleEndian);
+        if (offset != null) {
+            putAscii(data, exifIfd + 14, 0x9011, offset, stringArea, littleEndian);
+        }
+        return data;
+    }
+
+    private static int putAscii(byte[] data, int entry, int tag, String value, int stringArea, boolean littleEndian) {
+        byte[] bytes = Arrays.copyOf(value.getBytes(StandardCharsets.US_ASCII), value.length() + 1);
+        putShort(data, entry, tag, littleEndian);
+        putShort(data, entry + 2, 2, littleEndian);
+        putInt(data, entry + 4, bytes.length, littleEndian);
+        putInt(data, entry + 8, stringArea, littleEndian);
+        System.arraycopy(bytes, 0, data, stringArea, bytes.length);
+        return stringArea + bytes.length;
+    }
+
+    private static void putShort(byte[] data, int offset, int value, boolean littleEndian) {
+        data[offset + (littleEndian ? 0 : 1)] = (byte) value;
+        data[offset + (littleEndian ? 1 : 0)] = (byte) (value >> 8);
+    }
+
+    private static void putInt(byte[] data, int offset, int value, boolean littleEndian) {
+        for (int i = 0; i < 4; i++) {
+            data[offset + (littleEndian ? i : 3 - i)] = (byte) (value >> (8 * i));
+        }
+    }
+
+    private static void writeShort(ByteArrayOutputStream out, int value, boolean littleEndian) {
+        byte[] bytes = new byte[2];
+        putShort(bytes, 0, value, littleEndian);
+        out.write(bytes, 0, 2);
+    }
+
+    private static long utc(int year, int month, int day, int hour, int minute, int second) {
+        Calendar calendar = new GregorianCalendar(UTC);
+        calendar.clear();
+        calendar.set(year, month, day, hour, minute, second);
+        return calendar.getTimeInMillis();
+    }
+}
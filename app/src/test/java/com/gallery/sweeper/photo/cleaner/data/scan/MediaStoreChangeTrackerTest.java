@@ -0,0 +1,144 @@
+package com.gallery.sweeper.photo.cleaner.data.scan;
+
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.os.SystemClock;
+import android.provider.MediaStore;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * 媒体库变化通知合并测试：去抖、最大延迟和全量增量
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class MediaStoreChangeTrackerTest {
+
+    private ContentResolver resolver;
+    private MediaStoreChangeTracker tracker;
+    private ShadowLooper looper;
+    private final List<Callback> callbacks = Collections.synchronizedList(new ArrayList<>());
+
+    private static class Callback {
+        final Set<Long> ids;
+        final boolean fullDelta;
+        final long at;
+
+        Callback(Set<Long> ids, boolean fullDelta, long at) {
+            this.ids = ids;
+            this.fullDelta = fullDelta;
+            this.at = at;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        resolver = ApplicationProvider.getApplicationContext().getContentResolver();
+        tracker = new MediaStoreChangeTracker(resolver, (ids, fullDelta) ->
+                callbacks.add(new Callback(ids, fullDelta, SystemClock.uptimeMillis())));
+        tracker.start();
+        looper = shadowOf(tracker.getLooper());
+    }
+
+    @After
+    public void tearDown() {
+        tracker.stop();
+    }
+
+    @Test
+    public void burst_isMergedIntoOneCallback() {
+        Set<Long> expected = new HashSet<>();
+        for (long id = 1; id <= 30; id++) {
+            notifyPhoto(id);
+            expected.add(id);
+        }
+        looper.idleFor(Duration.ofMillis(MediaStoreChangeTracker.DEBOUNCE_MS - 1));
+        assertTrue(callbacks.isEmpty());
+
+        looper.idleFor(Duration.ofMillis(1));
+        assertEquals(1, callbacks.size());
+        assertEquals(expected, callbacks.get(0).ids);
+        assertFalse(callbacks.get(0).fullDelta);
+
+        // 之后没有新通知，不会重复回调
+        looper.idleFor(Duration.ofMillis(MediaStoreChangeTracker.MAX_DELAY_MS));
+        assertEquals(1, callbacks.size());
+    }
+
+    @Test
+    public void continuousStream_flushesAtMaxDelay() {
+        long start = SystemClock.uptimeMillis();
+        long interval = MediaStoreChangeTracker.DEBOUNCE_MS / 2;
+        long id = 1;
+        while (SystemClock.uptimeMillis() - start < MediaStoreChangeTracker.MAX_DELAY_MS) {
+            notifyPhoto(id++);
+            looper.idleFor(Duration.ofMillis(interval));
+        }
+
+        assertEquals(1, callbacks.size());
+        assertEquals(start + MediaStoreChangeTracker.MAX_DELAY_MS, callbacks.get(0).at);
+        assertEquals(MediaStoreChangeTracker.MAX_DELAY_MS / interval, callbacks.get(0).ids.size());
+
+        // 最大延迟之后的通知重新计时
+        notifyPhoto(id);
+        looper.idleFor(Duration.ofMillis(MediaStoreChangeTracker.DEBOUNCE_MS));
+        assertEquals(2, callbacks.size());
+        assertEquals(Collections.singleton(id), callbacks.get(1).ids);
+    }
+
+    @Test
+    public void tooManyIds_becomeFullDelta() {
+        for (long id = 1; id <= MediaStoreChangeTracker.MAX_PENDING_IDS + 1; id++) {
+            notifyPhoto(id);
+        }
+        looper.idleFor(Duration.ofMillis(MediaStoreChangeTracker.DEBOUNCE_MS));
+
+        assertEquals(1, callbacks.size());
+        assertTrue(callbacks.get(0).fullDelta);
+        assertTrue(callbacks.get(0).ids.isEmpty());
+    }
+
+    @Test
+    public void uriWithoutId_becomesFullDelta() {
+        notifyPhoto(1);
+        resolver.notifyChange(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, null);
+        notifyPhoto(2);
+        looper.idleFor(Duration.ofMillis(MediaStoreChangeTracker.DEBOUNCE_MS));
+
+        assertEquals(1, callbacks.size());
+        assertTrue(callbacks.get(0).fullDelta);
+        assertTrue(callbacks.get(0).ids.isEmpty());
+
+        // 全量增量处理后恢复按ID合并
+        notifyPhoto(3);
+        looper.idleFor(Duration.ofMillis(MediaStoreChangeTracker.DEBOUNCE_MS));
+        assertEquals(2, callbacks.size());
+        assertFalse(callbacks.get(1).fullDelta);
+        assertEquals(Collections.singleton(3L), callbacks.get(1).ids);
+    }
+
+    private void notifyPhoto(long id) {
+        resolver.notifyChange(ContentUris.withAppendedId(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, id), null);
+        looper.idle(); // 通知投递到跟踪线程
+    }
+}
@@ -0,0 +1,29 @@
+package com.gallery.sweeper.photo.cleaner.data.scan;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 对账孤儿比例检查测试
+ */
+public class OrphanReconcilerTest {
+
+    @Test
+    public void isPlausible_acceptsUpToHalfOfLocalRows() {
+        assertTrue(OrphanReconciler.isPlausible(0, 1000));
+        assertTrue(OrphanReconciler.isPlausible(500, 1000));
+        assertFalse(OrphanReconciler.isPlausible(501, 1000));
+        assertFalse(OrphanReconciler.isPlausible(1000, 1000));
+    }
+
+    @Test
+    public void isPlausible_smallOrphanCountsAreNotGuarded() {
+        // 小图库删除大半照片仍能对账
+        assertTrue(OrphanReconciler.isPlausible(OrphanReconciler.MIN_GUARDED_ORPHANS,
+                OrphanReconciler.MIN_GUARDED_ORPHANS));
+        assertFalse(OrphanReconciler.isPlausible(OrphanReconciler.MIN_GUARDED_ORPHANS + 1,
+                OrphanReconciler.MIN_GUARDED_ORPHANS + 1));
+    }
+}